@@ -51,6 +51,31 @@ public interface BranchDao extends Crud<Branch> {
      */
     int getCountPostsInBranch(Branch branch);
 
+    /**
+     * Recalculates stored counts of posts in topics and counts of topics and posts
+     * in branches from the actual rows, only entries which differ are updated.
+     *
+     * @return count of topics and branches whose stored counts were repaired
+     */
+    int reconcileCounters();
+
+    /**
+     * Atomically changes stored counts of topics and posts in the branch, so that concurrent changes
+     * are not lost. The branch entity itself doesn't write these counts.
+     *
+     * @param branch      the branch
+     * @param topicsToAdd number of topics to add to the count, negative to subtract
+     * @param postsToAdd  number of posts to add to the count, negative to subtract
+     */
+    void changeCounters(Branch branch, int topicsToAdd, int postsToAdd);
+
+    /**
+     * Recalculates stored counts of topics and posts in the branch from the actual rows.
+     *
+     * @param branch the branch
+     */
+    void recalculateCounters(Branch branch);
+
     /**
      * Get subscribers for specified branch with allowed permission to read this branch.
      *
@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.model.dao;
+
+import org.joda.time.DateTime;
+import org.jtalks.common.model.dao.Crud;
+import org.jtalks.jcommune.model.entity.NotificationOutboxEntry;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * DAO for the {@link NotificationOutboxEntry}, notifications which are waiting to be sent.
+ */
+public interface NotificationOutboxDao extends Crud<NotificationOutboxEntry> {
+    /**
+     * Claims the oldest notifications which aren't claimed by other nodes of the cluster, so that they are
+     * sent by this node only. Claims made before the given time are expired and may be claimed again.
+     *
+     * @param claimant      unique ID of the claim
+     * @param count         maximum count of notifications to claim
+     * @param claimedBefore claims made before this time are expired
+     * @param maxAttempts   notifications which failed to be sent this number of times are not claimed anymore
+     * @return claimed notifications in order they were saved
+     */
+    List<NotificationOutboxEntry> claimOldest(String claimant, int count, DateTime claimedBefore, int maxAttempts);
+
+    /**
+     * Deletes sent notifications by one statement.
+     *
+     * @param entries notifications to delete
+     */
+    void delete(Collection<NotificationOutboxEntry> entries);
+
+    /**
+     * Releases claimed notifications which failed to be sent and counts the failed attempt.
+     * They are claimed again when their claim expires.
+     *
+     * @param entries notifications which failed to be sent
+     */
+    void markFailed(Collection<NotificationOutboxEntry> entries);
+
+    /**
+     * Deletes notifications which failed to be sent the maximum number of times and aren't
+     * retried anymore, so that they don't pile up in the outbox.
+     *
+     * @param maxAttempts       notifications which failed to be sent this number of times are deleted
+     * @param lastAttemptBefore only notifications last attempted to be sent before this time are deleted
+     * @return number of deleted notifications
+     */
+    int deleteExhausted(int maxAttempts, DateTime lastAttemptBefore);
+}
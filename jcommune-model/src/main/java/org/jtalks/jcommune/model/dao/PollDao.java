@@ -0,0 +1,45 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.model.dao;
+
+import org.jtalks.common.model.dao.Crud;
+import org.jtalks.jcommune.model.entity.JCUser;
+import org.jtalks.jcommune.model.entity.Poll;
+
+import java.util.Collection;
+
+/**
+ * DAO for the {@link Poll} and votes of the users in it.
+ */
+public interface PollDao extends Crud<Poll> {
+    /**
+     * Checks if user has already voted in the poll.
+     *
+     * @param poll poll to check
+     * @param user user to check
+     * @return {@code true} if user has voted in the poll
+     */
+    boolean isVotedBy(Poll poll, JCUser user);
+
+    /**
+     * Records the vote of the user and increases votes count of the selected options by one statement,
+     * so that concurrent votes don't overwrite each other. Options of the poll are reloaded afterwards.
+     *
+     * @param poll               poll user votes in
+     * @param user               voting user
+     * @param selectedOptionsIds identifiers of the options user has selected
+     */
+    void vote(Poll poll, JCUser user, Collection<Long> selectedOptionsIds);
+}
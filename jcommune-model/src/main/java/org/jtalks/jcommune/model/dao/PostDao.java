@@ -16,6 +16,7 @@ package org.jtalks.jcommune.model.dao;
 
 import org.jtalks.common.model.dao.Crud;
 import org.jtalks.jcommune.model.dto.PageRequest;
+import org.jtalks.jcommune.model.dto.PostsPageBoundary;
 import org.jtalks.jcommune.model.entity.Branch;
 import org.jtalks.jcommune.model.entity.JCUser;
 import org.jtalks.jcommune.model.entity.Post;
@@ -58,6 +59,26 @@ public interface PostDao extends Crud<Post> {
      *         all posts) and information for pagination
      */
     Page<Post> getPosts(Topic topic, PageRequest pageRequest);
+
+    /**
+     * Get posts of the topic page next to the boundary post of the neighbouring page. If the boundary post isn't in
+     * the topic anymore or the page number is adjusted, posts are found the same way as by
+     * {@link #getPosts(Topic, PageRequest)}.
+     *
+     * @param topic       for this topic we will find posts
+     * @param pageRequest contains information for pagination: page number, page size
+     * @param boundary    post on the boundary of the neighbouring page or {@code null} if it's not known
+     * @return object that contains posts for one page and information for pagination
+     */
+    Page<Post> getPosts(Topic topic, PageRequest pageRequest, PostsPageBoundary boundary);
+
+    /**
+     * Get index of the post in its topic, posts of the topic are ordered by creation date.
+     *
+     * @param post post to find index of
+     * @return index of the post starting with 0
+     */
+    int getPostIndexInTopic(Post post);
     
     /**
      * Get last post that was posted in a topic of branch.
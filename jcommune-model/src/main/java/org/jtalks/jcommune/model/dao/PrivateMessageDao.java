@@ -69,4 +69,22 @@ public interface PrivateMessageDao extends Crud<PrivateMessage> {
      * @return count of new messages
      */
     int getNewMessagesCountFor(String username);
+
+    /**
+     * Get count of new (unread) messages for user stored in the user row. It's kept up to date
+     * with {@link #changeNewMessagesCount(JCUser, int)} and is cheaper than counting messages.
+     *
+     * @param username username
+     * @return count of new messages
+     */
+    int getStoredNewMessagesCountFor(String username);
+
+    /**
+     * Atomically changes stored count of new messages of the user, so that concurrent changes
+     * aren't lost. Count is never decreased below zero.
+     *
+     * @param recipient user to change count of new messages for
+     * @param changes   value to be added to the count, negative to decrease it
+     */
+    void changeNewMessagesCount(JCUser recipient, int changes);
 }
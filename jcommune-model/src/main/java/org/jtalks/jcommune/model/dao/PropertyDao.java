@@ -17,6 +17,8 @@ package org.jtalks.jcommune.model.dao;
 import org.jtalks.common.model.dao.Crud;
 import org.jtalks.common.model.entity.Property;
 
+import java.util.List;
+
 /**
  * Interface allows to make basic CRUD operations with the {@link Property}
  * objects.
@@ -31,4 +33,11 @@ public interface PropertyDao extends Crud<Property> {
      * @return founded property
      */
     Property getByName(String name);
+
+    /**
+     * Gets all the properties.
+     *
+     * @return all the properties
+     */
+    List<Property> getAllProperties();
 }
@@ -25,6 +25,7 @@ import org.springframework.data.domain.Page;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * DAO for the {@link Topic} objects.
@@ -45,21 +46,23 @@ public interface TopicDao extends Crud<Topic> {
      *
      * @param lastLogin   user's last login date and time
      * @param pageRequest contains information for pagination: page number, page size
-     * @param user        current user
+     * @param branchIds   identifiers of branches to search topics in, usually
+     *                    branches visible to the current user
      * @return object that contains topics for one page and information for pagination
      */
-    Page<Topic> getTopicsUpdatedSince(DateTime lastLogin, PageRequest pageRequest, JCUser user);
+    Page<Topic> getTopicsUpdatedSince(DateTime lastLogin, PageRequest pageRequest, List<Long> branchIds);
 
 
     /**
      * Get unanswered topics(topics which has only 1 post added during topic creation).
      *
      * @param pageRequest contains information for pagination: page number, page size
-     * @param user        current user
+     * @param branchIds   identifiers of branches to search topics in, usually
+     *                    branches visible to the current user
      * @return object that contains unanswered topics for one page and information
      *         for pagination
      */
-    Page<Topic> getUnansweredTopics(PageRequest pageRequest, JCUser user);
+    Page<Topic> getUnansweredTopics(PageRequest pageRequest, List<Long> branchIds);
 
     /**
      * Find the last updated topic in the branch.
@@ -87,6 +90,43 @@ public interface TopicDao extends Crud<Topic> {
      */
     int countTopics(Branch branch);
 
+    /**
+     * Adds views to the topics in one batch of updates. Views are added to the
+     * values stored in the database, so concurrent updates are not lost.
+     *
+     * @param viewsByTopicId views to be added mapped by topic identifiers
+     */
+    void addViews(Map<Long, Integer> viewsByTopicId);
+
+    /**
+     * Atomically changes stored count of posts in the topic and in its branch, so that concurrent replies
+     * are not lost. Neither topic nor branch entity writes these counts.
+     *
+     * @param topic      the topic
+     * @param postsToAdd number of posts to add to the count, negative to subtract
+     */
+    void changePostCount(Topic topic, int postsToAdd);
+
+    /**
+     * Gets identifiers of the topics in the branch, can be used to process topics of big branches by chunks.
+     *
+     * @param branch   branch to get topics of
+     * @param maxCount maximum number of identifiers to return
+     * @return identifiers of topics in ascending order
+     */
+    List<Long> getTopicIdsInBranch(Branch branch, int maxCount);
+
+    /**
+     * Deletes topics together with their posts, comments, votes, polls, subscriptions and marks of read posts
+     * with bulk statements instead of deleting them one by one. Counts of posts of the authors and counts of topics
+     * and posts of the branches are decreased, branches don't reference deleted posts as their last posts anymore,
+     * so new last posts should be found by the caller. Topics loaded in the current session are not updated.
+     *
+     * @param topicIds identifiers of topics to delete, a reasonable chunk of them since they are used in IN clauses
+     * @return number of deleted topics
+     */
+    int deleteTopics(Collection<Long> topicIds);
+
     /**
      * Get subscribers for specified topic with allowed permission to read this topic.
      *
@@ -107,7 +147,7 @@ public interface TopicDao extends Crud<Topic> {
      * Get allowed branches id for permission VIEW_TOPICS only
      *
      * @param user Current user
-     * @return
+     * @return identifiers of branches sorted in ascending order, without duplicates
      */
     List<Long> getAllowedBranchesIds(JCUser user);
 }
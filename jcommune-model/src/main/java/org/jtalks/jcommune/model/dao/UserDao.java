@@ -15,9 +15,9 @@
 package org.jtalks.jcommune.model.dao;
 
 import org.jtalks.common.model.entity.User;
+import org.joda.time.DateTime;
 import org.jtalks.jcommune.model.entity.JCUser;
 
-import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -63,12 +63,14 @@ public interface UserDao extends org.jtalks.common.model.dao.UserDao<JCUser> {
     JCUser getByUuid(String uuid);
 
     /**
-     * Returns all users, whose accounts are not enables. At the moment registration creates disabled accounts and user
-     * should activate them manually following the link in an e-mail.
+     * Deletes users, whose accounts weren't activated and were registered before the given date. Users are
+     * deleted by chunks, every chunk is flushed and then evicted from the session, so that expired accounts
+     * don't pile up in memory. Other entities of the session are kept.
      *
-     * @return list of non-activated user accounts
+     * @param registrationDate accounts registered before this date are deleted
+     * @return number of deleted accounts
      */
-    Collection<JCUser> getNonActivatedUsers();
+    int deleteNonActivatedUsersRegisteredBefore(DateTime registrationDate);
 
     /**
      * Gets a common (not JCommune one) user from the database. This is done because there might be some users not
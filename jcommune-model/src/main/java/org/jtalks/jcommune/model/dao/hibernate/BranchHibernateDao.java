@@ -69,6 +69,42 @@ public class BranchHibernateDao extends GenericDao<Branch>
         return count.intValue();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int reconcileCounters() {
+        // topics first, as branch counts of posts are summed up from topics
+        int repairedTopics = session().getNamedQuery("reconcileTopicPostCounts").executeUpdate();
+        int repairedBranches = session().getNamedQuery("reconcileBranchCounters").executeUpdate();
+        repairedBranches += session().getNamedQuery("reconcileBranchLastPostDates").executeUpdate();
+        return repairedTopics + repairedBranches;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void changeCounters(Branch branch, int topicsToAdd, int postsToAdd) {
+        session().getNamedQuery("changeBranchCounters")
+                .setInteger("topicsToAdd", topicsToAdd)
+                .setInteger("postsToAdd", postsToAdd)
+                .setLong("branchId", branch.getId())
+                .executeUpdate();
+        CacheEvictions.evictEntity(session().getSessionFactory(), Branch.class, branch.getId());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void recalculateCounters(Branch branch) {
+        session().getNamedQuery("recalculateBranchCounters")
+                .setLong("branchId", branch.getId())
+                .executeUpdate();
+        CacheEvictions.evictEntity(session().getSessionFactory(), Branch.class, branch.getId());
+    }
+
     /**
      * {@inheritDoc}
      */
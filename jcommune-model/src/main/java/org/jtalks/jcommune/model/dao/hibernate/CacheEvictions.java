@@ -0,0 +1,48 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.model.dao.hibernate;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.jtalks.jcommune.model.utils.CacheInvalidation;
+
+import java.io.Serializable;
+
+/**
+ * Evicts entities changed by atomic SQL statements from the second level cache. Hibernate doesn't know which
+ * rows such statements change, so DAOs evict them explicitly.
+ */
+final class CacheEvictions {
+
+    private CacheEvictions() {
+    }
+
+    /**
+     * Evicts entity right away and once more after the current transaction completes.
+     *
+     * @param sessionFactory factory the cache belongs to
+     * @param entityClass    class of the entity
+     * @param id             identifier of the entity
+     */
+    static void evictEntity(SessionFactory sessionFactory, final Class<?> entityClass, final Serializable id) {
+        final Cache cache = sessionFactory.getCache();
+        CacheInvalidation.nowAndAfterCompletion(new Runnable() {
+            @Override
+            public void run() {
+                cache.evictEntity(entityClass, id);
+            }
+        });
+    }
+}
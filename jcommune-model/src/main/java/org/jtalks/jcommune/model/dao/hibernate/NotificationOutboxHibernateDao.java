@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.model.dao.hibernate;
+
+import org.hibernate.SessionFactory;
+import org.joda.time.DateTime;
+import org.jtalks.common.model.dao.hibernate.GenericDao;
+import org.jtalks.jcommune.model.dao.NotificationOutboxDao;
+import org.jtalks.jcommune.model.entity.NotificationOutboxEntry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Hibernate DAO implementation for the {@link NotificationOutboxEntry}.
+ */
+public class NotificationOutboxHibernateDao extends GenericDao<NotificationOutboxEntry>
+        implements NotificationOutboxDao {
+
+    /**
+     * @param sessionFactory The SessionFactory.
+     */
+    public NotificationOutboxHibernateDao(SessionFactory sessionFactory) {
+        super(sessionFactory, NotificationOutboxEntry.class);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<NotificationOutboxEntry> claimOldest(String claimant, int count, DateTime claimedBefore,
+                                                     int maxAttempts) {
+        List<Long> ids = session().getNamedQuery("getClaimableOutboxEntryIds")
+                .setParameter("claimedBefore", claimedBefore)
+                .setParameter("maxAttempts", maxAttempts)
+                .setMaxResults(count)
+                .list();
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        session().getNamedQuery("claimOutboxEntries")
+                .setString("claimant", claimant)
+                .setTimestamp("claimedAt", new DateTime().toDate())
+                .setTimestamp("claimedBefore", claimedBefore.toDate())
+                .setParameterList("ids", ids)
+                .executeUpdate();
+        return session().getNamedQuery("getOutboxEntriesClaimedBy")
+                .setString("claimant", claimant)
+                .list();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete(Collection<NotificationOutboxEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        session().getNamedQuery("deleteOutboxEntries")
+                .setParameterList("ids", getIds(entries))
+                .executeUpdate();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void markFailed(Collection<NotificationOutboxEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        session().getNamedQuery("markOutboxEntriesFailed")
+                .setParameterList("ids", getIds(entries))
+                .executeUpdate();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int deleteExhausted(int maxAttempts, DateTime lastAttemptBefore) {
+        return session().getNamedQuery("deleteExhaustedOutboxEntries")
+                .setParameter("maxAttempts", maxAttempts)
+                .setParameter("lastAttemptBefore", lastAttemptBefore)
+                .executeUpdate();
+    }
+
+    private List<Long> getIds(Collection<NotificationOutboxEntry> entries) {
+        List<Long> ids = new ArrayList<>(entries.size());
+        for (NotificationOutboxEntry entry : entries) {
+            ids.add(entry.getId());
+        }
+        return ids;
+    }
+}
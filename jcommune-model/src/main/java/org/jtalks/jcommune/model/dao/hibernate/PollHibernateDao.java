@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.model.dao.hibernate;
+
+import org.hibernate.SessionFactory;
+import org.jtalks.common.model.dao.hibernate.GenericDao;
+import org.jtalks.jcommune.model.dao.PollDao;
+import org.jtalks.jcommune.model.entity.JCUser;
+import org.jtalks.jcommune.model.entity.Poll;
+import org.jtalks.jcommune.model.entity.PollItem;
+import org.jtalks.jcommune.model.entity.PollVote;
+
+import java.util.Collection;
+
+/**
+ * Hibernate DAO implementation for the {@link Poll}.
+ */
+public class PollHibernateDao extends GenericDao<Poll> implements PollDao {
+
+    /**
+     * @param sessionFactory The SessionFactory.
+     */
+    public PollHibernateDao(SessionFactory sessionFactory) {
+        super(sessionFactory, Poll.class);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isVotedBy(Poll poll, JCUser user) {
+        Number count = (Number) session().getNamedQuery("isPollVotedByUser")
+                .setParameter("pollId", poll.getId())
+                .setParameter("userId", user.getId())
+                .uniqueResult();
+        return count.intValue() > 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void vote(Poll poll, JCUser user, Collection<Long> selectedOptionsIds) {
+        session().save(new PollVote(poll, user));
+        //vote is inserted first, so that unique constraint rejects concurrent revote before counts are changed
+        session().flush();
+        if (selectedOptionsIds.isEmpty()) {
+            return;
+        }
+        session().getNamedQuery("increasePollItemsVotesCount")
+                .setParameter("pollId", poll.getId())
+                .setParameterList("itemIds", selectedOptionsIds)
+                .executeUpdate();
+        for (PollItem item : poll.getPollItems()) {
+            session().refresh(item);
+        }
+    }
+}
@@ -19,6 +19,7 @@ import org.hibernate.SessionFactory;
 import org.jtalks.common.model.dao.hibernate.GenericDao;
 import org.jtalks.jcommune.model.dao.PostDao;
 import org.jtalks.jcommune.model.dto.PageRequest;
+import org.jtalks.jcommune.model.dto.PostsPageBoundary;
 import org.jtalks.jcommune.model.entity.Branch;
 import org.jtalks.jcommune.model.entity.JCUser;
 import org.jtalks.jcommune.model.entity.Post;
@@ -26,6 +27,8 @@ import org.jtalks.jcommune.model.entity.Topic;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -39,6 +42,11 @@ import java.util.List;
  */
 public class PostHibernateDao extends GenericDao<Post> implements PostDao {
     private static final String TOPIC_PARAMETER_NAME = "topic";
+    private static final String USER_CREATED_PARAMETER_NAME = "userCreated";
+    private static final String ALLOWED_BRANCHES_PARAMETER_NAME = "allowedBranchesIds";
+    private static final String DATE_PARAMETER_NAME = "date";
+    private static final String ID_PARAMETER_NAME = "id";
+    private static final String TOPIC_ID_PARAMETER_NAME = "topicId";
 
     /**
      * @param sessionFactory The SessionFactory.
@@ -51,20 +59,28 @@ public class PostHibernateDao extends GenericDao<Post> implements PostDao {
      * {@inheritDoc}
      */
     public Page<Post> getUserPosts(JCUser author, PageRequest pageRequest, List<Long> allowedBranchesIds) {
+        // user's post counter includes posts in branches hidden from the current user, so it can't be used here
         Number totalCount = (Number) session()
                 .getNamedQuery("getCountPostsOfUser")
-                .setParameter("userCreated", author)
-                .setParameterList("allowedBranchesIds", allowedBranchesIds)
+                .setParameter(USER_CREATED_PARAMETER_NAME, author)
+                .setParameterList(ALLOWED_BRANCHES_PARAMETER_NAME, allowedBranchesIds)
                 .uniqueResult();
-        Query query = session()
-                .getNamedQuery("getPostsOfUser")
-                .setParameter("userCreated", author)
-                .setParameterList("allowedBranchesIds", allowedBranchesIds);
         pageRequest.adjustPageNumber(totalCount.intValue());
-        query.setFirstResult(pageRequest.getOffset());
-        query.setMaxResults(pageRequest.getPageSize());
-        @SuppressWarnings("unchecked")
-        List<Post> posts = (List<Post>) query.list();
+        Object[] firstKey = (Object[]) session()
+                .getNamedQuery("getPostKeysOfUser")
+                .setParameter(USER_CREATED_PARAMETER_NAME, author)
+                .setParameterList(ALLOWED_BRANCHES_PARAMETER_NAME, allowedBranchesIds)
+                .setFirstResult(pageRequest.getOffset())
+                .setMaxResults(1)
+                .uniqueResult();
+        List<Post> posts = Collections.emptyList();
+        if (firstKey != null) {
+            Query query = session()
+                    .getNamedQuery("getPostsOfUserFromKey")
+                    .setParameter(USER_CREATED_PARAMETER_NAME, author)
+                    .setParameterList(ALLOWED_BRANCHES_PARAMETER_NAME, allowedBranchesIds);
+            posts = listPage(query, firstKey, pageRequest.getPageSize());
+        }
         return new PageImpl<>(posts, pageRequest, totalCount.intValue());
     }
 
@@ -73,19 +89,131 @@ public class PostHibernateDao extends GenericDao<Post> implements PostDao {
      */
     @Override
     public Page<Post> getPosts(Topic topic, PageRequest pageRequest) {
-        Number totalCount = (Number) session()
-                .getNamedQuery("getCountPostsInTopic")
+        return getPosts(topic, pageRequest, null);
+    }
+
+    /**
+     * Posts of the page are found by the key (creation date, id) of the boundary post of the neighbouring page if
+     * it's known, so that posts of previous pages are not loaded. Otherwise (e.g. user jumps to a page by its number)
+     * the key of the first or last post of the page is taken from the index of POST table only, counting from the
+     * beginning or from the end of the topic whichever is closer to the page.
+     * Count of posts in topic is read from the topic counter in database rather than taken from the topic, which may
+     * be loaded before a concurrent reply, otherwise the newest posts could be cut off the last page.
+     * <p/>
+     * {@inheritDoc}
+     */
+    @Override
+    public Page<Post> getPosts(Topic topic, PageRequest pageRequest, PostsPageBoundary boundary) {
+        int totalCount = ((Number) session()
+                .getNamedQuery("getTopicPostCount")
+                .setParameter(TOPIC_ID_PARAMETER_NAME, topic.getId())
+                .uniqueResult()).intValue();
+        int requestedPageNumber = pageRequest.getPageNumber();
+        pageRequest.adjustPageNumber(totalCount);
+        List<Post> posts = null;
+        if (boundary != null && pageRequest.getPageNumber() == requestedPageNumber) {
+            posts = getPostsNextToBoundary(topic, boundary, pageRequest.getPageSize());
+        }
+        if (posts == null) {
+            int offset = pageRequest.getOffset();
+            int pageEnd = Math.min(offset + pageRequest.getPageSize(), totalCount);
+            if (offset <= totalCount - pageEnd) {
+                posts = getPostsFromKey(topic, "getPostKeysInTopic", "getPostsInTopicFromKey",
+                        offset, pageRequest.getPageSize());
+            } else {
+                posts = getPostsFromKey(topic, "getPostKeysInTopicDesc", "getPostsInTopicToKey",
+                        totalCount - pageEnd, pageEnd - offset);
+                Collections.reverse(posts);
+            }
+        }
+        return new PageImpl<>(posts, pageRequest, totalCount);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getPostIndexInTopic(Post post) {
+        Number index = (Number) session()
+                .getNamedQuery("getCountPostsBeforeInTopic")
+                .setParameter(TOPIC_PARAMETER_NAME, post.getTopic())
+                .setParameter(DATE_PARAMETER_NAME, post.getCreationDate())
+                .setParameter(ID_PARAMETER_NAME, post.getId())
+                .uniqueResult();
+        return index.intValue();
+    }
+
+    /**
+     * Gets posts of the topic right after or right before the boundary post of the neighbouring page.
+     *
+     * @param topic    topic to get posts of
+     * @param boundary post on the boundary of the neighbouring page
+     * @param count    maximal count of posts to get
+     * @return posts in order of creation or {@code null} if the boundary post isn't in the topic anymore
+     */
+    private List<Post> getPostsNextToBoundary(Topic topic, PostsPageBoundary boundary, int count) {
+        Object[] boundaryKey = (Object[]) session()
+                .getNamedQuery("getPostKeyInTopic")
                 .setParameter(TOPIC_PARAMETER_NAME, topic)
+                .setParameter(ID_PARAMETER_NAME, boundary.getPostId())
                 .uniqueResult();
+        if (boundaryKey == null) {
+            return null;
+        }
+        if (boundary.isOnPreviousPage()) {
+            Query query = session()
+                    .getNamedQuery("getPostsInTopicAfterKey")
+                    .setParameter(TOPIC_PARAMETER_NAME, topic);
+            return listPage(query, boundaryKey, count);
+        }
         Query query = session()
-                .getNamedQuery("getPostsInTopic")
+                .getNamedQuery("getPostsInTopicBeforeKey")
                 .setParameter(TOPIC_PARAMETER_NAME, topic);
-        pageRequest.adjustPageNumber(totalCount.intValue());
-        query.setFirstResult(pageRequest.getOffset());
-        query.setMaxResults(pageRequest.getPageSize());
-        @SuppressWarnings("unchecked")
-        List<Post> posts = (List<Post>) query.list();
-        return new PageImpl<>(posts, pageRequest, totalCount.intValue());
+        List<Post> posts = listPage(query, boundaryKey, count);
+        Collections.reverse(posts);
+        return posts;
+    }
+
+    /**
+     * Gets posts of the topic starting from the post with specified index.
+     *
+     * @param topic          topic to get posts of
+     * @param keysQueryName  name of the query selecting keys of posts in the same order as posts query
+     * @param postsQueryName name of the query selecting posts starting from the key
+     * @param index          index of the first post in order of the queries
+     * @param count          maximal count of posts to get
+     * @return posts in order of the queries
+     */
+    private List<Post> getPostsFromKey(Topic topic, String keysQueryName, String postsQueryName,
+                                       int index, int count) {
+        Object[] firstKey = (Object[]) session()
+                .getNamedQuery(keysQueryName)
+                .setParameter(TOPIC_PARAMETER_NAME, topic)
+                .setFirstResult(index)
+                .setMaxResults(1)
+                .uniqueResult();
+        if (firstKey == null) {
+            return new ArrayList<>();
+        }
+        Query query = session()
+                .getNamedQuery(postsQueryName)
+                .setParameter(TOPIC_PARAMETER_NAME, topic);
+        return listPage(query, firstKey, count);
+    }
+
+    /**
+     * @param query    query selecting posts starting from the key
+     * @param firstKey creation date and id of the first post of the page or of the boundary post
+     * @param count    maximal count of posts to get
+     * @return posts of the page
+     */
+    @SuppressWarnings("unchecked")
+    private List<Post> listPage(Query query, Object[] firstKey, int count) {
+        return (List<Post>) query
+                .setParameter(DATE_PARAMETER_NAME, firstKey[0])
+                .setParameter(ID_PARAMETER_NAME, firstKey[1])
+                .setMaxResults(count)
+                .list();
     }
 
     /**
@@ -161,4 +161,26 @@ public class PrivateMessageHibernateDao extends GenericDao<PrivateMessage> imple
                 .uniqueResult())
                 .intValue();
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getStoredNewMessagesCountFor(String username) {
+        Number count = (Number) session().getNamedQuery("getStoredNewMessagesCountFor")
+                .setString("username", username)
+                .uniqueResult();
+        return count == null ? 0 : count.intValue();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void changeNewMessagesCount(JCUser recipient, int changes) {
+        session().getNamedQuery("changeNewMessagesCount")
+                .setInteger("valueToAdd", changes)
+                .setLong("userId", recipient.getId())
+                .executeUpdate();
+    }
 }
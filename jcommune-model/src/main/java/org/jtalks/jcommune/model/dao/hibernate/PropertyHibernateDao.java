@@ -20,6 +20,8 @@ import org.jtalks.common.model.dao.hibernate.GenericDao;
 import org.jtalks.common.model.entity.Property;
 import org.jtalks.jcommune.model.dao.PropertyDao;
 
+import java.util.List;
+
 /**
  * The implementation of {@link PropertyDao} based on Hibernate.
  * The class is responsible for loading {@link Property} objects from database,
@@ -55,4 +57,13 @@ public class PropertyHibernateDao extends GenericDao<Property> implements Proper
                 .setString("name", name)
                 .uniqueResult();
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Property> getAllProperties() {
+        return session().getNamedQuery("getAllProperties").list();
+    }
 }
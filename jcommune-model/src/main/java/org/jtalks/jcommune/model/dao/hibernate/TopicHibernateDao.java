@@ -15,12 +15,16 @@
 package org.jtalks.jcommune.model.dao.hibernate;
 
 
+import org.hibernate.Cache;
 import org.hibernate.Query;
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.DetachedCriteria;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Property;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.jdbc.Work;
+import org.hibernate.search.FullTextSession;
+import org.hibernate.search.Search;
 import org.joda.time.DateTime;
 import org.jtalks.common.model.dao.hibernate.GenericDao;
 import org.jtalks.common.model.entity.Branch;
@@ -28,11 +32,15 @@ import org.jtalks.common.model.entity.Group;
 import org.jtalks.jcommune.model.dao.TopicDao;
 import org.jtalks.jcommune.model.dto.PageRequest;
 import org.jtalks.jcommune.model.entity.JCUser;
+import org.jtalks.jcommune.model.entity.Post;
 import org.jtalks.jcommune.model.entity.SubscriptionAwareEntity;
 import org.jtalks.jcommune.model.entity.Topic;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.util.*;
 
 /**
@@ -47,8 +55,11 @@ import java.util.*;
 public class TopicHibernateDao extends GenericDao<Topic> implements TopicDao {
     private static final String BRANCH = "branch";
     private static final String MAX_MOD_DATE = "maxModDate";
-    private static final String GROUP_IDS = "groupIds";
+    private static final String BRANCH_IDS = "branchIds";
     private static final String UNCHECKED = "unchecked";
+    private static final String TOPIC_IDS = "topicIds";
+    private static final String POLL_IDS = "pollIds";
+    private static final String ADD_VIEWS_SQL = "UPDATE TOPIC SET VIEWS = VIEWS + ? WHERE TOPIC_ID = ?";
 
     /**
      * @param sessionFactory The SessionFactory.
@@ -61,23 +72,44 @@ public class TopicHibernateDao extends GenericDao<Topic> implements TopicDao {
      * {@inheritDoc}
      */
     @Override
-    public Page<Topic> getTopicsUpdatedSince(DateTime timeStamp, PageRequest pageRequest, JCUser user) {
-        if (!user.isAnonymous()) {
-            return getRecentTopicsByGroupIds(getGroupIds(user), timeStamp, pageRequest);
+    public Page<Topic> getTopicsUpdatedSince(DateTime timeStamp, PageRequest pageRequest, List<Long> branchIds) {
+        if (branchIds.isEmpty()) {
+            return new PageImpl<Topic>(new ArrayList<Topic>(), pageRequest, 0);
         }
-        return getRecentTopicsForAnonymousUser(timeStamp, pageRequest);
-    }
+        Query query = session().getNamedQuery("getCountRecentTopicsInBranches");
+        query.setParameter(MAX_MOD_DATE, timeStamp);
+        query.setParameterList(BRANCH_IDS, branchIds);
+        Number totalCount = (Number) query.uniqueResult();
+        pageRequest.adjustPageNumber(totalCount.intValue());
 
+        query = session().getNamedQuery("getRecentTopicsInBranches");
+        query.setParameter(MAX_MOD_DATE, timeStamp);
+        query.setParameterList(BRANCH_IDS, branchIds);
+        query.setFirstResult(pageRequest.getOffset()).setMaxResults(pageRequest.getPageSize());
+        @SuppressWarnings(UNCHECKED)
+        List<Topic> recentTopics = (List<Topic>) query.list();
+        return new PageImpl<Topic>(recentTopics, pageRequest, totalCount.intValue());
+    }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public Page<Topic> getUnansweredTopics(PageRequest pageRequest, JCUser user) {
-        if (!user.isAnonymous()) {
-            return getUnansweredTopicsByGroupIds(getGroupIds(user), pageRequest);
+    public Page<Topic> getUnansweredTopics(PageRequest pageRequest, List<Long> branchIds) {
+        if (branchIds.isEmpty()) {
+            return new PageImpl<Topic>(new ArrayList<Topic>(), pageRequest, 0);
         }
-        return getUnansweredTopicsForAnonymousUser(pageRequest);
+        Query query = session().getNamedQuery("getCountUnansweredTopicsInBranches");
+        query.setParameterList(BRANCH_IDS, branchIds);
+        Number totalCount = (Number) query.uniqueResult();
+        pageRequest.adjustPageNumber(totalCount.intValue());
+
+        query = session().getNamedQuery("getUnansweredTopicsInBranches");
+        query.setParameterList(BRANCH_IDS, branchIds);
+        query.setFirstResult(pageRequest.getOffset()).setMaxResults(pageRequest.getPageSize());
+        @SuppressWarnings(UNCHECKED)
+        List<Topic> unansweredTopics = (List<Topic>) query.list();
+        return new PageImpl<Topic>(unansweredTopics, pageRequest, totalCount.intValue());
     }
 
     /**
@@ -95,97 +127,6 @@ public class TopicHibernateDao extends GenericDao<Topic> implements TopicDao {
         return groupIds;
     }
 
-    /**
-     * Return unanswered topics with VIEW_TOPICS permission by group ids
-     *
-     * @param groupIds    group ids
-     * @param pageRequest ontains information for pagination: page number, page size
-     * @return unanswered topics
-     */
-    private PageImpl<Topic> getUnansweredTopicsByGroupIds(List<String> groupIds, PageRequest pageRequest) {
-        if (!groupIds.isEmpty()) {
-            Query query = session().getNamedQuery("getCountUnansweredTopicsByGroups");
-            query.setParameterList(GROUP_IDS, groupIds);
-            Number totalCount = (Number) query.uniqueResult();
-            pageRequest.adjustPageNumber(totalCount.intValue());
-
-            query = session().getNamedQuery("getUnansweredTopicsByGroups");
-            query.setParameterList(GROUP_IDS, groupIds);
-            query.setFirstResult(pageRequest.getOffset()).setMaxResults(pageRequest.getPageSize());
-            @SuppressWarnings(UNCHECKED)
-            List<Topic> unansweredTopics = (List<Topic>) query.list();
-            return new PageImpl<Topic>(unansweredTopics, pageRequest, totalCount.intValue());
-        }
-        return new PageImpl<Topic>(new ArrayList<Topic>(), pageRequest, 0);
-    }
-
-    /**
-     * Return unanswered topics with VIEW_TOPICS permission for anonymous user
-     *
-     * @param pageRequest ontains information for pagination: page number, page size
-     * @return unanswered topics
-     */
-    private PageImpl<Topic> getUnansweredTopicsForAnonymousUser(PageRequest pageRequest) {
-        Query query = session().getNamedQuery("getCountUnansweredTopicsForAnonymousUser");
-        Number totalCount = (Number) query.uniqueResult();
-        pageRequest.adjustPageNumber(totalCount.intValue());
-
-        query = session().getNamedQuery("getUnansweredTopicsForAnonymousUser");
-        query.setFirstResult(pageRequest.getOffset()).setMaxResults(pageRequest.getPageSize());
-        @SuppressWarnings(UNCHECKED)
-        List<Topic> unansweredTopics = (List<Topic>) query.list();
-        return new PageImpl<Topic>(unansweredTopics, pageRequest, totalCount.intValue());
-    }
-
-    /**
-     * Return recent topics with VIEW_TOPICS permission by group ids
-     *
-     * @param groupIds    group ids
-     * @param timeStamp   user's last login date and time
-     * @param pageRequest ontains information for pagination: page number, page size
-     * @return recent topics
-     */
-    private PageImpl<Topic> getRecentTopicsByGroupIds(List<String> groupIds, DateTime timeStamp,
-                                                      PageRequest pageRequest) {
-        if (!groupIds.isEmpty()) {
-            Query query = session().getNamedQuery("getCountRecentTopicsByGroups");
-            query.setParameter(MAX_MOD_DATE, timeStamp);
-            query.setParameterList(GROUP_IDS, groupIds);
-            Number totalCount = (Number) query.uniqueResult();
-            pageRequest.adjustPageNumber(totalCount.intValue());
-
-            query = session().getNamedQuery("getRecentTopicsByGroups");
-            query.setParameter(MAX_MOD_DATE, timeStamp);
-            query.setParameterList(GROUP_IDS, groupIds);
-            query.setFirstResult(pageRequest.getOffset()).setMaxResults(pageRequest.getPageSize());
-            @SuppressWarnings(UNCHECKED)
-            List<Topic> recentTopics = (List<Topic>) query.list();
-            return new PageImpl<Topic>(recentTopics, pageRequest, totalCount.intValue());
-        }
-        return new PageImpl<Topic>(new ArrayList<Topic>(), pageRequest, 0);
-    }
-
-    /**
-     * Return recent topics with VIEW_TOPICS permission for anonymous user
-     *
-     * @param timeStamp   user's last login date and time
-     * @param pageRequest ontains information for pagination: page number, page size
-     * @return recent topics
-     */
-    private PageImpl<Topic> getRecentTopicsForAnonymousUser(DateTime timeStamp, PageRequest pageRequest) {
-        Query query = session().getNamedQuery("getCountRecentTopicsForAnonymousUser");
-        query.setParameter(MAX_MOD_DATE, timeStamp);
-        Number totalCount = (Number) query.uniqueResult();
-        pageRequest.adjustPageNumber(totalCount.intValue());
-
-        query = session().getNamedQuery("getRecentTopicsForAnonymousUser");
-        query.setParameter(MAX_MOD_DATE, timeStamp);
-        query.setFirstResult(pageRequest.getOffset()).setMaxResults(pageRequest.getPageSize());
-        @SuppressWarnings(UNCHECKED)
-        List<Topic> recentTopics = (List<Topic>) query.list();
-        return new PageImpl<Topic>(recentTopics, pageRequest, totalCount.intValue());
-    }
-
     /**
      * {@inheritDoc}
      */
@@ -236,6 +177,118 @@ public class TopicHibernateDao extends GenericDao<Topic> implements TopicDao {
         return count.intValue();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addViews(final Map<Long, Integer> viewsByTopicId) {
+        if (viewsByTopicId.isEmpty()) {
+            return;
+        }
+        session().doWork(new Work() {
+            @Override
+            public void execute(Connection connection) throws SQLException {
+                try (PreparedStatement statement = connection.prepareStatement(ADD_VIEWS_SQL)) {
+                    for (Map.Entry<Long, Integer> entry : viewsByTopicId.entrySet()) {
+                        statement.setInt(1, entry.getValue());
+                        statement.setLong(2, entry.getKey());
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                }
+            }
+        });
+        // VIEWS is not updated by Hibernate, so cached topics should be reloaded to get the new value
+        Cache cache = session().getSessionFactory().getCache();
+        for (Long topicId : viewsByTopicId.keySet()) {
+            cache.evictEntity(Topic.class, topicId);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void changePostCount(Topic topic, int postsToAdd) {
+        session().getNamedQuery("changeTopicPostCount")
+                .setInteger("postsToAdd", postsToAdd)
+                .setLong("topicId", topic.getId())
+                .executeUpdate();
+        CacheEvictions.evictEntity(session().getSessionFactory(), Topic.class, topic.getId());
+        session().getNamedQuery("changeBranchCounters")
+                .setInteger("topicsToAdd", 0)
+                .setInteger("postsToAdd", postsToAdd)
+                .setLong("branchId", topic.getBranch().getId())
+                .executeUpdate();
+        CacheEvictions.evictEntity(session().getSessionFactory(), Branch.class, topic.getBranch().getId());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings(UNCHECKED)
+    public List<Long> getTopicIdsInBranch(Branch branch, int maxCount) {
+        return session().getNamedQuery("getTopicIdsInBranch")
+                .setParameter(BRANCH, branch)
+                .setMaxResults(maxCount)
+                .list();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings(UNCHECKED)
+    public int deleteTopics(Collection<Long> topicIds) {
+        if (topicIds.isEmpty()) {
+            return 0;
+        }
+        List<Long> postIds = session().getNamedQuery("getPostIdsInTopics")
+                .setParameterList(TOPIC_IDS, topicIds)
+                .list();
+        List<Long> pollIds = session().getNamedQuery("getPollIdsOfTopics")
+                .setParameterList(TOPIC_IDS, topicIds)
+                .list();
+        executeUpdate("clearBranchLastPostsInTopics", TOPIC_IDS, topicIds);
+        executeUpdate("decreaseBranchCountersOfTopics", TOPIC_IDS, topicIds);
+        executeUpdate("decreasePostCountsOfAuthorsInTopics", TOPIC_IDS, topicIds);
+        executeUpdate("deletePostVotesInTopics", TOPIC_IDS, topicIds);
+        executeUpdate("deleteCommentAttributesInTopics", TOPIC_IDS, topicIds);
+        executeUpdate("deletePostCommentsInTopics", TOPIC_IDS, topicIds);
+        executeUpdate("deleteLastReadPostsInTopics", TOPIC_IDS, topicIds);
+        executeUpdate("deleteSubscriptionsOfTopics", TOPIC_IDS, topicIds);
+        executeUpdate("deleteAttributesOfTopics", TOPIC_IDS, topicIds);
+        executeUpdate("deletePostsInTopics", TOPIC_IDS, topicIds);
+        int deletedTopics = executeUpdate("deleteTopicsByIds", TOPIC_IDS, topicIds);
+        if (!pollIds.isEmpty()) {
+            executeUpdate("deletePollVotesOfPolls", POLL_IDS, pollIds);
+            executeUpdate("deletePollItemsOfPolls", POLL_IDS, pollIds);
+            executeUpdate("deletePollsByIds", POLL_IDS, pollIds);
+        }
+        // bulk statements bypass Hibernate Search, so deleted entities are removed from the index explicitly
+        FullTextSession fullTextSession = Search.getFullTextSession(session());
+        for (Long topicId : topicIds) {
+            fullTextSession.purge(Topic.class, topicId);
+        }
+        for (Long postId : postIds) {
+            fullTextSession.purge(Post.class, postId);
+        }
+        return deletedTopics;
+    }
+
+    /**
+     * Executes named bulk statement with the list of identifiers.
+     *
+     * @param queryName     name of the statement
+     * @param parameterName name of the list parameter
+     * @param ids           identifiers to pass to the statement
+     * @return number of affected rows
+     */
+    private int executeUpdate(String queryName, String parameterName, Collection<Long> ids) {
+        return session().getNamedQuery(queryName).setParameterList(parameterName, ids).executeUpdate();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -272,8 +325,6 @@ public class TopicHibernateDao extends GenericDao<Topic> implements TopicDao {
      */
     @Override
     public List<Long> getAllowedBranchesIds(JCUser user) {
-        List<Long> result = new ArrayList<>();
-
         Query queryForbidden = session().getNamedQuery("getForbiddenBranchesIds");
 
         Query queryAllowed = session().getNamedQuery("getAllowedBranchesIds");
@@ -286,15 +337,9 @@ public class TopicHibernateDao extends GenericDao<Topic> implements TopicDao {
             queryAllowed.setParameterList("sid", getGroupIds(user));
         }
 
-        List<Long> forbidden = queryForbidden.list();
-
-        List<Long> allowed = queryAllowed.list();
-
-        for (Long aLong : allowed) {
-            if (!forbidden.contains(aLong)) {
-                result.add(aLong);
-            }
-        }
-        return result;
+        // sorted set removes duplicates granted by several groups of the user
+        Set<Long> result = new TreeSet<Long>(queryAllowed.list());
+        result.removeAll(new HashSet<Long>(queryForbidden.list()));
+        return new ArrayList<Long>(result);
     }
 }
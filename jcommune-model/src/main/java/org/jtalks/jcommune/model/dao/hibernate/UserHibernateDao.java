@@ -16,13 +16,13 @@ package org.jtalks.jcommune.model.dao.hibernate;
 
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.Restrictions;
+import org.joda.time.DateTime;
 import org.jtalks.common.model.dao.hibernate.GenericDao;
 import org.jtalks.common.model.entity.User;
 import org.jtalks.jcommune.model.dao.UserDao;
 import org.jtalks.jcommune.model.dao.utils.SqlLikeEscaper;
 import org.jtalks.jcommune.model.entity.JCUser;
 
-import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -37,6 +37,10 @@ import java.util.Set;
  */
 public class UserHibernateDao extends GenericDao<JCUser>
         implements UserDao {
+    /**
+     * Matches default JDBC batch size, so that every chunk is flushed with one batch per statement kind
+     */
+    static final int DELETION_CHUNK_SIZE = 50;
 
     /**
      * @param sessionFactory The SessionFactory.
@@ -90,10 +94,26 @@ public class UserHibernateDao extends GenericDao<JCUser>
      */
     @SuppressWarnings("unchecked")
     @Override
-    public Collection<JCUser> getNonActivatedUsers() {
-        return session().createCriteria(JCUser.class)
-                .add(Restrictions.eq("enabled", false))
-                .list();
+    public int deleteNonActivatedUsersRegisteredBefore(DateTime registrationDate) {
+        int deleted = 0;
+        List<JCUser> chunk;
+        do {
+            chunk = session().createCriteria(JCUser.class)
+                    .add(Restrictions.eq("enabled", false))
+                    .add(Restrictions.lt("registrationDate", registrationDate))
+                    .setMaxResults(DELETION_CHUNK_SIZE)
+                    .list();
+            for (JCUser user : chunk) {
+                session().delete(user);
+            }
+            session().flush();
+            // only the deleted chunk is evicted, other entities of the session may still be used by the caller
+            for (JCUser user : chunk) {
+                session().evict(user);
+            }
+            deleted += chunk.size();
+        } while (chunk.size() == DELETION_CHUNK_SIZE);
+        return deleted;
     }
 
     /**
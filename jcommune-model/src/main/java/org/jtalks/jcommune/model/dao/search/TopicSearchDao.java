@@ -14,6 +14,7 @@
  */
 package org.jtalks.jcommune.model.dao.search;
 
+import org.jtalks.jcommune.model.dto.IndexingProgress;
 import org.jtalks.jcommune.model.dto.PageRequest;
 import org.jtalks.jcommune.model.entity.Topic;
 import org.springframework.data.domain.Page;
@@ -31,7 +32,8 @@ public interface TopicSearchDao {
 
     /**
      * Performs the full-text search by the topic title and
-     * his content(the list of posts).
+     * his content(the list of posts). Posts are indexed on their own,
+     * so topic is found if any of its posts matches.
      * 
      * @param searchText the search text
      * @param pageRequest contains information for pagination: page number, page size
@@ -41,10 +43,26 @@ public interface TopicSearchDao {
      */
     Page<Topic> searchByTitleAndContent(String searchText, PageRequest pageRequest, List<Long> allowedBranchesIds);
 
+    /**
+     * Reindexes the topic with all its posts. Both of them are indexed with the branch of the topic,
+     * so it's needed when the topic is moved to another branch.
+     *
+     * @param topic the topic to reindex
+     */
+    void reindexTopicWithPosts(Topic topic);
+
     /**
      * Indexes the data from the database.
      * This functionality is required either when data exists in the database,
      * but the index doesn't contain this data or the index is re-created.
+     * Index is rebuilt in background, nothing is done if it's being rebuilt already.
      */
     void rebuildIndex();
+
+    /**
+     * Gets progress of the latest rebuilding of the index.
+     *
+     * @return progress of rebuilding of the index
+     */
+    IndexingProgress getIndexingProgress();
 }
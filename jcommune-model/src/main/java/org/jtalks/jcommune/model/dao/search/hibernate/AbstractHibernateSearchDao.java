@@ -39,6 +39,13 @@ public abstract class AbstractHibernateSearchDao {
         this.sessionFactory = sessionFactory;
     }
     
+    /**
+     * @return the Hibernate SessionFactory
+     */
+    protected SessionFactory getSessionFactory() {
+        return sessionFactory;
+    }
+
     /**
      * Gets the Hibernate Search session, that provides functionality
      * for working with indexed entities.
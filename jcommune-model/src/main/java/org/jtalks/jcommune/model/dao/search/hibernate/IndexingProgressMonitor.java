@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.model.dao.search.hibernate;
+
+import org.hibernate.search.batchindexing.MassIndexerProgressMonitor;
+import org.jtalks.jcommune.model.dto.IndexingProgress;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks progress of rebuilding of the search index, so that it can be shown to administrator.
+ * Mass indexer calls it from several threads.
+ */
+class IndexingProgressMonitor implements MassIndexerProgressMonitor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IndexingProgressMonitor.class);
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong indexedCount = new AtomicLong();
+    private final Runnable completionListener;
+
+    /**
+     * @param completionListener is run when all the documents are indexed
+     */
+    IndexingProgressMonitor(Runnable completionListener) {
+        this.completionListener = completionListener;
+    }
+
+    /**
+     * Marks indexing as started if it isn't running yet.
+     *
+     * @return {@code true} if indexing is started, {@code false} if it's already running
+     */
+    boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        totalCount.set(0);
+        indexedCount.set(0);
+        return true;
+    }
+
+    /**
+     * @return current progress of indexing
+     */
+    IndexingProgress getProgress() {
+        return new IndexingProgress(running.get(), totalCount.get(), indexedCount.get());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void documentsAdded(long increment) {
+        indexedCount.addAndGet(increment);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void documentsBuilt(int number) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void entitiesLoaded(int size) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addToTotalCount(long count) {
+        totalCount.addAndGet(count);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void indexingCompleted() {
+        try {
+            LOGGER.info("Search index is rebuilt, {} documents indexed", indexedCount.get());
+            // indexer reports completion even if it's interrupted
+            if (indexedCount.get() >= totalCount.get()) {
+                completionListener.run();
+            }
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Marks indexing as not running when it failed to start, so that it can be started again.
+     */
+    void indexingFailed() {
+        try {
+            LOGGER.warn("Rebuilding of search index failed, {} documents indexed", indexedCount.get());
+        } finally {
+            running.set(false);
+        }
+    }
+}
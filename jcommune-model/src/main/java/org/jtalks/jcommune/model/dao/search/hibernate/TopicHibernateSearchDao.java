@@ -14,20 +14,38 @@
  */
 package org.jtalks.jcommune.model.dao.search.hibernate;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.apache.commons.lang.StringUtils;
-import org.hibernate.Criteria;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FieldCacheTermsFilter;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.Restrictions;
 import org.hibernate.search.FullTextQuery;
 import org.hibernate.search.FullTextSession;
+import org.hibernate.search.Search;
 import org.hibernate.search.query.dsl.QueryBuilder;
 import org.jtalks.jcommune.model.dao.search.TopicSearchDao;
+import org.jtalks.jcommune.model.dto.IndexingProgress;
 import org.jtalks.jcommune.model.dto.PageRequest;
 import org.jtalks.jcommune.model.entity.Post;
 import org.jtalks.jcommune.model.entity.Topic;
 import org.jtalks.jcommune.model.search.SearchRequestFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 
@@ -38,10 +56,37 @@ import org.springframework.data.domain.PageImpl;
  */
 public class TopicHibernateSearchDao extends AbstractHibernateSearchDao
         implements TopicSearchDao {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TopicHibernateSearchDao.class);
+    /**
+     * Version of layout of the indexed documents. It should be increased on every change of the indexed fields,
+     * then the index built by a previous version of the forum is rebuilt on startup.
+     */
+    static final String INDEX_VERSION = "2";
+    /**
+     * Name of the file in the index directory of topics, which keeps the version of layout of the index.
+     */
+    static final String INDEX_VERSION_FILE = "jcommune.index.version";
+    /**
+     * Min count of hits read at once, they are collapsed to topics until a requested page is filled.
+     */
+    private static final int HITS_BATCH_SIZE = 1000;
+    /**
+     * Index is rebuilt by a few threads with small batches, so that forum keeps working meanwhile.
+     */
+    private static final int INDEXER_THREADS = 2;
+    private static final int INDEXER_BATCH_SIZE = 50;
+
+    private final IndexingProgressMonitor progressMonitor = new IndexingProgressMonitor(new Runnable() {
+        @Override
+        public void run() {
+            markIndexVersion();
+        }
+    });
     /**
      * List of filters.
      */
     private List<SearchRequestFilter> filters = Collections.emptyList();
+    private int hitsBatchSize = HITS_BATCH_SIZE;
 
     /**
      * @param sessionFactory the Hibernate SessionFactory
@@ -61,6 +106,15 @@ public class TopicHibernateSearchDao extends AbstractHibernateSearchDao
         this.filters = filters;
     }
 
+    /**
+     * Sets min count of hits read at once. It needed for testing.
+     *
+     * @param hitsBatchSize min count of hits read at once
+     */
+    void setHitsBatchSize(int hitsBatchSize) {
+        this.hitsBatchSize = hitsBatchSize;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -68,93 +122,165 @@ public class TopicHibernateSearchDao extends AbstractHibernateSearchDao
     public Page<Topic> searchByTitleAndContent(String searchText,
                                                PageRequest pageRequest,
                                                List<Long> allowedBranchesIds) {
-
-        Page<Topic> searchResults = doSearch(searchText, pageRequest, allowedBranchesIds);
-
-        if (isSearchedAboveLastPage(searchResults)) {
-            pageRequest.adjustPageNumber(Long.valueOf(searchResults.getTotalElements()).intValue());
-            searchResults = doSearch(searchText, pageRequest, allowedBranchesIds);
+        List<Topic> topics = Collections.emptyList();
+        int resultSize = 0;
+        //TODO The latest versions of the library filtering is not needed.
+        String filteredSearchText = applyFilters(searchText, filters).trim();
+        if (!StringUtils.isEmpty(filteredSearchText) && !allowedBranchesIds.isEmpty()) {
+            FullTextQuery query = createSearchQuery(getFullTextSession(), filteredSearchText, allowedBranchesIds);
+            FoundTopics found = findTopicIds(query, pageRequest.getOffset() + pageRequest.getPageSize());
+            List<Long> foundTopicIds = found.getTopicIds();
+            resultSize = found.getTotalCount();
+            if (pageRequest.getOffset() >= foundTopicIds.size()) {
+                // all hits are read here, so the last page can be taken from them without searching again
+                pageRequest.adjustPageNumber(resultSize);
+            }
+            int from = Math.min(pageRequest.getOffset(), foundTopicIds.size());
+            int to = Math.min(from + pageRequest.getPageSize(), foundTopicIds.size());
+            topics = loadTopics(foundTopicIds.subList(from, to));
         }
 
-        return searchResults;
+        return new PageImpl<Topic>(topics, pageRequest, resultSize);
     }
 
     /**
-     * Perform actual search
+     * Finds IDs of the topics which title or posts match the search text. Topic titles and post contents are
+     * indexed separately, so hits are collapsed to topics in order of their relevance. Only as many hits are
+     * read as needed to collapse the given count of topics, every next window of hits is twice bigger than
+     * the previous one, so that the query isn't re-run for each small batch.
      *
-     * @param searchText         the search text
-     * @param pageRequest        contains information for pagination: page number, page
-     *                           size
-     * @param allowedBranchesIds list of allowed branches
-     * @return object that contains search results for one page(note, that one
-     *         page may contain all search results) and information for pagination
+     * @param query        the search query
+     * @param neededTopics count of topics to find, the rest of them is only estimated
+     * @return IDs of found topics from the most relevant to the less relevant one and their total count
      */
     @SuppressWarnings("unchecked")
-    private Page<Topic> doSearch(String searchText, PageRequest pageRequest, List<Long> allowedBranchesIds) {
-        List<Topic> topics = Collections.emptyList();
-        int resultSize = 0;
-        //TODO The latest versions of the library filtering is not needed.
-        String filteredSearchText = applyFilters(searchText, filters).trim();
-        if (!StringUtils.isEmpty(filteredSearchText)) {
-
-            FullTextQuery query = createSearchQuery(getFullTextSession(), filteredSearchText, pageRequest);
+    private FoundTopics findTopicIds(FullTextQuery query, int neededTopics) {
+        Set<Long> foundTopicIds = new LinkedHashSet<Long>();
+        int windowSize = Math.max(hitsBatchSize, neededTopics);
+        int firstHit = 0;
+        List<Object[]> hits;
+        boolean allHitsRead;
+        do {
+            hits = query.setFirstResult(firstHit).setMaxResults(windowSize).list();
+            for (Object[] hit : hits) {
+                Long topicId = Topic.class.equals(hit[0]) ? (Long) hit[1] : (Long) hit[2];
+                if (topicId != null) {
+                    foundTopicIds.add(topicId);
+                }
+            }
+            firstHit += hits.size();
+            allHitsRead = hits.size() < windowSize;
+            windowSize = (windowSize > Integer.MAX_VALUE / 2) ? Integer.MAX_VALUE : windowSize * 2;
+        } while (!allHitsRead && foundTopicIds.size() < neededTopics);
 
-            Criteria criteria = getFullTextSession().createCriteria(Topic.class).add(
-                    Restrictions.in("branch.id", allowedBranchesIds)
-            );
-            query.setCriteriaQuery(criteria);
+        int totalCount = allHitsRead
+                ? foundTopicIds.size()
+                : estimateTopicsCount(foundTopicIds.size(), firstHit, query.getResultSize());
+        return new FoundTopics(new ArrayList<Long>(foundTopicIds), totalCount);
+    }
 
-            topics = query.list();
-            resultSize = query.getResultSize();
+    /**
+     * Estimates count of all found topics supposing that the rest of hits is collapsed to topics
+     * the same way as the already read ones.
+     *
+     * @param foundTopics count of topics collapsed from the read hits
+     * @param readHits    count of the read hits
+     * @param totalHits   count of all hits
+     * @return estimated count of all found topics
+     */
+    private int estimateTopicsCount(int foundTopics, int readHits, int totalHits) {
+        if (readHits == 0 || totalHits <= readHits) {
+            return foundTopics;
         }
-
-        return new PageImpl<Topic>(topics, pageRequest, resultSize);
+        long estimated = foundTopics + (long) foundTopics * (totalHits - readHits) / readHits;
+        return (int) Math.min(estimated, Integer.MAX_VALUE);
     }
 
     /**
-     * Checks if this search was by made with too big page number specified
+     * Loads topics keeping the given order.
      *
-     * @param searchResults search results
-     * @return true if page number is too big
+     * @param topicIds IDs of topics to load
+     * @return loaded topics in the same order as their IDs
      */
-    private boolean isSearchedAboveLastPage(Page<Topic> searchResults) {
-        return !searchResults.hasContent() && searchResults.getNumber() > searchResults.getTotalPages();
+    @SuppressWarnings("unchecked")
+    private List<Topic> loadTopics(List<Long> topicIds) {
+        if (topicIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Topic> loaded = getFullTextSession().createCriteria(Topic.class)
+                .add(Restrictions.in("id", topicIds))
+                .list();
+        Map<Long, Topic> topicsById = new HashMap<Long, Topic>();
+        for (Topic topic : loaded) {
+            topicsById.put(topic.getId(), topic);
+        }
+        List<Topic> topics = new ArrayList<Topic>(topicIds.size());
+        for (Long topicId : topicIds) {
+            Topic topic = topicsById.get(topicId);
+            if (topic != null) {
+                topics.add(topic);
+            }
+        }
+        return topics;
     }
 
     /**
-     * Builds a search query.
+     * Builds a search query over titles of topics and contents of posts of the allowed branches. Query
+     * returns only class, ID and topic ID of every hit, so no entity is loaded from the database.
      *
-     * @param fullTextSession the Hibernate Search session
-     * @param searchText      the search text
-     * @param pageRequest     contains information for pagination: page number, page size
+     * @param fullTextSession    the Hibernate Search session
+     * @param searchText         the search text
+     * @param allowedBranchesIds list of allowed branches
      * @return the search query
      */
-    private FullTextQuery createSearchQuery(
-            FullTextSession fullTextSession,
-            String searchText,
-            PageRequest pageRequest) {
-        QueryBuilder queryBuilder = fullTextSession.
+    private FullTextQuery createSearchQuery(FullTextSession fullTextSession, String searchText,
+                                            List<Long> allowedBranchesIds) {
+        QueryBuilder topicQueryBuilder = fullTextSession.
                 getSearchFactory().
                 buildQueryBuilder().
                 forEntity(Topic.class).
                 get();
-        org.apache.lucene.search.Query luceneQuery = queryBuilder.
+        QueryBuilder postQueryBuilder = fullTextSession.
+                getSearchFactory().
+                buildQueryBuilder().
+                forEntity(Post.class).
+                get();
+        BooleanQuery luceneQuery = new BooleanQuery();
+        luceneQuery.add(topicQueryBuilder.
                 keyword().
                 onField(Topic.TOPIC_TITLE_FIELD_DEF).
                 andField(Topic.TOPIC_TITLE_FIELD_RU).
-                andField(Topic.TOPIC_POSTS_PREFIX + Post.POST_CONTENT_FIELD_DEF).
-                andField(Topic.TOPIC_POSTS_PREFIX + Post.POST_CONTENT_FIELD_RU).
                 matching(searchText).
-                createQuery();
-
-        FullTextQuery query = fullTextSession.createFullTextQuery(luceneQuery);
+                createQuery(), BooleanClause.Occur.SHOULD);
+        luceneQuery.add(postQueryBuilder.
+                keyword().
+                onField(Post.POST_CONTENT_FIELD_DEF).
+                andField(Post.POST_CONTENT_FIELD_RU).
+                matching(searchText).
+                createQuery(), BooleanClause.Occur.SHOULD);
 
-        query.setFirstResult(pageRequest.getOffset());
-        query.setMaxResults(pageRequest.getPageSize());
+        FullTextQuery query = fullTextSession.createFullTextQuery(luceneQuery, Topic.class, Post.class);
+        query.setProjection(FullTextQuery.OBJECT_CLASS, FullTextQuery.ID, Post.POST_TOPIC_ID_FIELD);
+        query.setFilter(createBranchesFilter(allowedBranchesIds));
 
         return query;
     }
 
+    /**
+     * Creates a filter of topics and posts of the given branches. Terms filter is used instead of a boolean
+     * query, so that the count of branches isn't limited by the max count of clauses.
+     *
+     * @param allowedBranchesIds list of allowed branches
+     * @return filter of topics and posts of the given branches
+     */
+    private Filter createBranchesFilter(List<Long> allowedBranchesIds) {
+        String[] branchIds = new String[allowedBranchesIds.size()];
+        for (int i = 0; i < branchIds.length; i++) {
+            branchIds[i] = String.valueOf(allowedBranchesIds.get(i));
+        }
+        return new FieldCacheTermsFilter(Topic.BRANCH_ID_FIELD, branchIds);
+    }
+
     /**
      * This method filters the text.
      *
@@ -169,11 +295,188 @@ public class TopicHibernateSearchDao extends AbstractHibernateSearchDao
         return searchText;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reindexTopicWithPosts(Topic topic) {
+        FullTextSession fullTextSession = getFullTextSession();
+        // branch isn't an indexed property itself, so change of it doesn't lead to reindexing
+        fullTextSession.index(topic);
+        for (Post post : topic.getPosts()) {
+            fullTextSession.index(post);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public void rebuildIndex() {
-        getFullTextSession().createIndexer(Topic.class).start();
+        rebuildIndex(getFullTextSession());
+    }
+
+    /**
+     * Rebuilds the index if it was built by a previous version of the forum with another layout of documents.
+     * An empty index is only marked with the current version, there is nothing to rebuild in it.
+     */
+    public void rebuildIndexIfOutdated() {
+        Session session = getSessionFactory().openSession();
+        try {
+            FullTextSession fullTextSession = Search.getFullTextSession(session);
+            Directory directory = getTopicsIndexDirectory(fullTextSession);
+            String indexVersion = readIndexVersion(directory);
+            if (INDEX_VERSION.equals(indexVersion)) {
+                return;
+            }
+            if (isIndexEmpty(directory)) {
+                writeIndexVersion(directory);
+            } else {
+                LOGGER.info("Search index of version {} is outdated, rebuilding it to version {}",
+                        indexVersion, INDEX_VERSION);
+                rebuildIndex(fullTextSession);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Version of the search index can't be checked, it should be rebuilt by administrator", e);
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * Starts rebuilding of the index in background, indexer opens its own sessions,
+     * so the given one can be closed meanwhile.
+     *
+     * @param fullTextSession the Hibernate Search session
+     */
+    private void rebuildIndex(FullTextSession fullTextSession) {
+        if (!progressMonitor.start()) {
+            return;
+        }
+        boolean started = false;
+        try {
+            fullTextSession.createIndexer(Topic.class, Post.class)
+                    .threadsToLoadObjects(INDEXER_THREADS)
+                    .batchSizeToLoadObjects(INDEXER_BATCH_SIZE)
+                    .progressMonitor(progressMonitor)
+                    .start();
+            started = true;
+        } finally {
+            if (!started) {
+                // otherwise indexing could never be started again
+                progressMonitor.indexingFailed();
+            }
+        }
+    }
+
+    /**
+     * Marks the index with the current version once it's fully rebuilt.
+     */
+    private void markIndexVersion() {
+        Session session = getSessionFactory().openSession();
+        try {
+            writeIndexVersion(getTopicsIndexDirectory(Search.getFullTextSession(session)));
+        } catch (IOException e) {
+            LOGGER.warn("Version of the search index can't be written", e);
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * @param fullTextSession the Hibernate Search session
+     * @return directory of the index of topics, the version of the whole index is kept there
+     */
+    private Directory getTopicsIndexDirectory(FullTextSession fullTextSession) {
+        return fullTextSession.getSearchFactory().getDirectoryProviders(Topic.class)[0].getDirectory();
+    }
+
+    /**
+     * @param directory directory of the index
+     * @return version of layout of the index or {@code null} if it isn't marked with any version
+     * @throws IOException if the version can't be read
+     */
+    private String readIndexVersion(Directory directory) throws IOException {
+        if (!directory.fileExists(INDEX_VERSION_FILE)) {
+            return null;
+        }
+        IndexInput input = directory.openInput(INDEX_VERSION_FILE);
+        try {
+            return input.readString();
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * @param directory directory of the index to mark with the current version
+     * @throws IOException if the version can't be written
+     */
+    private void writeIndexVersion(Directory directory) throws IOException {
+        if (directory.fileExists(INDEX_VERSION_FILE)) {
+            directory.deleteFile(INDEX_VERSION_FILE);
+        }
+        IndexOutput output = directory.createOutput(INDEX_VERSION_FILE);
+        try {
+            output.writeString(INDEX_VERSION);
+        } finally {
+            output.close();
+        }
+    }
+
+    /**
+     * @param directory directory of the index
+     * @return {@code true} if there are no documents in the index
+     * @throws IOException if the index can't be read
+     */
+    private boolean isIndexEmpty(Directory directory) throws IOException {
+        if (!IndexReader.indexExists(directory)) {
+            return true;
+        }
+        IndexReader reader = IndexReader.open(directory, true);
+        try {
+            return reader.numDocs() == 0;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public IndexingProgress getIndexingProgress() {
+        return progressMonitor.getProgress();
+    }
+
+    /**
+     * IDs of found topics with count of all of them, which may be estimated if not all hits were read.
+     */
+    private static final class FoundTopics {
+        private final List<Long> topicIds;
+        private final int totalCount;
+
+        /**
+         * @param topicIds   IDs of found topics in order of their relevance
+         * @param totalCount count of all found topics
+         */
+        FoundTopics(List<Long> topicIds, int totalCount) {
+            this.topicIds = topicIds;
+            this.totalCount = totalCount;
+        }
+
+        /**
+         * @return IDs of found topics in order of their relevance
+         */
+        List<Long> getTopicIds() {
+            return topicIds;
+        }
+
+        /**
+         * @return count of all found topics
+         */
+        int getTotalCount() {
+            return totalCount;
+        }
     }
 }
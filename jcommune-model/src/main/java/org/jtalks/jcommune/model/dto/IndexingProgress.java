@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.model.dto;
+
+/**
+ * Progress of rebuilding of the search index, it's a snapshot which isn't
+ * changed when indexing goes on.
+ */
+public class IndexingProgress {
+    private final boolean running;
+    private final long totalCount;
+    private final long indexedCount;
+
+    /**
+     * @param running      whether index is being rebuilt now
+     * @param totalCount   count of entities to be indexed
+     * @param indexedCount count of entities already added to the index
+     */
+    public IndexingProgress(boolean running, long totalCount, long indexedCount) {
+        this.running = running;
+        this.totalCount = totalCount;
+        this.indexedCount = indexedCount;
+    }
+
+    /**
+     * @return whether index is being rebuilt now
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return count of entities to be indexed
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * @return count of entities already added to the index
+     */
+    public long getIndexedCount() {
+        return indexedCount;
+    }
+
+    /**
+     * @return indexed part of entities in percents
+     */
+    public int getPercentage() {
+        return (totalCount == 0) ? 100 : (int) (indexedCount * 100 / totalCount);
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.model.dto;
+
+/**
+ * Post on the boundary of the page neighbouring to the requested one, e.g. the last post of the previous page when
+ * user goes to the next page. Lets to find posts of the requested page right after or before this post instead of
+ * skipping posts of all the pages before it.
+ */
+public class PostsPageBoundary {
+    private final long postId;
+    private final boolean onPreviousPage;
+
+    private PostsPageBoundary(long postId, boolean onPreviousPage) {
+        this.postId = postId;
+        this.onPreviousPage = onPreviousPage;
+    }
+
+    /**
+     * @param postId id of the last post of the page before the requested one
+     * @return boundary the requested page starts right after
+     */
+    public static PostsPageBoundary lastPostOfPreviousPage(long postId) {
+        return new PostsPageBoundary(postId, true);
+    }
+
+    /**
+     * @param postId id of the first post of the page after the requested one
+     * @return boundary the requested page ends right before
+     */
+    public static PostsPageBoundary firstPostOfNextPage(long postId) {
+        return new PostsPageBoundary(postId, false);
+    }
+
+    /**
+     * @return id of the boundary post
+     */
+    public long getPostId() {
+        return postId;
+    }
+
+    /**
+     * @return {@code true} if the boundary post is the last one of the previous page, {@code false} if it's the first
+     *         one of the next page
+     */
+    public boolean isOnPreviousPage() {
+        return onPreviousPage;
+    }
+}
@@ -14,8 +14,8 @@
  */
 package org.jtalks.jcommune.model.entity;
 
-import ch.lambdaj.Lambda;
 import org.apache.commons.lang.Validate;
+import org.joda.time.DateTime;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -41,10 +41,11 @@ public class Branch extends org.jtalks.common.model.entity.Branch
     private List<Topic> topics = new ArrayList<>();
     private Set<JCUser> subscribers = new HashSet<>();
 
-    private Integer topicsCount;
-    private Integer postsCount;
+    private int topicCount;
+    private int postCount;
     private boolean unreadPosts;
     private Post lastPost;
+    private DateTime lastPostDate;
 
     /**
      * For Hibernate use only
@@ -126,47 +127,49 @@ public class Branch extends org.jtalks.common.model.entity.Branch
     }
 
     /**
-     * Add topic to branch.
+     * Add topic to branch. Stored counts of topics and posts are increased
+     * by the topic and its posts.
      *
      * @param topic topic
      */
     public void addTopic(Topic topic) {
         topic.setBranch(this);
         this.topics.add(topic);
+        this.topicCount++;
+        this.postCount += topic.getPostCount();
     }
 
     /**
-     * Delete topic from branch.
+     * Delete topic from branch. Stored counts of topics and posts are decreased
+     * by the topic and its posts.
      *
      * @param topic topic
      */
     public void deleteTopic(Topic topic) {
-        this.topics.remove(topic);
+        if (this.topics.remove(topic)) {
+            this.topicCount--;
+            this.postCount -= topic.getPostCount();
+        }
     }
 
     /**
+     * Returns stored count of topics in the branch, collection of topics is
+     * not initialized to obtain it.
+     *
      * @return count topics in branch
      */
     public int getTopicCount() {
-        if (topicsCount == null) {
-            return topics.size();
-        }
-        return topicsCount;
+        return topicCount;
     }
 
     /**
-     * Returns a sum of all topic's post count for that branch.
-     * <p/>
-     * Value is computed only for the first time (if not set explicitly before),
-     * so it may not take into account the posts added later
+     * Returns stored sum of all topic's post count for that branch, collection
+     * of topics is not initialized to obtain it.
      *
      * @return sum of post count for all the topics in this branch
      */
     public int getPostCount() {
-        if (postsCount == null) {
-            postsCount = Lambda.sumFrom(topics, Topic.class).getPostCount();
-        }
-        return postsCount;
+        return postCount;
     }
 
     /**
@@ -198,19 +201,19 @@ public class Branch extends org.jtalks.common.model.entity.Branch
     /**
      * Set count of topics in this branch.
      *
-     * @param topicsCount count of posts in this branch
+     * @param topicCount count of topics in this branch
      */
-    public void setTopicsCount(Integer topicsCount) {
-        this.topicsCount = topicsCount;
+    public void setTopicCount(int topicCount) {
+        this.topicCount = topicCount;
     }
 
     /**
      * Set count of posts in this branch.
      *
-     * @param postsCount count of posts in this branch
+     * @param postCount count of posts in this branch
      */
-    public void setPostsCount(Integer postsCount) {
-        this.postsCount = postsCount;
+    public void setPostCount(int postCount) {
+        this.postCount = postCount;
     }
 
 
@@ -242,11 +245,30 @@ public class Branch extends org.jtalks.common.model.entity.Branch
     }
 
     /**
-     * Set last post in this branch.
+     * Set last post in this branch, date of the last post is updated as well.
      *
      */
     public void setLastPost(Post lastPost) {
         this.lastPost = lastPost;
+        this.lastPostDate = (lastPost == null) ? null : lastPost.getCreationDate();
+    }
+
+    /**
+     * Get creation date of the last post in this branch.
+     *
+     * @return creation date of the last post or {@code null} if branch has no posts
+     */
+    public DateTime getLastPostDate() {
+        return lastPostDate;
+    }
+
+    /**
+     * Set creation date of the last post in this branch.
+     *
+     * @param lastPostDate creation date of the last post
+     */
+    public void setLastPostDate(DateTime lastPostDate) {
+        this.lastPostDate = lastPostDate;
     }
     
     /**
@@ -266,5 +288,6 @@ public class Branch extends org.jtalks.common.model.entity.Branch
      */
     public void clearLastPost() {
         this.lastPost = null;
+        this.lastPostDate = null;
     }
 }
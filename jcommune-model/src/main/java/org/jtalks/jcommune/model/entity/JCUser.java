@@ -34,6 +34,7 @@ import java.util.Set;
 public class JCUser extends User {
 
     private int postCount;
+    private int unreadPmCount;
     private Language language = Language.ENGLISH;
     private int pageSize = DEFAULT_PAGE_SIZE;
     private String location;
@@ -126,6 +127,23 @@ public class JCUser extends User {
         this.postCount = postCount;
     }
 
+    /**
+     * Count of unread private messages as it was when the user was loaded. The counter is changed
+     * in the database only, so it's never written when the user is saved.
+     *
+     * @return count of unread private messages of this user
+     */
+    public int getUnreadPmCount() {
+        return unreadPmCount;
+    }
+
+    /**
+     * @param unreadPmCount count of unread private messages of this user
+     */
+    public void setUnreadPmCount(int unreadPmCount) {
+        this.unreadPmCount = unreadPmCount;
+    }
+
     /**
      * @return user language
      */
@@ -21,6 +21,8 @@ import org.jtalks.jcommune.model.dao.PropertyDao;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Map;
+
 
 /**
  * Provides access to the JCommune property, which is stored in the database.
@@ -113,6 +115,7 @@ public enum JCommuneProperty {
     private String defaultValue;
     private PropertyDao propertyDao;
     private ComponentDao componentDao;
+    private PropertyValuesCache propertyValuesCache;
 
     /**
      * Returns a string value of the property. Property values
@@ -120,11 +123,16 @@ public enum JCommuneProperty {
      * a value of property.
      * It is also worth noting that if the property has not been found,
      * it will return a default value.
+     * If <code>propertyValuesCache</code> is specified, the value is taken from
+     * it instead of querying the database.
      *
      * @return a string value of the property
      */
     public String getValue() {
-
+        if (propertyDao != null && propertyValuesCache != null) {
+            Map<String, String> values = propertyValuesCache.getValues();
+            return values.containsKey(name) ? values.get(name) : getDefaultValue();
+        }
         if (propertyDao != null) {
             Property property = propertyDao.getByName(name);
             if (property != null) {
@@ -147,6 +155,9 @@ public enum JCommuneProperty {
             Component component = componentDao.getComponent();
             component.setProperty(name, value);
             componentDao.saveOrUpdate(component);
+            if (propertyValuesCache != null) {
+                propertyValuesCache.invalidate();
+            }
         } else {
             LOGGER.warn("Can't set value of property {}. No componentDAO", name);
         }
@@ -239,4 +250,13 @@ public enum JCommuneProperty {
         this.componentDao = componentDao;
     }
 
+    /**
+     * Set a cache of property values to read the property without querying the database.
+     *
+     * @param propertyValuesCache cache of all the property values
+     */
+    public void setPropertyValuesCache(PropertyValuesCache propertyValuesCache) {
+        this.propertyValuesCache = propertyValuesCache;
+    }
+
 }
@@ -0,0 +1,201 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.model.entity;
+
+import org.joda.time.DateTime;
+import org.jtalks.common.model.entity.Entity;
+
+/**
+ * Notification about changes of the subscribed entity which is not sent yet. Entries are
+ * saved in the same transaction as the change itself and sent later in background, so
+ * that the author of the change doesn't wait until all the subscribers are notified.
+ * <p/>
+ * Notifications are sent outside of any HTTP request, so entry keeps the root URL of the
+ * forum to build links from.
+ * <p/>
+ * Entry is claimed by the node of the cluster which sends it, so that other nodes don't send it too.
+ * Claim expires after a while, so entries claimed by the node which stopped are sent by others, and
+ * entries which failed to be sent are retried.
+ */
+public class NotificationOutboxEntry extends Entity {
+    /**
+     * Kinds of notifications, they are sent in the order they are declared.
+     */
+    public enum Kind {
+        /** New topic is created in the subscribed branch, entity is the topic. */
+        TOPIC_CREATED,
+        /** Subscribed topic is changed, entity is the topic. */
+        TOPIC_CHANGED,
+        /** Subscribed branch is changed, entity is the branch. */
+        BRANCH_CHANGED
+    }
+
+    private Kind kind;
+    private long entityId;
+    private long authorId;
+    private String rootUrl;
+    private String rootUrlLabel;
+    private DateTime creationDate = new DateTime();
+    private String claimedBy;
+    private DateTime claimedAt;
+    private int attempts;
+
+    /**
+     * Needed for Hibernate usage
+     */
+    public NotificationOutboxEntry() {
+    }
+
+    /**
+     * @param kind         kind of the notification
+     * @param entityId     ID of the changed entity
+     * @param authorId     ID of the user who changed the entity, he isn't notified
+     * @param rootUrl      forum root URL to build links, e.g. "http://myhost.com:1234/mycoolforum"
+     * @param rootUrlLabel forum root URL to show as label of links, e.g. "http://myhost.com/mycoolforum"
+     */
+    public NotificationOutboxEntry(Kind kind, long entityId, long authorId, String rootUrl, String rootUrlLabel) {
+        this.kind = kind;
+        this.entityId = entityId;
+        this.authorId = authorId;
+        this.rootUrl = rootUrl;
+        this.rootUrlLabel = rootUrlLabel;
+    }
+
+    /**
+     * @return kind of the notification
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @param kind kind of the notification
+     */
+    public void setKind(Kind kind) {
+        this.kind = kind;
+    }
+
+    /**
+     * @return ID of the changed entity, topic or branch depending on the kind
+     */
+    public long getEntityId() {
+        return entityId;
+    }
+
+    /**
+     * @param entityId ID of the changed entity
+     */
+    public void setEntityId(long entityId) {
+        this.entityId = entityId;
+    }
+
+    /**
+     * @return ID of the user who changed the entity
+     */
+    public long getAuthorId() {
+        return authorId;
+    }
+
+    /**
+     * @param authorId ID of the user who changed the entity
+     */
+    public void setAuthorId(long authorId) {
+        this.authorId = authorId;
+    }
+
+    /**
+     * @return forum root URL to build links
+     */
+    public String getRootUrl() {
+        return rootUrl;
+    }
+
+    /**
+     * @param rootUrl forum root URL to build links
+     */
+    public void setRootUrl(String rootUrl) {
+        this.rootUrl = rootUrl;
+    }
+
+    /**
+     * @return forum root URL to show as label of links
+     */
+    public String getRootUrlLabel() {
+        return rootUrlLabel;
+    }
+
+    /**
+     * @param rootUrlLabel forum root URL to show as label of links
+     */
+    public void setRootUrlLabel(String rootUrlLabel) {
+        this.rootUrlLabel = rootUrlLabel;
+    }
+
+    /**
+     * @return when the entity was changed
+     */
+    public DateTime getCreationDate() {
+        return creationDate;
+    }
+
+    /**
+     * @param creationDate when the entity was changed
+     */
+    public void setCreationDate(DateTime creationDate) {
+        this.creationDate = creationDate;
+    }
+
+    /**
+     * @return unique ID of the claim of the node which sends the notification, or {@code null} if it isn't claimed
+     */
+    public String getClaimedBy() {
+        return claimedBy;
+    }
+
+    /**
+     * @param claimedBy unique ID of the claim of the node which sends the notification
+     */
+    public void setClaimedBy(String claimedBy) {
+        this.claimedBy = claimedBy;
+    }
+
+    /**
+     * @return when the notification was claimed last time, or {@code null} if it was never claimed
+     */
+    public DateTime getClaimedAt() {
+        return claimedAt;
+    }
+
+    /**
+     * @param claimedAt when the notification was claimed last time
+     */
+    public void setClaimedAt(DateTime claimedAt) {
+        this.claimedAt = claimedAt;
+    }
+
+    /**
+     * @return how many times the notification failed to be sent
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * @param attempts how many times the notification failed to be sent
+     */
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+}
@@ -175,6 +175,8 @@ public final class PersistedObjectsFactory {
             session.save(newPost);
         }
         session.save(topic);
+        session.flush();
+        session.getNamedQuery("reconcileTopicPostCounts").executeUpdate();
         return posts;
     }
 
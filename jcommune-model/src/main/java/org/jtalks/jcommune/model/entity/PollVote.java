@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.model.entity;
+
+import org.jtalks.common.model.entity.Entity;
+
+/**
+ * Represents the fact that user has voted in the poll. Every user can vote in the poll only once,
+ * selected options aren't stored here, they are counted in {@link PollItem#getVotesCount()}.
+ */
+public class PollVote extends Entity {
+    private Poll poll;
+    private JCUser user;
+
+    /**
+     * Needed for Hibernate usage
+     */
+    public PollVote() {
+    }
+
+    /**
+     * @param poll poll user has voted in
+     * @param user voted user
+     */
+    public PollVote(Poll poll, JCUser user) {
+        this.poll = poll;
+        this.user = user;
+    }
+
+    /**
+     * Gets the poll user has voted in
+     *
+     * @return poll user has voted in
+     */
+    public Poll getPoll() {
+        return poll;
+    }
+
+    /**
+     * Sets the poll user has voted in
+     *
+     * @param poll poll to be set
+     */
+    public void setPoll(Poll poll) {
+        this.poll = poll;
+    }
+
+    /**
+     * Gets the voted user
+     *
+     * @return voted user
+     */
+    public JCUser getUser() {
+        return user;
+    }
+
+    /**
+     * Sets specified user as voter
+     *
+     * @param user user to be set
+     */
+    public void setUser(JCUser user) {
+        this.user = user;
+    }
+}
@@ -30,13 +30,14 @@ import java.util.Set;
  * Always included in the {@link Topic}. Topic itself should contain at lest one Post <br/>
  * All fields of this object are required and can't be null.<br/>
  * The topic field will be updated automatically when called Topic.addPost(Post). <br/>
- * The Post deletes automatically if the parent Topic deleted.
+ * The Post deletes automatically if the parent Topic deleted.<br/>
+ * Posts have their own search index, so changing of a post doesn't re-index the whole topic.
  *
  * @author Pavel Vervenko
  * @author Kirill Afonin
  * @author Anuar Nurmakanov
  */
-
+@Indexed
 public class Post extends Entity implements SubscriptionAwareEntity {
     public static final String URL_SUFFIX = "/posts/";
     private DateTime creationDate;
@@ -60,6 +61,10 @@ public class Post extends Entity implements SubscriptionAwareEntity {
      * Name of the field in the index for default language(English).
      */
     public static final String POST_CONTENT_FIELD_DEF = "postContent";
+    /**
+     * Name of the field in the index for identifier of the topic of the post.
+     */
+    public static final String POST_TOPIC_ID_FIELD = "topicId";
 
     /**
      * For Hibernate use only
@@ -176,11 +181,31 @@ public class Post extends Entity implements SubscriptionAwareEntity {
     /**
      * @return the topic
      */
-    @ContainedIn
     public Topic getTopic() {
         return topic;
     }
 
+    /**
+     * Gets identifier of the topic of the post, it's stored in the search index
+     * to find topics by content of their posts.
+     *
+     * @return identifier of the topic or {@code null} if the post isn't added to a topic yet
+     */
+    @Field(name = POST_TOPIC_ID_FIELD, index = Index.UN_TOKENIZED, store = Store.YES)
+    public Long getTopicId() {
+        return (topic == null) ? null : topic.getId();
+    }
+
+    /**
+     * Gets identifier of the branch of the post topic, it's indexed to filter search results by branches.
+     *
+     * @return identifier of the branch or {@code null} if the post isn't added to a topic yet
+     */
+    @Field(name = Topic.BRANCH_ID_FIELD, index = Index.UN_TOKENIZED)
+    public Long getBranchId() {
+        return (topic == null) ? null : topic.getBranchId();
+    }
+
     /**
      * @param topic the Topic to set
      */
@@ -377,4 +402,13 @@ public class Post extends Entity implements SubscriptionAwareEntity {
     public String getUrlSuffix() {
         return URL_SUFFIX + getId();
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @DocumentId
+    @Override
+    public long getId() {
+        return super.getId();
+    }
 }
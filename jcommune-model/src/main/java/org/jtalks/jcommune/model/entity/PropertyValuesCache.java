@@ -0,0 +1,182 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.model.entity;
+
+import net.sf.ehcache.CacheException;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.event.CacheEventListener;
+import org.hibernate.cache.CacheKey;
+import org.jtalks.common.model.entity.Component;
+import org.jtalks.common.model.entity.Property;
+import org.jtalks.jcommune.model.dao.PropertyDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps values of all the {@link Property} rows in memory, so that reading of
+ * {@link JCommuneProperty} doesn't query the database. Values are loaded at once
+ * on first access after the cache is invalidated.
+ * <p/>
+ * The cache listens to the replicated second-level cache region of properties and
+ * components, so it's invalidated when properties are changed either by this node
+ * or by any other application of the cluster (e.g. another JCommune instance or Poulpe).
+ */
+public class PropertyValuesCache implements CacheEventListener {
+    /** Second-level cache region which contains properties and components, replicated with JGroups */
+    static final String PROPERTIES_REGION = "org.jtalks.EHCOMMON";
+    private static final Logger LOGGER = LoggerFactory.getLogger(PropertyValuesCache.class);
+
+    private final PropertyDao propertyDao;
+    private volatile Map<String, String> values;
+    private long version;
+
+    /**
+     * @param propertyDao to load all the properties
+     */
+    public PropertyValuesCache(PropertyDao propertyDao) {
+        this.propertyDao = propertyDao;
+    }
+
+    /**
+     * Registers the cache as listener of properties region in all the cache managers
+     * which have it, so that it's notified about changes of properties.
+     */
+    public void init() {
+        for (CacheManager cacheManager : CacheManager.ALL_CACHE_MANAGERS) {
+            Ehcache region = cacheManager.getEhcache(PROPERTIES_REGION);
+            if (region != null) {
+                region.getCacheEventNotificationService().registerListener(this);
+            }
+        }
+    }
+
+    /**
+     * Returns values of all the properties mapped by their names. Values are loaded
+     * from the database if the cache was invalidated since the previous call.
+     *
+     * @return unmodifiable map of property values by property names
+     */
+    public Map<String, String> getValues() {
+        Map<String, String> currentValues = values;
+        if (currentValues == null) {
+            long loadedVersion;
+            synchronized (this) {
+                loadedVersion = version;
+            }
+            currentValues = loadValues();
+            synchronized (this) {
+                // don't publish values if they were invalidated while loading
+                if (version == loadedVersion) {
+                    values = currentValues;
+                }
+            }
+        }
+        return currentValues;
+    }
+
+    /**
+     * Drops the loaded values, they will be loaded again on the next access.
+     */
+    public synchronized void invalidate() {
+        version++;
+        values = null;
+    }
+
+    private Map<String, String> loadValues() {
+        Map<String, String> loaded = new HashMap<>();
+        for (Property property : propertyDao.getAllProperties()) {
+            loaded.put(property.getName(), property.getValue());
+        }
+        LOGGER.debug("Loaded {} properties", loaded.size());
+        return Collections.unmodifiableMap(loaded);
+    }
+
+    private void invalidateIfPropertyChanged(Element element) {
+        Object key = (element == null) ? null : element.getObjectKey();
+        if (!(key instanceof CacheKey)) {
+            return;
+        }
+        String entityOrRole = ((CacheKey) key).getEntityOrRoleName();
+        if (entityOrRole.startsWith(Property.class.getName()) || entityOrRole.startsWith(Component.class.getName())) {
+            invalidate();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notifyElementRemoved(Ehcache cache, Element element) throws CacheException {
+        invalidateIfPropertyChanged(element);
+    }
+
+    /**
+     * Puts are caused by loading of entities, so they don't mean the property was changed.
+     */
+    @Override
+    public void notifyElementPut(Ehcache cache, Element element) throws CacheException {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notifyElementUpdated(Ehcache cache, Element element) throws CacheException {
+        invalidateIfPropertyChanged(element);
+    }
+
+    /**
+     * Region is eternal, elements don't expire.
+     */
+    @Override
+    public void notifyElementExpired(Ehcache cache, Element element) {
+    }
+
+    /**
+     * Evicted elements are not changed, they are just not in the memory anymore.
+     */
+    @Override
+    public void notifyElementEvicted(Ehcache cache, Element element) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void notifyRemoveAll(Ehcache cache) {
+        invalidate();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void dispose() {
+    }
+
+    /**
+     * The only instance listens to the region, so it can't be cloned.
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        throw new CloneNotSupportedException("Property values cache is a singleton");
+    }
+}
@@ -132,10 +132,13 @@ public class Topic extends Entity implements SubscriptionAwareEntity {
     private String type;
     private Map<String, String> attributes = new HashMap<>();
     private List<Post> posts = new ArrayList<>();
+    private int postCount;
     private Set<JCUser> subscribers = new HashSet<>();
 
     // transient, makes sense for current user only if set explicitly
     private transient DateTime lastReadPostDate;
+    // transient, views counted in memory but not written to the database yet
+    private transient int pendingViews;
 
     public static final int MIN_NAME_SIZE = 1;
     public static final int MAX_NAME_SIZE = 120;
@@ -149,9 +152,9 @@ public class Topic extends Entity implements SubscriptionAwareEntity {
      */
     public static final String TOPIC_TITLE_FIELD_DEF = "topicTitle";
     /**
-     * Name of the prefix for collection of posts.
+     * Name of the field in the index for identifier of the branch, both topics and their posts have it.
      */
-    public static final String TOPIC_POSTS_PREFIX = "topicPosts.";
+    public static final String BRANCH_ID_FIELD = "branchId";
 
 
     /**
@@ -184,7 +187,8 @@ public class Topic extends Entity implements SubscriptionAwareEntity {
 
     /**
      * Add new {@link Post} to the topic.
-     * The method sets Posts.topic field to this Topic.
+     * The method sets Posts.topic field to this Topic and increments
+     * the stored count of posts.
      *
      * @param post post to add
      */
@@ -192,6 +196,7 @@ public class Topic extends Entity implements SubscriptionAwareEntity {
         setModificationDate(post.getCreationDate());
         post.setTopic(this);
         this.posts.add(post);
+        this.postCount++;
     }
 
     /**
@@ -200,7 +205,9 @@ public class Topic extends Entity implements SubscriptionAwareEntity {
      * @param postToRemove post to remove
      */
     public void removePost(Post postToRemove) {
-        posts.remove(postToRemove);
+        if (posts.remove(postToRemove)) {
+            postCount--;
+        }
         Topic topic = postToRemove.getTopic();
         if (postToRemove.getCreationDate().withMillis(0).equals(topic.getModificationDate().withMillis(0))) {
             topic.recalculateModificationDate();
@@ -288,7 +295,6 @@ public class Topic extends Entity implements SubscriptionAwareEntity {
     /**
      * @return the list of posts in the topic, always not null and not empty
      */
-    @IndexedEmbedded(prefix = TOPIC_POSTS_PREFIX)
     public List<Post> getPosts() {
         return posts;
     }
@@ -307,6 +313,16 @@ public class Topic extends Entity implements SubscriptionAwareEntity {
         return branch;
     }
 
+    /**
+     * Gets identifier of the branch of the topic, it's indexed to filter search results by branches.
+     *
+     * @return identifier of the branch or {@code null} if the topic isn't added to a branch yet
+     */
+    @Field(name = BRANCH_ID_FIELD, index = Index.UN_TOKENIZED)
+    public Long getBranchId() {
+        return (branch == null) ? null : branch.getId();
+    }
+
     /**
      * @param branch branch to be set as topics branch
      */
@@ -425,19 +441,30 @@ public class Topic extends Entity implements SubscriptionAwareEntity {
     }
 
     /**
-     * Get count of post in topic.
+     * Get count of post in topic. The value is stored in the topic itself and is
+     * maintained by {@link #addPost(Post)} and {@link #removePost(Post)}, so
+     * posts collection is not initialized to obtain it.
      *
      * @return count of post
      */
     public int getPostCount() {
-        return posts.size();
+        return postCount;
+    }
+
+    /**
+     * Set count of posts in topic.
+     *
+     * @param postCount count of posts in topic
+     */
+    public void setPostCount(int postCount) {
+        this.postCount = postCount;
     }
 
     /**
-     * @return topic page views
+     * @return topic page views including the ones not written to the database yet
      */
     public int getViews() {
-        return views;
+        return views + pendingViews;
     }
 
     /**
@@ -447,6 +474,16 @@ public class Topic extends Entity implements SubscriptionAwareEntity {
         this.views = views;
     }
 
+    /**
+     * Sets count of views which are counted in memory but not written to the
+     * database yet, they are added to the stored views in {@link #getViews()}.
+     *
+     * @param pendingViews views not written to the database
+     */
+    public void setPendingViews(int pendingViews) {
+        this.pendingViews = pendingViews;
+    }
+
     /**
      * Get the poll for this topic.
      *
@@ -21,12 +21,31 @@ package org.jtalks.jcommune.model.search;
  * @author Anuar Nurmakanov
  */
 public class InvalidCharactersFilter implements SearchRequestFilter {
+    private static final String VALID_EXTRA_CHARACTERS = "ёЁЇїЄєҐґÑñÁáÉéÍíÓóÚúіІ";
 
     /**
      * {@inheritDoc}
      */
     @Override
     public String filter(String searchText) {
-        return searchText.replaceAll("[^А-Яа-яёЁA-Za-z0-9ЇїЄєҐґÑñÁáÉéÍíÓóÚúіІ]", " ").trim();
+        char[] text = searchText.toCharArray();
+        for (int i = 0; i < text.length; i++) {
+            if (!isValidCharacter(text[i])) {
+                text[i] = ' ';
+            }
+        }
+        return new String(text).trim();
+    }
+
+    /**
+     * Checks whether the character may be a part of the search text.
+     *
+     * @param c character to check
+     * @return {@code true} if the character is valid
+     */
+    static boolean isValidCharacter(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                || (c >= 'А' && c <= 'Я') || (c >= 'а' && c <= 'я')
+                || VALID_EXTRA_CHARACTERS.indexOf(c) >= 0;
     }
 }
@@ -14,27 +14,32 @@
  */
 package org.jtalks.jcommune.model.search;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
-import org.apache.commons.lang.StringUtils;
+import org.apache.lucene.analysis.CharArraySet;
 import org.apache.lucene.util.Version;
 import org.apache.solr.analysis.StopFilterFactory;
 import org.hibernate.search.util.HibernateSearchResourceLoader;
 
 /**
- * Deletes stop words in the search text.
+ * Deletes stop words in the search text. Stop words are loaded once and shared
+ * by all the search requests, they are loaded again only by {@link #reloadStopWords()}.
+ * <p/>
+ * Search text is split into terms by the characters which aren't valid for
+ * {@link InvalidCharactersFilter}, so invalid characters are removed in the same pass.
  * 
  * @author Anuar_Nurmakanov
  *
  */
 public class StopWordsFilter implements SearchRequestFilter {
+    private static final Version LUCENE_VERSION = Version.LUCENE_31;
+    private static final int INITIAL_CAPACITY = 512;
+
     private List<String> stopWordsFiles;
     private boolean ignoreCase;
+    private volatile CharArraySet stopWords;
     
     /**
      * @param stopWordsFiles list of files that contain stop words
@@ -50,57 +55,85 @@ public class StopWordsFilter implements SearchRequestFilter {
      */
     @Override
     public String filter(String searchText) {
-        String result = searchText;
-        for (String stopWordsFile : stopWordsFiles) {
-            result = filter(result, stopWordsFile);
+        CharArraySet words = getStopWords();
+        char[] text = ignoreCase ? searchText.toLowerCase().toCharArray() : searchText.toCharArray();
+        StringBuilder result = new StringBuilder(text.length);
+        int termStart = -1;
+        for (int i = 0; i <= text.length; i++) {
+            boolean termChar = (i < text.length) && InvalidCharactersFilter.isValidCharacter(text[i]);
+            if (termChar && termStart < 0) {
+                termStart = i;
+            } else if (!termChar && termStart >= 0) {
+                appendTerm(result, words, text, termStart, i - termStart);
+                termStart = -1;
+            }
         }
-        return result;
+        return result.toString();
     }
-    
+
     /**
-     * This method performs a filtration of the search text.
-     *  
-     * @param searchText search text
-     * @param stopWordsFile file that contains stop words
-     * @return result of filtration
+     * Loads stop words from the files again, e.g. when files were changed.
      */
-    private String filter(String searchText, String stopWordsFile) {
-        StopFilterFactory filterFactory = new StopFilterFactory();
-        Map<String, String> arguments = new HashMap<>();
-        arguments.put("words", stopWordsFile);
-        arguments.put("luceneMatchVersion", String.valueOf(Version.LUCENE_31));
-        arguments.put("ignoreCase", String.valueOf(ignoreCase));
-        filterFactory.init(arguments);
-        filterFactory.inform(new HibernateSearchResourceLoader());
-        
-        Set<String> stopWords = (Set<String>)filterFactory.getStopWords();
-        List<String> searchTerms = splitSearchText(searchText);
-        searchTerms.removeAll(stopWords);
-        return joinSearchTerms(searchTerms);
+    public void reloadStopWords() {
+        stopWords = loadStopWords();
     }
-    
+
     /**
-     * Performs a splitting the search text.
-     * 
-     * @param searchText search text
-     * @return list of terms
+     * Appends the term to the result if it isn't a stop word.
+     *
+     * @param result filtered search text
+     * @param words stop words
+     * @param text search text
+     * @param offset offset of the term in the search text
+     * @param length length of the term
      */
-    private List<String> splitSearchText(String searchText) {
-        if (ignoreCase) {
-            searchText = searchText.toLowerCase();
+    private void appendTerm(StringBuilder result, CharArraySet words, char[] text, int offset, int length) {
+        if (words.contains(text, offset, length)) {
+            return;
         }
-        return new ArrayList<>(
-                Arrays.asList(searchText.split("\\s"))
-        );
+        if (result.length() > 0) {
+            result.append(' ');
+        }
+        result.append(text, offset, length);
     }
-    
+
+    /**
+     * Gets stop words loading them on the first call.
+     *
+     * @return stop words from all the files
+     */
+    private CharArraySet getStopWords() {
+        CharArraySet words = stopWords;
+        if (words == null) {
+            synchronized (this) {
+                words = stopWords;
+                if (words == null) {
+                    words = loadStopWords();
+                    stopWords = words;
+                }
+            }
+        }
+        return words;
+    }
+
     /**
-     * Creates the single string from list of terms.
-     * 
-     * @param searchTerms search text
-     * @return the single string from list of terms
+     * Loads stop words from all the files into the single set.
+     *
+     * @return stop words which can't be modified
      */
-    private String joinSearchTerms(List<String> searchTerms) {
-        return StringUtils.join(searchTerms, " ");
+    private CharArraySet loadStopWords() {
+        CharArraySet words = new CharArraySet(LUCENE_VERSION, INITIAL_CAPACITY, ignoreCase);
+        HibernateSearchResourceLoader resourceLoader = new HibernateSearchResourceLoader();
+        for (String stopWordsFile : stopWordsFiles) {
+            StopFilterFactory filterFactory = new StopFilterFactory();
+            Map<String, String> arguments = new HashMap<>();
+            arguments.put("words", stopWordsFile);
+            arguments.put("luceneMatchVersion", String.valueOf(LUCENE_VERSION));
+            arguments.put("ignoreCase", String.valueOf(ignoreCase));
+            filterFactory.init(arguments);
+            filterFactory.inform(resourceLoader);
+            words.addAll(filterFactory.getStopWords());
+        }
+        return CharArraySet.unmodifiableSet(words);
     }
 }
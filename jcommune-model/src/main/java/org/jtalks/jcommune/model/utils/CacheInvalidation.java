@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.model.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Invalidates caches of data changed within transaction. Concurrent request may read the data before the
+ * transaction is committed and put its old state back to the cache, so the cache is invalidated right away
+ * and once more after the transaction completes.
+ */
+public final class CacheInvalidation {
+
+    private CacheInvalidation() {
+    }
+
+    /**
+     * Runs invalidation right away and, if it's called within transaction, once more after the transaction
+     * completes regardless of whether it was committed or rolled back.
+     *
+     * @param invalidation invalidation of the cache
+     */
+    public static void nowAndAfterCompletion(final Runnable invalidation) {
+        invalidation.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidation.run();
+                }
+            });
+        }
+    }
+
+    /**
+     * Runs action if the current transaction is rolled back, e.g. to put back data taken from the cache to be
+     * written within the transaction.
+     *
+     * @param action action to run after rollback
+     * @return {@code true} if the action is registered, {@code false} if it's called outside of transaction
+     */
+    public static boolean afterRollback(final Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return false;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != TransactionSynchronization.STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+        return true;
+    }
+}
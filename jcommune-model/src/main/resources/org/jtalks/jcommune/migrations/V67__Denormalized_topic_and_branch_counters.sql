@@ -0,0 +1,14 @@
+-- Counters which were calculated with COUNT queries on every view of the forum are stored now in the rows
+alter table TOPIC add(POST_COUNT INT NOT NULL default 0);
+alter table BRANCHES add(TOPIC_COUNT INT NOT NULL default 0);
+alter table BRANCHES add(POST_COUNT INT NOT NULL default 0);
+alter table BRANCHES add(LAST_POST_DATE DATETIME default null);
+
+update TOPIC t set t.POST_COUNT = (select count(*) from POST p where p.TOPIC_ID = t.TOPIC_ID);
+
+update BRANCHES b set
+  b.TOPIC_COUNT = (select count(*) from TOPIC t where t.BRANCH_ID = b.BRANCH_ID),
+  b.POST_COUNT = (select coalesce(sum(t.POST_COUNT), 0) from TOPIC t where t.BRANCH_ID = b.BRANCH_ID);
+
+update BRANCHES b set b.LAST_POST_DATE = (select p.POST_DATE from POST p where p.POST_ID = b.LAST_POST)
+  where b.LAST_POST is not null;
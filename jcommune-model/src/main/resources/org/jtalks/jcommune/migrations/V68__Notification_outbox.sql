@@ -0,0 +1,12 @@
+create table NOTIFICATION_OUTBOX (
+  ID bigint(20) not null auto_increment,
+  UUID varchar(255) not null,
+  KIND varchar(32) not null,
+  ENTITY_ID bigint(20) not null,
+  AUTHOR_ID bigint(20) not null,
+  ROOT_URL varchar(255) not null,
+  ROOT_URL_LABEL varchar(255) not null,
+  CREATION_DATE datetime not null,
+  primary key(ID),
+  unique key (UUID)
+)engine=InnoDb default charset='utf8' collate='utf8_bin';
@@ -0,0 +1,2 @@
+create index POST_TOPIC_DATE_INDEX ON POST (TOPIC_ID, POST_DATE, POST_ID);
+create index POST_USER_DATE_INDEX ON POST (USER_CREATED, POST_DATE, POST_ID);
@@ -0,0 +1,5 @@
+-- Count of unread private messages is stored in the row of the recipient instead of being counted on cache misses
+alter table JC_USER_DETAILS add(UNREAD_PM_COUNT INT NOT NULL default 0);
+
+update JC_USER_DETAILS d set d.UNREAD_PM_COUNT = (select count(*) from PRIVATE_MESSAGE pm
+  where pm.USER_TO = d.USER_ID and pm.READ_FLAG = 0 and pm.STATUS in ('SENT', 'DELETED_FROM_OUTBOX'));
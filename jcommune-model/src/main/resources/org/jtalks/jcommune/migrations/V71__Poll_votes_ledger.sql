@@ -0,0 +1,29 @@
+create table POLL_VOTES (
+  ID bigint(20) not null auto_increment,
+  UUID varchar(255) not null,
+  POLL_ID bigint(20) not null,
+  USER_ID bigint(20) not null,
+  primary key(ID),
+  unique key (UUID),
+  unique key (POLL_ID, USER_ID),
+  constraint FK_POLL_VOTE_POLL foreign key (POLL_ID) references POLLS (POLL_ID) on delete cascade,
+  constraint FK_POLL_VOTE_USER foreign key (USER_ID) references USERS (ID) on delete cascade
+)engine=InnoDb default charset='utf8' collate='utf8_bin';
+
+-- Votes used to be stored as ACL entries restricting WRITE permission on the poll for the voter,
+-- they are moved to the ledger and removed from ACL tables.
+insert ignore into POLL_VOTES (UUID, POLL_ID, USER_ID)
+  select UUID(), POLLS.POLL_ID, USERS.ID
+  from acl_entry
+    join acl_object_identity on acl_object_identity.id = acl_entry.acl_object_identity
+    join acl_class on acl_class.id = acl_object_identity.object_id_class
+    join acl_sid on acl_sid.id = acl_entry.sid
+    join POLLS on POLLS.POLL_ID = acl_object_identity.object_id_identity
+    join USERS on concat('user:', USERS.ID) = acl_sid.sid
+  where acl_class.class = 'POLL' and acl_sid.principal = 1 and acl_entry.granting = 0 and acl_entry.mask = 2;
+
+delete acl_entry from acl_entry
+  join acl_object_identity on acl_object_identity.id = acl_entry.acl_object_identity
+  join acl_class on acl_class.id = acl_object_identity.object_id_class
+  join acl_sid on acl_sid.id = acl_entry.sid
+  where acl_class.class = 'POLL' and acl_sid.principal = 1 and acl_entry.granting = 0 and acl_entry.mask = 2;
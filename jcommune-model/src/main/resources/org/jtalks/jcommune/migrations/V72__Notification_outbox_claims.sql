@@ -0,0 +1,5 @@
+alter table NOTIFICATION_OUTBOX
+  add column CLAIMED_BY varchar(64) null,
+  add column CLAIMED_AT datetime null,
+  add column ATTEMPTS int not null default 0;
+create index NOTIFICATION_OUTBOX_CLAIMED_BY_INDEX ON NOTIFICATION_OUTBOX (CLAIMED_BY);
@@ -218,6 +218,87 @@ public class BranchHibernateDaoTest extends AbstractTransactionalTestNGSpringCon
         assertEquals(actualCount, expectedCount, "Count of posts in the branch is wrong");
     }
 
+    @Test
+    public void reconcileCountersShouldRepairDriftedCounts() {
+        Topic topic = PersistedObjectsFactory.getDefaultTopic();
+        Branch branch = topic.getBranch();
+        topic.addPost(new Post(topic.getTopicStarter(), "Second post"));
+        session.save(branch);
+        session.flush();
+        session.createSQLQuery("UPDATE TOPIC SET POST_COUNT = 100").executeUpdate();
+        session.createSQLQuery("UPDATE BRANCHES SET TOPIC_COUNT = 100, POST_COUNT = 100").executeUpdate();
+
+        int repaired = dao.reconcileCounters();
+        session.clear();
+
+        Topic actualTopic = (Topic) session.get(Topic.class, topic.getId());
+        Branch actualBranch = (Branch) session.get(Branch.class, branch.getId());
+        assertEquals(repaired, 2, "Both the topic and the branch should be repaired");
+        assertEquals(actualTopic.getPostCount(), 2);
+        assertEquals(actualBranch.getTopicCount(), 1);
+        assertEquals(actualBranch.getPostCount(), 2);
+    }
+
+    @Test
+    public void changeCountersShouldAddToStoredCounts() {
+        Topic topic = PersistedObjectsFactory.getDefaultTopic();
+        Branch branch = topic.getBranch();
+        session.save(branch);
+        session.flush();
+
+        dao.changeCounters(branch, 2, 5);
+        dao.changeCounters(branch, -1, -2);
+        session.clear();
+
+        Branch actual = (Branch) session.get(Branch.class, branch.getId());
+        assertEquals(actual.getTopicCount(), 2);
+        assertEquals(actual.getPostCount(), 4);
+    }
+
+    @Test
+    public void recalculateCountersShouldRepairCountsOfTheBranch() {
+        Topic topic = PersistedObjectsFactory.getDefaultTopic();
+        Branch branch = topic.getBranch();
+        topic.addPost(new Post(topic.getTopicStarter(), "Second post"));
+        session.save(branch);
+        session.flush();
+        session.createSQLQuery("UPDATE BRANCHES SET TOPIC_COUNT = 100, POST_COUNT = 100").executeUpdate();
+
+        dao.recalculateCounters(branch);
+        session.clear();
+
+        Branch actual = (Branch) session.get(Branch.class, branch.getId());
+        assertEquals(actual.getTopicCount(), 1);
+        assertEquals(actual.getPostCount(), 2);
+    }
+
+    @Test
+    public void countersShouldNotBeOverwrittenByBranchUpdate() {
+        Topic topic = PersistedObjectsFactory.getDefaultTopic();
+        Branch branch = topic.getBranch();
+        session.save(branch);
+        session.flush();
+        dao.changeCounters(branch, 1, 1);
+
+        branch.setName("new name");
+        session.flush();
+        session.clear();
+
+        Branch actual = (Branch) session.get(Branch.class, branch.getId());
+        assertEquals(actual.getTopicCount(), 2);
+        assertEquals(actual.getPostCount(), 2);
+    }
+
+    @Test
+    public void reconcileCountersShouldNotTouchCorrectCounts() {
+        Topic topic = PersistedObjectsFactory.getDefaultTopic();
+        Branch branch = topic.getBranch();
+        session.save(branch);
+        session.flush();
+
+        assertEquals(dao.reconcileCounters(), 0);
+    }
+
     @Test
     public void testGetSubscribersWithAllowedPermission() {
         JCUser subscriber = PersistedObjectsFactory.getDefaultUserWithGroups();
@@ -0,0 +1,210 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.model.dao.hibernate;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.joda.time.DateTime;
+import org.jtalks.jcommune.model.dao.NotificationOutboxDao;
+import org.jtalks.jcommune.model.entity.NotificationOutboxEntry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.testng.AbstractTransactionalTestNGSpringContextTests;
+import org.springframework.test.context.transaction.TransactionConfiguration;
+import org.springframework.transaction.annotation.Transactional;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.unitils.reflectionassert.ReflectionAssert.assertReflectionEquals;
+
+@ContextConfiguration(locations = {"classpath:/org/jtalks/jcommune/model/entity/applicationContext-dao.xml"})
+@TransactionConfiguration(transactionManager = "transactionManager", defaultRollback = true)
+@Transactional
+public class NotificationOutboxHibernateDaoTest extends AbstractTransactionalTestNGSpringContextTests {
+    private static final int MAX_ATTEMPTS = 5;
+    @Autowired
+    private SessionFactory sessionFactory;
+    @Autowired
+    private NotificationOutboxDao outboxDao;
+    private Session session;
+
+    @BeforeMethod
+    public void init() {
+        session = sessionFactory.getCurrentSession();
+    }
+
+    @Test
+    public void entryShouldBeSaved() {
+        NotificationOutboxEntry entry = createEntry(1L);
+
+        outboxDao.saveOrUpdate(entry);
+        session.flush();
+        session.evict(entry);
+
+        NotificationOutboxEntry entryInDatabase =
+                (NotificationOutboxEntry) session.get(NotificationOutboxEntry.class, entry.getId());
+        assertReflectionEquals(entry, entryInDatabase);
+    }
+
+    @Test
+    public void oldestEntriesShouldBeClaimedInOrderOfSaving() {
+        NotificationOutboxEntry first = createEntry(1L);
+        NotificationOutboxEntry second = createEntry(2L);
+        NotificationOutboxEntry third = createEntry(3L);
+        session.save(first);
+        session.save(second);
+        session.save(third);
+        session.flush();
+        session.clear();
+
+        List<NotificationOutboxEntry> claimed = outboxDao.claimOldest("node", 2, new DateTime(), MAX_ATTEMPTS);
+
+        assertEquals(claimed, Arrays.asList(first, second));
+        assertEquals(claimed.get(0).getClaimedBy(), "node");
+        assertNotNull(claimed.get(0).getClaimedAt());
+    }
+
+    @Test
+    public void entriesClaimedByOthersShouldNotBeClaimedUntilClaimExpires() {
+        NotificationOutboxEntry first = createEntry(1L);
+        NotificationOutboxEntry second = createEntry(2L);
+        session.save(first);
+        session.save(second);
+        session.flush();
+        outboxDao.claimOldest("other node", 1, new DateTime(), MAX_ATTEMPTS);
+        session.clear();
+
+        List<NotificationOutboxEntry> claimed = outboxDao.claimOldest("node", 10,
+                new DateTime().minusMinutes(10), MAX_ATTEMPTS);
+
+        assertEquals(claimed, Arrays.asList(second));
+    }
+
+    @Test
+    public void entriesWithExpiredClaimShouldBeClaimedAgain() {
+        NotificationOutboxEntry entry = createEntry(1L);
+        entry.setClaimedBy("stopped node");
+        entry.setClaimedAt(new DateTime().minusHours(1));
+        session.save(entry);
+        session.flush();
+        session.clear();
+
+        List<NotificationOutboxEntry> claimed = outboxDao.claimOldest("node", 10,
+                new DateTime().minusMinutes(10), MAX_ATTEMPTS);
+
+        assertEquals(claimed, Arrays.asList(entry));
+        assertEquals(claimed.get(0).getClaimedBy(), "node");
+    }
+
+    @Test
+    public void failedEntryShouldBeReleasedWithCountedAttempt() {
+        NotificationOutboxEntry entry = createEntry(1L);
+        session.save(entry);
+        session.flush();
+        List<NotificationOutboxEntry> claimed = outboxDao.claimOldest("node", 10, new DateTime(), MAX_ATTEMPTS);
+        session.clear();
+
+        outboxDao.markFailed(claimed);
+
+        NotificationOutboxEntry entryInDatabase =
+                (NotificationOutboxEntry) session.get(NotificationOutboxEntry.class, entry.getId());
+        assertEquals(entryInDatabase.getAttempts(), 1);
+        assertNull(entryInDatabase.getClaimedBy());
+        assertNotNull(entryInDatabase.getClaimedAt());
+    }
+
+    @Test
+    public void entriesFailedTooManyTimesShouldNotBeClaimed() {
+        NotificationOutboxEntry entry = createEntry(1L);
+        entry.setAttempts(MAX_ATTEMPTS);
+        session.save(entry);
+        session.flush();
+        session.clear();
+
+        assertEquals(outboxDao.claimOldest("node", 10, new DateTime(), MAX_ATTEMPTS).size(), 0);
+    }
+
+    @Test
+    public void entriesShouldBeDeleted() {
+        NotificationOutboxEntry first = createEntry(1L);
+        NotificationOutboxEntry second = createEntry(2L);
+        session.save(first);
+        session.save(second);
+        session.flush();
+
+        outboxDao.delete(Arrays.asList(first));
+        session.clear();
+
+        assertNull(session.get(NotificationOutboxEntry.class, first.getId()));
+        assertEquals(outboxDao.claimOldest("node", 10, new DateTime(), MAX_ATTEMPTS).size(), 1);
+    }
+
+    @Test
+    public void onlyExhaustedEntriesLastAttemptedBeforeGivenTimeShouldBeDeleted() {
+        NotificationOutboxEntry exhausted = createFailedEntry(1L, MAX_ATTEMPTS, new DateTime().minusDays(10));
+        NotificationOutboxEntry recentlyExhausted = createFailedEntry(2L, MAX_ATTEMPTS, new DateTime());
+        NotificationOutboxEntry retried = createFailedEntry(3L, MAX_ATTEMPTS - 1, new DateTime().minusDays(10));
+        session.flush();
+        session.clear();
+
+        int deleted = outboxDao.deleteExhausted(MAX_ATTEMPTS, new DateTime().minusDays(7));
+
+        assertEquals(deleted, 1);
+        assertNull(session.get(NotificationOutboxEntry.class, exhausted.getId()));
+        assertNotNull(session.get(NotificationOutboxEntry.class, recentlyExhausted.getId()));
+        assertNotNull(session.get(NotificationOutboxEntry.class, retried.getId()));
+    }
+
+    @Test
+    public void entriesShouldBeDeletedAndMarkedFailedByOneStatementEach() {
+        List<NotificationOutboxEntry> entries = Arrays.asList(createEntry(1L), createEntry(2L), createEntry(3L));
+        for (NotificationOutboxEntry entry : entries) {
+            session.save(entry);
+        }
+        session.flush();
+        session.clear();
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        try {
+            outboxDao.markFailed(entries);
+            assertEquals(statistics.getPrepareStatementCount(), 1);
+            outboxDao.delete(entries);
+            assertEquals(statistics.getPrepareStatementCount(), 2);
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
+    private NotificationOutboxEntry createFailedEntry(long entityId, int attempts, DateTime lastAttempt) {
+        NotificationOutboxEntry entry = createEntry(entityId);
+        entry.setAttempts(attempts);
+        entry.setClaimedAt(lastAttempt);
+        session.save(entry);
+        return entry;
+    }
+
+    private NotificationOutboxEntry createEntry(long entityId) {
+        return new NotificationOutboxEntry(NotificationOutboxEntry.Kind.TOPIC_CHANGED, entityId, 1L,
+                "http://localhost:8080/jcommune", "http://localhost/jcommune");
+    }
+}
@@ -16,9 +16,11 @@ package org.jtalks.jcommune.model.dao.hibernate;
 
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
-import org.jtalks.common.model.dao.Crud;
+import org.jtalks.jcommune.model.dao.PollDao;
+import org.jtalks.jcommune.model.entity.JCUser;
 import org.jtalks.jcommune.model.entity.PersistedObjectsFactory;
 import org.jtalks.jcommune.model.entity.Poll;
+import org.jtalks.jcommune.model.entity.PollItem;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.testng.AbstractTransactionalTestNGSpringContextTests;
@@ -28,6 +30,9 @@ import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
+
 /**
  * @author Anuar Nurmakanov
  */
@@ -38,7 +43,7 @@ public class PollHibernateDaoTest extends AbstractTransactionalTestNGSpringConte
     @Autowired
     private SessionFactory sessionFactory;
     @Autowired
-    private Crud<Poll> pollDao;
+    private PollDao pollDao;
     private Session session;
 
     @BeforeMethod
@@ -83,4 +88,43 @@ public class PollHibernateDaoTest extends AbstractTransactionalTestNGSpringConte
         Assert.assertNotNull(changedPoll);
         Assert.assertEquals(newTitle, changedPoll.getTitle());
     }
+
+    /*===== Specific methods =====*/
+
+    @Test
+    public void testIsVotedBy() {
+        Poll poll = PersistedObjectsFactory.createDefaultVoting();
+        JCUser user = PersistedObjectsFactory.getUser("voter", "voter@user.org");
+
+        Assert.assertFalse(pollDao.isVotedBy(poll, user));
+        pollDao.vote(poll, user, Collections.<Long>emptyList());
+        Assert.assertTrue(pollDao.isVotedBy(poll, user));
+    }
+
+    @Test
+    public void testVoteShouldIncreaseVotesCountOfSelectedItemsOnly() {
+        Poll poll = PersistedObjectsFactory.createDefaultVoting();
+        JCUser user = PersistedObjectsFactory.getUser("voter", "voter@user.org");
+        PollItem selected = poll.getPollItems().get(0);
+        PollItem notSelected = poll.getPollItems().get(1);
+
+        pollDao.vote(poll, user, Arrays.asList(selected.getId()));
+
+        Assert.assertEquals(selected.getVotesCount(), 1);
+        Assert.assertEquals(notSelected.getVotesCount(), 0);
+    }
+
+    @Test
+    public void testVotesCountShouldNotBeOverwrittenBySavingStaleItem() {
+        Poll poll = PersistedObjectsFactory.createDefaultVoting();
+        PollItem item = poll.getPollItems().get(0);
+        pollDao.vote(poll, PersistedObjectsFactory.getUser("voter", "voter@user.org"), Arrays.asList(item.getId()));
+
+        item.setVotesCount(0);
+        item.setName("renamed");
+        session.flush();
+        session.refresh(item);
+
+        Assert.assertEquals(item.getVotesCount(), 1);
+    }
 }
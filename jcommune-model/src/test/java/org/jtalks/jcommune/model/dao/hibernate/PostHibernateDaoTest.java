@@ -20,6 +20,7 @@ import org.joda.time.DateTime;
 import org.jtalks.jcommune.model.entity.PersistedObjectsFactory;
 import org.jtalks.jcommune.model.dao.PostDao;
 import org.jtalks.jcommune.model.dto.PageRequest;
+import org.jtalks.jcommune.model.dto.PostsPageBoundary;
 import org.jtalks.jcommune.model.entity.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -33,6 +34,7 @@ import org.testng.annotations.Test;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.testng.Assert.*;
@@ -271,6 +273,127 @@ public class PostHibernateDaoTest extends AbstractTransactionalTestNGSpringConte
         assertEquals(postsPage.getNumber(), pageCount, "Incorrect number of page");
     }
 
+    @Test
+    public void getPostsShouldReturnPostsOfPageCloserToTheBeginningInOrder() {
+        List<Post> posts = createPostsWithDifferentDates(50);
+
+        Page<Post> postsPage = dao.getPosts(posts.get(0).getTopic(), new PageRequest("3", 10));
+
+        assertEquals(postsPage.getContent(), posts.subList(20, 30));
+    }
+
+    @Test
+    public void getPostsShouldReturnPostsOfPageCloserToTheEndInOrder() {
+        List<Post> posts = createPostsWithDifferentDates(50);
+
+        Page<Post> postsPage = dao.getPosts(posts.get(0).getTopic(), new PageRequest("4", 10));
+
+        assertEquals(postsPage.getContent(), posts.subList(30, 40));
+    }
+
+    @Test
+    public void getPostsShouldReturnIncompleteLastPage() {
+        List<Post> posts = createPostsWithDifferentDates(50);
+
+        Page<Post> postsPage = dao.getPosts(posts.get(0).getTopic(), new PageRequest("4", 15));
+
+        assertEquals(postsPage.getContent(), posts.subList(45, 50));
+        assertEquals(postsPage.getTotalPages(), 4);
+    }
+
+    @Test
+    public void getPostsShouldNotCutOffPostsNotCountedInLoadedTopic() {
+        List<Post> posts = createPostsWithDifferentDates(50);
+        Topic topic = posts.get(0).getTopic();
+        topic.setPostCount(45);
+
+        Page<Post> postsPage = dao.getPosts(topic, new PageRequest("4", 15));
+
+        assertEquals(postsPage.getContent(), posts.subList(45, 50));
+        assertEquals(postsPage.getTotalElements(), 50);
+    }
+
+    @Test
+    public void getPostsShouldReturnPostsAfterLastPostOfPreviousPage() {
+        List<Post> posts = createPostsWithDifferentDates(50);
+        PostsPageBoundary boundary = PostsPageBoundary.lastPostOfPreviousPage(posts.get(19).getId());
+
+        Page<Post> postsPage = dao.getPosts(posts.get(0).getTopic(), new PageRequest("3", 10), boundary);
+
+        assertEquals(postsPage.getContent(), posts.subList(20, 30));
+        assertEquals(postsPage.getTotalElements(), 50);
+    }
+
+    @Test
+    public void getPostsShouldReturnPostsBeforeFirstPostOfNextPage() {
+        List<Post> posts = createPostsWithDifferentDates(50);
+        PostsPageBoundary boundary = PostsPageBoundary.firstPostOfNextPage(posts.get(20).getId());
+
+        Page<Post> postsPage = dao.getPosts(posts.get(0).getTopic(), new PageRequest("2", 10), boundary);
+
+        assertEquals(postsPage.getContent(), posts.subList(10, 20));
+    }
+
+    @Test
+    public void getPostsShouldFindPageByNumberIfBoundaryPostIsNotInTopic() {
+        List<Post> posts = createPostsWithDifferentDates(50);
+        Post postOfOtherTopic = PersistedObjectsFactory.getDefaultPost();
+        PostsPageBoundary boundary = PostsPageBoundary.lastPostOfPreviousPage(postOfOtherTopic.getId());
+
+        Page<Post> postsPage = dao.getPosts(posts.get(0).getTopic(), new PageRequest("3", 10), boundary);
+
+        assertEquals(postsPage.getContent(), posts.subList(20, 30));
+    }
+
+    @Test
+    public void getPostsShouldFindPageByNumberIfPageNumberIsAdjusted() {
+        List<Post> posts = createPostsWithDifferentDates(50);
+        PostsPageBoundary boundary = PostsPageBoundary.lastPostOfPreviousPage(posts.get(9).getId());
+
+        Page<Post> postsPage = dao.getPosts(posts.get(0).getTopic(), new PageRequest("7", 10), boundary);
+
+        assertEquals(postsPage.getContent(), posts.subList(40, 50));
+    }
+
+    @Test
+    public void getPostsShouldOrderPostsCreatedAtTheSameTimeById() {
+        List<Post> posts = createPostsWithDifferentDates(10);
+        DateTime sameDate = posts.get(0).getCreationDate();
+        for (Post post : posts) {
+            ReflectionTestUtils.setField(post, "creationDate", sameDate);
+        }
+        session.flush();
+
+        Page<Post> firstPage = dao.getPosts(posts.get(0).getTopic(), new PageRequest("1", 4));
+        Page<Post> lastPage = dao.getPosts(posts.get(0).getTopic(), new PageRequest("3", 4));
+
+        assertEquals(firstPage.getContent(), posts.subList(0, 4));
+        assertEquals(lastPage.getContent(), posts.subList(8, 10));
+    }
+
+    @Test
+    public void getPostIndexInTopicShouldReturnIndexInOrderOfCreation() {
+        List<Post> posts = createPostsWithDifferentDates(10);
+
+        assertEquals(dao.getPostIndexInTopic(posts.get(0)), 0);
+        assertEquals(dao.getPostIndexInTopic(posts.get(7)), 7);
+        assertEquals(dao.getPostIndexInTopic(posts.get(9)), 9);
+    }
+
+    @Test
+    public void getUserPostsShouldReturnPostsOfRequestedPageInOrder() {
+        List<Post> posts = createPostsWithDifferentDates(50);
+        JCUser author = posts.get(0).getUserCreated();
+        List<Long> allowedBranchesIds = Arrays.asList(posts.get(0).getTopic().getBranch().getId());
+
+        Page<Post> postsPage = dao.getUserPosts(author, new PageRequest("2", 20), allowedBranchesIds);
+
+        List<Post> expected = new ArrayList<>(posts.subList(10, 30));
+        Collections.reverse(expected);
+        assertEquals(postsPage.getContent(), expected);
+        assertEquals(postsPage.getTotalElements(), 50);
+    }
+
     @Test
     public void testGetLastPostForBranch() {
         int size = 2;
@@ -467,6 +590,22 @@ public class PostHibernateDaoTest extends AbstractTransactionalTestNGSpringConte
         assertNull(result);
     }
 
+    /**
+     * Creates topic with posts created one minute after another.
+     *
+     * @return posts of the topic in order of creation
+     */
+    private List<Post> createPostsWithDifferentDates(int count) {
+        Topic topic = PersistedObjectsFactory.createAndSavePostList(count).get(0).getTopic();
+        List<Post> posts = topic.getPosts();
+        DateTime date = new DateTime().minusDays(1);
+        for (int i = 0; i < posts.size(); i++) {
+            ReflectionTestUtils.setField(posts.get(i), "creationDate", date.plusMinutes(i));
+        }
+        session.flush();
+        return posts;
+    }
+
     private boolean isPostListSortedByDate(List<Post> postList, boolean asc) {
         boolean result = false;
         for (int i = 1; i < postList.size(); i++) {
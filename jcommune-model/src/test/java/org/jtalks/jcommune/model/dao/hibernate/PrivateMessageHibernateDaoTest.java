@@ -721,6 +721,39 @@ public class PrivateMessageHibernateDaoTest extends AbstractTransactionalTestNGS
         assertEquals(count, 1);
     }
 
+    @Test
+    public void storedNewMessagesCountShouldBeChangedAtomically() {
+        JCUser user = ObjectsFactory.getUser("recipient", "recipient@aaa.com");
+        session.saveOrUpdate(user);
+        session.flush();
+
+        dao.changeNewMessagesCount(user, 1);
+        dao.changeNewMessagesCount(user, 1);
+        dao.changeNewMessagesCount(user, -1);
+
+        assertEquals(dao.getStoredNewMessagesCountFor(user.getUsername()), 1);
+    }
+
+    @Test
+    public void storedNewMessagesCountShouldNotBecomeNegative() {
+        JCUser user = ObjectsFactory.getUser("recipient", "recipient@aaa.com");
+        session.saveOrUpdate(user);
+        session.flush();
+
+        dao.changeNewMessagesCount(user, -1);
+
+        assertEquals(dao.getStoredNewMessagesCountFor(user.getUsername()), 0);
+    }
+
+    @Test
+    public void storedNewMessagesCountShouldBeZeroForNewUser() {
+        JCUser user = ObjectsFactory.getUser("recipient", "recipient@aaa.com");
+        session.saveOrUpdate(user);
+        session.flush();
+
+        assertEquals(dao.getStoredNewMessagesCountFor(user.getUsername()), 0);
+    }
+
     private void saveMessagesWithDifferentStatus() {
         author = ObjectsFactory.getUser("author", "author@aaa.com");
         recipient = ObjectsFactory.getUser("recipient", "recipient@aaa.com");
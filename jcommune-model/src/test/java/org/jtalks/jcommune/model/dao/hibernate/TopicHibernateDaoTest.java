@@ -16,6 +16,7 @@ package org.jtalks.jcommune.model.dao.hibernate;
 
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.joda.time.DateTime;
 import org.jtalks.jcommune.model.entity.PersistedObjectsFactory;
 import org.jtalks.jcommune.model.dao.TopicDao;
@@ -32,6 +33,8 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -126,17 +129,17 @@ public class TopicHibernateDaoTest extends AbstractTransactionalTestNGSpringCont
     @Test
     public void testGetTopicsUpdatedSince() {
         int size = 5;
-        createAndSaveTopicList(size);
+        List<Topic> createdTopicList = createAndSaveTopicList(size);
         PageRequest pageRequest = new PageRequest("1", size);
-        DateTime lastLogin = new DateTime().minusDays(1);
+        DateTime lastLogin = new DateTime().plusDays(1);
 
-        Page<Topic> page = dao.getTopicsUpdatedSince(lastLogin, pageRequest, ObjectsFactory.getDefaultUser());
+        Page<Topic> page = dao.getTopicsUpdatedSince(lastLogin, pageRequest, branchIdsOf(createdTopicList));
 
         assertEquals(page.getContent().size(), 0);
     }
 
     @Test
-    public void testGetUpdateTopicsUpdatedSinceWithPagingAndRegisteredUser() {
+    public void testGetTopicsUpdatedSinceWithPaging() {
         int listSize = 5;
         int pageSize = 2;
         int lastPage = listSize / pageSize;
@@ -145,35 +148,28 @@ public class TopicHibernateDaoTest extends AbstractTransactionalTestNGSpringCont
                 String.valueOf(lastPage), pageSize);
         DateTime lastLogin = new DateTime().minusDays(1);
 
-        JCUser user = new JCUser("Current", null, null);
-        user.setGroups(ObjectsFactory.getDefaultGroupList());
-        PersistedObjectsFactory.createAndSaveViewTopicsBranchesEntity(createdTopicList.get(0).getBranch().getId(),
-                String.valueOf(user.getGroups().get(0).getId()), true);
-        Page<Topic> page = dao.getTopicsUpdatedSince(lastLogin, pageRequest, user);
+        Page<Topic> page = dao.getTopicsUpdatedSince(lastLogin, pageRequest, branchIdsOf(createdTopicList));
 
-        assertThat("Topics should be paginated for registered users", page, hasPages());
+        assertThat("Topics should be paginated", page, hasPages());
+        assertEquals(page.getTotalElements(), listSize);
     }
 
     @Test
-    public void testGetUpdateTopicsUpdatedSinceWithPagingAndRegisteredUserPageTooLow() {
+    public void testGetTopicsUpdatedSinceWithPagingPageTooLow() {
         int listSize = 5;
         int pageSize = 2;
         List<Topic> createdTopicList = createAndSaveTopicList(listSize);
         PageRequest pageRequest = new PageRequest("0", pageSize);
         DateTime lastLogin = new DateTime().minusDays(1);
 
-        JCUser user = new JCUser("Current", null, null);
-        user.setGroups(ObjectsFactory.getDefaultGroupList());
-        PersistedObjectsFactory.createAndSaveViewTopicsBranchesEntity(createdTopicList.get(0).getBranch().getId(),
-                String.valueOf(user.getGroups().get(0).getId()), true);
-        Page<Topic> page = dao.getTopicsUpdatedSince(lastLogin, pageRequest, user);
+        Page<Topic> page = dao.getTopicsUpdatedSince(lastLogin, pageRequest, branchIdsOf(createdTopicList));
 
-        assertThat("Topics should be paginated for registered users", page, hasPages());
+        assertThat("Topics should be paginated", page, hasPages());
         assertEquals(page.getNumber(), 1);
     }
 
     @Test
-    public void testGetUpdateTopicsUpdatedSinceWithPagingAndRegisteredUserPageTooBig() {
+    public void testGetTopicsUpdatedSinceWithPagingPageTooBig() {
         int listSize = 5;
         int pageSize = 2;
         int lastPage = 3;
@@ -182,117 +178,72 @@ public class TopicHibernateDaoTest extends AbstractTransactionalTestNGSpringCont
                 pageSize);
         DateTime lastLogin = new DateTime().minusDays(1);
 
-        JCUser user = new JCUser("Current", null, null);
-        user.setGroups(ObjectsFactory.getDefaultGroupList());
-        PersistedObjectsFactory.createAndSaveViewTopicsBranchesEntity(createdTopicList.get(0).getBranch().getId(),
-                String.valueOf(user.getGroups().get(0).getId()), true);
-        Page<Topic> page = dao.getTopicsUpdatedSince(lastLogin, pageRequest, user);
+        Page<Topic> page = dao.getTopicsUpdatedSince(lastLogin, pageRequest, branchIdsOf(createdTopicList));
 
-        assertThat("Topics should be paginated for registered users", page, hasPages());
+        assertThat("Topics should be paginated", page, hasPages());
         assertEquals(page.getNumber(), lastPage);
     }
 
     @Test
-    public void testGetUpdateTopicsUpdatedSinceWithPagingAndAnonymousUser() {
+    public void testGetTopicsUpdatedSinceForOtherBranches() {
         int listSize = 5;
         int pageSize = 2;
-        int lastPage = listSize / pageSize;
-        List<Topic> createdTopicList = createAndSaveTopicList(listSize);
-        PageRequest pageRequest = new PageRequest(
-                String.valueOf(lastPage), pageSize);
-        DateTime lastLogin = new DateTime().minusDays(1);
-
-        PersistedObjectsFactory.createAndSaveViewTopicsBranchesEntity(
-                createdTopicList.get(0).getBranch().getId(), "anonymousUser", true);
-        Page<Topic> page = dao.getTopicsUpdatedSince(lastLogin, pageRequest, new AnonymousUser());
-
-        assertThat("Topics should be paginated for anonymous group", page, hasPages());
-    }
-
-    @Test
-    public void testGetUpdateTopicsUpdatedSinceWithPagingAndAnonymousUserPageTooLow() {
-        int listSize = 5;
-        int pageSize = 2;
-        List<Topic> createdTopicList = createAndSaveTopicList(listSize);
-        PageRequest pageRequest = new PageRequest("0", pageSize);
-        DateTime lastLogin = new DateTime().minusDays(1);
-
-        PersistedObjectsFactory.createAndSaveViewTopicsBranchesEntity(
-                createdTopicList.get(0).getBranch().getId(), "anonymousUser", true);
-        Page<Topic> page = dao.getTopicsUpdatedSince(lastLogin, pageRequest, new AnonymousUser());
-
-        assertThat("Topics should be paginated for anonymous group", page, hasPages());
-        assertEquals(page.getNumber(), 1);
-    }
-
-    @Test
-    public void testGetUpdateTopicsUpdatedSinceWithPagingAndAnonymousUserPageTooBig() {
-        int listSize = 5;
-        int pageSize = 2;
-        int lastPage = 3;
-        List<Topic> createdTopicList = createAndSaveTopicList(listSize);
-        PageRequest pageRequest = new PageRequest("1000",
-                pageSize);
+        createAndSaveTopicList(listSize);
+        PageRequest pageRequest = new PageRequest("1", pageSize);
         DateTime lastLogin = new DateTime().minusDays(1);
 
-        PersistedObjectsFactory.createAndSaveViewTopicsBranchesEntity(
-                createdTopicList.get(0).getBranch().getId(), "anonymousUser", true);
-        Page<Topic> page = dao.getTopicsUpdatedSince(lastLogin, pageRequest, new AnonymousUser());
+        Page<Topic> page = dao.getTopicsUpdatedSince(lastLogin, pageRequest, Arrays.asList(-1L));
 
-        assertThat("Topics should be paginated for anonymous group", page, hasPages());
-        assertEquals(page.getNumber(), lastPage);
+        assertThat("Topics of not visible branches shouldn't be found", page, not(hasPages()));
+        assertEquals(page.getTotalElements(), 0);
     }
 
     @Test
-    public void testGetUpdateTopicsUpdatedForNoneExistingBranchAndUserGroup() {
-        int listSize = 5;
-        int pageSize = 2;
-        int lastPage = listSize / pageSize;
-        createAndSaveTopicList(listSize);
-        PageRequest pageRequest = new PageRequest(
-                String.valueOf(lastPage), pageSize);
+    public void testGetTopicsUpdatedSinceWithoutVisibleBranches() {
+        createAndSaveTopicList(5);
+        PageRequest pageRequest = new PageRequest("1", 2);
         DateTime lastLogin = new DateTime().minusDays(1);
 
-        PersistedObjectsFactory.createAndSaveViewTopicsBranchesEntity(22l, "noneExistingGroup", true);
-        Page<Topic> page = dao.getTopicsUpdatedSince(lastLogin, pageRequest, new AnonymousUser());
+        Page<Topic> page = dao.getTopicsUpdatedSince(lastLogin, pageRequest, Collections.<Long>emptyList());
 
-        assertThat("Topics shouldn't be paginated for none existing group", page, not(hasPages()));
+        assertTrue(page.getContent().isEmpty());
+        assertEquals(page.getTotalElements(), 0);
     }
 
     @Test
-    public void testGetUnansweredTopicsForRegisteredUsers() {
-        JCUser user = createAndSaveTopicsWithUnansweredTopics();
+    public void testGetUnansweredTopics() {
+        List<Long> branchIds = createAndSaveTopicsWithUnansweredTopics();
         PageRequest pageRequest = new PageRequest("1", 2);
 
-        Page<Topic> result = dao.getUnansweredTopics(pageRequest, user);
+        Page<Topic> result = dao.getUnansweredTopics(pageRequest, branchIds);
         assertEquals(result.getContent().size(), 2);
         assertEquals(result.getTotalElements(), 2);
     }
 
     @Test
-    public void testGetUnansweredTopicsForAnonymousUsers() {
+    public void testGetUnansweredTopicsWithoutVisibleBranches() {
         createAndSaveTopicsWithUnansweredTopics();
         PageRequest pageRequest = new PageRequest("1", 2);
 
-        Page<Topic> result = dao.getUnansweredTopics(pageRequest, new AnonymousUser());
-        assertEquals(result.getContent().size(), 2);
-        assertEquals(result.getTotalElements(), 2);
+        Page<Topic> result = dao.getUnansweredTopics(pageRequest, Collections.<Long>emptyList());
+        assertTrue(result.getContent().isEmpty());
+        assertEquals(result.getTotalElements(), 0);
     }
 
     @Test
     public void testGetUnansweredTopicsWithPaging() {
-        JCUser user = createAndSaveTopicsWithUnansweredTopics();
+        List<Long> branchIds = createAndSaveTopicsWithUnansweredTopics();
         PageRequest pageRequest = new PageRequest("2", 1);
-        Page<Topic> result = dao.getUnansweredTopics(pageRequest, user);
+        Page<Topic> result = dao.getUnansweredTopics(pageRequest, branchIds);
         assertEquals(result.getContent().size(), 1);
         assertEquals(result.getTotalElements(), 2);
     }
 
     @Test
     public void testGetUnansweredTopicsWithPagingPageTooLow() {
-        JCUser user = createAndSaveTopicsWithUnansweredTopics();
+        List<Long> branchIds = createAndSaveTopicsWithUnansweredTopics();
         PageRequest pageRequest = new PageRequest("0", 1);
-        Page<Topic> result = dao.getUnansweredTopics(pageRequest, user);
+        Page<Topic> result = dao.getUnansweredTopics(pageRequest, branchIds);
         assertEquals(result.getContent().size(), 1);
         assertEquals(result.getTotalElements(), 2);
         assertEquals(result.getNumber(), 1);
@@ -300,15 +251,15 @@ public class TopicHibernateDaoTest extends AbstractTransactionalTestNGSpringCont
 
     @Test
     public void testGetUnansweredTopicsWithPagingPageTooBig() {
-        JCUser user = createAndSaveTopicsWithUnansweredTopics();
+        List<Long> branchIds = createAndSaveTopicsWithUnansweredTopics();
         PageRequest pageRequest = new PageRequest("1000", 1);
-        Page<Topic> result = dao.getUnansweredTopics(pageRequest, user);
+        Page<Topic> result = dao.getUnansweredTopics(pageRequest, branchIds);
         assertEquals(result.getContent().size(), 1);
         assertEquals(result.getTotalElements(), 2);
         assertEquals(result.getNumber(), 2);
     }
 
-    private JCUser createAndSaveTopicsWithUnansweredTopics() {
+    private List<Long> createAndSaveTopicsWithUnansweredTopics() {
         JCUser author = PersistedObjectsFactory.getDefaultUserWithGroups();
 
         Branch branch = ObjectsFactory.getDefaultBranch();
@@ -323,11 +274,11 @@ public class TopicHibernateDaoTest extends AbstractTransactionalTestNGSpringCont
         branch.addTopic(topic3);
         session.save(branch);
 
-        PersistedObjectsFactory.createAndSaveViewTopicsBranchesEntity(branch.getId(),
-                String.valueOf(author.getGroups().get(0).getId()), true);
-        PersistedObjectsFactory.createAndSaveViewTopicsBranchesEntity(branch.getId(), "anonymousUser", true);
+        return Arrays.asList(branch.getId());
+    }
 
-        return author;
+    private List<Long> branchIdsOf(List<Topic> topics) {
+        return Arrays.asList(topics.get(0).getBranch().getId());
     }
 
 
@@ -387,6 +338,61 @@ public class TopicHibernateDaoTest extends AbstractTransactionalTestNGSpringCont
         assertEquals(actualCount, expectedCount, "Count of topics in the branch is wrong");
     }
 
+    @Test
+    public void addViewsShouldAddViewsToStoredOnes() {
+        Topic topic = PersistedObjectsFactory.getDefaultTopic();
+        session.flush();
+
+        dao.addViews(Collections.singletonMap(topic.getId(), 5));
+        dao.addViews(Collections.singletonMap(topic.getId(), 3));
+        session.clear();
+
+        Topic actual = (Topic) session.get(Topic.class, topic.getId());
+        assertEquals(actual.getViews(), 8);
+    }
+
+    @Test
+    public void viewsShouldNotBeOverwrittenByTopicUpdate() {
+        Topic topic = PersistedObjectsFactory.getDefaultTopic();
+        session.flush();
+        dao.addViews(Collections.singletonMap(topic.getId(), 3));
+
+        topic.setTitle("new title");
+        session.flush();
+        session.clear();
+
+        Topic actual = (Topic) session.get(Topic.class, topic.getId());
+        assertEquals(actual.getViews(), 3);
+    }
+
+    @Test
+    public void changePostCountShouldChangeCountsOfTopicAndItsBranch() {
+        Topic topic = PersistedObjectsFactory.getDefaultTopic();
+        session.flush();
+
+        dao.changePostCount(topic, 3);
+        dao.changePostCount(topic, -1);
+        session.clear();
+
+        Topic actual = (Topic) session.get(Topic.class, topic.getId());
+        assertEquals(actual.getPostCount(), 3);
+        assertEquals(actual.getBranch().getPostCount(), 3);
+    }
+
+    @Test
+    public void postCountShouldNotBeOverwrittenByTopicUpdate() {
+        Topic topic = PersistedObjectsFactory.getDefaultTopic();
+        session.flush();
+        dao.changePostCount(topic, 2);
+
+        topic.setTitle("new title");
+        session.flush();
+        session.clear();
+
+        Topic actual = (Topic) session.get(Topic.class, topic.getId());
+        assertEquals(actual.getPostCount(), 3);
+    }
+
     @Test
     public void testGetTopicsWithEnabledPaging() {
         int totalSize = 50;
@@ -574,6 +580,20 @@ public class TopicHibernateDaoTest extends AbstractTransactionalTestNGSpringCont
         assertTrue(collection.isEmpty());
     }
 
+    @Test
+    public void testGetAllowedBranchesIdsShouldBeSortedWithoutDuplicates() {
+        JCUser user = new JCUser("username", null, null);
+        user.setGroups(ObjectsFactory.getDefaultGroupList());
+        String sid = String.valueOf(user.getGroups().get(0).getId());
+
+        PersistedObjectsFactory.createAndSaveViewTopicsBranchesEntity(3L, sid, true);
+        PersistedObjectsFactory.createAndSaveViewTopicsBranchesEntity(1L, sid, true);
+        PersistedObjectsFactory.createAndSaveViewTopicsBranchesEntity(3L, sid, true);
+
+        List<Long> collection = this.dao.getAllowedBranchesIds(user);
+        assertEquals(collection, Arrays.asList(1L, 3L));
+    }
+
     @Test
     public void testSaveTopicWithAttributes() {
         Topic topic = new Topic(PersistedObjectsFactory.getDefaultUser(), "title", "Discussion");
@@ -602,6 +622,111 @@ public class TopicHibernateDaoTest extends AbstractTransactionalTestNGSpringCont
         assertEquals("newValue", result.getAttributes().get("name"));
     }
 
+    @Test
+    public void getTopicIdsInBranchShouldReturnNotMoreThanRequestedCount() {
+        List<Topic> topics = PersistedObjectsFactory.createAndSaveTopicList(3);
+        Branch branch = topics.get(0).getBranch();
+
+        List<Long> topicIds = dao.getTopicIdsInBranch(branch, 2);
+
+        assertEquals(topicIds, Arrays.asList(topics.get(0).getId(), topics.get(1).getId()));
+    }
+
+    @Test
+    public void deleteTopicsShouldDeleteTopicsWithAllTheirContent() {
+        Topic topic = PersistedObjectsFactory.getDefaultTopic();
+        JCUser author = topic.getTopicStarter();
+        author.setPostCount(3);
+        JCUser reader = PersistedObjectsFactory.getUser("reader", "reader@mail.com");
+        Post post = topic.getFirstPost();
+        PostComment comment = new PostComment();
+        comment.setAuthor(reader);
+        comment.setBody("comment");
+        comment.setCreationDate(new DateTime());
+        comment.getAttributes().put("name", "value");
+        post.addComment(comment);
+        post.putVote(new PostVote(reader));
+        topic.getSubscribers().add(reader);
+        topic.addOrOverrideAttribute("name", "value");
+        Poll poll = new Poll("poll");
+        poll.addPollOptions(new PollItem("item"));
+        topic.setPoll(poll);
+        poll.setTopic(topic);
+        Branch branch = topic.getBranch();
+        branch.setLastPost(post);
+        Topic remainingTopic = new Topic(author, "remaining", "Discussion");
+        remainingTopic.addPost(new Post(author, "remaining post"));
+        branch.addTopic(remainingTopic);
+        session.saveOrUpdate(branch);
+        session.flush();
+        session.save(new LastReadPost(reader, topic, new DateTime()));
+        session.save(new PollVote(poll, reader));
+        flushAndClearSession();
+
+        int deleted = dao.deleteTopics(Arrays.asList(topic.getId()));
+        flushAndClearSession();
+
+        assertEquals(deleted, 1);
+        assertNull(session.get(Topic.class, topic.getId()));
+        assertNotNull(session.get(Topic.class, remainingTopic.getId()));
+        assertEquals(count("select count(*) from Post"), 1);
+        assertEquals(count("select count(*) from PostComment"), 0);
+        assertEquals(count("select count(*) from PostVote"), 0);
+        assertEquals(count("select count(*) from LastReadPost"), 0);
+        assertEquals(count("select count(*) from Poll"), 0);
+        assertEquals(count("select count(*) from PollItem"), 0);
+        assertEquals(count("select count(*) from PollVote"), 0);
+        assertEquals(count("select count(*) from TOPIC_SUBSCRIPTIONS", true), 0);
+        assertEquals(count("select count(*) from TOPIC_ATTRIBUTE", true), 0);
+        assertEquals(count("select count(*) from COMMENT_ATTRIBUTE", true), 0);
+        assertEquals(((JCUser) session.get(JCUser.class, author.getId())).getPostCount(), 2);
+        assertNull(((Branch) session.get(Branch.class, branch.getId())).getLastPost());
+    }
+
+    @Test
+    public void deleteTopicsShouldIssueTheSameStatementsForAnyCountOfTopics() {
+        List<Topic> topics = PersistedObjectsFactory.createAndSaveTopicList(4);
+        flushAndClearSession();
+
+        long oneTopicStatements = countStatementsOfDeletingTopics(topics.subList(0, 1));
+        long threeTopicsStatements = countStatementsOfDeletingTopics(topics.subList(1, 4));
+
+        assertEquals(threeTopicsStatements, oneTopicStatements);
+    }
+
+    private long countStatementsOfDeletingTopics(List<Topic> topics) {
+        List<Long> topicIds = new ArrayList<>();
+        for (Topic topic : topics) {
+            topicIds.add(topic.getId());
+        }
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        try {
+            assertEquals(dao.deleteTopics(topicIds), topicIds.size());
+            return statistics.getPrepareStatementCount();
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
+    @Test
+    public void deleteTopicsShouldDoNothingForEmptyList() {
+        Topic topic = PersistedObjectsFactory.getDefaultTopic();
+
+        assertEquals(dao.deleteTopics(Collections.<Long>emptyList()), 0);
+        assertNotNull(session.get(Topic.class, topic.getId()));
+    }
+
+    private int count(String hql) {
+        return count(hql, false);
+    }
+
+    private int count(String query, boolean sql) {
+        Object result = sql ? session.createSQLQuery(query).uniqueResult() : session.createQuery(query).uniqueResult();
+        return ((Number) result).intValue();
+    }
+
     private void flushAndClearSession() {
         session.flush();
         session.clear();
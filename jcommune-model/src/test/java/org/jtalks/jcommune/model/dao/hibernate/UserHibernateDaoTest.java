@@ -16,6 +16,8 @@ package org.jtalks.jcommune.model.dao.hibernate;
 
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.joda.time.DateTime;
 import org.jtalks.common.model.dao.GroupDao;
 import org.jtalks.common.model.entity.Group;
 import org.jtalks.common.model.entity.User;
@@ -32,7 +34,6 @@ import org.springframework.transaction.annotation.Transactional;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
-import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -255,17 +256,91 @@ public class UserHibernateDaoTest extends AbstractTransactionalTestNGSpringConte
     }
 
     @Test
-    public void testFetchNonActivatedAccounts() {
-        JCUser activated = new JCUser("login", "email@mail.com", "password");
+    public void deleteNonActivatedUsersShouldDeleteOnlyExpiredNonActivatedAccounts() {
+        DateTime now = new DateTime();
+        JCUser expired = givenNonActivatedUser("expired", now.minusDays(2));
+        JCUser recent = givenNonActivatedUser("recent", now);
+        JCUser activated = givenNonActivatedUser("activated", now.minusDays(2));
         activated.setEnabled(true);
-        JCUser nonActivated = ObjectsFactory.getDefaultUser();
-        session.save(activated);
-        session.save(nonActivated);
+        session.flush();
+        session.clear();
 
-        Collection<JCUser> users = dao.getNonActivatedUsers();
+        int deleted = dao.deleteNonActivatedUsersRegisteredBefore(now.minusDays(1));
+
+        assertEquals(deleted, 1);
+        assertNull(session.get(JCUser.class, expired.getId()));
+        assertNotNull(session.get(JCUser.class, recent.getId()));
+        assertNotNull(session.get(JCUser.class, activated.getId()));
+    }
 
-        assertTrue(users.contains(nonActivated));
-        assertEquals(users.size(), 1);
+    @Test
+    public void deleteNonActivatedUsersShouldFlushEveryChunkOnce() {
+        int usersCount = UserHibernateDao.DELETION_CHUNK_SIZE * 2 + 1;
+        for (int i = 0; i < usersCount; i++) {
+            givenNonActivatedUser("expired" + i, new DateTime().minusDays(2));
+        }
+        session.flush();
+        session.clear();
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        try {
+            int deleted = dao.deleteNonActivatedUsersRegisteredBefore(new DateTime().minusDays(1));
+
+            assertEquals(deleted, usersCount);
+            assertEquals(statistics.getEntityDeleteCount(), usersCount);
+            assertEquals(statistics.getFlushCount(), 3);
+            assertEquals(getCount(), 0);
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
+    @Test
+    public void deleteNonActivatedUsersShouldNotIssueMoreStatementsForLaterChunks() {
+        long noChunksStatements = countStatementsOfDeletingNonActivatedUsers(0);
+        long oneChunkStatements = countStatementsOfDeletingNonActivatedUsers(UserHibernateDao.DELETION_CHUNK_SIZE);
+        long twoChunksStatements = countStatementsOfDeletingNonActivatedUsers(
+                UserHibernateDao.DELETION_CHUNK_SIZE * 2);
+
+        assertTrue(twoChunksStatements - oneChunkStatements <= oneChunkStatements - noChunksStatements,
+                "Second chunk shouldn't cost more statements than the first one");
+    }
+
+    @Test
+    public void deleteNonActivatedUsersShouldKeepOtherEntitiesOfSession() {
+        JCUser activated = givenNonActivatedUser("activated", new DateTime().minusDays(2));
+        activated.setEnabled(true);
+        givenNonActivatedUser("expired", new DateTime().minusDays(2));
+        session.flush();
+
+        dao.deleteNonActivatedUsersRegisteredBefore(new DateTime().minusDays(1));
+
+        assertTrue(session.contains(activated));
+    }
+
+    private long countStatementsOfDeletingNonActivatedUsers(int usersCount) {
+        for (int i = 0; i < usersCount; i++) {
+            givenNonActivatedUser("expired" + usersCount + "_" + i, new DateTime().minusDays(2));
+        }
+        session.flush();
+        session.clear();
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        try {
+            assertEquals(dao.deleteNonActivatedUsersRegisteredBefore(new DateTime().minusDays(1)), usersCount);
+            return statistics.getPrepareStatementCount();
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
+    private JCUser givenNonActivatedUser(String username, DateTime registrationDate) {
+        JCUser user = ObjectsFactory.getUser(username, username + "@mail.com");
+        user.setRegistrationDate(registrationDate);
+        session.save(user);
+        return user;
     }
 
     /**
@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.model.dao.search.hibernate;
+
+import org.jtalks.jcommune.model.dto.IndexingProgress;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class IndexingProgressMonitorTest {
+    private IndexingProgressMonitor monitor;
+    private Runnable completionListener;
+
+    @BeforeMethod
+    public void setUp() {
+        completionListener = mock(Runnable.class);
+        monitor = new IndexingProgressMonitor(completionListener);
+    }
+
+    @Test
+    public void indexingShouldNotBeStartedTwice() {
+        assertTrue(monitor.start());
+        assertFalse(monitor.start());
+    }
+
+    @Test
+    public void progressShouldBeCountedFromAddedDocuments() {
+        monitor.start();
+        monitor.addToTotalCount(30);
+        monitor.addToTotalCount(10);
+        monitor.documentsAdded(10);
+
+        IndexingProgress progress = monitor.getProgress();
+
+        assertTrue(progress.isRunning());
+        assertEquals(progress.getTotalCount(), 40);
+        assertEquals(progress.getIndexedCount(), 10);
+        assertEquals(progress.getPercentage(), 25);
+    }
+
+    @Test
+    public void indexingShouldBeStartedAgainAfterCompletion() {
+        monitor.start();
+        monitor.addToTotalCount(10);
+        monitor.documentsAdded(10);
+        monitor.indexingCompleted();
+
+        assertFalse(monitor.getProgress().isRunning());
+        assertTrue(monitor.start());
+        assertEquals(monitor.getProgress().getIndexedCount(), 0);
+    }
+
+    @Test
+    public void indexingShouldBeStartedAgainAfterFailure() {
+        monitor.start();
+        monitor.indexingFailed();
+
+        assertFalse(monitor.getProgress().isRunning());
+        assertTrue(monitor.start());
+    }
+
+    @Test
+    public void completionListenerShouldBeRunWhenAllDocumentsAreIndexed() {
+        monitor.start();
+        monitor.addToTotalCount(10);
+        monitor.documentsAdded(10);
+        monitor.indexingCompleted();
+
+        verify(completionListener).run();
+    }
+
+    @Test
+    public void completionListenerShouldNotBeRunWhenIndexingIsInterrupted() {
+        monitor.start();
+        monitor.addToTotalCount(10);
+        monitor.documentsAdded(3);
+        monitor.indexingCompleted();
+
+        verify(completionListener, never()).run();
+    }
+}
@@ -15,12 +15,16 @@
 package org.jtalks.jcommune.model.dao.search.hibernate;
 
 import org.apache.commons.lang.StringUtils;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IndexInput;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.search.FullTextSession;
 import org.hibernate.search.Search;
 import org.jtalks.jcommune.model.entity.PersistedObjectsFactory;
 import org.jtalks.jcommune.model.dto.PageRequest;
+import org.jtalks.jcommune.model.entity.Branch;
+import org.jtalks.jcommune.model.entity.Post;
 import org.jtalks.jcommune.model.entity.Topic;
 import org.jtalks.jcommune.model.search.SearchRequestFilter;
 import org.mockito.Mock;
@@ -38,10 +42,13 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 /**
  * @author Anuar Nurmakanov
@@ -88,7 +95,9 @@ public class TopicHibernateSearchDaoTest extends AbstractTransactionalTestNGSpri
 
     @AfterMethod
     public void clearIndexes() {
+        topicSearchDao.setHitsBatchSize(1000);
         fullTextSession.purgeAll(Topic.class);
+        fullTextSession.purgeAll(Post.class);
         fullTextSession.flushToIndexes();
     }
 
@@ -118,6 +127,44 @@ public class TopicHibernateSearchDaoTest extends AbstractTransactionalTestNGSpri
 
     }
 
+    @Test
+    public void allHitsShouldBeFoundWhenTheyAreReadByBatches() {
+        int totalSize = 7;
+        String searchText = "JCommune";
+        List<Topic> topicList = PersistedObjectsFactory.createAndSaveTopicList(totalSize);
+        for (Topic topic : topicList) {
+            topic.setTitle(searchText);
+        }
+        saveAndFlushIndexes(topicList);
+        configureMocks(searchText, searchText);
+        topicSearchDao.setHitsBatchSize(2);
+
+        Page<Topic> searchResultPage = topicSearchDao.searchByTitleAndContent(
+                searchText, new PageRequest("2", 5), Arrays.asList(topicList.get(0).getBranch().getId()));
+
+        assertEquals(searchResultPage.getTotalElements(), totalSize, "Hits of all batches should be counted.");
+        assertEquals(searchResultPage.getContent().size(), 2, "Hits of the last batch should be found.");
+    }
+
+    @Test
+    public void totalCountShouldBeEstimatedWhenPageIsFilledBeforeAllHitsAreRead() {
+        int totalSize = 7;
+        String searchText = "JCommune";
+        List<Topic> topicList = PersistedObjectsFactory.createAndSaveTopicList(totalSize);
+        for (Topic topic : topicList) {
+            topic.setTitle(searchText);
+        }
+        saveAndFlushIndexes(topicList);
+        configureMocks(searchText, searchText);
+        topicSearchDao.setHitsBatchSize(2);
+
+        Page<Topic> searchResultPage = topicSearchDao.searchByTitleAndContent(
+                searchText, new PageRequest("1", 2), Arrays.asList(topicList.get(0).getBranch().getId()));
+
+        assertEquals(searchResultPage.getContent().size(), 2);
+        assertEquals(searchResultPage.getTotalElements(), totalSize, "Every hit is a separate topic here.");
+    }
+
 	/*===== Testing of different variations of the search. =====*/
 
     @Test
@@ -207,6 +254,59 @@ public class TopicHibernateSearchDaoTest extends AbstractTransactionalTestNGSpri
         }
     }
 
+    @Test
+    public void topicShouldBeFoundOnceIfBothTitleAndPostsMatch() {
+        Topic expectedTopic = PersistedObjectsFactory.getDefaultTopic();
+        expectedTopic.setTitle(TOPIC_CONTENT);
+        expectedTopic.getLastPost().setPostContent(TOPIC_CONTENT);
+
+        saveAndFlushIndexes(Arrays.asList(expectedTopic));
+        configureMocks(TOPIC_CONTENT, TOPIC_CONTENT);
+
+        Page<Topic> searchResultPage = topicSearchDao.searchByTitleAndContent(
+                TOPIC_CONTENT, DEFAULT_PAGE_REQUEST, Arrays.asList(expectedTopic.getBranch().getId()));
+
+        assertEquals(searchResultPage.getTotalElements(), 1);
+        assertEquals(searchResultPage.getContent(), Arrays.asList(expectedTopic));
+    }
+
+    @Test
+    public void topicsOfNotAllowedBranchesShouldNotBeFound() {
+        Topic expectedTopic = PersistedObjectsFactory.getDefaultTopic();
+        expectedTopic.getLastPost().setPostContent(TOPIC_CONTENT);
+
+        saveAndFlushIndexes(Arrays.asList(expectedTopic));
+        configureMocks(TOPIC_CONTENT, TOPIC_CONTENT);
+
+        Page<Topic> searchResultPage = topicSearchDao.searchByTitleAndContent(
+                TOPIC_CONTENT, DEFAULT_PAGE_REQUEST, Arrays.asList(expectedTopic.getBranch().getId() + 1));
+
+        Assert.assertTrue(!searchResultPage.hasContent(), "Search result must be empty.");
+        assertEquals(searchResultPage.getTotalElements(), 0);
+    }
+
+    @Test
+    public void movedTopicShouldBeFoundInTargetBranchOnly() {
+        Topic movedTopic = PersistedObjectsFactory.getDefaultTopic();
+        movedTopic.getLastPost().setPostContent(TOPIC_CONTENT);
+        saveAndFlushIndexes(Arrays.asList(movedTopic));
+        Branch sourceBranch = movedTopic.getBranch();
+        Branch targetBranch = PersistedObjectsFactory.getDefaultBranch();
+        targetBranch.addTopic(movedTopic);
+
+        topicSearchDao.reindexTopicWithPosts(movedTopic);
+        fullTextSession.flushToIndexes();
+        configureMocks(TOPIC_CONTENT, TOPIC_CONTENT);
+
+        Page<Topic> inTargetBranch = topicSearchDao.searchByTitleAndContent(
+                TOPIC_CONTENT, DEFAULT_PAGE_REQUEST, Arrays.asList(targetBranch.getId()));
+        Page<Topic> inSourceBranch = topicSearchDao.searchByTitleAndContent(
+                TOPIC_CONTENT, DEFAULT_PAGE_REQUEST, Arrays.asList(sourceBranch.getId()));
+
+        assertEquals(inTargetBranch.getContent(), Arrays.asList(movedTopic));
+        Assert.assertTrue(!inSourceBranch.hasContent(), "Moved topic must not be found in the source branch.");
+    }
+
     @DataProvider(name = "parameterFullPhraseSearch")
     public Object[][] parameterFullPhraseSearch() {
         return new Object[][]{
@@ -260,6 +360,25 @@ public class TopicHibernateSearchDaoTest extends AbstractTransactionalTestNGSpri
         Assert.assertTrue(!searchResultPage.hasContent(), "Search result must be empty.");
     }
 
+    @Test
+    public void emptyIndexShouldBeMarkedWithCurrentVersionWithoutRebuilding() throws IOException {
+        Directory directory = fullTextSession.getSearchFactory().getDirectoryProviders(Topic.class)[0].getDirectory();
+        if (directory.fileExists(TopicHibernateSearchDao.INDEX_VERSION_FILE)) {
+            directory.deleteFile(TopicHibernateSearchDao.INDEX_VERSION_FILE);
+        }
+
+        topicSearchDao.rebuildIndexIfOutdated();
+
+        assertTrue(directory.fileExists(TopicHibernateSearchDao.INDEX_VERSION_FILE));
+        IndexInput input = directory.openInput(TopicHibernateSearchDao.INDEX_VERSION_FILE);
+        try {
+            assertEquals(input.readString(), TopicHibernateSearchDao.INDEX_VERSION);
+        } finally {
+            input.close();
+        }
+        assertFalse(topicSearchDao.getIndexingProgress().isRunning());
+    }
+
     private <E> void saveAndFlushIndexes(List<E> entityList) {
         for (E entity : entityList) {
             fullTextSession.save(entity);
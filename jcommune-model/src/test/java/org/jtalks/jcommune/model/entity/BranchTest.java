@@ -22,6 +22,7 @@ import java.util.List;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
 
@@ -75,17 +76,47 @@ public class BranchTest {
 
     @Test
     public void testPostCount() {
-        first.addPost(new Post());
-        second.addPost(new Post());
-        third.addPost(new Post());
-        assertEquals(branch.getPostCount(), 3);
+        Branch branch = new Branch("branch", "branch");
+        Topic topic = new Topic(null, null);
+        topic.addPost(new Post());
+        topic.addPost(new Post());
+        branch.addTopic(topic);
+        branch.addTopic(new Topic(null, null));
+
+        assertEquals(branch.getTopicCount(), 2);
+        assertEquals(branch.getPostCount(), 2);
     }
 
     @Test
     public void testPostCountWithoutTopics() {
-        branch.setTopics(new ArrayList<Topic>());
+        Branch branch = new Branch("branch", "branch");
+        assertEquals(branch.getTopicCount(), 0);
+        assertEquals(branch.getPostCount(), 0);
+    }
+
+    @Test
+    public void deleteTopicShouldDecreaseCounts() {
+        Branch branch = new Branch("branch", "branch");
+        Topic topic = new Topic(null, null);
+        topic.addPost(new Post());
+        branch.addTopic(topic);
+
+        branch.deleteTopic(topic);
+
+        assertEquals(branch.getTopicCount(), 0);
         assertEquals(branch.getPostCount(), 0);
     }
+
+    @Test
+    public void setLastPostShouldUpdateLastPostDate() {
+        Post post = new Post(null, "content");
+
+        branch.setLastPost(post);
+        assertEquals(branch.getLastPostDate(), post.getCreationDate());
+
+        branch.clearLastPost();
+        assertNull(branch.getLastPostDate());
+    }
     
     @Test
     public void testIsLastPostWhenBranchIsEmpty() {
@@ -27,6 +27,8 @@ import org.testng.annotations.BeforeTest;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.util.Collections;
+
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verify;
 
@@ -191,4 +193,43 @@ public class JCommunePropertyTest {
         verify(cmp).setProperty(PROPERTY_NAME, PROPERTY_VALUE);
     }
 
+    @Test
+    public void getValueShouldBeTakenFromCacheWhenItIsSpecified() {
+        JCommuneProperty cachedProperty = JCommuneProperty.CMP_SAPE_ENABLED;
+        PropertyValuesCache cache = Mockito.mock(PropertyValuesCache.class);
+        when(cache.getValues()).thenReturn(Collections.singletonMap(PROPERTY_NAME, PROPERTY_VALUE));
+        cachedProperty.setPropertyDao(propertyDao);
+        cachedProperty.setPropertyValuesCache(cache);
+        cachedProperty.setName(PROPERTY_NAME);
+
+        String actual = cachedProperty.getValue();
+
+        Assert.assertEquals(actual, PROPERTY_VALUE, "Returned an invalid property value.");
+        verify(propertyDao, Mockito.never()).getByName(PROPERTY_NAME);
+    }
+
+    @Test
+    public void getValueShouldReturnDefaultValueWhenItIsNotInCache() {
+        JCommuneProperty cachedProperty = JCommuneProperty.CMP_SAPE_SHOW_DUMMY_LINKS;
+        PropertyValuesCache cache = Mockito.mock(PropertyValuesCache.class);
+        when(cache.getValues()).thenReturn(Collections.<String, String>emptyMap());
+        cachedProperty.setPropertyDao(propertyDao);
+        cachedProperty.setPropertyValuesCache(cache);
+        cachedProperty.setDefaultValue("default");
+
+        Assert.assertEquals(cachedProperty.getValue(), "default", "Returned an invalid property value.");
+    }
+
+    @Test
+    public void setValueShouldInvalidateCache() {
+        JCommuneProperty cachedProperty = JCommuneProperty.CMP_SAPE_TIMEOUT;
+        PropertyValuesCache cache = Mockito.mock(PropertyValuesCache.class);
+        when(componentDao.getComponent()).thenReturn(cmp);
+        cachedProperty.setComponentDao(componentDao);
+        cachedProperty.setPropertyValuesCache(cache);
+
+        cachedProperty.setValue(PROPERTY_VALUE);
+
+        verify(cache).invalidate();
+    }
 }
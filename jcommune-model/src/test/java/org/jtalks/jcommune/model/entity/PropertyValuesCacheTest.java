@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.model.entity;
+
+import net.sf.ehcache.Element;
+import org.hibernate.cache.CacheKey;
+import org.jtalks.common.model.entity.Property;
+import org.jtalks.jcommune.model.dao.PropertyDao;
+import org.mockito.Mock;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static org.testng.Assert.assertEquals;
+
+public class PropertyValuesCacheTest {
+    @Mock
+    private PropertyDao propertyDao;
+    private PropertyValuesCache cache;
+
+    @BeforeMethod
+    public void setUp() {
+        initMocks(this);
+        when(propertyDao.getAllProperties()).thenReturn(Arrays.asList(new Property("name", "value")));
+        cache = new PropertyValuesCache(propertyDao);
+    }
+
+    @Test
+    public void valuesShouldBeLoadedOnlyOnce() {
+        Map<String, String> values = cache.getValues();
+        cache.getValues();
+
+        assertEquals(values.get("name"), "value");
+        verify(propertyDao, times(1)).getAllProperties();
+    }
+
+    @Test
+    public void valuesShouldBeReloadedAfterInvalidation() {
+        cache.getValues();
+
+        cache.invalidate();
+        cache.getValues();
+
+        verify(propertyDao, times(2)).getAllProperties();
+    }
+
+    @Test
+    public void removalOfPropertyFromRegionShouldInvalidateValues() {
+        cache.getValues();
+
+        cache.notifyElementRemoved(null, new Element(cacheKeyOf(Property.class.getName()), null));
+        cache.getValues();
+
+        verify(propertyDao, times(2)).getAllProperties();
+    }
+
+    @Test
+    public void removalOfOtherEntityFromRegionShouldNotInvalidateValues() {
+        cache.getValues();
+
+        cache.notifyElementRemoved(null, new Element(cacheKeyOf(Topic.class.getName()), null));
+        cache.getValues();
+
+        verify(propertyDao, times(1)).getAllProperties();
+    }
+
+    @Test
+    public void putToRegionShouldNotInvalidateValues() {
+        cache.getValues();
+
+        cache.notifyElementPut(null, new Element(cacheKeyOf(Property.class.getName()), null));
+        cache.getValues();
+
+        verify(propertyDao, times(1)).getAllProperties();
+    }
+
+    private CacheKey cacheKeyOf(String entityName) {
+        CacheKey key = mock(CacheKey.class);
+        when(key.getEntityOrRoleName()).thenReturn(entityName);
+        return key;
+    }
+}
@@ -52,6 +52,25 @@ public class StopWordsFilterTest {
     }
 
 
+    @Test
+    public void testExcludeInvalidCharactersAndStopWords() {
+        String searchText = "@the-nice, book!";
+
+        searchText = filter.filter(searchText);
+
+        Assert.assertEquals("Invalid characters and stop words have not been excluded.", "nice book", searchText);
+    }
+
+    @Test
+    public void testStopWordsAfterReload() {
+        filter.filter("The book");
+        filter.reloadStopWords();
+
+        String filterResult = filter.filter("The book");
+
+        Assert.assertEquals("The word has not been excluded.", "book", filterResult);
+    }
+
 	@Test
 	public void testCorrectSearchText() {
 		String searchText = "nice book";
@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.model.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class CacheInvalidationTest {
+    private int runs;
+    private final Runnable counter = new Runnable() {
+        @Override
+        public void run() {
+            runs++;
+        }
+    };
+
+    @AfterMethod
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        runs = 0;
+    }
+
+    @Test
+    public void invalidationShouldBeRunOnceOutsideOfTransaction() {
+        CacheInvalidation.nowAndAfterCompletion(counter);
+
+        assertEquals(runs, 1);
+    }
+
+    @Test
+    public void invalidationShouldBeRunAgainAfterTransactionCompletes() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        CacheInvalidation.nowAndAfterCompletion(counter);
+        assertEquals(runs, 1);
+        completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertEquals(runs, 2);
+    }
+
+    @Test
+    public void actionShouldNotBeRegisteredOutsideOfTransaction() {
+        assertFalse(CacheInvalidation.afterRollback(counter));
+        assertEquals(runs, 0);
+    }
+
+    @Test
+    public void actionShouldBeRunAfterRollbackOnly() {
+        TransactionSynchronizationManager.initSynchronization();
+        assertTrue(CacheInvalidation.afterRollback(counter));
+        completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals(runs, 0);
+
+        TransactionSynchronizationManager.initSynchronization();
+        CacheInvalidation.afterRollback(counter);
+        completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertEquals(runs, 1);
+    }
+
+    private void completeTransaction(int status) {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(status);
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+}
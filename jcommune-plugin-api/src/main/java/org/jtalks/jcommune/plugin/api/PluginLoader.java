@@ -31,6 +31,7 @@ import java.nio.file.*;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.ServiceLoader;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
 import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
@@ -39,6 +40,11 @@ import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
 /**
  * Load plugins from path and save configuration for them.
  * Also load plugin for class name.
+ * <p>
+ * Loaded and configured plugins are published as an immutable {@link PluginRegistry} snapshot, so plugins
+ * may be obtained without locking and without touching the database. The snapshot is rebuilt only when
+ * the plugins folder watcher detects changes or when plugin configuration is explicitly reloaded with
+ * {@link #reloadPlugins(org.jtalks.jcommune.plugin.api.filters.PluginFilter...)}.
  *
  * @author Anuar_Nurmakanov
  * @author Evgeny Naumenko
@@ -47,11 +53,16 @@ public class PluginLoader {
     private static final Logger LOGGER = LoggerFactory.getLogger(PluginLoader.class);
 
     private URLClassLoader classLoader;
-    private WatchKey watchKey;
     private String folder;
     private List<Plugin> plugins;
+    private long registryVersion;
     private WatchService watchService;
+    private Thread folderWatcher;
     private PluginConfigurationDao pluginConfigurationDao;
+    /** Set by plugins folder watcher, plugins are reloaded by the first reader noticing it */
+    private final AtomicBoolean folderChanged = new AtomicBoolean();
+    /** Null means that plugin configuration should be (re)loaded before plugins may be used */
+    private volatile PluginRegistry registry;
 
     /**
      * Constructs an instance for loading plugins from passed path to plugins directory.
@@ -66,7 +77,7 @@ public class PluginLoader {
         this.folder = this.resolveUserHome(pluginsFolderPath);
         Path path = Paths.get(folder);
         watchService = FileSystems.getDefault().newWatchService();
-        watchKey = path.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+        path.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
     }
 
     private String resolveUserHome(String path) {
@@ -83,10 +94,19 @@ public class PluginLoader {
      */
     public void init() {
         this.initPluginList();
+        folderWatcher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watchPluginsFolder();
+            }
+        }, "plugins-folder-watcher");
+        folderWatcher.setDaemon(true);
+        folderWatcher.start();
     }
 
     /**
-     * Reloads plugin by calling {@link #getPlugins(org.jtalks.jcommune.plugin.api.filters.PluginFilter...)} method
+     * Reloads configuration of plugins from the database and publishes new plugins snapshot.
+     * Should be called each time plugin configuration is changed.
      *
      * @param filters determines which plugins will be reloaded
      *
@@ -94,8 +114,10 @@ public class PluginLoader {
      * @see org.jtalks.jcommune.plugin.api.filters.NameFilter
      * @see org.jtalks.jcommune.plugin.api.filters.StateFilter
      */
-    public void reloadPlugins(PluginFilter... filters) {
-        getPlugins(filters);
+    public synchronized void reloadPlugins(PluginFilter... filters) {
+        List<Plugin> reloaded = filter(getRegistry().getPlugins(), filters);
+        loadConfigurationFor(reloaded);
+        publishRegistry();
     }
 
     /**
@@ -105,10 +127,28 @@ public class PluginLoader {
      *
      * @return list of plugins available at the moment
      */
-    public synchronized List<Plugin> getPlugins(PluginFilter... filters) {
-        this.synchronizePluginList();
+    public List<Plugin> getPlugins(PluginFilter... filters) {
+        List<Plugin> filtered = filter(getRegistry().getPlugins(), filters);
+        LOGGER.trace("JCommune forum has {} plugins now.", filtered.size());
+        return filtered;
+    }
+
+    /**
+     * Returns actual snapshot of loaded plugins. Snapshot is rebuilt only if plugins folder content or
+     * plugins configuration has changed since the last call, otherwise no locking or database access is performed.
+     *
+     * @return immutable snapshot of plugins available at the moment
+     */
+    public PluginRegistry getRegistry() {
+        PluginRegistry current = registry;
+        if (current == null || folderChanged.get()) {
+            current = rebuildRegistry();
+        }
+        return current;
+    }
+
+    private List<Plugin> filter(List<Plugin> plugins, PluginFilter... filters) {
         List<Plugin> filtered = new ArrayList<>(plugins.size());
-        loadConfigurationFor(plugins);
         plugins:
         for (Plugin plugin : plugins) {
             for (PluginFilter filter : filters) {
@@ -118,14 +158,11 @@ public class PluginLoader {
             }
             filtered.add(plugin);
         }
-        LOGGER.trace("JCommune forum has {} plugins now.", filtered.size());
         return filtered;
     }
 
-    private void synchronizePluginList() {
-        List events = watchKey.pollEvents();
-        if (!events.isEmpty()) {
-            watchKey.reset();
+    private synchronized PluginRegistry rebuildRegistry() {
+        if (folderChanged.getAndSet(false)) {
             try {
                 classLoader.close();
             } catch (IOException e) {
@@ -133,6 +170,16 @@ public class PluginLoader {
             }
             this.initPluginList();
         }
+        if (registry == null) {
+            loadConfigurationFor(plugins);
+            publishRegistry();
+        }
+        return registry;
+    }
+
+    private synchronized void publishRegistry() {
+        registry = new PluginRegistry(plugins, ++registryVersion);
+        LOGGER.debug("Plugins snapshot version {} with {} plugins published", registryVersion, plugins.size());
     }
 
     private synchronized void initPluginList() {
@@ -143,6 +190,22 @@ public class PluginLoader {
             plugins.add(plugin);
         }
         this.plugins = plugins;
+        this.registry = null;
+    }
+
+    private void watchPluginsFolder() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                if (!key.pollEvents().isEmpty()) {
+                    LOGGER.info("Content of plugins folder {} has changed, plugins will be reloaded", folder);
+                    folderChanged.set(true);
+                }
+                key.reset();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            LOGGER.debug("Plugins folder watching has been stopped");
+        }
     }
 
     /**
@@ -184,6 +247,9 @@ public class PluginLoader {
      * Will be called by container to release resource before bean destroying.
      */
     public void destroy() {
+        if (folderWatcher != null) {
+            folderWatcher.interrupt();
+        }
         try {
             classLoader.close();
             watchService.close();
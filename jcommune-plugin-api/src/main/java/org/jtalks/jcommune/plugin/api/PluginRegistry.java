@@ -0,0 +1,55 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.plugin.api;
+
+import org.jtalks.jcommune.plugin.api.core.Plugin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable snapshot of plugins loaded by {@link PluginLoader}. A new snapshot with incremented version is
+ * published each time plugins folder content or plugin configuration changes, so clients may read it
+ * without any synchronization and detect changes by comparing versions.
+ */
+public final class PluginRegistry {
+
+    private final List<Plugin> plugins;
+    private final long version;
+
+    /**
+     * @param plugins plugins loaded at the moment
+     * @param version version of the snapshot, should be greater than version of the previous one
+     */
+    public PluginRegistry(List<Plugin> plugins, long version) {
+        this.plugins = Collections.unmodifiableList(new ArrayList<>(plugins));
+        this.version = version;
+    }
+
+    /**
+     * @return unmodifiable list of plugins in this snapshot
+     */
+    public List<Plugin> getPlugins() {
+        return plugins;
+    }
+
+    /**
+     * @return version of this snapshot
+     */
+    public long getVersion() {
+        return version;
+    }
+}
@@ -14,6 +14,8 @@
  */
 package org.jtalks.jcommune.plugin.api.service;
 
+import org.jtalks.jcommune.model.entity.Post;
+
 /**
  * @author Mikhail Stryzhonok
  */
@@ -39,4 +41,13 @@ public interface PluginBbCodeService {
      * @return the same text with HTML markup to be shown
      */
     String convertBbToHtml(String bbEncodedText);
+
+    /**
+     * Converts content of the post into HTML the same way as {@link #convertBbToHtml(String)} does, but may reuse
+     * result of the previous conversion if the post wasn't modified since then.
+     *
+     * @param post post to render content of
+     * @return content of the post with HTML markup to be shown
+     */
+    String convertPostToHtml(Post post);
 }
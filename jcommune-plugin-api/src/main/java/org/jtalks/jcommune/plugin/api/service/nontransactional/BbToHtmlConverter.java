@@ -14,6 +14,7 @@
  */
 package org.jtalks.jcommune.plugin.api.service.nontransactional;
 
+import org.jtalks.jcommune.model.entity.Post;
 import org.jtalks.jcommune.plugin.api.service.PluginBbCodeService;
 
 /**
@@ -60,6 +61,14 @@ public class BbToHtmlConverter implements PluginBbCodeService {
         return bbCodeService.convertBbToHtml(post);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String convertPostToHtml(Post post) {
+        return bbCodeService.convertPostToHtml(post);
+    }
+
     /**
      * Sets bb-code service. Should be used once, during initialization
      *
@@ -16,8 +16,9 @@ package org.jtalks.jcommune.plugin.api.web;
 
 import com.google.common.annotations.VisibleForTesting;
 import org.jtalks.jcommune.plugin.api.PluginLoader;
+import org.jtalks.jcommune.plugin.api.PluginRegistry;
+import org.jtalks.jcommune.plugin.api.core.Plugin;
 import org.jtalks.jcommune.plugin.api.core.WebControllerPlugin;
-import org.jtalks.jcommune.plugin.api.filters.TypeFilter;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.util.ReflectionUtils;
 import org.springframework.web.bind.annotation.RequestMethod;
@@ -46,6 +47,8 @@ public class PluginHandlerMapping extends RequestMappingHandlerMapping {
     private static final PluginHandlerMapping INSTANCE = new PluginHandlerMapping();
     private final Map<MethodAwareKey, HandlerMethod> pluginHandlerMethods = new ConcurrentHashMap<>();
     private PluginLoader pluginLoader;
+    /** Version of plugins snapshot plugin handlers were mapped for */
+    private volatile long mappedRegistryVersion;
 
     private PluginHandlerMapping() {
 
@@ -168,10 +171,11 @@ public class PluginHandlerMapping extends RequestMappingHandlerMapping {
     protected HandlerMethod getHandlerInternal(HttpServletRequest request) throws Exception {
         String lookupPath = getUrlPathHelper().getLookupPathForRequest(request);
         MethodAwareKey key = new MethodAwareKey(RequestMethod.valueOf(request.getMethod()), getUniformUrl(lookupPath));
-        //We should clear map in case if plugin version was changed
-        pluginHandlerMethods.clear();
-        //We should update Web plugins before resolving handler
-        pluginLoader.reloadPlugins(new TypeFilter(WebControllerPlugin.class));
+        //Plugin handlers should be remapped only if plugins were changed since the last request
+        PluginRegistry registry = pluginLoader.getRegistry();
+        if (registry.getVersion() != mappedRegistryVersion) {
+            remapPluginHandlers(registry);
+        }
         HandlerMethod handlerMethod = findHandlerMethod(key);
         if (handlerMethod != null) {
             RequestMappingInfo mappingInfo = getMappingForMethod(handlerMethod.getMethod(), handlerMethod.getBeanType());
@@ -183,6 +187,25 @@ public class PluginHandlerMapping extends RequestMappingHandlerMapping {
         }
     }
 
+    /**
+     * Maps handlers of enabled web plugins from passed snapshot. Handlers of the plugins which are not present
+     * in snapshot anymore (e.g. plugin jar was replaced) are removed.
+     *
+     * @param registry snapshot of plugins to map handlers for
+     */
+    private synchronized void remapPluginHandlers(PluginRegistry registry) {
+        if (registry.getVersion() == mappedRegistryVersion) {
+            return;
+        }
+        pluginHandlerMethods.clear();
+        for (Plugin plugin : registry.getPlugins()) {
+            if (plugin instanceof WebControllerPlugin && plugin.isEnabled()) {
+                addController(((WebControllerPlugin) plugin).getController());
+            }
+        }
+        mappedRegistryVersion = registry.getVersion();
+    }
+
     protected HandlerMethod findHandlerMethod(MethodAwareKey key) {
         //firstly try to find absolutely equal
         HandlerMethod method = pluginHandlerMethods.get(key);
@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.plugin.api;
+
+import org.jtalks.jcommune.model.dao.PluginConfigurationDao;
+import org.mockito.Mock;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.mockito.MockitoAnnotations.initMocks;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class PluginLoaderTest {
+    private static final long FOLDER_CHANGE_TIMEOUT_MS = 10000;
+
+    @Mock
+    private PluginConfigurationDao pluginConfigurationDao;
+    private File pluginsFolder;
+    private PluginLoader pluginLoader;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        initMocks(this);
+        pluginsFolder = Files.createTempDirectory("plugins").toFile();
+        pluginLoader = new PluginLoader(pluginsFolder.getAbsolutePath(), pluginConfigurationDao);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        pluginLoader.destroy();
+        for (File file : pluginsFolder.listFiles()) {
+            file.delete();
+        }
+        pluginsFolder.delete();
+    }
+
+    @Test
+    public void snapshotShouldBeReusedWhilePluginsAreNotChanged() {
+        pluginLoader.init();
+        PluginRegistry registry = pluginLoader.getRegistry();
+
+        assertSame(pluginLoader.getRegistry(), registry);
+    }
+
+    @Test
+    public void reloadingOfPluginsShouldPublishNewSnapshotWithGreaterVersion() {
+        pluginLoader.init();
+        PluginRegistry registry = pluginLoader.getRegistry();
+
+        pluginLoader.reloadPlugins();
+
+        assertTrue(pluginLoader.getRegistry().getVersion() > registry.getVersion());
+    }
+
+    @Test
+    public void pluginsShouldBeReloadedWhenPluginsFolderChanges() throws Exception {
+        pluginLoader.init();
+        PluginRegistry registry = pluginLoader.getRegistry();
+
+        new File(pluginsFolder, "readme.txt").createNewFile();
+
+        assertTrue(waitForNewRegistry(registry).getVersion() > registry.getVersion());
+    }
+
+    private PluginRegistry waitForNewRegistry(PluginRegistry registry) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + FOLDER_CHANGE_TIMEOUT_MS;
+        PluginRegistry current = pluginLoader.getRegistry();
+        while (current == registry && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            current = pluginLoader.getRegistry();
+        }
+        return current;
+    }
+}
@@ -14,6 +14,10 @@
  */
 package org.jtalks.jcommune.plugin.api.web;
 
+import org.jtalks.jcommune.plugin.api.PluginLoader;
+import org.jtalks.jcommune.plugin.api.PluginRegistry;
+import org.jtalks.jcommune.plugin.api.core.Plugin;
+import org.jtalks.jcommune.plugin.api.core.WebControllerPlugin;
 import org.mockito.Mock;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -24,7 +28,9 @@ import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import javax.servlet.http.HttpServletRequest;
 import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Set;
 
@@ -39,6 +45,9 @@ import static org.testng.Assert.assertTrue;
  */
 public class PluginHandlerMappingTest {
 
+    /** Mapping is a singleton, so every test publishes snapshots with greater versions */
+    private static long registryVersion;
+
     @Mock
     private PluginHandlerMapping handlerMapping;
 
@@ -51,6 +60,7 @@ public class PluginHandlerMappingTest {
     @AfterMethod
     public void clearMapping() {
         PluginHandlerMapping.getInstance().getPluginHandlerMethods().clear();
+        PluginHandlerMapping.getInstance().setPluginLoader(null);
     }
 
     @Test
@@ -143,6 +153,71 @@ public class PluginHandlerMappingTest {
     }
 
 
+    @Test
+    public void pluginHandlersShouldBeMappedForNewPluginsSnapshot() throws Exception {
+        PluginHandlerMapping mapping = PluginHandlerMapping.getInstance();
+        TestPluginController controller = new TestPluginController();
+        PluginRegistry registry = createRegistry(webPlugin(controller, true));
+        PluginLoader pluginLoader = mock(PluginLoader.class);
+        when(pluginLoader.getRegistry()).thenReturn(registry);
+        mapping.setPluginLoader(pluginLoader);
+
+        HandlerMethod handlerMethod = mapping.getHandlerInternal(createGetRequest("/test"));
+
+        assertEquals(handlerMethod.getMethod(), controller.getClass().getMethod("testMethod"));
+    }
+
+    @Test
+    public void pluginHandlersShouldNotBeRemappedWhileSnapshotIsTheSame() throws Exception {
+        PluginHandlerMapping mapping = PluginHandlerMapping.getInstance();
+        WebControllerPlugin plugin = webPlugin(new TestPluginController(), true);
+        PluginRegistry registry = createRegistry(plugin);
+        PluginLoader pluginLoader = mock(PluginLoader.class);
+        when(pluginLoader.getRegistry()).thenReturn(registry);
+        mapping.setPluginLoader(pluginLoader);
+
+        mapping.getHandlerInternal(createGetRequest("/test"));
+        mapping.getHandlerInternal(createGetRequest("/test"));
+
+        verify(plugin, times(1)).getController();
+    }
+
+    @Test
+    public void handlersOfPluginsDisabledInNewSnapshotShouldBeUnmapped() throws Exception {
+        PluginHandlerMapping mapping = PluginHandlerMapping.getInstance();
+        TestPluginController controller = new TestPluginController();
+        PluginRegistry enabled = createRegistry(webPlugin(controller, true));
+        PluginRegistry disabled = createRegistry(webPlugin(controller, false));
+        PluginLoader pluginLoader = mock(PluginLoader.class);
+        when(pluginLoader.getRegistry()).thenReturn(enabled, disabled);
+        mapping.setPluginLoader(pluginLoader);
+        mapping.getHandlerInternal(createGetRequest("/test"));
+
+        mapping.getHandlerInternal(createGetRequest("/test"));
+
+        assertTrue(mapping.getPluginHandlerMethods().isEmpty());
+    }
+
+    private PluginRegistry createRegistry(Plugin... plugins) {
+        return new PluginRegistry(Arrays.asList(plugins), ++registryVersion);
+    }
+
+    private WebControllerPlugin webPlugin(PluginController controller, boolean enabled) {
+        WebControllerPlugin plugin = mock(WebControllerPlugin.class);
+        when(plugin.getController()).thenReturn(controller);
+        when(plugin.isEnabled()).thenReturn(enabled);
+        return plugin;
+    }
+
+    private HttpServletRequest createGetRequest(String uri) {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getRequestURI()).thenReturn(uri);
+        when(request.getContextPath()).thenReturn("");
+        when(request.getServletPath()).thenReturn("");
+        return request;
+    }
+
     @Controller
     private class TestPluginController implements PluginController {
 
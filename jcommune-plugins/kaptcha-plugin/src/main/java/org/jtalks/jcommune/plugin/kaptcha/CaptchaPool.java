@@ -0,0 +1,165 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.plugin.kaptcha;
+
+import com.google.code.kaptcha.Producer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps captchas rendered in advance, so that rendering doesn't load request threads when a lot of users
+ * register at the same time. The pool is refilled by a background thread after captchas are taken. The thread
+ * stops when it's idle, so it doesn't hold the plugin when the plugin is unloaded. If the pool is empty, captcha
+ * is rendered right away.
+ */
+public class CaptchaPool {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CaptchaPool.class);
+    private static final String IMAGE_FORMAT = "jpg";
+    private static final long REFILLING_THREAD_KEEP_ALIVE_SECONDS = 60;
+
+    private final Producer producer;
+    private final BlockingQueue<Captcha> captchas;
+    private final ThreadPoolExecutor refillingExecutor;
+    private final AtomicBoolean refillScheduled = new AtomicBoolean();
+
+    /**
+     * @param producer producer to render captchas with
+     * @param capacity maximum number of captchas rendered in advance
+     */
+    public CaptchaPool(Producer producer, int capacity) {
+        this.producer = producer;
+        this.captchas = new ArrayBlockingQueue<>(capacity);
+        this.refillingExecutor = new ThreadPoolExecutor(1, 1, REFILLING_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new RefillingThreadFactory());
+        this.refillingExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Takes captcha from the pool, every captcha is given only once.
+     *
+     * @return captcha to show to user
+     * @throws IOException if captcha can't be rendered
+     */
+    public Captcha take() throws IOException {
+        Captcha captcha = captchas.poll();
+        scheduleRefill();
+        return (captcha != null) ? captcha : render();
+    }
+
+    /**
+     * Stops refilling of the pool, should be called when pool isn't needed anymore.
+     */
+    public void shutdown() {
+        refillingExecutor.shutdownNow();
+        captchas.clear();
+    }
+
+    /**
+     * @return number of captchas rendered in advance
+     */
+    int size() {
+        return captchas.size();
+    }
+
+    private void scheduleRefill() {
+        if (captchas.remainingCapacity() == 0 || !refillScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refillingExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    refill();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refillScheduled.set(false);
+        }
+    }
+
+    private void refill() {
+        try {
+            while (captchas.remainingCapacity() > 0 && !Thread.currentThread().isInterrupted()) {
+                captchas.offer(render());
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Failed to render captcha in advance", e);
+        } finally {
+            refillScheduled.set(false);
+        }
+    }
+
+    private Captcha render() throws IOException {
+        String text = producer.createText();
+        ByteArrayOutputStream image = new ByteArrayOutputStream();
+        ImageIO.write(producer.createImage(text), IMAGE_FORMAT, image);
+        return new Captcha(text, image.toByteArray());
+    }
+
+    /**
+     * Text of captcha together with its rendered image.
+     */
+    public static class Captcha {
+        private final String text;
+        private final byte[] image;
+
+        /**
+         * @param text  text user should enter
+         * @param image image with the text in JPEG format
+         */
+        Captcha(String text, byte[] image) {
+            this.text = text;
+            this.image = image;
+        }
+
+        /**
+         * @return text user should enter
+         */
+        public String getText() {
+            return text;
+        }
+
+        /**
+         * @return image with the text in JPEG format
+         */
+        public byte[] getImage() {
+            return image;
+        }
+    }
+
+    /**
+     * Creates daemon threads, so that refilling doesn't prevent application from stopping.
+     */
+    private static class RefillingThreadFactory implements ThreadFactory {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "kaptcha-pool-refill");
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.plugin.kaptcha;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits number of requests from one client during a time window. Windows are the same for all the clients,
+ * so that counters of the previous window are dropped all at once and don't pile up. Number of clients counted
+ * separately during the window is limited too, clients beyond this number share one counter.
+ */
+public class ClientRateLimiter {
+    /** Key of the counter shared by clients beyond the limit, it's never an address of a client */
+    private static final String OTHER_CLIENTS = "*";
+    private final int maxRequests;
+    private final long windowMillis;
+    private final int maxClients;
+    private final ConcurrentMap<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+    private volatile long currentWindow;
+
+    /**
+     * @param maxRequests  maximum number of requests from one client during the window
+     * @param windowMillis length of the window in milliseconds
+     * @param maxClients   maximum number of clients counted separately during the window
+     */
+    public ClientRateLimiter(int maxRequests, long windowMillis, int maxClients) {
+        this.maxRequests = maxRequests;
+        this.windowMillis = windowMillis;
+        this.maxClients = maxClients;
+    }
+
+    /**
+     * Counts request of the client.
+     *
+     * @param clientAddress address of the client
+     * @return {@code true} if request is allowed, {@code false} if client made too many requests
+     */
+    public boolean tryAcquire(String clientAddress) {
+        long window = currentTimeMillis() / windowMillis;
+        if (window != currentWindow) {
+            synchronized (this) {
+                if (window != currentWindow) {
+                    requestCounts.clear();
+                    currentWindow = window;
+                }
+            }
+        }
+        AtomicInteger count = requestCounts.get(clientAddress);
+        if (count == null) {
+            // size may be exceeded a little by concurrent requests, it's enough to keep the map bounded
+            String key = (requestCounts.size() < maxClients) ? clientAddress : OTHER_CLIENTS;
+            AtomicInteger newCount = new AtomicInteger();
+            count = requestCounts.putIfAbsent(key, newCount);
+            if (count == null) {
+                count = newCount;
+            }
+        }
+        return count.incrementAndGet() <= maxRequests;
+    }
+
+    /**
+     * Needed for tests
+     *
+     * @return current time in milliseconds
+     */
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+}
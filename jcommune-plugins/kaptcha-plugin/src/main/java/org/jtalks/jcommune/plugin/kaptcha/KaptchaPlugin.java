@@ -15,6 +15,7 @@
 
 package org.jtalks.jcommune.plugin.kaptcha;
 
+import org.apache.commons.lang.StringUtils;
 import org.jtalks.jcommune.model.dto.UserDto;
 import org.jtalks.jcommune.model.entity.PluginProperty;
 import org.jtalks.jcommune.plugin.api.core.ExtendedPlugin;
@@ -46,6 +47,8 @@ public class KaptchaPlugin extends StatefullPlugin implements RegistrationPlugin
     protected static final String HEIGHT_PROPERTY = "Height";
     protected static final String LENGTH_PROPERTY = "Length";
     protected static final String POSSIBLE_SYMBOLS_PROPERTY = "Possible Symbols";
+    /** Comma separated addresses of proxies which are trusted to forward addresses of clients */
+    protected static final String TRUSTED_PROXIES_PROPERTY = "Trusted Proxies";
     private static final String MESSAGE_PATH = "org.jtalks.jcommune.plugin.kaptcha.messages";
     private static final String DEFAULT_LOCALE_CODE = "en";
 
@@ -59,6 +62,7 @@ public class KaptchaPlugin extends StatefullPlugin implements RegistrationPlugin
         int height = 0;
         int length = 0;
         String possibleSymbols = "";
+        Set<String> trustedProxies = new HashSet<>();
         for (PluginProperty property : properties) {
             try {
                 switch (property.getName()) {
@@ -74,6 +78,11 @@ public class KaptchaPlugin extends StatefullPlugin implements RegistrationPlugin
                     case POSSIBLE_SYMBOLS_PROPERTY:
                         possibleSymbols = property.getValue();
                         break;
+                    case TRUSTED_PROXIES_PROPERTY:
+                        if (property.getValue() != null) {
+                            trustedProxies.addAll(Arrays.asList(StringUtils.split(property.getValue(), ", ")));
+                        }
+                        break;
                 }
             } catch (NumberFormatException ex) {
                 LOGGER.error(property.getValue() + " is not valid value for property " + property.getName(), ex);
@@ -84,7 +93,10 @@ public class KaptchaPlugin extends StatefullPlugin implements RegistrationPlugin
             throw new PluginConfigurationException(
                     "Can't apply configuration: Width, height, length and possible symbols properties should not be empty.");
         }
-        service = new KaptchaPluginService(width, height, length, possibleSymbols);
+        if (service != null) {
+            service.shutdown();
+        }
+        service = new KaptchaPluginService(width, height, length, possibleSymbols, trustedProxies);
         pluginProperties = properties;
         return new HashMap<>();
     }
@@ -110,7 +122,8 @@ public class KaptchaPlugin extends StatefullPlugin implements RegistrationPlugin
         PluginProperty height = new PluginProperty(HEIGHT_PROPERTY, INT, "50");
         PluginProperty length = new PluginProperty(LENGTH_PROPERTY, INT, "4");
         PluginProperty possibleSymbols = new PluginProperty(POSSIBLE_SYMBOLS_PROPERTY, STRING, "0123456789");
-        return Arrays.asList(width, height, length, possibleSymbols);
+        PluginProperty trustedProxies = new PluginProperty(TRUSTED_PROXIES_PROPERTY, STRING, "");
+        return Arrays.asList(width, height, length, possibleSymbols, trustedProxies);
     }
 
     @Override
@@ -29,14 +29,13 @@ import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
-import javax.imageio.ImageIO;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
-import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Serves for processing basic captcha functionality, such as refresh captcha, validate captcha and get captcha as html.
@@ -52,10 +51,30 @@ public class KaptchaPluginService {
     private static final String BASE_URL = "baseUrl";
     private static final String FORM_ELEMENT_ID = "formElementId";
     private static final String PLUGIN_PREFIX = "plugin-";
+    private static final int CAPTCHA_POOL_CAPACITY = 20;
+    private static final int MAX_CAPTCHAS_PER_CLIENT = 10;
+    private static final long CAPTCHA_LIMIT_WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final int MAX_LIMITED_CLIENTS = 10000;
+    private static final int SC_TOO_MANY_REQUESTS = 429;
     private Producer captchaProducer;
+    private final ClientRateLimiter rateLimiter = new ClientRateLimiter(MAX_CAPTCHAS_PER_CLIENT,
+            CAPTCHA_LIMIT_WINDOW_MILLIS, MAX_LIMITED_CLIENTS);
+    private final Set<String> trustedProxies;
+    /** Pool and engine are created on first use */
+    private CaptchaPool captchaPool;
+    private VelocityEngine velocityEngine;
 
     public KaptchaPluginService(int width, int height, int length, String possibleSymbols) {
+        this(width, height, length, possibleSymbols, Collections.<String>emptySet());
+    }
+
+    /**
+     * @param trustedProxies addresses of proxies which are trusted to forward addresses of clients
+     */
+    public KaptchaPluginService(int width, int height, int length, String possibleSymbols,
+                                Set<String> trustedProxies) {
         captchaProducer = createCaptchaProducer(width, height, length, possibleSymbols);
+        this.trustedProxies = new HashSet<>(trustedProxies);
     }
 
     /**
@@ -114,6 +133,8 @@ public class KaptchaPluginService {
         properties.put("jar.resource.loader.class", "org.apache.velocity.runtime.resource.loader.JarResourceLoader");
         String jarPath = this.getClass().getProtectionDomain().getCodeSource().getLocation().getPath();
         properties.put("jar.resource.loader.path", "jar:file:" + jarPath);
+        properties.put("jar.resource.loader.cache", "true");
+        properties.put("jar.resource.loader.modificationCheckInterval", "0");
         properties.put("runtime.log.logsystem.class", "org.apache.velocity.runtime.log.NullLogSystem");
         return properties;
     }
@@ -122,8 +143,6 @@ public class KaptchaPluginService {
         SecurityContextHolder.getContext();
         ResourceBundle resourceBundle = ResourceBundle.getBundle("org.jtalks.jcommune.plugin.kaptcha.messages", locale);
 
-        VelocityEngine engine = new VelocityEngine(getProperties());
-        engine.init();
         Map<String, Object> model = new HashMap<>();
         model.put(CAPTCHA_LABEL, resourceBundle.getObject("label.tip.captcha"));
         model.put(ALT_CAPTCHA, resourceBundle.getObject("alt.captcha.image"));
@@ -132,7 +151,21 @@ public class KaptchaPluginService {
         model.put(FORM_ELEMENT_ID, getFormElementId(pluginId));
         model.put(BASE_URL, getDeploymentRootUrl(request));
         return VelocityEngineUtils.mergeTemplateIntoString(
-                engine, "org/jtalks/jcommune/plugin/kaptcha/template/captcha.vm", "UTF-8", model);
+                getVelocityEngine(), "org/jtalks/jcommune/plugin/kaptcha/template/captcha.vm", "UTF-8", model);
+    }
+
+    /**
+     * Gets velocity engine which caches parsed template, so that plugin jar isn't read on every request.
+     *
+     * @return initialized velocity engine
+     */
+    private synchronized VelocityEngine getVelocityEngine() {
+        if (velocityEngine == null) {
+            VelocityEngine engine = new VelocityEngine(getProperties());
+            engine.init();
+            velocityEngine = engine;
+        }
+        return velocityEngine;
     }
 
     private Producer createCaptchaProducer(int width, int height, int length, String possibleSymbols) {
@@ -152,7 +185,19 @@ public class KaptchaPluginService {
     }
 
     /**
-     * Refresh captcha image on registration form.
+     * @return pool of captchas rendered in advance
+     */
+    protected synchronized CaptchaPool getCaptchaPool() {
+        if (captchaPool == null) {
+            captchaPool = new CaptchaPool(getCaptchaProducer(), CAPTCHA_POOL_CAPACITY);
+        }
+        return captchaPool;
+    }
+
+    /**
+     * Refresh captcha image on registration form. Clients requesting too many captchas get
+     * 429 (Too Many Requests) status, so that they don't drain the pool of captchas rendered in advance.
+     * Clients are told apart by their address, forwarded by trusted proxy if there is one.
      *
      * @param request http request
      * @param response http response
@@ -160,15 +205,55 @@ public class KaptchaPluginService {
      */
     public void refreshCaptchaImage(HttpServletRequest request, HttpServletResponse response)
             throws IOException {
-        ServletOutputStream out = response.getOutputStream();
+        if (!rateLimiter.tryAcquire(getClientIpAddress(request))) {
+            response.setStatus(SC_TOO_MANY_REQUESTS);
+            return;
+        }
+        CaptchaPool.Captcha captcha = getCaptchaPool().take();
+        request.getSession().setAttribute(Constants.KAPTCHA_SESSION_KEY, captcha.getText());
         response.setContentType("image/jpeg");
-        String capText = getCaptchaProducer().createText();
-        request.getSession().setAttribute(Constants.KAPTCHA_SESSION_KEY, capText);
-        BufferedImage bi = getCaptchaProducer().createImage(capText);
-        ImageIO.write(bi, "jpg", out);
+        response.setContentLength(captcha.getImage().length);
+        ServletOutputStream out = response.getOutputStream();
+        out.write(captcha.getImage());
         out.flush();
     }
 
+    /**
+     * Gets address of the client. Forwarded address is taken only from trusted proxies, otherwise all the
+     * clients behind the proxy would share the same limit. Client may send any forwarded address itself,
+     * so it's never trusted.
+     *
+     * @param request http request
+     * @return address of the client which sent the request
+     */
+    private String getClientIpAddress(HttpServletRequest request) {
+        String address = request.getRemoteAddr();
+        String forwardedFor = request.getHeader("X-FORWARDED-FOR");
+        if (forwardedFor == null || !trustedProxies.contains(address)) {
+            return address;
+        }
+        // proxies append addresses of their clients, so the last address which isn't a trusted proxy is
+        // the one of the client, addresses before it are sent by the client itself
+        String[] hops = StringUtils.split(forwardedFor, ", ");
+        for (int i = hops.length - 1; i >= 0; i--) {
+            address = hops[i];
+            if (!trustedProxies.contains(address)) {
+                break;
+            }
+        }
+        return address;
+    }
+
+    /**
+     * Stops rendering of captchas in advance, should be called when service isn't used anymore.
+     */
+    public synchronized void shutdown() {
+        if (captchaPool != null) {
+            captchaPool.shutdown();
+            captchaPool = null;
+        }
+    }
+
     /**
      * Returns current deployment root with port (if required) for using as label link, for example.
      *
@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.plugin.kaptcha;
+
+import com.google.code.kaptcha.Producer;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.*;
+
+public class CaptchaPoolTest {
+    private static final int CAPACITY = 3;
+
+    private Producer producer;
+    private CaptchaPool pool;
+
+    @BeforeMethod
+    public void setUp() {
+        producer = mock(Producer.class);
+        final AtomicInteger counter = new AtomicInteger();
+        when(producer.createText()).thenAnswer(new Answer<String>() {
+            @Override
+            public String answer(InvocationOnMock invocation) {
+                return String.valueOf(counter.incrementAndGet());
+            }
+        });
+        when(producer.createImage(anyString())).thenReturn(new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB));
+        pool = new CaptchaPool(producer, CAPACITY);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void captchaShouldBeRenderedIfPoolIsEmpty() throws Exception {
+        CaptchaPool.Captcha captcha = pool.take();
+
+        assertNotNull(captcha.getText());
+        assertTrue(captcha.getImage().length > 0);
+    }
+
+    @Test
+    public void poolShouldBeRefilledAfterCaptchaIsTaken() throws Exception {
+        pool.take();
+
+        waitUntilPoolIsFull();
+        assertEquals(pool.size(), CAPACITY);
+    }
+
+    @Test
+    public void everyCaptchaShouldBeGivenOnlyOnce() throws Exception {
+        pool.take();
+        waitUntilPoolIsFull();
+
+        String first = pool.take().getText();
+        String second = pool.take().getText();
+
+        assertFalse(first.equals(second));
+    }
+
+    @Test
+    public void captchaShouldBeRenderedAfterShutdown() throws Exception {
+        pool.shutdown();
+
+        assertNotNull(pool.take());
+        assertEquals(pool.size(), 0);
+    }
+
+    private void waitUntilPoolIsFull() throws InterruptedException {
+        for (int i = 0; i < 100 && pool.size() < CAPACITY; i++) {
+            Thread.sleep(50);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.plugin.kaptcha;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class ClientRateLimiterTest {
+    private static final String CLIENT = "192.168.0.1";
+    private static final String ANOTHER_CLIENT = "192.168.0.2";
+    private static final String THIRD_CLIENT = "192.168.0.3";
+    private static final String FOURTH_CLIENT = "192.168.0.4";
+
+    private ClientRateLimiter limiter;
+
+    @BeforeMethod
+    public void setUp() {
+        limiter = spy(new ClientRateLimiter(2, 1000, 2));
+        when(limiter.currentTimeMillis()).thenReturn(1000L);
+    }
+
+    @Test
+    public void requestsWithinLimitShouldBeAllowed() {
+        assertTrue(limiter.tryAcquire(CLIENT));
+        assertTrue(limiter.tryAcquire(CLIENT));
+    }
+
+    @Test
+    public void requestsOverLimitShouldBeRejected() {
+        limiter.tryAcquire(CLIENT);
+        limiter.tryAcquire(CLIENT);
+
+        assertFalse(limiter.tryAcquire(CLIENT));
+    }
+
+    @Test
+    public void limitShouldBeCountedForEveryClientSeparately() {
+        limiter.tryAcquire(CLIENT);
+        limiter.tryAcquire(CLIENT);
+
+        assertTrue(limiter.tryAcquire(ANOTHER_CLIENT));
+    }
+
+    @Test
+    public void clientsBeyondLimitOfClientsShouldShareOneCounter() {
+        limiter.tryAcquire(CLIENT);
+        limiter.tryAcquire(ANOTHER_CLIENT);
+
+        assertTrue(limiter.tryAcquire(THIRD_CLIENT));
+        assertTrue(limiter.tryAcquire(FOURTH_CLIENT));
+        assertFalse(limiter.tryAcquire(THIRD_CLIENT));
+        assertTrue(limiter.tryAcquire(CLIENT));
+    }
+
+    @Test
+    public void requestsShouldBeAllowedAgainInNextWindow() {
+        limiter.tryAcquire(CLIENT);
+        limiter.tryAcquire(CLIENT);
+
+        when(limiter.currentTimeMillis()).thenReturn(2000L);
+
+        assertTrue(limiter.tryAcquire(CLIENT));
+    }
+}
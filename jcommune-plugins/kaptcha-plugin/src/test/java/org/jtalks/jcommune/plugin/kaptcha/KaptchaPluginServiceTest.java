@@ -19,6 +19,7 @@ import com.google.code.kaptcha.Constants;
 import com.google.code.kaptcha.Producer;
 import org.jtalks.jcommune.model.dto.UserDto;
 import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.mock.web.MockHttpSession;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
@@ -29,7 +30,10 @@ import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
@@ -47,6 +51,7 @@ public class KaptchaPluginServiceTest {
     private final int IMAGE_HEIGHT = 50;
     private final int IMAGE_LENGTH = 50;
     private final String POSSIBLE_SYMBOLS = "1234567890";
+    private final String PROXY = "172.16.0.1";
 
     private KaptchaPluginService service;
     private MockHttpServletRequest request;
@@ -147,4 +152,66 @@ public class KaptchaPluginServiceTest {
         verify(response).setContentType("image/jpeg");
         verify(session).setAttribute(Constants.KAPTCHA_SESSION_KEY, GENERATED_CAPTCHA_TEXT);
     }
+
+    @Test
+    public void clientRequestingTooManyCaptchasShouldBeRejected() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            service.refreshCaptchaImage(request, new MockHttpServletResponse());
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        service.refreshCaptchaImage(request, response);
+
+        assertEquals(response.getStatus(), 429);
+        assertEquals(response.getContentLength(), 0);
+    }
+
+    @Test
+    public void clientsBehindTheSameTrustedProxyShouldBeLimitedSeparately() throws Exception {
+        service = new KaptchaPluginService(IMAGE_WIDTH, IMAGE_HEIGHT, IMAGE_LENGTH, POSSIBLE_SYMBOLS,
+                new HashSet<>(Arrays.asList(PROXY, "192.168.0.1")));
+        exhaustLimit(requestFrom(PROXY, "10.0.0.1, 192.168.0.1"));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        service.refreshCaptchaImage(requestFrom(PROXY, "10.0.0.2, 192.168.0.1"), response);
+
+        assertEquals(response.getStatus(), 200);
+        assertEquals(response.getContentType(), "image/jpeg");
+    }
+
+    @Test
+    public void addressesForwardedByClientItselfShouldBeIgnored() throws Exception {
+        service = new KaptchaPluginService(IMAGE_WIDTH, IMAGE_HEIGHT, IMAGE_LENGTH, POSSIBLE_SYMBOLS,
+                Collections.singleton(PROXY));
+        exhaustLimit(requestFrom(PROXY, "1.1.1.1, 10.0.0.1"));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        service.refreshCaptchaImage(requestFrom(PROXY, "2.2.2.2, 10.0.0.1"), response);
+
+        assertEquals(response.getStatus(), 429);
+    }
+
+    @Test
+    public void addressesForwardedWithoutTrustedProxyShouldBeIgnored() throws Exception {
+        exhaustLimit(requestFrom(PROXY, "10.0.0.1"));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        service.refreshCaptchaImage(requestFrom(PROXY, "10.0.0.2"), response);
+
+        assertEquals(response.getStatus(), 429);
+    }
+
+    private MockHttpServletRequest requestFrom(String remoteAddress, String forwardedFor) {
+        MockHttpServletRequest clientRequest = new MockHttpServletRequest();
+        clientRequest.setSession(new MockHttpSession());
+        clientRequest.setRemoteAddr(remoteAddress);
+        clientRequest.addHeader("X-FORWARDED-FOR", forwardedFor);
+        return clientRequest;
+    }
+
+    private void exhaustLimit(MockHttpServletRequest clientRequest) throws Exception {
+        for (int i = 0; i < 10; i++) {
+            service.refreshCaptchaImage(clientRequest, new MockHttpServletResponse());
+        }
+    }
 }
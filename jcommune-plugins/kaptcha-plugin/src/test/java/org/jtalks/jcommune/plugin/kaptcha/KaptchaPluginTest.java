@@ -160,6 +160,8 @@ public class KaptchaPluginTest {
         properties.add(new PluginProperty(KaptchaPlugin.LENGTH_PROPERTY, PluginProperty.Type.INT, "4"));
         properties.add(new PluginProperty(KaptchaPlugin.POSSIBLE_SYMBOLS_PROPERTY,
                 PluginProperty.Type.STRING, "0123456789"));
+        properties.add(new PluginProperty(KaptchaPlugin.TRUSTED_PROXIES_PROPERTY,
+                PluginProperty.Type.STRING, "10.0.0.1, 10.0.0.2"));
 
         Map<PluginProperty, String> errors = kaptchaPlugin.applyConfiguration(properties);
 
@@ -180,6 +182,6 @@ public class KaptchaPluginTest {
     public void testGetDefaultConfiguration() {
         List<PluginProperty> result = kaptchaPlugin.getDefaultConfiguration();
 
-        assertEquals(result.size(), 4);
+        assertEquals(result.size(), 5);
     }
 }
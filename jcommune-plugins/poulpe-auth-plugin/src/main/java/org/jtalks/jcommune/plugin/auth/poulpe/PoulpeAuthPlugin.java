@@ -34,6 +34,7 @@ import java.io.IOException;
 import java.util.*;
 import java.util.regex.Pattern;
 
+import static org.jtalks.jcommune.model.entity.PluginProperty.Type.INT;
 import static org.jtalks.jcommune.model.entity.PluginProperty.Type.STRING;
 
 /**
@@ -48,6 +49,7 @@ public class PoulpeAuthPlugin extends StatefullPlugin
     private static final String URL_PROPERTY = "Url";
     private static final String LOGIN_PROPERTY = "Login";
     private static final String PASSWORD_PROPERTY = "Password";
+    private static final String TIMEOUT_PROPERTY = "Timeout";
     private static final String URL_PATTERN = "(((http|https)://)?" +
             "([\\w\\-_]+(\\.[\\w\\-_]+)+|localhost)+([\\w\\-\\.,@?^=%&amp;:/~\\+#]*[\\w\\-\\@?^=%&amp;/~\\+#])?)";
     private static final String MESSAGE_PATH = "messages";
@@ -137,7 +139,9 @@ public class PoulpeAuthPlugin extends StatefullPlugin
         PluginProperty url = new PluginProperty(URL_PROPERTY, STRING, "http://localhost:8080");
         PluginProperty login = new PluginProperty(LOGIN_PROPERTY, STRING, "user");
         PluginProperty password = new PluginProperty(PASSWORD_PROPERTY, STRING, "1234");
-        return Arrays.asList(url, login, password);
+        PluginProperty timeout = new PluginProperty(TIMEOUT_PROPERTY, INT,
+                String.valueOf(PoulpeAuthService.DEFAULT_CONNECTION_TIMEOUT));
+        return Arrays.asList(url, login, password, timeout);
     }
 
     @Override
@@ -146,6 +150,7 @@ public class PoulpeAuthPlugin extends StatefullPlugin
         String url = null;
         String login = null;
         String password = null;
+        String timeout = null;
         for (PluginProperty property : properties) {
             if (URL_PROPERTY.equalsIgnoreCase(property.getName())) {
                 url = property.getValue() == null ? null : property.getValue().trim();
@@ -153,6 +158,8 @@ public class PoulpeAuthPlugin extends StatefullPlugin
                 login = property.getValue() == null ? null : property.getValue().trim();
             } else if (PASSWORD_PROPERTY.equalsIgnoreCase(property.getName())) {
                 password = property.getValue();
+            } else if (TIMEOUT_PROPERTY.equalsIgnoreCase(property.getName())) {
+                timeout = property.getValue() == null ? null : property.getValue().trim();
             }
         }
         if (url == null || url.isEmpty()) {
@@ -161,11 +168,37 @@ public class PoulpeAuthPlugin extends StatefullPlugin
         } else if (!validateUrl(url)) {
             throw new PluginConfigurationException("Can't apply configuration: Incorrect format for Url value.");
         }
-        service = new PoulpeAuthService(url, login, password);
+        int timeoutMs = parseTimeout(timeout);
+        if (service != null) {
+            service.shutdown();
+        }
+        service = new PoulpeAuthService(url, login, password, timeoutMs);
         pluginProperties = properties;
         return new HashMap<>();
     }
 
+    /**
+     * Parses timeout of requests to Poulpe, default one is used if timeout isn't specified.
+     *
+     * @param timeout timeout in milliseconds
+     * @return parsed timeout
+     * @throws PluginConfigurationException if timeout isn't a positive number
+     */
+    private int parseTimeout(String timeout) throws PluginConfigurationException {
+        if (timeout == null || timeout.isEmpty()) {
+            return PoulpeAuthService.DEFAULT_CONNECTION_TIMEOUT;
+        }
+        try {
+            int timeoutMs = Integer.parseInt(timeout);
+            if (timeoutMs > 0) {
+                return timeoutMs;
+            }
+        } catch (NumberFormatException e) {
+            LOGGER.debug("{} is not valid value for property {}", timeout, TIMEOUT_PROPERTY);
+        }
+        throw new PluginConfigurationException("Can't apply configuration: Incorrect format for Timeout value.");
+    }
+
     private boolean validateUrl(String url) {
         Pattern pattern = Pattern.compile(URL_PATTERN, Pattern.DOTALL);
         return pattern.matcher(url).matches();
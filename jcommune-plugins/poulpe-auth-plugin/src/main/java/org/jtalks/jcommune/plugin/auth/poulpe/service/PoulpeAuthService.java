@@ -21,8 +21,10 @@ import org.jtalks.jcommune.plugin.api.exceptions.UnexpectedErrorException;
 import org.jtalks.jcommune.plugin.auth.poulpe.dto.Authentication;
 import org.jtalks.jcommune.plugin.auth.poulpe.dto.Errors;
 import org.jtalks.jcommune.plugin.auth.poulpe.dto.User;
+import org.restlet.Client;
 import org.restlet.Context;
 import org.restlet.data.ChallengeScheme;
+import org.restlet.data.Protocol;
 import org.restlet.data.Status;
 import org.restlet.engine.header.Header;
 import org.restlet.engine.header.HeaderConstants;
@@ -38,30 +40,54 @@ import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class contains method needed for communicate with Poulpe rest service.
+ * All the requests share one Restlet client, so that connections to Poulpe are kept alive between them.
+ * Successful authentications are remembered for a short time, so that user isn't authenticated
+ * via Poulpe on every request to the forum. Expired ones are purged when new ones are remembered,
+ * and count of remembered authentications is limited.
  *
  * @author Andrey Pogorelov
  */
 public class PoulpeAuthService {
 
-    private static final int CONNECTION_TIMEOUT = 5000;
+    public static final int DEFAULT_CONNECTION_TIMEOUT = 5000;
     public static final String DRY_RUN_PARAM = "dryRun";
     public static final String TRUE = "true";
+    private static final long AUTHENTICATION_CACHE_TIME_MS = 60 * 1000;
+    static final int MAX_REMEMBERED_AUTHENTICATIONS = 10000;
+    private static final JAXBContext AUTHENTICATION_CONTEXT = createJaxbContext(Authentication.class);
+    private static final JAXBContext ERRORS_CONTEXT = createJaxbContext(Errors.class);
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final ConcurrentMap<String, CachedAuthentication> authentications = new ConcurrentHashMap<>();
+    private final AtomicLong nextPurgeTime = new AtomicLong();
+    private final Client client;
     private String regUrl;
     private String authUrl;
     private String login;
     private String password;
 
     public PoulpeAuthService(String url, String login, String password) {
+        this(url, login, password, DEFAULT_CONNECTION_TIMEOUT);
+    }
+
+    /**
+     * @param url      url of Poulpe
+     * @param login    login to access Poulpe
+     * @param password password to access Poulpe
+     * @param timeout  timeout of connecting to Poulpe and waiting for its response in milliseconds
+     */
+    public PoulpeAuthService(String url, String login, String password, int timeout) {
         this.regUrl = url + "/rest/private/user";
         this.authUrl = url + "/rest/authenticate";
         this.login = login;
         this.password = password;
+        this.client = createClient(timeout);
     }
 
     /**
@@ -91,13 +117,79 @@ public class PoulpeAuthService {
      */
     public Map<String, String> authenticate(String username, String passwordHash)
             throws JAXBException, IOException, NoConnectionException {
+        CachedAuthentication cached = authentications.get(username);
+        if (cached != null && cached.matches(passwordHash, currentTimeMillis())) {
+            return cached.authInfo;
+        }
         ClientResource clientResource = sendAuthRequest(username, passwordHash);
         Map<String, String> result = getAuthResult(clientResource);
         closeRestletConnection(clientResource);
+        if (result.isEmpty()) {
+            authentications.remove(username);
+        } else {
+            remember(username, new CachedAuthentication(passwordHash, result,
+                    currentTimeMillis() + AUTHENTICATION_CACHE_TIME_MS));
+        }
         return result;
     }
 
+    /**
+     * Remembers successful authentication. Expired authentications are purged once in a cache time,
+     * if there are still too many remembered authentications, the new one isn't remembered.
+     *
+     * @param username       username
+     * @param authentication authentication to remember
+     */
+    private void remember(String username, CachedAuthentication authentication) {
+        long now = currentTimeMillis();
+        long purgeTime = nextPurgeTime.get();
+        if (now >= purgeTime && nextPurgeTime.compareAndSet(purgeTime, now + AUTHENTICATION_CACHE_TIME_MS)) {
+            purgeExpired(now);
+        }
+        if (authentications.size() < MAX_REMEMBERED_AUTHENTICATIONS) {
+            authentications.put(username, authentication);
+        }
+    }
+
+    private void purgeExpired(long now) {
+        Iterator<CachedAuthentication> iterator = authentications.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isExpired(now)) {
+                iterator.remove();
+            }
+        }
+    }
 
+    /**
+     * Needed for tests
+     *
+     * @return count of remembered authentications
+     */
+    int getRememberedAuthenticationsCount() {
+        return authentications.size();
+    }
+
+    /**
+     * Releases connections to Poulpe and forgets remembered authentications,
+     * should be called when service isn't needed anymore.
+     */
+    public void shutdown() {
+        authentications.clear();
+        try {
+            client.stop();
+        } catch (Exception e) {
+            logger.warn("Error stopping client: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Needed for tests
+     *
+     * @return current time in milliseconds
+     */
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
 
     private void closeRestletConnection(ClientResource clientResource) {
         try {
@@ -128,8 +220,7 @@ public class PoulpeAuthService {
     }
 
     private Map<String, String> parseUserDetails(Representation repr) throws JAXBException, IOException {
-        JAXBContext context = JAXBContext.newInstance(Authentication.class);
-        Unmarshaller unmarshaller = context.createUnmarshaller();
+        Unmarshaller unmarshaller = AUTHENTICATION_CONTEXT.createUnmarshaller();
         Authentication auth = (Authentication) unmarshaller.unmarshal(repr.getStream());
 
         Map<String, String> authInfo = new HashMap<>();
@@ -138,7 +229,7 @@ public class PoulpeAuthService {
         authInfo.put("firstName", auth.getProfile().getFirstName());
         authInfo.put("lastName", auth.getProfile().getLastName());
         authInfo.put("enabled", String.valueOf(auth.getProfile().isEnabled()));
-        return authInfo;
+        return Collections.unmodifiableMap(authInfo);
     }
 
     /**
@@ -174,8 +265,7 @@ public class PoulpeAuthService {
      * @throws java.io.IOException
      */
     private Map<String, String> parseErrors(Representation repr, Locale locale) throws IOException, JAXBException {
-        JAXBContext context = JAXBContext.newInstance(Errors.class);
-        Unmarshaller unmarshaller = context.createUnmarshaller();
+        Unmarshaller unmarshaller = ERRORS_CONTEXT.createUnmarshaller();
         Errors errorsRepr = (Errors) unmarshaller.unmarshal(repr.getStream());
 
         Map<String, String> errors = new HashMap<>();
@@ -308,9 +398,54 @@ public class PoulpeAuthService {
 
     private ClientResource createClientResource(String url, boolean buffering) {
         ClientResource clientResource = new ClientResource(new Context(), url);
-        clientResource.getContext().getParameters().add("socketConnectTimeoutMs", String.valueOf(CONNECTION_TIMEOUT));
-        clientResource.getContext().getParameters().add("maxIoIdleTimeMs", String.valueOf(CONNECTION_TIMEOUT));
+        clientResource.setNext(client);
         clientResource.setEntityBuffering(buffering);
         return clientResource;
     }
+
+    private static Client createClient(int timeout) {
+        Context context = new Context();
+        context.getParameters().add("socketConnectTimeoutMs", String.valueOf(timeout));
+        context.getParameters().add("maxIoIdleTimeMs", String.valueOf(timeout));
+        context.getParameters().add("readTimeout", String.valueOf(timeout));
+        return new Client(context, Arrays.asList(Protocol.HTTP, Protocol.HTTPS));
+    }
+
+    /**
+     * Contexts are thread safe and expensive to create, so they are created once. Unmarshallers aren't
+     * thread safe but cheap, so they are created for every response.
+     *
+     * @param type class bound to the context
+     * @return context of the class
+     */
+    private static JAXBContext createJaxbContext(Class<?> type) {
+        try {
+            return JAXBContext.newInstance(type);
+        } catch (JAXBException e) {
+            throw new IllegalStateException("Failed to create JAXB context for " + type.getName(), e);
+        }
+    }
+
+    /**
+     * Successful authentication remembered for a short time.
+     */
+    private static class CachedAuthentication {
+        private final String passwordHash;
+        private final Map<String, String> authInfo;
+        private final long expirationTime;
+
+        CachedAuthentication(String passwordHash, Map<String, String> authInfo, long expirationTime) {
+            this.passwordHash = passwordHash;
+            this.authInfo = authInfo;
+            this.expirationTime = expirationTime;
+        }
+
+        boolean matches(String passwordHash, long currentTime) {
+            return !isExpired(currentTime) && Objects.equals(this.passwordHash, passwordHash);
+        }
+
+        boolean isExpired(long currentTime) {
+            return currentTime >= expirationTime;
+        }
+    }
 }
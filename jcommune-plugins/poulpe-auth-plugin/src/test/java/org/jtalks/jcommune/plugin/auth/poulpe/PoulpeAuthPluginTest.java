@@ -30,7 +30,9 @@ import javax.xml.bind.JAXBException;
 import java.io.IOException;
 import java.util.*;
 
+import static org.jtalks.jcommune.model.entity.PluginProperty.Type.INT;
 import static org.jtalks.jcommune.model.entity.PluginProperty.Type.STRING;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 import static org.testng.Assert.assertEquals;
@@ -97,6 +99,36 @@ public class PoulpeAuthPluginTest {
         plugin.configure(configuration);
     }
 
+    @Test
+    public void pluginWithIncorrectTimeoutShouldNotBeConfigured() throws Exception {
+        PluginConfiguration configuration = createConfiguration("http://localhost", "user", "1234");
+        configuration.getProperties().add(new PluginProperty("Timeout", INT, "-1"));
+        try {
+            plugin.configure(configuration);
+        } catch (UnexpectedErrorException ex) {
+        }
+
+        assertTrue(plugin.getState() == Plugin.State.IN_ERROR,
+                "Plugin with incorrect Timeout shouldn't be configured.");
+    }
+
+    @Test
+    public void pluginWithTimeoutShouldBeConfigured() throws Exception {
+        PluginConfiguration configuration = createConfiguration("http://localhost", "user", "1234");
+        configuration.getProperties().add(new PluginProperty("Timeout", INT, "10000"));
+        plugin.configure(configuration);
+
+        assertTrue(plugin.getState() == Plugin.State.ENABLED,
+                "Plugin with correct Timeout should be configured properly.");
+    }
+
+    @Test
+    public void previousServiceShouldBeShutDownWhenPluginIsConfigured() throws Exception {
+        plugin.configure(createConfiguration("http://localhost", "user", "1234"));
+
+        verify(service).shutdown();
+    }
+
     @Test
     public void userShouldNotBeRegisteredIfSomeErrorOccurred()
             throws JAXBException, IOException, NoConnectionException, UnexpectedErrorException {
@@ -214,7 +246,7 @@ public class PoulpeAuthPluginTest {
         PluginProperty passwordProperty = new PluginProperty("PASSWORD", STRING, password);
         passwordProperty.setName("Password");
         return new PluginConfiguration("Poulpe Auth Plugin", true,
-                Arrays.asList(urlProperty, loginProperty, passwordProperty));
+                new ArrayList<>(Arrays.asList(urlProperty, loginProperty, passwordProperty)));
     }
 
     @Test
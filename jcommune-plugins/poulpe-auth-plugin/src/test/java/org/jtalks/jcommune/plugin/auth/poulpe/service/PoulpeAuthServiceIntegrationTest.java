@@ -57,6 +57,7 @@ public class PoulpeAuthServiceIntegrationTest {
      */
     @AfterClass
     public void afterTest() {
+        service.shutdown();
         server.stop();
     }
 
@@ -113,6 +114,21 @@ public class PoulpeAuthServiceIntegrationTest {
         assertEquals(clientResource.getStatus().getCode(), HttpStatus.NOT_FOUND_404.getStatusCode());
     }
 
+    @Test
+    public void testSequentialRequestsViaSharedClientShouldBeSuccessful() throws Exception {
+        whenHttp(server).match(get(authUrl),
+                parameter("username", "username"),
+                parameter("passwordHash", "passwordHash"))
+                .then(status(HttpStatus.OK_200));
+
+        for (int i = 0; i < 3; i++) {
+            ClientResource clientResource = service.sendAuthRequest("username", "passwordHash");
+            clientResource.getResponseEntity().exhaust();
+
+            assertEquals(clientResource.getStatus().getCode(), HttpStatus.OK_200.getStatusCode());
+        }
+    }
+
     private User createUser(String username, String password, String email) {
         User user = new User();
         user.setUsername(username);
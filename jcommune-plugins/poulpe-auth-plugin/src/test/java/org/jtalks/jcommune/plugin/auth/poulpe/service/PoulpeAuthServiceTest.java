@@ -20,6 +20,8 @@ import org.jtalks.jcommune.plugin.api.exceptions.NoConnectionException;
 import org.jtalks.jcommune.plugin.api.exceptions.UnexpectedErrorException;
 import org.jtalks.jcommune.plugin.auth.poulpe.dto.*;
 import org.jtalks.jcommune.plugin.auth.poulpe.dto.Error;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.restlet.Request;
 import org.restlet.Response;
 import org.restlet.data.Method;
@@ -36,9 +38,13 @@ import java.util.List;
 import java.util.Map;
 
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.MockitoAnnotations.initMocks;
 import static org.testng.Assert.*;
 
@@ -133,6 +139,88 @@ public class PoulpeAuthServiceTest {
         assertEquals(result.size(), 0, "User with invalid credentials shouldn't pass authentication.");
     }
 
+    @Test
+    public void successfulAuthenticationShouldBeRemembered() throws Exception {
+        doReturn(1000L).when(service).currentTimeMillis();
+        doReturn(createSuccessfulAuthResource()).when(service).sendAuthRequest("username", "password");
+
+        Map<String, String> first = service.authenticate("username", "password");
+        Map<String, String> second = service.authenticate("username", "password");
+
+        assertEquals(second, first);
+        verify(service, times(1)).sendAuthRequest("username", "password");
+    }
+
+    @Test
+    public void rememberedAuthenticationShouldExpire() throws Exception {
+        doReturn(1000L).when(service).currentTimeMillis();
+        doReturn(createSuccessfulAuthResource(), createSuccessfulAuthResource())
+                .when(service).sendAuthRequest("username", "password");
+        service.authenticate("username", "password");
+
+        doReturn(1000L + 60 * 1000).when(service).currentTimeMillis();
+        service.authenticate("username", "password");
+
+        verify(service, times(2)).sendAuthRequest("username", "password");
+    }
+
+    @Test
+    public void expiredAuthenticationsShouldBePurgedWhenNewOneIsRemembered() throws Exception {
+        doReturn(1000L).when(service).currentTimeMillis();
+        doReturn(createSuccessfulAuthResource()).when(service).sendAuthRequest("username", "password");
+        doReturn(createSuccessfulAuthResource()).when(service).sendAuthRequest("another", "password");
+        service.authenticate("username", "password");
+
+        doReturn(1000L + 60 * 1000).when(service).currentTimeMillis();
+        service.authenticate("another", "password");
+
+        assertEquals(service.getRememberedAuthenticationsCount(), 1);
+    }
+
+    @Test
+    public void countOfRememberedAuthenticationsShouldBeLimited() throws Exception {
+        doReturn(1000L).when(service).currentTimeMillis();
+        doAnswer(new Answer<ClientResource>() {
+            @Override
+            public ClientResource answer(InvocationOnMock invocation) throws Throwable {
+                return createSuccessfulAuthResource();
+            }
+        }).when(service).sendAuthRequest(anyString(), eq("password"));
+
+        for (int i = 0; i <= PoulpeAuthService.MAX_REMEMBERED_AUTHENTICATIONS; i++) {
+            service.authenticate("username" + i, "password");
+        }
+
+        assertEquals(service.getRememberedAuthenticationsCount(), PoulpeAuthService.MAX_REMEMBERED_AUTHENTICATIONS);
+    }
+
+    @Test
+    public void rememberedAuthenticationShouldNotBeUsedForAnotherPassword() throws Exception {
+        doReturn(createSuccessfulAuthResource()).when(service).sendAuthRequest("username", "password");
+        Authentication auth = createAuth("", "password", "email");
+        auth.setStatus("fail");
+        ClientResource failedAuth = createClientResource(Status.CLIENT_ERROR_NOT_FOUND,
+                new JaxbRepresentation<>(auth));
+        doReturn(failedAuth).when(service).sendAuthRequest("username", "another password");
+        service.authenticate("username", "password");
+
+        Map<String, String> result = service.authenticate("username", "another password");
+
+        assertEquals(result.size(), 0, "Authentication with another password should be checked by Poulpe.");
+    }
+
+    @Test
+    public void rememberedAuthenticationsShouldBeForgottenAfterShutdown() throws Exception {
+        doReturn(createSuccessfulAuthResource(), createSuccessfulAuthResource())
+                .when(service).sendAuthRequest("username", "password");
+        service.authenticate("username", "password");
+
+        service.shutdown();
+        service.authenticate("username", "password");
+
+        verify(service, times(2)).sendAuthRequest("username", "password");
+    }
+
     @Test(expectedExceptions = NoConnectionException.class)
     public void testAuthUserShouldFailIfConnectionErrorOccurred() throws Exception {
         ClientResource clientResource = createClientResource(Status.CLIENT_ERROR_REQUEST_TIMEOUT, null);
@@ -142,6 +230,12 @@ public class PoulpeAuthServiceTest {
         service.authenticate("user", "password");
     }
 
+    private ClientResource createSuccessfulAuthResource() {
+        Authentication auth = createAuth("username", "password", "email");
+        auth.setStatus("success");
+        return createClientResource(Status.SUCCESS_OK, new JaxbRepresentation<>(auth));
+    }
+
     private Authentication createAuth(String username, String password, String email) {
         Authentication auth = new Authentication();
         auth.setProfile(new Profile(new PoulpeUser(username, email, password, null)));
@@ -16,12 +16,14 @@ package org.jtalks.jcommune.plugin.questionsandanswers;
 
 import org.jtalks.common.model.permissions.BranchPermission;
 import org.jtalks.common.model.permissions.JtalksPermission;
+import org.jtalks.jcommune.model.entity.PluginConfiguration;
 import org.jtalks.jcommune.model.entity.PluginProperty;
 import org.jtalks.jcommune.plugin.api.core.SubscribersFilter;
 import org.jtalks.jcommune.plugin.api.core.TopicPlugin;
 import org.jtalks.jcommune.plugin.api.core.WebControllerPlugin;
 import org.jtalks.jcommune.plugin.api.web.dto.CreateTopicBtnDto;
 import org.jtalks.jcommune.plugin.api.exceptions.PluginConfigurationException;
+import org.jtalks.jcommune.plugin.api.exceptions.UnexpectedErrorException;
 import org.jtalks.jcommune.plugin.api.service.ReadOnlySecurityService;
 import org.jtalks.jcommune.plugin.api.web.PluginController;
 import org.jtalks.jcommune.plugin.questionsandanswers.controller.QuestionsAndAnswersController;
@@ -46,6 +48,10 @@ public class QuestionsAndAnswersPlugin extends WebControllerPlugin implements To
      * Default value, thus it will show lower in the list of topics than Discussion and Code Review which are 100 & 101.
      */
     private int order = DEFAULT_ORDER_VALUE;
+    /**
+     * The only controller of the plugin, it keeps velocity engine with parsed templates while plugin is loaded
+     */
+    private final QuestionsAndAnswersController controller = new QuestionsAndAnswersController();
 
     /**
      * {@inheritDoc}
@@ -74,6 +80,17 @@ public class QuestionsAndAnswersPlugin extends WebControllerPlugin implements To
         return true;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void configure(PluginConfiguration configuration) throws UnexpectedErrorException {
+        super.configure(configuration);
+        if (!isEnabled()) {
+            controller.releaseVelocityEngine();
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -168,7 +185,7 @@ public class QuestionsAndAnswersPlugin extends WebControllerPlugin implements To
      */
     @Override
     public PluginController getController() {
-        return new QuestionsAndAnswersController();
+        return controller;
     }
 
     /**
@@ -15,6 +15,7 @@
 package org.jtalks.jcommune.plugin.questionsandanswers.controller;
 
 import com.google.common.io.ByteStreams;
+import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.time.DateFormatUtils;
 import org.apache.velocity.app.VelocityEngine;
 import org.apache.velocity.exception.VelocityException;
@@ -93,10 +94,13 @@ public class QuestionsAndAnswersController implements ApplicationContextAware, P
     public static final String COMMENT_ID = "commentId";
 
 
+    private static final Comparator<Post> POST_COMPARATOR = new PostComparator();
     private BreadcrumbBuilder breadcrumbBuilder = new BreadcrumbBuilder();
 
     private String apiPath;
     private ApplicationContext applicationContext;
+    /** Created on the first request, because template jars are known only after controller is mapped */
+    private volatile VelocityEngine velocityEngine;
 
     /**
      * Shows question creation page
@@ -111,8 +115,7 @@ public class QuestionsAndAnswersController implements ApplicationContextAware, P
     @RequestMapping(value = "new", method = RequestMethod.GET)
     public String showNewQuestionPage(@RequestParam(BRANCH_ID) Long branchId, Model model, HttpServletRequest request)
             throws NotFoundException {
-        VelocityEngine engine = new VelocityEngine(getProperties());
-        engine.init();
+        VelocityEngine engine = getVelocityEngine();
         Branch branch = getPluginBranchService().get(branchId);
         Topic topic = new Topic();
         topic.setBranch(branch);
@@ -142,8 +145,7 @@ public class QuestionsAndAnswersController implements ApplicationContextAware, P
     public String createQuestion(@Valid @ModelAttribute TopicDto topicDto, BindingResult result, Model model,
                                  @RequestParam(BRANCH_ID) Long branchId, HttpServletRequest request)
             throws NotFoundException{
-        VelocityEngine engine = new VelocityEngine(getProperties());
-        engine.init();
+        VelocityEngine engine = getVelocityEngine();
         Branch  branch = getPluginBranchService().get(branchId);
         Map<String, Object> data = getDefaultModel(request);
         topicDto.getTopic().setBranch(branch);
@@ -201,8 +203,7 @@ public class QuestionsAndAnswersController implements ApplicationContextAware, P
         data.put(POST_DTO, new PostDto());
         data.put(LIMIT_OF_POSTS_ATTRIBUTE, LIMIT_OF_POSTS_VALUE);
         getPluginLastReadPostService().markTopicAsRead(topic);
-        VelocityEngine engine = new VelocityEngine(getProperties());
-        engine.init();
+        VelocityEngine engine = getVelocityEngine();
         model.addAttribute(CONTENT, getMergedTemplate(engine, QUESTION_TEMPLATE_PATH, "UTF-8", data));
         return PLUGIN_VIEW_NAME;
     }
@@ -254,8 +255,7 @@ public class QuestionsAndAnswersController implements ApplicationContextAware, P
             throws NotFoundException{
         Topic topic = getTypeAwarePluginTopicService().get(id, QuestionsAndAnswersPlugin.TOPIC_TYPE);
         TopicDto topicDto = new TopicDto(topic);
-        VelocityEngine engine = new VelocityEngine(getProperties());
-        engine.init();
+        VelocityEngine engine = getVelocityEngine();
         Map<String, Object> data = getDefaultModel(request);
         data.put(BREADCRUMB_LIST, breadcrumbBuilder.getForumBreadcrumb(topic));
         data.put(TOPIC_DTO, topicDto);
@@ -286,8 +286,7 @@ public class QuestionsAndAnswersController implements ApplicationContextAware, P
         if (result.hasErrors()) {
             topicDto.getTopic().setId(topic.getId());
             topicDto.getTopic().setBranch(topic.getBranch());
-            VelocityEngine engine = new VelocityEngine(getProperties());
-            engine.init();
+            VelocityEngine engine = getVelocityEngine();
             data.put(BREADCRUMB_LIST, breadcrumbBuilder.getForumBreadcrumb(topic));
             data.put(TOPIC_DTO, topicDto);
             data.put(EDIT_MODE, true);
@@ -316,8 +315,7 @@ public class QuestionsAndAnswersController implements ApplicationContextAware, P
             throws NotFoundException{
         Post answer = getPluginPostService().get(id);
         PostDto answerDto = PostDto.getDtoFor(answer);
-        VelocityEngine engine = new VelocityEngine(getProperties());
-        engine.init();
+        VelocityEngine engine = getVelocityEngine();
         Map<String, Object> data = getDefaultModel(request);
         data.put(QEUSTION_TITLE, answer.getTopic().getTitle());
         data.put(POST_DTO, answerDto);
@@ -345,8 +343,7 @@ public class QuestionsAndAnswersController implements ApplicationContextAware, P
         Post answer = getPluginPostService().get(id);
         Map<String, Object> data = getDefaultModel(request);
         if (result.hasErrors()) {
-            VelocityEngine engine = new VelocityEngine(getProperties());
-            engine.init();
+            VelocityEngine engine = getVelocityEngine();
             data.put(QEUSTION_TITLE, answer.getTopic().getTitle());
             data.put(POST_DTO, postDto);
             data.put(RESULT, result);
@@ -379,8 +376,7 @@ public class QuestionsAndAnswersController implements ApplicationContextAware, P
         //We can't provide limitation properly without database-level locking
         if (result.hasErrors() || LIMIT_OF_POSTS_VALUE <= topic.getPosts().size() - 1) {
             Map<String, Object> data = getDefaultModel(request);
-            VelocityEngine engine = new VelocityEngine(getProperties());
-            engine.init();
+            VelocityEngine engine = getVelocityEngine();
             data.put(QUESTION, topic);
             data.put(POST_PAGE, new PageImpl<>(topic.getPosts()));
             data.put(BREADCRUMB_LIST, breadcrumbBuilder.getForumBreadcrumb(topic));
@@ -534,9 +530,8 @@ public class QuestionsAndAnswersController implements ApplicationContextAware, P
      */
     private List<Post> getSortedPosts(List<Post> posts) {
         List<Post> result = new ArrayList<>(posts);
-        Post question = result.remove(0);
-        Collections.sort(result, new PostComparator());
-        result.add(0, question);
+        // question always goes first, only answers are sorted
+        Collections.sort(result.subList(1, result.size()), POST_COMPARATOR);
         return result;
     }
 
@@ -589,6 +584,34 @@ public class QuestionsAndAnswersController implements ApplicationContextAware, P
         this.applicationContext = applicationContext;
     }
 
+    /**
+     * Gets velocity engine shared by all the requests to the plugin. Engine caches parsed templates, so jars
+     * with templates are read only once.
+     *
+     * @return initialized velocity engine
+     */
+    VelocityEngine getVelocityEngine() {
+        VelocityEngine engine = velocityEngine;
+        if (engine == null) {
+            synchronized (this) {
+                engine = velocityEngine;
+                if (engine == null) {
+                    engine = new VelocityEngine(getProperties());
+                    engine.init();
+                    velocityEngine = engine;
+                }
+            }
+        }
+        return engine;
+    }
+
+    /**
+     * Drops velocity engine together with cached templates, new one will be created on the next request.
+     */
+    public synchronized void releaseVelocityEngine() {
+        velocityEngine = null;
+    }
+
     /**
      * Gets properties of velocity engine
      *
@@ -602,6 +625,9 @@ public class QuestionsAndAnswersController implements ApplicationContextAware, P
         jars.add("jar:file:" + this.getClass().getProtectionDomain().getCodeSource().getLocation().getPath());
         jars.add("jar:file:" + apiPath);
         properties.put("jar.resource.loader.path", jars);
+        properties.put("jar.resource.loader.cache", "true");
+        // templates can't change until the plugin jar is replaced, and then another engine is created
+        properties.put("jar.resource.loader.modificationCheckInterval", "0");
         properties.put("runtime.log.logsystem.class", "org.apache.velocity.runtime.log.NullLogSystem");
         return properties;
     }
@@ -629,8 +655,11 @@ public class QuestionsAndAnswersController implements ApplicationContextAware, P
     /**
      * {@inheritDoc}
      */
-    public void setApiPath(String apiPath) {
-        this.apiPath = apiPath;
+    public synchronized void setApiPath(String apiPath) {
+        if (!StringUtils.equals(this.apiPath, apiPath)) {
+            this.apiPath = apiPath;
+            velocityEngine = null;
+        }
     }
 
     /**
@@ -189,4 +189,11 @@ public class QuestionsAndAnswersPluginTest {
 
         assertEquals(plugin.getTopicType(), QuestionsAndAnswersPlugin.TOPIC_TYPE);
     }
+
+    @Test
+    public void pluginShouldHaveTheOnlyController() {
+        QuestionsAndAnswersPlugin plugin = new QuestionsAndAnswersPlugin();
+
+        assertSame(plugin.getController(), plugin.getController());
+    }
 }
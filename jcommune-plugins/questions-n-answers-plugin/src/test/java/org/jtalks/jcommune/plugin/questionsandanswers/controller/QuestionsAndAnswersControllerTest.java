@@ -50,6 +50,8 @@ import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 /**
@@ -664,6 +666,33 @@ public class QuestionsAndAnswersControllerTest {
         controller.canPost(1L);
     }
 
+    @Test
+    public void velocityEngineShouldBeSharedBetweenRequests() {
+        VelocityEngine engine = controller.getVelocityEngine();
+
+        assertSame(controller.getVelocityEngine(), engine);
+    }
+
+    @Test
+    public void velocityEngineShouldBeRecreatedIfApiPathIsChanged() {
+        controller.setApiPath("api.jar");
+        VelocityEngine engine = controller.getVelocityEngine();
+
+        controller.setApiPath("api.jar");
+        assertSame(controller.getVelocityEngine(), engine);
+        controller.setApiPath("another-api.jar");
+        assertNotSame(controller.getVelocityEngine(), engine);
+    }
+
+    @Test
+    public void releasedVelocityEngineShouldBeRecreated() {
+        VelocityEngine engine = controller.getVelocityEngine();
+
+        controller.releaseVelocityEngine();
+
+        assertNotSame(controller.getVelocityEngine(), engine);
+    }
+
     private Post getPostWithNotRemovedComments(int numberOfComments) {
         Post post = new Post(null, null);
         for (int i = 0; i < numberOfComments; i ++) {
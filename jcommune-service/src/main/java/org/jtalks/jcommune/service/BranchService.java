@@ -65,13 +65,20 @@ public interface BranchService extends EntityService<Branch> {
     List<Branch> getAvailableBranchesInSection(long sectionId, long currentTopicId) throws NotFoundException;
     
     /**
-     * Fills the statistical information for each branch from the list:
-     * 1)count of topics in the branch
-     * 2)count of posts in the branch
+     * Fills the statistical information for each branch from the list which is
+     * not stored in the branch itself, currently it's the last post in the branch.
+     * Counts of topics and posts are stored in the branch and are not recalculated here.
      *  
      * @param branches list of branches
      */
     void fillStatisticInfo(List<org.jtalks.common.model.entity.Branch> branches);
+
+    /**
+     * Repairs stored counts of topics and posts in branches and topics along with
+     * the date of the last post in branches, if they drifted from the actual data.
+     * Invoked by timer.
+     */
+    void reconcileStatisticInfo();
     
     /**
      * Deletes all topics in this branch and recalculates user posts.
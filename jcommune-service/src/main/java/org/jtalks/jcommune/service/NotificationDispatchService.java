@@ -0,0 +1,35 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service;
+
+/**
+ * Sends notifications which were saved to the outbox when subscribed entities were changed.
+ *
+ * @see org.jtalks.jcommune.service.nontransactional.NotificationService
+ */
+public interface NotificationDispatchService {
+
+    /**
+     * Sends the oldest notifications from the outbox which aren't being sent by other nodes,
+     * removes sent ones from it and keeps failed ones to retry them later.
+     */
+    void dispatchQueuedNotifications();
+
+    /**
+     * Removes notifications which failed to be sent too many times from the outbox,
+     * after they were kept there for a while to let administrators look into failures.
+     */
+    void purgeExhaustedNotifications();
+}
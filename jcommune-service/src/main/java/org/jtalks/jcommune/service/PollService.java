@@ -28,7 +28,7 @@ import java.util.List;
  */
 public interface PollService extends EntityService<Poll> {
     /**
-     * Adds one vote for all selected options of poll.
+     * Adds one vote for all selected options of poll. User can vote in the poll only once.
      *
      * @param pollId        id of a poll
      * @param selectedOptionsIds id of selected options of a poll
@@ -36,6 +36,14 @@ public interface PollService extends EntityService<Poll> {
      */
     Poll vote(Long pollId, List<Long> selectedOptionsIds);
 
+    /**
+     * Checks if the current user has already voted in the poll.
+     *
+     * @param poll poll to check
+     * @return {@code true} if the current user has voted, always {@code false} for anonymous user
+     */
+    boolean isVotedByCurrentUser(Poll poll);
+
     /**
      * Save {@link org.jtalks.jcommune.model.entity.Poll} to database.
      * @param poll poll to save.
@@ -15,6 +15,7 @@
 package org.jtalks.jcommune.service;
 
 
+import org.jtalks.jcommune.model.dto.PostsPageBoundary;
 import org.jtalks.jcommune.model.entity.*;
 import org.jtalks.jcommune.plugin.api.exceptions.NotFoundException;
 import org.springframework.data.domain.Page;
@@ -77,6 +78,17 @@ public interface PostService extends EntityService<Post> {
      */
     Page<Post> getPosts(Topic topic, String page);
 
+    /**
+     * Get posts of the topic page next to the boundary post of the neighbouring page, this lets to not skip posts
+     * of all the previous pages.
+     *
+     * @param topic    for this topic we will find posts
+     * @param page     page number, for which we will find posts
+     * @param boundary post on the boundary of the neighbouring page or {@code null} if it's not known
+     * @return object that contains posts for one page and information for pagination
+     */
+    Page<Post> getPosts(Topic topic, String page, PostsPageBoundary boundary);
+
     /**
      * Get the last post, that was posted in a topic of branch.
      *
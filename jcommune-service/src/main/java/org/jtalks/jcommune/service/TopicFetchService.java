@@ -15,6 +15,7 @@
 package org.jtalks.jcommune.service;
 
 import org.jtalks.jcommune.model.entity.Branch;
+import org.jtalks.jcommune.model.dto.IndexingProgress;
 import org.jtalks.jcommune.model.entity.Topic;
 import org.jtalks.jcommune.plugin.api.exceptions.NotFoundException;
 import org.springframework.data.domain.Page;
@@ -35,6 +36,12 @@ public interface TopicFetchService extends EntityService<Topic> {
      */
     Topic getTopicSilently(Long id) throws NotFoundException;
 
+    /**
+     * Writes views of topics counted in memory since the previous invocation to
+     * the database. Invoked by timer and on application shutdown.
+     */
+    void flushPendingViews();
+
     /**
      * Get topics in the branch.
      *
@@ -92,8 +99,16 @@ public interface TopicFetchService extends EntityService<Topic> {
      * Indexing topics from the database.
      * This functionality is required either when data exists in the database,
      * but the index doesn't contain this data or the index is re-created.
+     * Index is rebuilt in background, so this method returns immediately.
      */
     void rebuildSearchIndex();
+
+    /**
+     * Gets progress of the latest rebuilding of the search index.
+     *
+     * @return progress of rebuilding of the search index
+     */
+    IndexingProgress getSearchIndexingProgress();
     
     /**
      * Check if user has given permission. Throws 
@@ -19,6 +19,8 @@ import org.jtalks.jcommune.model.entity.Post;
 import org.jtalks.jcommune.model.entity.Topic;
 import org.jtalks.jcommune.plugin.api.exceptions.NotFoundException;
 
+import java.util.Collection;
+
 /**
  * This interface should have methods which give us more abilities in manipulating Topic persistent entity.
  *
@@ -85,6 +87,16 @@ public interface TopicModificationService {
      */
     void deleteTopicSilent(long topicId) throws NotFoundException;
 
+    /**
+     * Deletes topics with bulk statements together with all their content. Does not send any notification,
+     * counters of branches and their last posts are not updated. Intended to be used by other services to
+     * delete a lot of topics at once, e.g. to clear a branch.
+     *
+     * @param topicIds identifiers of topics to delete
+     * @return number of deleted topics
+     */
+    int deleteTopicsSilent(Collection<Long> topicIds);
+
     /**
      * Moves topic to another branch.
      *
@@ -37,7 +37,9 @@ import java.util.regex.Pattern;
  */
 public class BBForeignLinksPostprocessor implements TextPostProcessor {
 
-    private static final String URL_PATTERN = "(<a .*?href=(\"|').*?(\"|')|<img .*?src=(\"|').*?(\"|'))";
+    /** Links are post-processed within each request as the result depends on the server name */
+    private static final Pattern URL_PATTERN =
+            Pattern.compile("(<a .*?href=(\"|').*?(\"|')|<img .*?src=(\"|').*?(\"|'))", Pattern.DOTALL);
 
     /**
      * Process incoming text with adding prefix "/out" to foreign links. This prefix
@@ -53,8 +55,7 @@ public class BBForeignLinksPostprocessor implements TextPostProcessor {
 
 
     private String addPrefixToForeignLinks(String decodedText, String serverName) {
-        Pattern linkPattern = Pattern.compile(URL_PATTERN, Pattern.DOTALL);
-        Matcher linkMatcher = linkPattern.matcher(decodedText);
+        Matcher linkMatcher = URL_PATTERN.matcher(decodedText);
         String href;
         String encoded;
         while (linkMatcher.find()) {
@@ -45,7 +45,8 @@ import java.util.regex.Pattern;
  * @author Evgeny Kapinos
  * @see <a href="http://jira.jtalks.org/browse/JC-1261">JIRA</a> for high-level details.
  */
-public class BbCodeReviewProcessor extends TextProcessorAdapter implements TextProcessor, TextPostProcessor {
+public class BbCodeReviewProcessor extends TextProcessorAdapter
+        implements TextProcessor, TextPostProcessor, RequestDependentPreprocessor {
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     private static final String CODE_JAVA_BBCODE_END_REPLACEMENT = "[-code]";
@@ -120,6 +121,16 @@ public class BbCodeReviewProcessor extends TextProcessorAdapter implements TextP
         return removeTemporaryReplacementSubstitutionFromDecodedText(bbDecodedText, replaceHistoryList);
     }
 
+    /**
+     * Code review posts are processed only if it's stated by the request attribute.
+     *
+     * @return {@code true} if a code review post is being rendered within the current request
+     */
+    @Override
+    public boolean isAppliedToCurrentRequest() {
+        return isCodeReviewPost(getServletRequest());
+    }
+
     /**
      * Gets current request
      *
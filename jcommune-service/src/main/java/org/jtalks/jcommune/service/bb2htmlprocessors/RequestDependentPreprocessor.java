@@ -0,0 +1,27 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.bb2htmlprocessors;
+
+/**
+ * bb2html pre processor which changes the text only for some requests, e.g. depending on request attributes. Text
+ * pre-processed for such a request can't be reused for the others.
+ */
+public interface RequestDependentPreprocessor {
+
+    /**
+     * @return {@code true} if the processor changes the text being processed within the current request
+     */
+    boolean isAppliedToCurrentRequest();
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.dto;
+
+import org.apache.commons.lang.ObjectUtils;
+import org.jtalks.common.model.entity.Component;
+import org.jtalks.jcommune.model.entity.Banner;
+import org.jtalks.jcommune.model.entity.ExternalLink;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the data shown on every page of the forum around the content: banners,
+ * external links and component of the forum. It's shared between requests, so views must not change it.
+ */
+public class ForumChrome {
+    private final Map<String, Banner> banners;
+    private final List<ExternalLink> externalLinks;
+    private final Component forumComponent;
+
+    /**
+     * @param banners        all the banners of the forum
+     * @param externalLinks  all the external links of the forum
+     * @param forumComponent component of the forum, may be {@code null} if forum isn't configured yet
+     */
+    public ForumChrome(Collection<Banner> banners, List<ExternalLink> externalLinks, Component forumComponent) {
+        Map<String, Banner> bannersByPosition = new HashMap<>();
+        for (Banner banner : banners) {
+            bannersByPosition.put(ObjectUtils.toString(banner.getPositionOnPage()), banner);
+        }
+        this.banners = Collections.unmodifiableMap(bannersByPosition);
+        this.externalLinks = Collections.unmodifiableList(new ArrayList<>(externalLinks));
+        this.forumComponent = forumComponent;
+    }
+
+    /**
+     * @return banners of the forum by their positions on page
+     */
+    public Map<String, Banner> getBanners() {
+        return banners;
+    }
+
+    /**
+     * @return external links of the forum
+     */
+    public List<ExternalLink> getExternalLinks() {
+        return externalLinks;
+    }
+
+    /**
+     * @return component of the forum or {@code null} if forum isn't configured yet
+     */
+    public Component getForumComponent() {
+        return forumComponent;
+    }
+}
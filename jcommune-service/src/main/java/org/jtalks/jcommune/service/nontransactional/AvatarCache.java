@@ -0,0 +1,216 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.nontransactional;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.jtalks.jcommune.model.utils.CacheInvalidation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps avatars of the users in the local file system, so that they are served without loading users
+ * and their avatars from the database. Files are named by the hash of their content, thus users with the
+ * same avatar (e.g. default one) share a file and the hash can be used as an ETag.
+ * <p/>
+ * Only the index of the cached avatars is kept in memory, it's rebuilt lazily after restart.
+ * <p/>
+ * Avatar may be changed on another node of the cluster, so cached avatars expire after a short time.
+ * Pages put the version of the avatar into its URL, so newer avatar is loaded right away anyway.
+ */
+public class AvatarCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AvatarCache.class);
+    private static final String DEFAULT_FOLDER_NAME = "jcommune-avatars";
+    private static final long TIME_TO_LIVE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private final File cacheFolder;
+    private final ConcurrentMap<Long, CachedAvatar> avatars = new ConcurrentHashMap<>();
+
+    /**
+     * @param cacheFolderPath folder to keep avatar files in, if it's empty then temporary folder is used
+     */
+    public AvatarCache(String cacheFolderPath) {
+        if (StringUtils.isBlank(cacheFolderPath)) {
+            this.cacheFolder = new File(System.getProperty("java.io.tmpdir"), DEFAULT_FOLDER_NAME);
+        } else {
+            this.cacheFolder = new File(cacheFolderPath);
+        }
+    }
+
+    /**
+     * Gets cached avatar of the user.
+     *
+     * @param userId id of the user
+     * @return cached avatar or {@code null} if it wasn't cached yet, expired or was removed from the file system
+     */
+    public CachedAvatar get(long userId) {
+        CachedAvatar avatar = avatars.get(userId);
+        if (avatar != null && (currentTimeMillis() - avatar.cachedAt > TIME_TO_LIVE_MILLIS
+                || !avatar.file.isFile())) {
+            avatars.remove(userId, avatar);
+            return null;
+        }
+        return avatar;
+    }
+
+    /**
+     * Caches avatar of the user. If avatar can't be written to the file system it's not cached but
+     * still returned, so that it can be served.
+     *
+     * @param userId  id of the user
+     * @param version time of the last modification of the avatar in milliseconds
+     * @param content avatar itself
+     * @return cached avatar
+     */
+    public CachedAvatar put(long userId, long version, byte[] content) {
+        String hash = DigestUtils.shaHex(content);
+        File file = new File(cacheFolder, hash);
+        try {
+            if (!file.isFile()) {
+                writeAtomically(file, content);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Failed to cache avatar of the user [" + userId + "] in " + cacheFolder, e);
+            return new CachedAvatar(hash, version, content.length, file, content, currentTimeMillis());
+        }
+        CachedAvatar avatar = new CachedAvatar(hash, version, content.length, file, null, currentTimeMillis());
+        avatars.put(userId, avatar);
+        return avatar;
+    }
+
+    /**
+     * Removes cached avatar of the user, should be called when user changes avatar.
+     *
+     * @param userId id of the user
+     * @see CacheInvalidation#nowAndAfterCompletion(Runnable)
+     */
+    public void invalidate(final long userId) {
+        CacheInvalidation.nowAndAfterCompletion(new Runnable() {
+            @Override
+            public void run() {
+                avatars.remove(userId);
+            }
+        });
+    }
+
+    /**
+     * Needed for tests
+     *
+     * @return current time in milliseconds
+     */
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Writes file via temporary one, so that concurrent readers never see partially written avatar.
+     *
+     * @param file    file to write
+     * @param content content of the file
+     * @throws IOException if file can't be written
+     */
+    private void writeAtomically(File file, byte[] content) throws IOException {
+        FileUtils.forceMkdir(cacheFolder);
+        File temporaryFile = File.createTempFile(file.getName(), ".tmp", cacheFolder);
+        try {
+            FileUtils.writeByteArrayToFile(temporaryFile, content);
+            if (!temporaryFile.renameTo(file) && !file.isFile()) {
+                throw new IOException("Failed to rename " + temporaryFile + " to " + file);
+            }
+        } finally {
+            FileUtils.deleteQuietly(temporaryFile);
+        }
+    }
+
+    /**
+     * Avatar kept in the cache.
+     */
+    public static class CachedAvatar {
+        private final String hash;
+        private final long version;
+        private final int length;
+        private final File file;
+        private final byte[] content;
+        private final long cachedAt;
+
+        /**
+         * @param hash     hash of the avatar content
+         * @param version  time of the last modification of the avatar in milliseconds
+         * @param length   size of the avatar in bytes
+         * @param file     file the avatar is kept in
+         * @param content  avatar itself if it couldn't be written to the file
+         * @param cachedAt time when the avatar was cached in milliseconds
+         */
+        CachedAvatar(String hash, long version, int length, File file, byte[] content, long cachedAt) {
+            this.hash = hash;
+            this.version = version;
+            this.length = length;
+            this.file = file;
+            this.content = content;
+            this.cachedAt = cachedAt;
+        }
+
+        /**
+         * @return hash of the avatar content
+         */
+        public String getHash() {
+            return hash;
+        }
+
+        /**
+         * @return time of the last modification of the avatar in milliseconds
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * @return size of the avatar in bytes
+         */
+        public int getLength() {
+            return length;
+        }
+
+        /**
+         * Writes avatar to the given stream.
+         *
+         * @param output stream to write avatar to
+         * @throws IOException if avatar can't be read or written
+         */
+        public void writeTo(OutputStream output) throws IOException {
+            if (content != null) {
+                output.write(content);
+            } else {
+                InputStream input = new FileInputStream(file);
+                try {
+                    IOUtils.copy(input, output);
+                } finally {
+                    IOUtils.closeQuietly(input);
+                }
+            }
+        }
+    }
+}
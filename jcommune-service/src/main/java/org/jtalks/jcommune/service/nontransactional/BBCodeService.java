@@ -14,13 +14,19 @@
  */
 package org.jtalks.jcommune.service.nontransactional;
 
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
 import org.apache.commons.lang.Validate;
 import org.jtalks.jcommune.model.entity.JCUser;
+import org.jtalks.jcommune.model.entity.Post;
+import org.jtalks.jcommune.model.utils.CacheInvalidation;
 import org.jtalks.jcommune.plugin.api.service.PluginBbCodeService;
+import org.jtalks.jcommune.service.bb2htmlprocessors.RequestDependentPreprocessor;
 import org.jtalks.jcommune.service.bb2htmlprocessors.TextPostProcessor;
 import org.kefirsf.bb.BBProcessorFactory;
 import org.kefirsf.bb.TextProcessor;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -44,6 +50,14 @@ public class BBCodeService implements PluginBbCodeService {
      * codes has been processed.
      */
     private final List<TextPostProcessor> postprocessors = new ArrayList<>();
+    /**
+     * Optional cache of rendered posts, keyed by post id. Each element is stamped with the post modification time, so
+     * stale elements are never returned even if explicit eviction was missed (e.g. on another cluster node). Only the
+     * request independent part of rendering is cached, post-processors are applied within each request.
+     */
+    private Ehcache renderedPostsCache;
+    /** Posts which render into larger html are not cached to keep cache memory footprint predictable */
+    private int maxCachedHtmlLength = 64 * 1024;
 
     /**
      * Quotes text given as a valid BB-coded quote. Such a quotes are rendered automatically in posts or forum messages.
@@ -70,14 +84,102 @@ public class BBCodeService implements PluginBbCodeService {
      * @return the same text with HTML markup to be shown
      */
     public String convertBbToHtml(String bbEncodedText) {
+        return postProcess(preProcessAndConvert(bbEncodedText));
+    }
+
+    /**
+     * Converts content of the post into HTML the same way as {@link #convertBbToHtml(String)} does, but reuses result
+     * of the previous conversion if the post wasn't modified since then. Post-processors are applied each time as
+     * their result depends on the current request, e.g. on the server name.
+     *
+     * @param post post to render content of
+     * @return content of the post with HTML markup to be shown
+     */
+    public String convertPostToHtml(Post post) {
+        if (renderedPostsCache == null || post.getId() == 0 || isPreProcessingRequestDependent()) {
+            return convertBbToHtml(post.getPostContent());
+        }
+        long lastTouched = post.getLastTouchedDate().getMillis();
+        Element element = renderedPostsCache.get(post.getId());
+        if (element != null) {
+            RenderedPost renderedPost = (RenderedPost) element.getObjectValue();
+            if (renderedPost.lastTouched == lastTouched) {
+                return postProcess(renderedPost.html);
+            }
+        }
+        String html = preProcessAndConvert(post.getPostContent());
+        if (html.length() <= maxCachedHtmlLength) {
+            renderedPostsCache.put(new Element(post.getId(), new RenderedPost(lastTouched, html)));
+        }
+        return postProcess(html);
+    }
+
+    /**
+     * Converts text with pre-processors and BB2HTML converter, result depends only on the text and the forum data
+     * (like existence of mentioned users) and thus can be cached.
+     */
+    private String preProcessAndConvert(String bbEncodedText) {
         for (TextProcessor preprocessor : preprocessors) {
             bbEncodedText = preprocessor.process(bbEncodedText);
         }
-        bbEncodedText = processor.process(bbEncodedText);
+        return processor.process(bbEncodedText);
+    }
+
+    private String postProcess(String html) {
         for (TextPostProcessor postpreprocessor : postprocessors) {
-            bbEncodedText = postpreprocessor.postProcess(bbEncodedText);
+            html = postpreprocessor.postProcess(html);
+        }
+        return html;
+    }
+
+    /**
+     * @return {@code true} if result of pre-processing within the current request differs from the one of other
+     *         requests, e.g. if code review is being rendered
+     */
+    private boolean isPreProcessingRequestDependent() {
+        for (TextProcessor preprocessor : preprocessors) {
+            if (preprocessor instanceof RequestDependentPreprocessor
+                    && ((RequestDependentPreprocessor) preprocessor).isAppliedToCurrentRequest()) {
+                return true;
+            }
         }
-        return bbEncodedText;
+        return false;
+    }
+
+    /**
+     * Removes rendered content of the post from cache. Should be called each time post is updated or removed.
+     *
+     * @param post post to evict rendered content of
+     */
+    public void evictRenderedPost(Post post) {
+        if (renderedPostsCache != null) {
+            renderedPostsCache.remove(post.getId());
+        }
+    }
+
+    /**
+     * Removes rendered content of all the posts from cache. Should be called each time users are created or removed
+     * as links to profiles of mentioned users are rendered only for existing users.
+     */
+    public void evictAllRenderedPosts() {
+        if (renderedPostsCache != null) {
+            CacheInvalidation.nowAndAfterCompletion(new Runnable() {
+                @Override
+                public void run() {
+                    renderedPostsCache.removeAll();
+                }
+            });
+        }
+    }
+
+    /** @param renderedPostsCache cache to store rendered posts in, if not set posts are rendered each time */
+    public void setRenderedPostsCache(Ehcache renderedPostsCache) {
+        this.renderedPostsCache = renderedPostsCache;
+    }
+
+    /** @param maxCachedHtmlLength length of rendered post in chars starting from which it won't be cached */
+    public void setMaxCachedHtmlLength(int maxCachedHtmlLength) {
+        this.maxCachedHtmlLength = maxCachedHtmlLength;
     }
 
     /** @param preprocessors objects that process input text from users post before the actual bb-converting is
@@ -105,4 +207,19 @@ public class BBCodeService implements PluginBbCodeService {
     public String stripBBCodes(String bbCode) {
         return stripBBCodesProcessor.process(bbCode);
     }
+
+    /**
+     * Post content converted to HTML but not post-processed yet along with the post modification time it was
+     * converted for. Serializable to allow
+     * overflowing of the cache to disk.
+     */
+    private static class RenderedPost implements Serializable {
+        private final long lastTouched;
+        private final String html;
+
+        RenderedPost(long lastTouched, String html) {
+            this.lastTouched = lastTouched;
+            this.html = html;
+        }
+    }
 }
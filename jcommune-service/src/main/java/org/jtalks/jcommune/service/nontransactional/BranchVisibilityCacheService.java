@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.nontransactional;
+
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import org.jtalks.common.model.entity.Group;
+import org.jtalks.jcommune.model.dao.TopicDao;
+import org.jtalks.jcommune.model.entity.JCUser;
+import org.jtalks.jcommune.model.utils.CacheInvalidation;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Keeps identifiers of branches with VIEW_TOPICS permission for each set of user groups,
+ * so that topic lists and search don't have to evaluate permissions of the user on every request.
+ * All the users from the same groups share one entry, anonymous users share their own entry.
+ * <p/>
+ * Entries are dropped when permissions are changed with
+ * {@link org.jtalks.jcommune.service.security.PermissionManager}, the cache replicates removals to the
+ * other nodes of the cluster. Permissions may be also changed by other applications (e.g. Poulpe),
+ * so entries expire after a short time anyway.
+ *
+ * @see TopicDao#getAllowedBranchesIds(JCUser)
+ */
+public class BranchVisibilityCacheService {
+    private static final String ANONYMOUS_KEY = "anonymous";
+
+    private final Ehcache branchVisibilityCache;
+    private final TopicDao topicDao;
+
+    /**
+     * @param branchVisibilityCache cache of visible branch identifiers by groups of user
+     * @param topicDao              to get visible branches when they are not cached
+     */
+    public BranchVisibilityCacheService(Ehcache branchVisibilityCache, TopicDao topicDao) {
+        this.branchVisibilityCache = branchVisibilityCache;
+        this.topicDao = topicDao;
+    }
+
+    /**
+     * Gets identifiers of branches the user is allowed to see topics in.
+     *
+     * @param user user to get visible branches for
+     * @return unmodifiable list of branch identifiers sorted in ascending order
+     */
+    @SuppressWarnings("unchecked")
+    public List<Long> getVisibleBranchIds(JCUser user) {
+        String key = getKey(user);
+        Element element = branchVisibilityCache.get(key);
+        if (element != null) {
+            return (List<Long>) element.getObjectValue();
+        }
+        List<Long> branchIds = Collections.unmodifiableList(topicDao.getAllowedBranchesIds(user));
+        branchVisibilityCache.put(new Element(key, branchIds));
+        return branchIds;
+    }
+
+    /**
+     * Drops visible branches of all the groups, should be called when
+     * VIEW_TOPICS permission of any branch is changed.
+     *
+     * @see CacheInvalidation#nowAndAfterCompletion(Runnable)
+     */
+    public void invalidate() {
+        CacheInvalidation.nowAndAfterCompletion(new Runnable() {
+            @Override
+            public void run() {
+                branchVisibilityCache.removeAll();
+            }
+        });
+    }
+
+    /**
+     * Builds key from sorted identifiers of user groups, so that any user of the
+     * same groups gets the same entry regardless of the order of groups.
+     *
+     * @param user user to build key for
+     * @return key of visible branches entry
+     */
+    private String getKey(JCUser user) {
+        if (user.isAnonymous()) {
+            return ANONYMOUS_KEY;
+        }
+        SortedSet<Long> groupIds = new TreeSet<>();
+        for (Group group : user.getGroups()) {
+            groupIds.add(group.getId());
+        }
+        return groupIds.toString();
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.nontransactional;
+
+import org.jtalks.jcommune.model.dao.BannerDao;
+import org.jtalks.jcommune.model.dao.ComponentDao;
+import org.jtalks.jcommune.model.dao.ExternalLinkDao;
+import org.jtalks.jcommune.model.utils.CacheInvalidation;
+import org.jtalks.jcommune.service.dto.ForumChrome;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps {@link ForumChrome} in memory, so that banners, external links and component of the forum
+ * aren't loaded for every page. The snapshot is rebuilt on the first request after it's invalidated
+ * by the services changing this data. Component may be also changed by other applications (e.g. Poulpe),
+ * so the snapshot expires after a short time anyway.
+ */
+public class ForumChromeCacheService {
+    private static final long SNAPSHOT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private final BannerDao bannerDao;
+    private final ExternalLinkDao externalLinkDao;
+    private final ComponentDao componentDao;
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    /**
+     * @param bannerDao       to load banners of the forum
+     * @param externalLinkDao to load external links of the forum
+     * @param componentDao    to load component of the forum
+     */
+    public ForumChromeCacheService(BannerDao bannerDao, ExternalLinkDao externalLinkDao, ComponentDao componentDao) {
+        this.bannerDao = bannerDao;
+        this.externalLinkDao = externalLinkDao;
+        this.componentDao = componentDao;
+    }
+
+    /**
+     * Gets the snapshot of banners, external links and component of the forum.
+     *
+     * @return current snapshot, it's rebuilt if it was invalidated or expired
+     */
+    public ForumChrome getForumChrome() {
+        long currentVersion = version.get();
+        long now = currentTimeMillis();
+        Snapshot current = snapshot;
+        if (current != null && current.version == currentVersion && now - current.creationTime < SNAPSHOT_TTL_MILLIS) {
+            return current.chrome;
+        }
+        ForumChrome chrome = new ForumChrome(bannerDao.getAll(), externalLinkDao.getAll(),
+                componentDao.getComponent());
+        //if snapshot is invalidated while it's being built, it's stored with the old version and rebuilt next time
+        snapshot = new Snapshot(chrome, currentVersion, now);
+        return chrome;
+    }
+
+    /**
+     * Drops the snapshot, should be called when banners, external links or component of the forum are changed.
+     *
+     * @see CacheInvalidation#nowAndAfterCompletion(Runnable)
+     */
+    public void invalidate() {
+        CacheInvalidation.nowAndAfterCompletion(new Runnable() {
+            @Override
+            public void run() {
+                version.incrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Needed for tests
+     *
+     * @return current time in milliseconds
+     */
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Snapshot together with the version it was built for.
+     */
+    private static class Snapshot {
+        private final ForumChrome chrome;
+        private final long version;
+        private final long creationTime;
+
+        Snapshot(ForumChrome chrome, long version, long creationTime) {
+            this.chrome = chrome;
+            this.version = version;
+            this.creationTime = creationTime;
+        }
+    }
+}
@@ -42,14 +42,9 @@ public class ImageConverter {
      * of IMG HTML tag. Used in AJAX avatar preview.
      */
     protected static final String HTML_SRC_TAG_PREFIX = "data:image/%s;base64,";
-    private static final int ALPHA_CHANNEL_MASK = 0xFF000000;
-    private static final int RED_CHANNEL_MASK = 0x00FF0000;
-    private static final int GREEN_CHANNEL_MASK = 0x0000FF00;
-    private static final int BLUE_CHANNEL_MASK = 0x000000FF;
-    private static final int BIT = 8;
-    private static final int TWO_BITS = BIT * 2;
-    private static final int THREE_BITS = BIT * 3;
-    private static final int ARGB_BITS_COUNT = BIT * 4;
+    private static final int ARGB_BITS_COUNT = 32;
+    /** Tika facade is thread safe, and creating it loads the whole MIME types registry */
+    private static final Tika MIME_TYPE_DETECTOR = new Tika();
 
     /** In some cases (e.g. {@link ICOEncoder write() method}) we can't work with images
      * having width < 8, default accessing kept for testing
@@ -150,9 +145,8 @@ public class ImageConverter {
     public BufferedImage convertByteArrayToImage(byte[] bytes) throws ImageProcessException {
         BufferedImage result;
         BufferedInputStream bis = new BufferedInputStream(new ByteArrayInputStream(bytes));
-        Tika tika = new Tika();
         try {
-            String type = tika.detect(bis);
+            String type = detectMimeType(bis);
             if (type.contains(ImageService.ICO_TYPE)) {
                 result = ICODecoder.read(bis).get(0);
             } else {
@@ -236,82 +230,70 @@ public class ImageConverter {
     }
 
     /**
-     * Creates a <code>BufferedImage</code> from an <code>Image</code>. This method can
-     * function on a completely headless system. This especially includes Linux and Unix systems
-     * that do not have the X11 libraries installed, which are required for the AWT subsystem to
-     * operate. The resulting image will be smoothly scaled using bilinear filtering.
+     * Detects MIME type of the image by its content.
+     *
+     * @param input stream with the image, should support marks
+     * @return detected MIME type
+     * @throws IOException if stream can't be read
+     */
+    static String detectMimeType(InputStream input) throws IOException {
+        return MIME_TYPE_DETECTOR.detect(input);
+    }
+
+    /**
+     * Scales image to the given size with bilinear filtering. Java2D loops work right on the data buffers of
+     * the rasters, but bilinear filtering takes only 4 source pixels for every target one, so large images
+     * are halved step by step until they are less than twice as big as needed. Otherwise most of the source
+     * pixels would be skipped and the result would be noisy.
      *
      * @param source    The image to convert
+     * @param imageType int code RGB or ARGB
      * @param width     The desired image width
      * @param height    The desired image height
-     * @param imageType int code RGB or ARGB
      * @return bufferedImage The resized image
      */
     private BufferedImage createBufferedImage(BufferedImage source, int imageType, int width, int height) {
-        BufferedImage bufferedImage = new BufferedImage(width, height, imageType);
-
-        int sourceX;
-        int sourceY;
-
-        double scaleX = (double) width / source.getWidth();
-        double scaleY = (double) height / source.getHeight();
-
-        int x1;
-        int y1;
-
-        double xDiff;
-        double yDiff;
-
-        int rgb;
-        int rgb1;
-        int rgb2;
-
-        for (int y = 0; y < height; y++) {
-            sourceY = y * source.getHeight() / bufferedImage.getHeight();
-            yDiff = y / scaleY - sourceY;
-
-            for (int x = 0; x < width; x++) {
-                sourceX = x * source.getWidth() / bufferedImage.getWidth();
-                xDiff = x / scaleX - sourceX;
-
-                x1 = Math.min(source.getWidth() - 1, sourceX + 1);
-                y1 = Math.min(source.getHeight() - 1, sourceY + 1);
-
-                rgb1 = getRGBInterpolation(source.getRGB(sourceX, sourceY), source.getRGB(x1, sourceY), xDiff);
-                rgb2 = getRGBInterpolation(source.getRGB(sourceX, y1), source.getRGB(x1, y1), xDiff);
-
-                rgb = getRGBInterpolation(rgb1, rgb2, yDiff);
-
-                bufferedImage.setRGB(x, y, rgb);
-            }
-        }
+        BufferedImage result = source;
+        int stepWidth = source.getWidth();
+        int stepHeight = source.getHeight();
+        do {
+            stepWidth = nextStepSize(stepWidth, width);
+            stepHeight = nextStepSize(stepHeight, height);
+            result = drawScaled(result, imageType, stepWidth, stepHeight);
+        } while (stepWidth != width || stepHeight != height);
+        return result;
+    }
 
-        return bufferedImage;
+    /**
+     * @param size   current size of the image side
+     * @param target desired size of the image side
+     * @return size of the image side after the next scaling step
+     */
+    private static int nextStepSize(int size, int target) {
+        return (size > target * 2) ? size / 2 : target;
     }
 
     /**
-     * Makes rgb interpolation.
+     * Draws the whole image into the new one of the given size.
      *
-     * @param value1   first known value
-     * @param value2   second known value
-     * @param distance distance between values
-     * @return rgb an integer pixel in the ARGB color model
+     * @param source    image to draw
+     * @param imageType int code RGB or ARGB
+     * @param width     width of the new image
+     * @param height    height of the new image
+     * @return new image
      */
-    private int getRGBInterpolation(int value1, int value2, double distance) {
-        int alpha1 = (value1 & ALPHA_CHANNEL_MASK) >>> THREE_BITS;
-        int red1 = (value1 & RED_CHANNEL_MASK) >> TWO_BITS;
-        int green1 = (value1 & GREEN_CHANNEL_MASK) >> BIT;
-        int blue1 = (value1 & BLUE_CHANNEL_MASK);
-
-        int alpha2 = (value2 & ALPHA_CHANNEL_MASK) >>> THREE_BITS;
-        int red2 = (value2 & RED_CHANNEL_MASK) >> TWO_BITS;
-        int green2 = (value2 & GREEN_CHANNEL_MASK) >> BIT;
-        int blue2 = (value2 & BLUE_CHANNEL_MASK);
-
-        return ((int) (alpha1 * (1.0 - distance) + alpha2 * distance) << THREE_BITS)
-                | ((int) (red1 * (1.0 - distance) + red2 * distance) << TWO_BITS)
-                | ((int) (green1 * (1.0 - distance) + green2 * distance) << BIT)
-                | (int) (blue1 * (1.0 - distance) + blue2 * distance);
+    private static BufferedImage drawScaled(BufferedImage source, int imageType, int width, int height) {
+        BufferedImage result = new BufferedImage(width, height, imageType);
+        Graphics2D graphics = result.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            // source pixels replace transparent ones of the new image instead of being blended with them
+            graphics.setComposite(AlphaComposite.Src);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return result;
     }
 
 }
@@ -17,7 +17,6 @@ package org.jtalks.jcommune.service.nontransactional;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.Validate;
-import org.apache.tika.Tika;
 import org.jtalks.jcommune.model.entity.JCommuneProperty;
 import org.jtalks.jcommune.service.exceptions.ImageFormatException;
 import org.jtalks.jcommune.service.exceptions.ImageProcessException;
@@ -33,6 +32,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Service class for uploaded image related operations
@@ -48,6 +49,12 @@ public class ImageService {
      * user-friendly string with all valid image types
      */
     private static final String VALID_IMAGE_EXTENSIONS = "*.jpeg, *.jpg, *.gif, *.png, *.ico";
+    /**
+     * Decoded image takes several times more memory than uploaded bytes, so only a few of them are processed
+     * at the same time (by all the image services), others wait for their turn
+     */
+    private static final Semaphore PROCESSING_PERMITS = new Semaphore(Runtime.getRuntime().availableProcessors());
+    private static final long PROCESSING_PERMIT_TIMEOUT_SECONDS = 30;
 
     private ImageConverter imageConverter;
     private Base64Wrapper base64Wrapper;
@@ -101,14 +108,37 @@ public class ImageService {
      */
     public String preProcessAndEncodeInString64(byte[] bytes) throws ImageProcessException {
         Validate.notNull(bytes, "Incoming byte array cannot be null");
-        BufferedImage image = imageConverter.convertByteArrayToImage(bytes);
-        if (image == null) { // something went wrong during conversion
-            throw new ImageProcessException();
+        acquireProcessingPermit();
+        byte[] outputImage;
+        try {
+            BufferedImage image = imageConverter.convertByteArrayToImage(bytes);
+            if (image == null) { // something went wrong during conversion
+                throw new ImageProcessException();
+            }
+            outputImage = imageConverter.preprocessImage(image);
+        } finally {
+            PROCESSING_PERMITS.release();
         }
-        byte[] outputImage = imageConverter.preprocessImage(image);
         return base64Wrapper.encodeB64Bytes(outputImage);
     }
 
+    /**
+     * Waits until image can be processed without exceeding the number of images processed at the same time.
+     *
+     * @throws ImageProcessException if there was no turn to process image for too long or thread is interrupted
+     */
+    private void acquireProcessingPermit() throws ImageProcessException {
+        try {
+            if (!PROCESSING_PERMITS.tryAcquire(PROCESSING_PERMIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOGGER.warn("Image wasn't processed, too many images are being processed now");
+                throw new ImageProcessException();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ImageProcessException(e);
+        }
+    }
+
     /**
      * Validate file format
      *
@@ -132,10 +162,9 @@ public class ImageService {
      */
     public void validateImageFormat(byte[] bytes) throws ImageFormatException {
         Validate.notNull(bytes, "Incoming byte array cannot be null");
-        Tika tika = new Tika();
         InputStream input = new ByteArrayInputStream(bytes);
         try {
-            String type = tika.detect(input);
+            String type = ImageConverter.detectMimeType(input);
             if (!VALID_IMAGE_TYPES.contains(type)) {
                 LOGGER.debug("Wrong file extension. May be only {}", VALID_IMAGE_EXTENSIONS);
                 throw new ImageFormatException(VALID_IMAGE_EXTENSIONS);
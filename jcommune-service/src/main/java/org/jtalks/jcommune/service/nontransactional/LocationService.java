@@ -23,25 +23,35 @@ import org.springframework.security.core.session.SessionRegistry;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Stores and tracks user's location on the forum.
  * As for now  is mostly used to show who's browsing the topic/branch/etc.
+ * <p/>
+ * Viewers are indexed by location, so that getting viewers of the page doesn't depend on the number
+ * of users online. Viewers who logged out or didn't open any page for a long time are dropped lazily
+ * when viewers of their location are requested.
  *
  * @author Andrey Kluev
  */
 @Component
 public class LocationService implements PluginLocationService {
+    private static final long PRESENCE_EXPIRATION_MS = TimeUnit.MINUTES.toMillis(30);
+
     private UserService userService;
     private SessionRegistry sessionRegistry;
-    private Map<JCUser, String> registerUserMap = new ConcurrentHashMap<>();
+    private final ConcurrentMap<JCUser, Presence> presences = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Set<JCUser>> viewersByLocation = new ConcurrentHashMap<>();
 
     /**
      * @param userService     to figure out the current user
-     * @param sessionRegistry session registry to get all the users logged in
+     * @param sessionRegistry session registry to check if the users are still logged in
      */
     public LocationService(UserService userService, SessionRegistry sessionRegistry) {
         this.userService = userService;
@@ -58,21 +68,34 @@ public class LocationService implements PluginLocationService {
      *         there are no viewers or view tracking is not supported for this entity type
      */
     public List<JCUser> getUsersViewing(Entity entity) {
-        List<JCUser> viewList = new ArrayList<>();
+        String location = entity.getUuid();
         JCUser currentUser = userService.getCurrentUser();
         /**
          * This condition does not allow Anonymous add to the map of active users.
          */
         if (!currentUser.isAnonymous()) {
-            registerUserMap.put(currentUser, entity.getUuid());
+            moveUser(currentUser, location);
         }
 
-        for (Object o : sessionRegistry.getAllPrincipals()) {
-            JCUser user = (JCUser) o;
-            if (entity.getUuid().equals(registerUserMap.get(user))) {
-                viewList.add(user);
+        List<JCUser> viewList = new ArrayList<>();
+        Set<JCUser> viewers = viewersByLocation.get(location);
+        if (viewers == null) {
+            return viewList;
+        }
+        long now = currentTimeMillis();
+        for (JCUser viewer : viewers) {
+            Presence presence = presences.get(viewer);
+            if (presence == null || !presence.location.equals(location)) {
+                viewers.remove(viewer);
+            } else if (presence.isExpired(now) || !isOnline(viewer)) {
+                removeUser(viewer, presence);
+            } else {
+                viewList.add(viewer);
             }
         }
+        if (viewers.isEmpty()) {
+            viewersByLocation.remove(location, viewers);
+        }
         return viewList;
     }
 
@@ -82,6 +105,78 @@ public class LocationService implements PluginLocationService {
      * topic/branch viewer's list until explicitly added
      */
     public void clearUserLocation() {
-        registerUserMap.remove(userService.getCurrentUser());
+        JCUser currentUser = userService.getCurrentUser();
+        Presence presence = presences.get(currentUser);
+        if (presence != null) {
+            removeUser(currentUser, presence);
+        }
+    }
+
+    /**
+     * Needed for tests
+     *
+     * @return current time in milliseconds
+     */
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Moves user to the new location. If user is moved concurrently, it can be left in the viewers of
+     * the previous location for a while, such viewers are dropped when viewers of the location are requested.
+     *
+     * @param user     user to move
+     * @param location uuid of the entity user is viewing
+     */
+    private void moveUser(JCUser user, String location) {
+        Presence previous = presences.put(user, new Presence(location, currentTimeMillis()));
+        if (previous != null && !previous.location.equals(location)) {
+            Set<JCUser> previousViewers = viewersByLocation.get(previous.location);
+            if (previousViewers != null) {
+                previousViewers.remove(user);
+            }
+        }
+        Set<JCUser> viewers;
+        do {
+            viewers = viewersByLocation.get(location);
+            if (viewers == null) {
+                Set<JCUser> newViewers = Collections.newSetFromMap(new ConcurrentHashMap<JCUser, Boolean>());
+                viewers = viewersByLocation.putIfAbsent(location, newViewers);
+                if (viewers == null) {
+                    viewers = newViewers;
+                }
+            }
+            viewers.add(user);
+            // empty set of viewers may be removed concurrently, then user should be added to the new one
+        } while (viewersByLocation.get(location) != viewers);
+    }
+
+    private void removeUser(JCUser user, Presence presence) {
+        presences.remove(user, presence);
+        Set<JCUser> viewers = viewersByLocation.get(presence.location);
+        if (viewers != null) {
+            viewers.remove(user);
+        }
+    }
+
+    private boolean isOnline(JCUser user) {
+        return !sessionRegistry.getAllSessions(user, false).isEmpty();
+    }
+
+    /**
+     * Location of the user together with the time user was seen there.
+     */
+    private static class Presence {
+        private final String location;
+        private final long lastSeenTime;
+
+        Presence(String location, long lastSeenTime) {
+            this.location = location;
+            this.lastSeenTime = lastSeenTime;
+        }
+
+        boolean isExpired(long currentTime) {
+            return currentTime - lastSeenTime >= PRESENCE_EXPIRATION_MS;
+        }
     }
 }
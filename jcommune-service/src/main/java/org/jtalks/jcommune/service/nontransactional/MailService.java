@@ -34,7 +34,11 @@ import org.springframework.web.context.request.ServletRequestAttributes;
 import javax.mail.MessagingException;
 import javax.mail.internet.MimeMessage;
 import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
@@ -139,41 +143,91 @@ public class MailService {
      * @param entity    changed subscribed entity.
      */
     public void sendUpdatesOnSubscription(JCUser recipient, SubscriptionAwareEntity entity) {
-        try {
-            String urlSuffix = entity.getUrlSuffix();
-            String url = this.getDeploymentRootUrl() + urlSuffix;
-            Locale locale = recipient.getLanguage().getLocale();
-            Map<String, Object> model = new HashMap<>();
-            model.put(LINK, url);
-            model.put(LINK_LABEL, getDeploymentRootUrlWithoutPort() + urlSuffix);
-            if (entity instanceof Branch) {
-                model.put(LINK_UNSUBSCRIBE, this.getDeploymentRootUrl() + getUnsubscribeBranchLink(entity));
-            }
-            sendEmailOnForumUpdates(recipient, model, locale, (Entity) entity,
-                    "subscriptionNotification.subject", "subscriptionNotification.vm");
-        } catch (MailingFailedException e) {
-            LOGGER.error(String.format(LOG_TEMPLATE,
-                    entity.getClass().getCanonicalName(),
-                    ((Entity) entity).getId(),
-                    recipient.getUsername()));
+        sendUpdatesOnSubscription(Collections.singletonList(recipient), entity,
+                getDeploymentRootUrl(), getDeploymentRootUrlWithoutPort());
+    }
+
+    /**
+     * Sends update notifications to all the recipients about changes of the subscribed entity.
+     * Links are built once for all the recipients and subject is resolved once per locale, only
+     * the body of message is rendered for every recipient as it greets him by name.
+     * This method won't check if users are subscribed to the particular notification or not.
+     *
+     * @param recipients   persons to be notified about updates by email
+     * @param entity       changed subscribed entity
+     * @param rootUrl      forum root URL to build links, e.g. "http://myhost.com:1234/mycoolforum"
+     * @param rootUrlLabel forum root URL to show as label of links, e.g. "http://myhost.com/mycoolforum"
+     */
+    void sendUpdatesOnSubscription(Collection<JCUser> recipients, SubscriptionAwareEntity entity,
+                                   String rootUrl, String rootUrlLabel) {
+        String urlSuffix = entity.getUrlSuffix();
+        Map<String, Object> model = new HashMap<>();
+        model.put(LINK, rootUrl + urlSuffix);
+        model.put(LINK_LABEL, rootUrlLabel + urlSuffix);
+        if (entity instanceof Branch) {
+            model.put(LINK_UNSUBSCRIBE, rootUrl + getUnsubscribeBranchLink(entity));
         }
+        sendEmailsOnForumUpdates(recipients, model, (Entity) entity,
+                "subscriptionNotification.subject", "subscriptionNotification.vm");
     }
 
     /**
-     * Sends email on forum updates.
+     * Sends emails about new topic in the subscribed branch to all the subscribers.
+     * Links are built once for all the subscribers and subject is resolved once per locale.
      *
-     * @param recipient a person to be notified about updates by email
-     * @param model     template params to be substituted in velocity template
-     * @param locale    recipient locale
-     * @throws MailingFailedException when mailing failed
+     * @param subscribers  recipients
+     * @param topic        newly created topic
+     * @param rootUrl      forum root URL to build links, e.g. "http://myhost.com:1234/mycoolforum"
+     * @param rootUrlLabel forum root URL to show as label of links, e.g. "http://myhost.com/mycoolforum"
      */
-    private void sendEmailOnForumUpdates(JCUser recipient, Map<String, Object> model, Locale locale,
-                                         Entity entity, String subject, String nameTemplate) throws MailingFailedException {
-        model.put(USER, recipient);
-        model.put(RECIPIENT_LOCALE, locale);
+    void sendTopicCreationMails(Collection<JCUser> subscribers, Topic topic, String rootUrl, String rootUrlLabel) {
+        String urlSuffix = getTopicUrlSuffix(topic);
+        Map<String, Object> model = new HashMap<>();
+        model.put(LINK, rootUrl + urlSuffix);
+        model.put(LINK_UNSUBSCRIBE, rootUrl + getUnsubscribeBranchLink(topic.getBranch()));
+        model.put(LINK_LABEL, rootUrlLabel + urlSuffix);
+        sendEmailsOnForumUpdates(subscribers, model, topic.getBranch(),
+                "subscriptionNotification.subject", "branchSubscriptionNotification.vm");
+    }
+
+    /**
+     * Sends emails on forum updates to all the recipients grouped by their locales.
+     * Errors are logged and sending continues with other recipients.
+     *
+     * @param recipients   persons to be notified about updates by email
+     * @param commonModel  template params which are the same for all the recipients
+     * @param entity       changed entity
+     * @param subject      message key of the subject
+     * @param nameTemplate template file name, like "template.vm"
+     */
+    private void sendEmailsOnForumUpdates(Collection<JCUser> recipients, Map<String, Object> commonModel,
+                                          Entity entity, String subject, String nameTemplate) {
+        Map<Locale, List<JCUser>> recipientsByLocale = new HashMap<>();
+        for (JCUser recipient : recipients) {
+            Locale locale = recipient.getLanguage().getLocale();
+            List<JCUser> localeRecipients = recipientsByLocale.get(locale);
+            if (localeRecipients == null) {
+                localeRecipients = new ArrayList<>();
+                recipientsByLocale.put(locale, localeRecipients);
+            }
+            localeRecipients.add(recipient);
+        }
         String titleEntity = this.getTitleName(entity);
-        this.sendEmail(recipient.getEmail(), messageSource.getMessage(subject,
-                new Object[]{}, locale) + titleEntity, model, nameTemplate);
+        for (Map.Entry<Locale, List<JCUser>> localeRecipients : recipientsByLocale.entrySet()) {
+            Locale locale = localeRecipients.getKey();
+            String localizedSubject = messageSource.getMessage(subject, new Object[]{}, locale) + titleEntity;
+            for (JCUser recipient : localeRecipients.getValue()) {
+                Map<String, Object> model = new HashMap<>(commonModel);
+                model.put(USER, recipient);
+                model.put(RECIPIENT_LOCALE, locale);
+                try {
+                    this.sendEmail(recipient.getEmail(), localizedSubject, model, nameTemplate);
+                } catch (MailingFailedException e) {
+                    LOGGER.error(String.format(LOG_TEMPLATE,
+                            entity.getClass().getCanonicalName(), entity.getId(), recipient.getUsername()));
+                }
+            }
+        }
     }
 
     /**
@@ -364,7 +418,7 @@ public class MailService {
     /**
      * @return current deployment root, e.g. "http://myhost.com:1234/mycoolforum"
      */
-    private String getDeploymentRootUrl() {
+    String getDeploymentRootUrl() {
         HttpServletRequest request = getServletRequest();
         return request.getScheme()
                 + "://" + request.getServerName()
@@ -377,7 +431,7 @@ public class MailService {
      *
      * @return current deployment root without port, e.g. "http://myhost.com/mycoolforum"
      */
-    private String getDeploymentRootUrlWithoutPort() {
+    String getDeploymentRootUrlWithoutPort() {
         HttpServletRequest request = getServletRequest();
         return request.getScheme()
                 + "://" + request.getServerName()
@@ -486,20 +540,8 @@ public class MailService {
      * @param topic      newly created topic
      */
     void sendTopicCreationMail(JCUser subscriber, Topic topic) {
-        try {
-            String urlSuffix = getTopicUrlSuffix(topic);
-            String url = this.getDeploymentRootUrl() + urlSuffix;
-            Locale locale = subscriber.getLanguage().getLocale();
-            Map<String, Object> model = new HashMap<>();
-            model.put(LINK, url);
-            model.put(LINK_UNSUBSCRIBE, this.getDeploymentRootUrl()
-                    + getUnsubscribeBranchLink(topic.getBranch()));
-            model.put(LINK_LABEL, getDeploymentRootUrlWithoutPort() + urlSuffix);
-            sendEmailOnForumUpdates(subscriber, model, locale, topic.getBranch(),
-                    "subscriptionNotification.subject", "branchSubscriptionNotification.vm");
-        } catch (MailingFailedException e) {
-            LOGGER.error("Failed to sent mail about creation topic for user: " + subscriber.getUsername());
-        }
+        sendTopicCreationMails(Collections.singletonList(subscriber), topic,
+                getDeploymentRootUrl(), getDeploymentRootUrlWithoutPort());
     }
 
     private String getUnsubscribeBranchLink(SubscriptionAwareEntity entity) {
@@ -14,7 +14,6 @@
  */
 package org.jtalks.jcommune.service.nontransactional;
 
-import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 import org.jtalks.jcommune.model.dao.PostDao;
 import org.jtalks.jcommune.model.dao.UserDao;
@@ -26,10 +25,10 @@ import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
-import javax.script.ScriptException;
 import javax.servlet.http.HttpServletRequest;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -50,10 +49,18 @@ public class MentionedUsers {
     public static final String MENTIONED_AND_NOTIFIED_USER_TEMPLATE = "[user notified=true]%s[/user]";
     public static final String USER_WITH_LINK_TO_PROFILE_TEMPLATE = "[user=%s]%s[/user]";
     private static final Logger LOGGER = LoggerFactory.getLogger(MentionedUsers.class);
-    private static final Pattern ALL_MENTIONED_USERS_PATTERN =
-            Pattern.compile("\\[user\\].*?\\[/user\\]|\\[user notified=true\\].*?\\[/user\\]");
-    private static final Pattern MENTIONED_AND_NOT_NOTIFIED_USERS_PATTERN =
-            Pattern.compile("\\[user\\].*?\\[/user\\]");
+    private static final String NOT_NOTIFIED_OPENING_TAG = "[user]";
+    private static final String NOTIFIED_OPENING_TAG = "[user notified=true]";
+    /**
+     * Finds both [user] and [user notified=true] codes, the first group is not empty for notified users
+     * and the second one is encoded name of the user
+     */
+    private static final Pattern MENTIONED_USER_PATTERN =
+            Pattern.compile("\\[user( notified=true)?\\](.*?)\\[/user\\]");
+    /**
+     * Characters which are not decoded by JavaScript decodeURI function
+     */
+    private static final String URI_RESERVED_CHARACTERS = ";/?:@&=+$,#";
     private static final String CLOSE_BRACKET_CODE_PLACEHOLDER = "@w0956756wo@";
     private static final String OPEN_BRACKET_CODE_PLACEHOLDER = "@ywdffgg434y@";
     private static final String SLASH_CODE_PLACEHOLDER = "14@123435vggv4f";
@@ -67,23 +74,23 @@ public class MentionedUsers {
         CHARS_PLACEHOLDERS.put("<", LOWER_THEN_PLACEHOLDER);
     }
 
-    private final Map<String, String> encodedUserNames = new HashMap<>();
     /**
      * Content of the post
      */
-    private String postContent;
+    private final String postContent;
     /**
      * Post with mentioned users
      */
-    private Post post;
+    private final Post post;
+    /**
+     * User BB codes found in the content in order of their appearance
+     */
+    private final List<Mention> mentions;
 
-    private MentionedUsers(String postContent) {
+    private MentionedUsers(String postContent, Post post) {
         this.postContent = postContent;
-    }
-
-    private MentionedUsers(Post post) {
         this.post = post;
-        this.postContent = post.getPostContent();
+        this.mentions = findMentions(postContent);
     }
 
     /**
@@ -92,7 +99,7 @@ public class MentionedUsers {
      * @param postContent content of the post where user was mentioned
      */
     public static MentionedUsers parse(String postContent) {
-        return new MentionedUsers(postContent);
+        return new MentionedUsers(postContent, null);
     }
 
     /**
@@ -101,7 +108,7 @@ public class MentionedUsers {
      * @param post the post where user was mentioned
      */
     public static MentionedUsers parse(Post post) {
-        return new MentionedUsers(post);
+        return new MentionedUsers(post.getPostContent(), post);
     }
 
     /**
@@ -112,12 +119,10 @@ public class MentionedUsers {
      * @throws IllegalStateException when instance was not created based on Post object
      */
     public List<JCUser> getNewUsersToNotify(UserDao userDao) {
-        if (post == null) {
-            throw new IllegalStateException("To call this method you should create class with Post type parameter");
-        }
+        checkCreatedBasedOnPost();
 
-        Set<String> mentionedUsersNames = extractNotNotifiedMentionedUsers(postContent);
-        if (!CollectionUtils.isEmpty(mentionedUsersNames)) {
+        Set<String> mentionedUsersNames = getMentionedUsernames(false);
+        if (!mentionedUsersNames.isEmpty()) {
             return getNewUsersToNotify(mentionedUsersNames, userDao);
         }
 
@@ -125,19 +130,30 @@ public class MentionedUsers {
     }
 
     /**
-     * Marks all users in user BB codes as already notified
+     * Marks all users in user BB codes as already notified. Content of the post is
+     * rewritten and saved once for all the users.
      *
      * @param postDao service for post related operations
      * @throws IllegalStateException when instance was not created based on Post object
      */
     public void markUsersAsAlreadyNotified(PostDao postDao) {
-        if (post == null) {
-            throw new IllegalStateException("To call this method you should create class with Post type parameter");
+        checkCreatedBasedOnPost();
+
+        StringBuilder newPostContent = null;
+        int copiedLength = 0;
+        for (Mention mention : mentions) {
+            if (!mention.notified) {
+                if (newPostContent == null) {
+                    newPostContent = new StringBuilder(postContent.length() + NOTIFIED_OPENING_TAG.length());
+                }
+                newPostContent.append(postContent, copiedLength, mention.start).append(NOTIFIED_OPENING_TAG);
+                copiedLength = mention.start + NOT_NOTIFIED_OPENING_TAG.length();
+            }
         }
-
-        Set<String> mentionedUsersNames = extractNotNotifiedMentionedUsers(postContent);
-        if (!CollectionUtils.isEmpty(mentionedUsersNames)) {
-            markUsersAsAlreadyNotified(mentionedUsersNames, postDao);
+        if (newPostContent != null) {
+            newPostContent.append(postContent, copiedLength, postContent.length());
+            post.setPostContent(newPostContent.toString());
+            postDao.saveOrUpdate(post);
         }
     }
 
@@ -148,13 +164,24 @@ public class MentionedUsers {
      * @return text with BB codes replaced by user profile links
      */
     public String getTextWithProcessedUserTags(UserDao userDao) {
-        Set<String> mentionedUsers = extractAllMentionedUsers(postContent);
-        Map<String, String> userToUserProfileLinkMap = new HashMap<>();
-        for (String mentionedUser : mentionedUsers) {
-            String mentionedUserProfileLink = getLinkToUserProfile(mentionedUser, userDao);
-            userToUserProfileLinkMap.put(mentionedUser, mentionedUserProfileLink);
+        if (mentions.isEmpty()) {
+            return postContent;
+        }
+        Map<String, String> userToUserProfileLinkMap = getLinksToUserProfiles(getMentionedUsernames(true), userDao);
+        StringBuilder processedContent = new StringBuilder(postContent.length());
+        int copiedLength = 0;
+        for (Mention mention : mentions) {
+            processedContent.append(postContent, copiedLength, mention.start);
+            String userProfileLink = userToUserProfileLinkMap.get(mention.username);
+            if (userProfileLink == null) {
+                processedContent.append(mention.encodedUsername);
+            } else {
+                processedContent.append(format(USER_WITH_LINK_TO_PROFILE_TEMPLATE,
+                        userProfileLink, mention.encodedUsername));
+            }
+            copiedLength = mention.end;
         }
-        return addLinksToUserProfileForMentionedUsers(postContent, userToUserProfileLinkMap);
+        return processedContent.append(postContent, copiedLength, postContent.length()).toString();
     }
 
     /**
@@ -163,83 +190,155 @@ public class MentionedUsers {
      * @return extracted users' names
      */
     public Set<String> extractAllMentionedUsers(String canContainMentionedUsers) {
-        return extractMentionedUsers(canContainMentionedUsers, ALL_MENTIONED_USERS_PATTERN);
+        Set<String> mentionedUsernames = new HashSet<>();
+        for (Mention mention : findMentions(canContainMentionedUsers)) {
+            mentionedUsernames.add(mention.username);
+        }
+        return mentionedUsernames;
+    }
+
+    private void checkCreatedBasedOnPost() {
+        if (post == null) {
+            throw new IllegalStateException("To call this method you should create class with Post type parameter");
+        }
     }
 
     /**
-     * Extract names of users that were mentioned but not notified yet
-     *
-     * @return names of users that were mentioned but not notified yet
+     * @param includeNotified whether names of users which were already notified should be included
+     * @return names of users mentioned in the post
      */
-    private Set<String> extractNotNotifiedMentionedUsers(String canContainMentionedUsers) {
-        return extractMentionedUsers(canContainMentionedUsers, MENTIONED_AND_NOT_NOTIFIED_USERS_PATTERN);
+    private Set<String> getMentionedUsernames(boolean includeNotified) {
+        Set<String> mentionedUsernames = new HashSet<>();
+        for (Mention mention : mentions) {
+            if (includeNotified || !mention.notified) {
+                mentionedUsernames.add(mention.username);
+            }
+        }
+        return mentionedUsernames;
     }
 
     /**
-     * Extract names of users that were mentioned in passed text.
+     * Finds all user BB codes in passed text in one pass.
      *
      * @param canContainMentionedUsers can contain users mentioning
-     * @param mentionedUserPattern     pattern to extract mentioned user in given text
-     * @return extracted users' names
+     * @return found BB codes in order of their appearance
      */
-    private Set<String> extractMentionedUsers(String canContainMentionedUsers, Pattern mentionedUserPattern) {
-        if (!StringUtils.isEmpty(canContainMentionedUsers)) {
-            Matcher matcher = mentionedUserPattern.matcher(canContainMentionedUsers);
-            Set<String> mentionedUsernames = new HashSet<>();
-            while (matcher.find()) {
-                String userBBCode = matcher.group();
-                String mentionedUser = userBBCode.replaceAll("\\[.*?\\]", StringUtils.EMPTY);
-                mentionedUsernames.add(decodeUsername(mentionedUser));
-            }
-            return mentionedUsernames;
+    private static List<Mention> findMentions(String canContainMentionedUsers) {
+        if (StringUtils.isEmpty(canContainMentionedUsers)) {
+            return Collections.emptyList();
         }
-        return Collections.emptySet();
-    }
-
-    private String decodeUsername(String encodedUsername) {
-        String decodeUserName = encodedUsername;
-
-        Object jsDecodedName = invokeJavaScript("decodeURI", encodedUsername.replace("\\", "\\\\"));
-        if (jsDecodedName != null) {
-            decodeUserName = jsDecodedName.toString();
+        List<Mention> mentions = new ArrayList<>();
+        Matcher matcher = MENTIONED_USER_PATTERN.matcher(canContainMentionedUsers);
+        while (matcher.find()) {
+            mentions.add(new Mention(matcher.start(), matcher.end(), matcher.group(1) != null, matcher.group(2)));
         }
+        return mentions;
+    }
 
+    /**
+     * Decodes name of the user which special characters were replaced by placeholders or
+     * encoded like in URI.
+     *
+     * @param encodedUsername name of the user from BB code
+     * @return decoded name of the user
+     */
+    private static String decodeUsername(String encodedUsername) {
+        String decodeUserName = decodeUri(encodedUsername);
         for (Map.Entry<String, String> decodeEntry : CHARS_PLACEHOLDERS.entrySet()) {
             decodeUserName = decodeUserName.replace(decodeEntry.getValue(), decodeEntry.getKey());
         }
-        encodedUserNames.put(decodeUserName, encodedUsername);
         return decodeUserName;
     }
 
-    private String encodeUsername(String decodedUsername) {
-        return encodedUserNames.get(decodedUsername);
-    }
-
     /**
-     * Invokes JavaScript function via built-in JavaScript engine
+     * Decodes escaped UTF-8 sequences like %D0%B8 the same way as JavaScript decodeURI function does,
+     * escaped reserved characters are left as is.
      *
-     * @param functionName name of the function to be invoked
-     * @param arguments    arguments of the function joined in one string
-     * @return result of the invocation or null if some error happened
+     * @param encoded string which can contain escaped sequences
+     * @return decoded string or passed string itself if it contains malformed escaped sequences
      */
-    private Object invokeJavaScript(String functionName, String arguments) {
-        Object result = null;
+    static String decodeUri(String encoded) {
+        if (encoded.indexOf('%') < 0) {
+            return encoded;
+        }
+        StringBuilder decoded = new StringBuilder(encoded.length());
+        int i = 0;
+        while (i < encoded.length()) {
+            char c = encoded.charAt(i);
+            if (c != '%') {
+                decoded.append(c);
+                i++;
+                continue;
+            }
+            int firstByte = parseEscapedByte(encoded, i);
+            int sequenceLength = getUtf8SequenceLength(firstByte);
+            if (sequenceLength == 0) {
+                return encoded;
+            } else if (sequenceLength == 1) {
+                if (URI_RESERVED_CHARACTERS.indexOf(firstByte) >= 0) {
+                    decoded.append(encoded, i, i + 3);
+                } else {
+                    decoded.append((char) firstByte);
+                }
+            } else {
+                String decodedSequence = decodeUtf8Sequence(encoded, i, sequenceLength);
+                if (decodedSequence == null) {
+                    return encoded;
+                }
+                decoded.append(decodedSequence);
+            }
+            i += 3 * sequenceLength;
+        }
+        return decoded.toString();
+    }
 
-        ScriptEngineManager factory = new ScriptEngineManager();
-        ScriptEngine engine = factory.getEngineByName("JavaScript");
+    /**
+     * @return byte escaped like %XX at specified position or -1 if there is no escaped byte there
+     */
+    private static int parseEscapedByte(String encoded, int position) {
+        if (position + 2 >= encoded.length() || encoded.charAt(position) != '%') {
+            return -1;
+        }
+        int high = Character.digit(encoded.charAt(position + 1), 16);
+        int low = Character.digit(encoded.charAt(position + 2), 16);
+        return (high < 0 || low < 0) ? -1 : (high << 4) | low;
+    }
 
-        if (engine == null) {
-            LOGGER.error("JavaScript engige was not found.");
-            return result;
+    /**
+     * @return count of bytes in UTF-8 sequence starting with specified byte or 0 if it can't start a sequence
+     */
+    private static int getUtf8SequenceLength(int firstByte) {
+        if (firstByte < 0) {
+            return 0;
+        } else if (firstByte < 0x80) {
+            return 1;
+        } else if ((firstByte & 0xE0) == 0xC0) {
+            return 2;
+        } else if ((firstByte & 0xF0) == 0xE0) {
+            return 3;
+        } else if ((firstByte & 0xF8) == 0xF0) {
+            return 4;
         }
+        return 0;
+    }
 
+    /**
+     * @return characters of escaped UTF-8 sequence or {@code null} if the sequence is malformed
+     */
+    private static String decodeUtf8Sequence(String encoded, int position, int sequenceLength) {
+        byte[] bytes = new byte[sequenceLength];
+        for (int i = 0; i < sequenceLength; i++) {
+            int escapedByte = parseEscapedByte(encoded, position + 3 * i);
+            if (escapedByte < 0) {
+                return null;
+            }
+            bytes[i] = (byte) escapedByte;
+        }
         try {
-            result = engine.eval(functionName + "('" + arguments + "')").toString();
-        } catch (ScriptException e) {
-            LOGGER.error("Error while invoking JavaScript function.", e);
+            return StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(bytes)).toString();
+        } catch (CharacterCodingException e) {
+            return null;
         }
-
-        return result;
     }
 
     /**
@@ -274,51 +373,26 @@ public class MentionedUsers {
     }
 
     /**
-     * Mark user tags as already notified
-     *
-     * @param mentionedUsernames the set of names of mentioned users
-     * @param postDao            service for working with Post objects
-     */
-    private void markUsersAsAlreadyNotified(Set<String> mentionedUsernames, PostDao postDao) {
-        for (String user : mentionedUsernames) {
-            markUserAsAlreadyNotified(user, postDao);
-        }
-    }
-
-    /**
-     * Change BB user tag to mark user as already notified
-     *
-     * @param username this user was mentioned
-     * @param postDao  service for working with Post objects
-     */
-    private void markUserAsAlreadyNotified(String username, PostDao postDao) {
-        String initialUserMentioning = format(MENTIONED_NOT_NOTIFIED_USER_TEMPLATE, username);
-        String notifiedUserMentioning = format(MENTIONED_AND_NOTIFIED_USER_TEMPLATE, username);
-
-        String newPostContent =
-                post.getPostContent().replace(initialUserMentioning, notifiedUserMentioning);
-        post.setPostContent(newPostContent);
-        postDao.saveOrUpdate(post);
-    }
-
-    /**
-     * Get link to user's profile.
+     * Get links to profiles of mentioned users, all the users are loaded with one query.
      *
-     * @param username user's name
-     * @return null when user doesn't exist, otherwise link to user's profile
+     * @param usernames names of mentioned users
+     * @param userDao   service for working with JCUser objects
+     * @return links to profiles by names of users, users which don't exist have no link
      */
-    private String getLinkToUserProfile(String username, UserDao userDao) {
-        String userPofileLink = null;
-
-        JCUser user = userDao.getByUsername(username);
-        if (user != null && user.getUsername().equals(username)) {
-            userPofileLink = getApplicationNameAsContextPath() + "/users/" + user.getId();
-            LOGGER.trace("{} has the following url of profile - {}", username, userPofileLink);
-        } else {
-            LOGGER.trace("Mentioned user wasn't find: {}", username);
+    private Map<String, String> getLinksToUserProfiles(Set<String> usernames, UserDao userDao) {
+        Map<String, String> userToUserProfileLinkMap = new HashMap<>();
+        String contextPath = null;
+        for (JCUser user : userDao.getByUsernames(usernames)) {
+            if (usernames.contains(user.getUsername())) {
+                if (contextPath == null) {
+                    contextPath = getApplicationNameAsContextPath();
+                }
+                String userProfileLink = contextPath + "/users/" + user.getId();
+                userToUserProfileLinkMap.put(user.getUsername(), userProfileLink);
+                LOGGER.trace("{} has the following url of profile - {}", user.getUsername(), userProfileLink);
+            }
         }
-
-        return userPofileLink;
+        return userToUserProfileLinkMap;
     }
 
     /**
@@ -333,27 +407,21 @@ public class MentionedUsers {
     }
 
     /**
-     * Add links to users' profiles for mentioned users.
-     *
-     * @param source                   will be changed and all mentioned users in it will contain links to their
-     *                                 profiles
-     * @param userToUserProfileLinkMap user to it links of profile map
-     * @return source with users with attached links to profiles
+     * User BB code found in the text
      */
-    private String addLinksToUserProfileForMentionedUsers(
-            String source, Map<String, String> userToUserProfileLinkMap) {
-        String changedSource = source;
-        for (Map.Entry<String, String> userToLinkMap : userToUserProfileLinkMap.entrySet()) {
-            String username = encodeUsername(userToLinkMap.getKey());
-            String userNotNotifiedBBCode = format(MENTIONED_NOT_NOTIFIED_USER_TEMPLATE, username);
-            String userNotifiedBBCode = format(MENTIONED_AND_NOTIFIED_USER_TEMPLATE, username);
-            String userBBCodeWithLink = username;
-            if (userToLinkMap.getValue() != null) {
-                userBBCodeWithLink = format(USER_WITH_LINK_TO_PROFILE_TEMPLATE, userToLinkMap.getValue(), username);
-            }
-            changedSource = changedSource.replace(userNotNotifiedBBCode, userBBCodeWithLink);
-            changedSource = changedSource.replace(userNotifiedBBCode, userBBCodeWithLink);
+    private static class Mention {
+        private final int start;
+        private final int end;
+        private final boolean notified;
+        private final String encodedUsername;
+        private final String username;
+
+        Mention(int start, int end, boolean notified, String encodedUsername) {
+            this.start = start;
+            this.end = end;
+            this.notified = notified;
+            this.encodedUsername = encodedUsername;
+            this.username = decodeUsername(encodedUsername);
         }
-        return changedSource;
     }
 }
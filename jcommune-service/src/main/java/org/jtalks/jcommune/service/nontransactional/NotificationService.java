@@ -14,7 +14,10 @@
  */
 package org.jtalks.jcommune.service.nontransactional;
 
+import org.jtalks.jcommune.model.dao.NotificationOutboxDao;
+import org.jtalks.jcommune.model.entity.Branch;
 import org.jtalks.jcommune.model.entity.JCUser;
+import org.jtalks.jcommune.model.entity.NotificationOutboxEntry;
 import org.jtalks.jcommune.model.entity.SubscriptionAwareEntity;
 import org.jtalks.jcommune.model.entity.Topic;
 import org.jtalks.jcommune.plugin.api.PluginLoader;
@@ -35,6 +38,9 @@ import java.util.Set;
  * If the update author is subscribed he won't get the notification message.
  * This service also assumes, that topic update as a enclosing branch update as well.
  * <p/>
+ * Notifications about changes of topics and branches are saved to the outbox and sent
+ * in background, so that the author of the changes doesn't wait for all the subscribers.
+ * <p/>
  * Errors occurred while sending emails are suppressed (logged only) as updates
  * notifications are themselves a kind of a side effect, so they should not prevent
  * the whole operation from being completed.
@@ -48,38 +54,98 @@ public class NotificationService {
     private UserService userService;
     private MailService mailService;
     private final PluginLoader pluginLoader;
+    private final NotificationOutboxDao outboxDao;
 
     /**
      * @param userService                  to determine the update author
      * @param mailService                  to perform actual email notifications
      * @param subscriptionService          to get the subscribers of the entity
      * @param pluginLoader                 to get different subscribers for plugable topics
+     * @param outboxDao                    to save notifications which are sent in background
      */
     public NotificationService(
             UserService userService,
             MailService mailService,
             SubscriptionService subscriptionService,
-            PluginLoader pluginLoader) {
+            PluginLoader pluginLoader,
+            NotificationOutboxDao outboxDao) {
         this.userService = userService;
         this.mailService = mailService;
         this.subscriptionService = subscriptionService;
         this.pluginLoader = pluginLoader;
+        this.outboxDao = outboxDao;
     }
 
     /**
      * Notifies subscribers about subscribed entity updates by email.
+     * Notifications about topics and branches are only saved to the outbox in the current
+     * transaction and sent later by {@link #sendQueuedNotifications}.
      * If mailing failed this implementation simply continues
      * with other subscribers.
      *
      * @param entity changed subscribed entity.
      */
     public void subscribedEntityChanged(SubscriptionAwareEntity entity) {
-        Collection<JCUser> subscribers = subscriptionService.getAllowedSubscribers(entity);
-        filterSubscribers(subscribers, entity);
+        if (entity instanceof Topic) {
+            enqueue(NotificationOutboxEntry.Kind.TOPIC_CHANGED, ((Topic) entity).getId());
+        } else if (entity instanceof Branch) {
+            enqueue(NotificationOutboxEntry.Kind.BRANCH_CHANGED, ((Branch) entity).getId());
+        } else {
+            Collection<JCUser> subscribers = subscriptionService.getAllowedSubscribers(entity);
+            filterSubscribers(subscribers, entity);
+
+            for (JCUser user : subscribers) {
+                mailService.sendUpdatesOnSubscription(user, entity);
+            }
+        }
+    }
 
-        for (JCUser user : subscribers) {
-            mailService.sendUpdatesOnSubscription(user, entity);
+    /**
+     * Sends notification saved to the outbox. Subscribers who were already notified about
+     * the same topic or branch by the previous notifications of the batch are skipped.
+     *
+     * @param kind            kind of the notification
+     * @param entity          changed topic or branch
+     * @param authorId        ID of the user who changed the entity, or {@code null} if the changes were
+     *                        made by several users, they all should be notified about changes of each other
+     * @param alreadyNotified subscribers who were notified already, recipients of this notification
+     *                        are added to it
+     * @param rootUrl         forum root URL to build links
+     * @param rootUrlLabel    forum root URL to show as label of links
+     */
+    public void sendQueuedNotifications(NotificationOutboxEntry.Kind kind, SubscriptionAwareEntity entity,
+                                        Long authorId, Set<JCUser> alreadyNotified,
+                                        String rootUrl, String rootUrlLabel) {
+        SubscriptionAwareEntity subscribedEntity = (kind == NotificationOutboxEntry.Kind.TOPIC_CREATED)
+                ? ((Topic) entity).getBranch() : entity;
+        Collection<JCUser> subscribers = subscriptionService.getAllowedSubscribers(subscribedEntity);
+        filterByPlugins(subscribers, entity);
+        Set<JCUser> recipients = new HashSet<>();
+        for (JCUser subscriber : subscribers) {
+            if ((authorId == null || subscriber.getId() != authorId) && !alreadyNotified.contains(subscriber)) {
+                recipients.add(subscriber);
+            }
+        }
+        if (recipients.isEmpty()) {
+            return;
         }
+        if (kind == NotificationOutboxEntry.Kind.TOPIC_CREATED) {
+            mailService.sendTopicCreationMails(recipients, (Topic) entity, rootUrl, rootUrlLabel);
+        } else {
+            mailService.sendUpdatesOnSubscription(recipients, entity, rootUrl, rootUrlLabel);
+        }
+        alreadyNotified.addAll(recipients);
+    }
+
+    /**
+     * Saves notification to the outbox, it will be sent in background.
+     *
+     * @param kind     kind of the notification
+     * @param entityId ID of the changed entity
+     */
+    private void enqueue(NotificationOutboxEntry.Kind kind, long entityId) {
+        outboxDao.saveOrUpdate(new NotificationOutboxEntry(kind, entityId, userService.getCurrentUser().getId(),
+                mailService.getDeploymentRootUrl(), mailService.getDeploymentRootUrlWithoutPort()));
     }
 
     /**
@@ -135,15 +201,25 @@ public class NotificationService {
      * @see org.jtalks.jcommune.plugin.api.core.SubscribersFilter
      */
     private void filterSubscribers(Collection<JCUser> subscribers, SubscriptionAwareEntity entity) {
+        filterByPlugins(subscribers, entity);
+        // Current user should be removed after filtering by plugin because filter don't know anything
+        // about current user
+        subscribers.remove(userService.getCurrentUser());
+    }
+
+    /**
+     * Filter collection by plugins
+     *
+     * @param subscribers collection of subscribers
+     * @see org.jtalks.jcommune.plugin.api.core.SubscribersFilter
+     */
+    private void filterByPlugins(Collection<JCUser> subscribers, SubscriptionAwareEntity entity) {
         List<Plugin> plugins = pluginLoader.getPlugins(new StateFilter(Plugin.State.ENABLED),
                 new TypeFilter(TopicPlugin.class));
         for (Plugin plugin : plugins) {
             TopicPlugin topicPlugin = (TopicPlugin)plugin;
             topicPlugin.getSubscribersFilter().filter(subscribers, entity);
         }
-        // Current user should be removed after filtering by plugin because filter don't know anything
-        // about current user
-        subscribers.remove(userService.getCurrentUser());
     }
 
     /**
@@ -161,16 +237,13 @@ public class NotificationService {
     }
 
     /**
-     * Notify about new topic creation in the subscribed branch.
+     * Notify about new topic creation in the subscribed branch. Notification is saved to the
+     * outbox in the current transaction and sent later by {@link #sendQueuedNotifications}.
      *
      * @param topic newly created topic
      */
     public void sendNotificationAboutTopicCreated(Topic topic) {
-        Collection<JCUser> branchSubscribers = subscriptionService.getAllowedSubscribers(topic.getBranch());
-        this.filterSubscribers(branchSubscribers, topic);
-        for (JCUser subscriber : branchSubscribers) {
-            mailService.sendTopicCreationMail(subscriber, topic);
-        }
+        enqueue(NotificationOutboxEntry.Kind.TOPIC_CREATED, topic.getId());
     }
 }
 
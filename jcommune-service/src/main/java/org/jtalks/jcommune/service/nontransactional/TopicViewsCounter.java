@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.nontransactional;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Accumulates topic page views in memory, so that viewing a topic doesn't
+ * write to the TOPIC table. Accumulated views are periodically drained and
+ * written to the database in one batch, see
+ * {@link org.jtalks.jcommune.service.TopicFetchService#flushPendingViews()}.
+ */
+public class TopicViewsCounter {
+    /**
+     * Value of the counter which was drained and removed, views can't be added to it anymore
+     */
+    private static final int DRAINED = -1;
+
+    private final ConcurrentMap<Long, AtomicInteger> pendingViews = new ConcurrentHashMap<>();
+
+    /**
+     * Registers one more view of the topic.
+     *
+     * @param topicId identifier of the viewed topic
+     */
+    public void increment(long topicId) {
+        addViews(topicId, 1);
+    }
+
+    /**
+     * Returns drained views back, e.g. if they failed to be written to the database,
+     * so that they are written by the next drain.
+     *
+     * @param viewsByTopicId views to return mapped by topic identifiers
+     */
+    public void addPendingViews(Map<Long, Integer> viewsByTopicId) {
+        for (Map.Entry<Long, Integer> entry : viewsByTopicId.entrySet()) {
+            addViews(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Adds views to the counter of the topic. If the counter is being drained concurrently,
+     * views are added to the new counter, so they are not lost.
+     *
+     * @param topicId identifier of the topic
+     * @param views   count of views to add
+     */
+    private void addViews(long topicId, int views) {
+        while (true) {
+            AtomicInteger counter = pendingViews.get(topicId);
+            if (counter == null) {
+                if (pendingViews.putIfAbsent(topicId, new AtomicInteger(views)) == null) {
+                    return;
+                }
+                continue;
+            }
+            int current = counter.get();
+            if (current == DRAINED) {
+                pendingViews.remove(topicId, counter);
+            } else if (counter.compareAndSet(current, current + views)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gets views of the topic which are not written to the database yet.
+     *
+     * @param topicId identifier of the topic
+     * @return count of views not written to the database
+     */
+    public int getPendingViews(long topicId) {
+        AtomicInteger counter = pendingViews.get(topicId);
+        return (counter == null) ? 0 : Math.max(counter.get(), 0);
+    }
+
+    /**
+     * Takes all accumulated views and removes the counters, so the map holds only
+     * topics viewed since the previous drain. Counter is closed before it's removed,
+     * so views registered concurrently go to a new counter and are taken by the next drain.
+     *
+     * @return views to be added to the topics mapped by topic identifiers
+     */
+    public Map<Long, Integer> drainPendingViews() {
+        Map<Long, Integer> drained = new HashMap<>();
+        for (Map.Entry<Long, AtomicInteger> entry : pendingViews.entrySet()) {
+            int views = entry.getValue().getAndSet(DRAINED);
+            pendingViews.remove(entry.getKey(), entry.getValue());
+            if (views > 0) {
+                drained.put(entry.getKey(), views);
+            }
+        }
+        return drained;
+    }
+}
@@ -18,7 +18,8 @@ import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.Element;
 
 /**
- * Operations above user data cache.
+ * Operations above user data cache. Counters are changed with compare-and-set, so that concurrent
+ * changes aren't lost.
  *
  * @author Kirill Afonin
  */
@@ -50,13 +51,14 @@ public class UserDataCacheService {
     }
 
     /**
-     * Put new messages count for {@code username} to cache.
+     * Put new messages count for {@code username} to cache. Count which is already cached isn't replaced,
+     * as it may have been changed after {@code count} was read.
      *
      * @param username username
      * @param count    new messages count
      */
     public void putNewPmCount(String username, int count) {
-        userDataCache.put(new Element(username, count));
+        userDataCache.putIfAbsent(new Element(username, count));
     }
 
     /**
@@ -65,11 +67,7 @@ public class UserDataCacheService {
      * @param username username
      */
     public void incrementNewMessageCountFor(String username) {
-        Element cacheElementForUser = userDataCache.get(username);
-        if (cacheElementForUser != null) {
-            int count = (Integer) cacheElementForUser.getValue();
-            userDataCache.put(new Element(username, ++count));
-        }
+        changeNewMessageCountFor(username, 1);
     }
 
     /**
@@ -78,10 +76,24 @@ public class UserDataCacheService {
      * @param username username
      */
     public void decrementNewMessageCountFor(String username) {
+        changeNewMessageCountFor(username, -1);
+    }
+
+    /**
+     * Changes cached count if user is in cache, otherwise count will be read from the database
+     * next time it's needed.
+     *
+     * @param username username
+     * @param changes  value to add to the count
+     */
+    private void changeNewMessageCountFor(String username, int changes) {
         Element cacheElementForUser = userDataCache.get(username);
-        if (cacheElementForUser != null) {
-            int count = (Integer) cacheElementForUser.getValue();
-            userDataCache.put(new Element(username, --count));
+        while (cacheElementForUser != null) {
+            int count = Math.max((Integer) cacheElementForUser.getValue() + changes, 0);
+            if (userDataCache.replace(cacheElementForUser, new Element(username, count))) {
+                return;
+            }
+            cacheElementForUser = userDataCache.get(username);
         }
     }
 }
@@ -16,15 +16,16 @@ package org.jtalks.jcommune.service.security;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 import javax.annotation.Nonnull;
 
 import org.apache.commons.lang.Validate;
-//import org.jtalks.common.model.dao.GroupDao;
-//import org.jtalks.common.model.entity.Group;
 //import org.jtalks.common.model.entity.User;
-import org.jtalks.common.model.dao.GroupDao;
 import org.jtalks.common.model.entity.Group;
 import org.jtalks.common.model.permissions.BranchPermission;
 import org.jtalks.common.model.permissions.GeneralPermission;
@@ -39,6 +40,7 @@ import org.jtalks.common.security.acl.sids.UniversalSid;
 import org.jtalks.jcommune.model.dao.UserDao;
 import org.jtalks.jcommune.model.entity.JCUser;
 import org.jtalks.jcommune.plugin.api.PluginPermissionManager;
+import org.jtalks.jcommune.service.security.PermissionDecisionCache.ObjectDecisions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.access.PermissionEvaluator;
@@ -49,6 +51,8 @@ import org.springframework.security.acls.model.ObjectIdentity;
 import org.springframework.security.acls.model.Permission;
 import org.springframework.security.acls.model.Sid;
 import org.springframework.security.core.Authentication;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 /**
  * This evaluator is used to process the annotations of the Spring Security like {@link
@@ -62,36 +66,37 @@ import org.springframework.security.core.Authentication;
  */
 public class AclGroupPermissionEvaluator implements PermissionEvaluator {
     private static final Logger LOGGER = LoggerFactory.getLogger(AclGroupPermissionEvaluator.class);
+    private static final String REQUEST_DECISIONS = AclGroupPermissionEvaluator.class.getName() + ".DECISIONS";
 
     private final AclManager aclManager;
     private final AclUtil aclUtil;
-    private final GroupDao groupDao;
     private final JtalksSidFactory sidFactory;
     private final JdbcMutableAclService mutableAclService;
     private final UserDao userDao;
     private final PluginPermissionManager pluginPermissionManager;
+    private final PermissionDecisionCache decisionCache;
 
     /**
      * @param aclManager        for getting permissions on object indentity
      * @param aclUtil           utilities to work with Spring ACL
-     * @param groupDao          dao for user group getting
      * @param sidFactory        factory to work with principals
      * @param mutableAclService for checking existing of sids
+     * @param decisionCache     to remember decisions until permissions are changed
      */
     public AclGroupPermissionEvaluator(@Nonnull org.jtalks.common.security.acl.AclManager aclManager,
                                        @Nonnull AclUtil aclUtil,
-                                       @Nonnull GroupDao groupDao,
                                        @Nonnull JtalksSidFactory sidFactory,
                                        @Nonnull JdbcMutableAclService mutableAclService,
                                        @Nonnull UserDao userDao,
-                                       @Nonnull PluginPermissionManager pluginPermissionManager) {
+                                       @Nonnull PluginPermissionManager pluginPermissionManager,
+                                       @Nonnull PermissionDecisionCache decisionCache) {
         this.aclManager = aclManager;
         this.aclUtil = aclUtil;
         this.sidFactory = sidFactory;
         this.mutableAclService = mutableAclService;
         this.userDao = userDao;
-        this.groupDao = groupDao;
         this.pluginPermissionManager = pluginPermissionManager;
+        this.decisionCache = decisionCache;
     }
 
     /**
@@ -108,12 +113,14 @@ public class AclGroupPermissionEvaluator implements PermissionEvaluator {
      * TODO In runtime authentication object contains clear user password (not the hashed one).
      * May be potential security issue.
      * <p/>
+     * Decisions are remembered till the end of the current request and also cached for the same user
+     * groups until permissions on the object are changed, see {@link PermissionDecisionCache}.
+     * <p/>
      * {@inheritDoc}
      */
     @Override
     public boolean hasPermission(Authentication authentication, Serializable targetId,
                                  String targetType, Object permission) {
-        boolean result = false;
         Long id = parseTargetId(targetId);
 
         ObjectIdentity objectIdentity = aclUtil.createIdentity(id, targetType);
@@ -124,6 +131,76 @@ public class AclGroupPermissionEvaluator implements PermissionEvaluator {
             jtalksPermission = getPermission(permission);
         }
         Sid sid = sidFactory.createPrincipal(authentication);
+
+        if (permission == ProfilePermission.EDIT_OWN_PROFILE &&
+                ((JCUser) authentication.getPrincipal()).getId() != id) {
+            return false;
+        }
+
+        ObjectDecisions decisions = decisionCache.getDecisions(objectIdentity);
+        String decisionKey = ((UniversalSid) sid).getSidId() + ":" + jtalksPermission.getClass().getName() + ":"
+                + jtalksPermission.getMask();
+        Map<String, Boolean> requestDecisions = getRequestDecisions(decisions);
+        Boolean decision = requestDecisions.get(decisionKey);
+        if (decision == null) {
+            decision = hasPermission(authentication, sid, objectIdentity, jtalksPermission, decisionKey, decisions);
+            requestDecisions.put(decisionKey, decision);
+        }
+        return decision;
+    }
+
+    /**
+     * Takes decision from the cache or evaluates it from ACL entries of the object and groups of the user.
+     *
+     * @param authentication authentication to check permission for it
+     * @param sid            sid of the principal
+     * @param objectIdentity object to check permission on
+     * @param permission     permission to check
+     * @param decisionKey    describes who asks what permission on the object
+     * @param decisions      decisions made on the object, taken before evaluation
+     * @return <code>true</code> if this permission is granted
+     */
+    private boolean hasPermission(Authentication authentication, Sid sid, ObjectIdentity objectIdentity,
+                                  Permission permission, String decisionKey, ObjectDecisions decisions) {
+        List<Group> groups = new ArrayList<>();
+        if (authentication.getPrincipal() instanceof JCUser) {
+            JCUser storedUser = (JCUser) authentication.getPrincipal();
+            // retriev user with replicated groups from EhCache
+            JCUser actualUser = userDao.get(storedUser.getId());
+            if (actualUser == null) {
+                LOGGER.warn("{} : User #{} not found",
+                        this.getClass().getCanonicalName(),
+                        storedUser.getId());
+                return false;
+            }
+            groups = actualUser.getGroups();
+        }
+        Set<Long> groupIds = new TreeSet<>();
+        for (Group group : groups) {
+            groupIds.add(group.getId());
+        }
+
+        String groupsDecisionKey = decisionKey + ":" + groupIds;
+        Boolean decision = decisions.get(groupsDecisionKey);
+        if (decision == null) {
+            decision = isGranted(sid, groups, groupIds, objectIdentity, permission);
+            decisions.put(groupsDecisionKey, decision);
+        }
+        return decision;
+    }
+
+    /**
+     * Evaluates permission from ACL entries of the object and groups of the user.
+     *
+     * @param sid            sid of the principal
+     * @param groups         groups of the user
+     * @param groupIds       identifiers of groups of the user
+     * @param objectIdentity object to check permission on
+     * @param permission     permission to check
+     * @return <code>true</code> if this permission is granted
+     */
+    private boolean isGranted(Sid sid, List<Group> groups, Set<Long> groupIds,
+                              ObjectIdentity objectIdentity, Permission permission) {
         List<AccessControlEntry> aces;
         List<GroupAce> controlEntries;
 
@@ -135,21 +212,44 @@ public class AclGroupPermissionEvaluator implements PermissionEvaluator {
             controlEntries = new ArrayList<>();
         }
 
-        if (permission == ProfilePermission.EDIT_OWN_PROFILE &&
-                ((JCUser) authentication.getPrincipal()).getId() != id) {
+        if (isRestrictedForSid(sid, aces, permission) ||
+                isRestrictedForGroup(controlEntries, groupIds, permission) ||
+                isRestrictedPersonalPermission(groups, permission)) {
             return false;
+        } else if (isAllowedForSid(sid, aces, permission) ||
+                isAllowedForGroup(controlEntries, groupIds, permission) ||
+                isAllowedPersonalPermission(groups, permission)) {
+            return true;
         }
+        return false;
+    }
 
-        if (isRestrictedForSid(sid, aces, jtalksPermission) ||
-                isRestrictedForGroup(controlEntries, authentication, jtalksPermission) ||
-                isRestrictedPersonalPermission(authentication, jtalksPermission)) {
-            return false;
-        } else if (isAllowedForSid(sid, aces, jtalksPermission) ||
-                isAllowedForGroup(controlEntries, authentication, jtalksPermission) ||
-                isAllowedPersonalPermission(authentication, jtalksPermission)) {
-            return true;
+    /**
+     * Gets decisions on the object made during the current request, so that the same permission is checked
+     * only once while the page is rendered. They are kept together with cached decisions they were taken
+     * from, so that permissions changed during the request are checked again.
+     *
+     * @param decisions cached decisions on the object
+     * @return decisions of the current request or empty map if permission is checked outside of a request
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Boolean> getRequestDecisions(ObjectDecisions decisions) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return new HashMap<>();
         }
-        return result;
+        Map<ObjectDecisions, Map<String, Boolean>> requestDecisions = (Map<ObjectDecisions, Map<String, Boolean>>)
+                attributes.getAttribute(REQUEST_DECISIONS, RequestAttributes.SCOPE_REQUEST);
+        if (requestDecisions == null) {
+            requestDecisions = new HashMap<>();
+            attributes.setAttribute(REQUEST_DECISIONS, requestDecisions, RequestAttributes.SCOPE_REQUEST);
+        }
+        Map<String, Boolean> objectDecisions = requestDecisions.get(decisions);
+        if (objectDecisions == null) {
+            objectDecisions = new HashMap<>();
+            requestDecisions.put(decisions, objectDecisions);
+        }
+        return objectDecisions;
     }
 
     /**
@@ -170,23 +270,23 @@ public class AclGroupPermissionEvaluator implements PermissionEvaluator {
     }
 
     /**
-     * Check if this <tt>personal permission</tt> is allowed for groups of user from authentication
+     * Check if this <tt>personal permission</tt> is allowed for groups of user
      *
-     * @param authentication authentication to check permission for it
+     * @param groups groups of user to check permission for them
      * @return <code>true</code> if this permission is allowed
      */
-    private boolean isAllowedPersonalPermission(Authentication authentication, Permission permission) {
-        return isGrantedPersonalPermission(authentication, permission, true);
+    private boolean isAllowedPersonalPermission(List<Group> groups, Permission permission) {
+        return isGrantedPersonalPermission(groups, permission, true);
     }
 
     /**
-     * Check if this <tt>personal permission</tt> is restricted for groups of user from authentication
+     * Check if this <tt>personal permission</tt> is restricted for groups of user
      *
-     * @param authentication authentication to check permission for it
+     * @param groups groups of user to check permission for them
      * @return <code>true</code> if this permission is restricted
      */
-    private boolean isRestrictedPersonalPermission(Authentication authentication, Permission permission) {
-        return isGrantedPersonalPermission(authentication, permission, false);
+    private boolean isRestrictedPersonalPermission(List<Group> groups, Permission permission) {
+        return isGrantedPersonalPermission(groups, permission, false);
     }
 
 
@@ -254,41 +354,29 @@ public class AclGroupPermissionEvaluator implements PermissionEvaluator {
     }
 
     /**
-     * Check if this <tt>permission</tt> is granted for groups of user from authentication
+     * Check if this <tt>permission</tt> is granted for groups of user
      *
-     * @param authentication      authentication to check permission for it
+     * @param groups              groups of user to check permission for them
      * @param permission          permission to check
      * @param isCheckAllowedGrant flag that indicates what type of grant need to
      *                            be checked  - 'allowed' (true) or 'restricted' (false)
      * @return <code>true</code> if this permission was found with specified
      *         type of grant.
      */
-    private boolean isGrantedPersonalPermission(Authentication authentication, Permission permission,
+    private boolean isGrantedPersonalPermission(List<Group> groups, Permission permission,
                                                 boolean isCheckAllowedGrant) {
-        if (authentication.getPrincipal() instanceof JCUser) {
-            JCUser storedUser = (JCUser) authentication.getPrincipal();
-            // retriev user with replicated groups from EhCache
-            JCUser actualUser = userDao.get(storedUser.getId());
-            if (actualUser == null) {
-                LOGGER.warn("{} : User #{} not found",
-                        this.getClass().getCanonicalName(),
-                        storedUser.getId());
-                return !isCheckAllowedGrant;
+        for (Group group : groups) {
+            ObjectIdentity groupIdentity = aclUtil.createIdentity(group.getId(), "GROUP");
+            Sid groupSid = sidFactory.create(group);
+            List<AccessControlEntry> groupAces;
+            try {
+                groupAces = ExtendedMutableAcl.castAndCreate(
+                        mutableAclService.readAclById(groupIdentity)).getEntries();
+            } catch (NotFoundException nfe) {
+                groupAces = new ArrayList<>();
             }
-            List<Group> groups = actualUser.getGroups();
-            for (Group group : groups) {
-                ObjectIdentity groupIdentity = aclUtil.createIdentity(group.getId(), "GROUP");
-                Sid groupSid = sidFactory.create(group);
-                List<AccessControlEntry> groupAces;
-                try {
-                    groupAces = ExtendedMutableAcl.castAndCreate(
-                            mutableAclService.readAclById(groupIdentity)).getEntries();
-                } catch (NotFoundException nfe) {
-                    groupAces = new ArrayList<>();
-                }
-                if (isGrantedForSid(groupSid, groupAces, permission, isCheckAllowedGrant)) {
-                    return true;
-                }
+            if (isGrantedForSid(groupSid, groupAces, permission, isCheckAllowedGrant)) {
+                return true;
             }
         }
         return false;
@@ -300,13 +388,13 @@ public class AclGroupPermissionEvaluator implements PermissionEvaluator {
      *
      * @param controlEntries list of entries with security information for groups
      *                       to loop through
-     * @param authentication authentication to check permission for it
+     * @param groupIds       identifiers of groups of user to check permission for them
      * @param permission     permission to check
      * @return <code>true</code> if this permission is allowed.
      */
     private boolean isAllowedForGroup(List<GroupAce> controlEntries,
-                                      Authentication authentication, Permission permission) {
-        return isGrantedForGroup(controlEntries, authentication, permission, true);
+                                      Set<Long> groupIds, Permission permission) {
+        return isGrantedForGroup(controlEntries, groupIds, permission, true);
     }
 
     /**
@@ -315,13 +403,13 @@ public class AclGroupPermissionEvaluator implements PermissionEvaluator {
      *
      * @param controlEntries list of entries with security information for groups
      *                       to loop through
-     * @param authentication authentication to check permission for it
+     * @param groupIds       identifiers of groups of user to check permission for them
      * @param permission     permission to check
      * @return <code>true</code> if this permission is restricted.
      */
     private boolean isRestrictedForGroup(List<GroupAce> controlEntries,
-                                         Authentication authentication, Permission permission) {
-        return isGrantedForGroup(controlEntries, authentication, permission, false);
+                                         Set<Long> groupIds, Permission permission) {
+        return isGrantedForGroup(controlEntries, groupIds, permission, false);
     }
 
     /**
@@ -330,7 +418,7 @@ public class AclGroupPermissionEvaluator implements PermissionEvaluator {
      *
      * @param controlEntries      list of entries with security information for groups
      *                            to loop through
-     * @param authentication      authentication to check permission for it
+     * @param groupIds            identifiers of groups of user to check permission for them
      * @param permission          permission to check
      * @param isCheckAllowedGrant flag that indicates what type of grant need to
      *                            be checked  - 'allowed' (true) or 'restricted' (false)
@@ -338,13 +426,11 @@ public class AclGroupPermissionEvaluator implements PermissionEvaluator {
      *         type of grant.
      */
     private boolean isGrantedForGroup(List<GroupAce> controlEntries,
-                                      Authentication authentication, Permission permission,
+                                      Set<Long> groupIds, Permission permission,
                                       boolean isCheckAllowedGrant) {
-        if (authentication.getPrincipal() instanceof JCUser) {
-            for (GroupAce ace : controlEntries) {
-                if (isGrantedForGroup(ace, authentication, permission, isCheckAllowedGrant)) {
-                    return true;
-                }
+        for (GroupAce ace : controlEntries) {
+            if (isGrantedForGroup(ace, groupIds, permission, isCheckAllowedGrant)) {
+                return true;
             }
         }
         return false;
@@ -352,17 +438,18 @@ public class AclGroupPermissionEvaluator implements PermissionEvaluator {
 
     /**
      * Check if this <tt>permission</tt> is granted for any <tt>authority's</tt>
-     * group.
+     * group. Membership is checked by group identifiers of the user, so that
+     * users of the group are not loaded.
      *
      * @param ace                 entry with security information (for groups)
-     * @param authentication      authentication to check permission for it
+     * @param groupIds            identifiers of groups of user to check permission for them
      * @param permission          permission to check
      * @param isCheckAllowedGrant flag that indicates what type of grant need to
      *                            be checked  - 'allowed' (true) or 'restricted' (false)
      * @return <code>true</code> if this entry has specified <tt>permission</tt>
      *         and type of grant.
      */
-    private boolean isGrantedForGroup(GroupAce ace, Authentication authentication,
+    private boolean isGrantedForGroup(GroupAce ace, Set<Long> groupIds,
                                       Permission permission, boolean isCheckAllowedGrant) {
         Permission permissionToComapare = ace.getPermission();
         if (permissionToComapare == null) {
@@ -370,8 +457,7 @@ public class AclGroupPermissionEvaluator implements PermissionEvaluator {
         }
         return ace.isGranting() == isCheckAllowedGrant
                 && permission.equals(permissionToComapare)
-                && ace.getGroup(groupDao).getUsers().
-                contains(authentication.getPrincipal());
+                && groupIds.contains(ace.getGroupId());
     }
 
     private Permission getPermission(Object permission) {
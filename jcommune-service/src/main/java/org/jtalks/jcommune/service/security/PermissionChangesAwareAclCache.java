@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.security;
+
+import org.springframework.security.acls.model.AclCache;
+import org.springframework.security.acls.model.MutableAcl;
+import org.springframework.security.acls.model.ObjectIdentity;
+
+import java.io.Serializable;
+
+/**
+ * Cache of access control lists which drops cached permission decisions whenever any list is changed.
+ * Every change of ACL (granting or restricting permissions, deleting entities from ACL) is made through
+ * {@link org.springframework.security.acls.model.MutableAclService} which evicts the changed list (and lists of
+ * its children) from this cache, so it's the single place that sees all the changes, whoever makes them.
+ * <p/>
+ * Decision on an object depends on its own list and on lists of user groups, so change of the object's list
+ * drops decisions on this object only, while change of the group's list drops all of them.
+ */
+public class PermissionChangesAwareAclCache implements AclCache {
+    private static final String GROUP_TYPE = "GROUP";
+    private final AclCache aclCache;
+    private final PermissionDecisionCache decisionCache;
+
+    /**
+     * @param aclCache      cache to keep access control lists in
+     * @param decisionCache cache of permission decisions to outdate when access control lists are changed
+     */
+    public PermissionChangesAwareAclCache(AclCache aclCache, PermissionDecisionCache decisionCache) {
+        this.aclCache = aclCache;
+        this.decisionCache = decisionCache;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void evictFromCache(Serializable pk) {
+        MutableAcl acl = aclCache.getFromCache(pk);
+        aclCache.evictFromCache(pk);
+        invalidateDecisions((acl == null) ? null : acl.getObjectIdentity());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void evictFromCache(ObjectIdentity objectIdentity) {
+        aclCache.evictFromCache(objectIdentity);
+        invalidateDecisions(objectIdentity);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MutableAcl getFromCache(ObjectIdentity objectIdentity) {
+        return aclCache.getFromCache(objectIdentity);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MutableAcl getFromCache(Serializable pk) {
+        return aclCache.getFromCache(pk);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void putInCache(MutableAcl acl) {
+        aclCache.putInCache(acl);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clearCache() {
+        aclCache.clearCache();
+        decisionCache.invalidate();
+    }
+
+    /**
+     * Drops decisions which depend on the changed list.
+     *
+     * @param objectIdentity object which list is changed or {@code null} if it's unknown
+     */
+    private void invalidateDecisions(ObjectIdentity objectIdentity) {
+        if (objectIdentity == null || GROUP_TYPE.equals(objectIdentity.getType())) {
+            decisionCache.invalidate();
+        } else {
+            decisionCache.invalidate(objectIdentity);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.security;
+
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import org.jtalks.jcommune.model.utils.CacheInvalidation;
+import org.springframework.security.acls.model.ObjectIdentity;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps results of {@link AclGroupPermissionEvaluator} so that the same permission isn't evaluated
+ * from ACL entries again and again. Decisions are grouped by the object they are made on, so that
+ * changing of permissions on one object drops decisions made on this object only.
+ * <p/>
+ * Decisions are made by every node of the cluster itself, while dropping of them is replicated to other
+ * nodes. Permissions may be also changed by other applications (e.g. Poulpe), so decisions expire after a
+ * short time anyway.
+ */
+public class PermissionDecisionCache {
+    private final Ehcache decisionCache;
+
+    /**
+     * @param decisionCache cache to store decisions in, its removals should be replicated to other nodes
+     */
+    public PermissionDecisionCache(Ehcache decisionCache) {
+        this.decisionCache = decisionCache;
+    }
+
+    /**
+     * Gets decisions made on the object. They should be taken before the decision is made and the
+     * new decision should be put to them, so that decision made with permissions which were changed
+     * meanwhile is put to decisions which are already dropped.
+     *
+     * @param objectIdentity object decisions are made on
+     * @return decisions made on the object with its current permissions
+     */
+    public ObjectDecisions getDecisions(ObjectIdentity objectIdentity) {
+        String key = getKey(objectIdentity);
+        Element element = decisionCache.get(key);
+        if (element == null) {
+            Element created = new Element(key, new ObjectDecisions());
+            element = decisionCache.putIfAbsent(created);
+            if (element == null) {
+                element = created;
+            }
+        }
+        return (ObjectDecisions) element.getObjectValue();
+    }
+
+    /**
+     * Drops decisions made on the object, should be called when permissions on the object are changed.
+     *
+     * @param objectIdentity object which permissions are changed
+     * @see CacheInvalidation#nowAndAfterCompletion(Runnable)
+     */
+    public void invalidate(ObjectIdentity objectIdentity) {
+        final String key = getKey(objectIdentity);
+        CacheInvalidation.nowAndAfterCompletion(new Runnable() {
+            @Override
+            public void run() {
+                decisionCache.remove(key);
+            }
+        });
+    }
+
+    /**
+     * Drops all the decisions, should be called when permissions which decisions on any object
+     * depend on (e.g. permissions of user groups) are changed.
+     *
+     * @see CacheInvalidation#nowAndAfterCompletion(Runnable)
+     */
+    public void invalidate() {
+        CacheInvalidation.nowAndAfterCompletion(new Runnable() {
+            @Override
+            public void run() {
+                decisionCache.removeAll();
+            }
+        });
+    }
+
+    /**
+     * Builds key from type and identifier of the object, identifier may be of different types
+     * depending on whether object identity is read from database or created by application.
+     *
+     * @param objectIdentity object decisions are made on
+     * @return key of decisions made on the object
+     */
+    private String getKey(ObjectIdentity objectIdentity) {
+        return objectIdentity.getType() + ":" + objectIdentity.getIdentifier();
+    }
+
+    /**
+     * Decisions made on one object.
+     */
+    public static class ObjectDecisions {
+        private final ConcurrentMap<String, Boolean> decisions = new ConcurrentHashMap<>();
+
+        /**
+         * Gets cached decision.
+         *
+         * @param key key describing who asks what permission on the object
+         * @return cached decision or {@code null} if there is no such decision
+         */
+        public Boolean get(String key) {
+            return decisions.get(key);
+        }
+
+        /**
+         * Caches decision.
+         *
+         * @param key     key describing who asks what permission on the object
+         * @param granted whether permission is granted
+         */
+        public void put(String key, boolean granted) {
+            decisions.put(key, granted);
+        }
+    }
+}
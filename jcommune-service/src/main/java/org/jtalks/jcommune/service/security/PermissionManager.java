@@ -35,6 +35,7 @@ import org.jtalks.jcommune.model.dto.GroupsPermissions;
 import org.jtalks.jcommune.model.dto.PermissionChanges;
 import org.jtalks.jcommune.model.entity.AnonymousGroup;
 import org.jtalks.jcommune.plugin.api.PluginPermissionManager;
+import org.jtalks.jcommune.service.nontransactional.BranchVisibilityCacheService;
 import org.springframework.security.acls.model.AccessControlEntry;
 import org.springframework.security.acls.model.Permission;
 import org.springframework.security.acls.model.Sid;
@@ -55,20 +56,28 @@ public class PermissionManager {
     private final AclUtil aclUtil;
     private final GroupDao groupDao;
     private final PluginPermissionManager pluginPermissionManager;
+    private final BranchVisibilityCacheService branchVisibilityCacheService;
+    private final PermissionDecisionCache decisionCache;
 
     /**
      * Constructs {@link org.jtalks.jcommune.service.security.PermissionManager} with given
      * {@link org.jtalks.common.security.acl.AclManager} and {@link GroupDao}
      *
-     * @param aclManager manager instance
-     * @param groupDao   group dao instance
+     * @param aclManager                   manager instance
+     * @param groupDao                     group dao instance
+     * @param branchVisibilityCacheService to drop cached visible branches when permissions are changed
+     * @param decisionCache                to drop cached permission decisions when permissions are changed
      */
     public PermissionManager(@Nonnull AclManager aclManager, @Nonnull GroupDao groupDao,
-                             @Nonnull AclUtil aclUtil, @Nonnull PluginPermissionManager pluginPermissionManager) {
+                             @Nonnull AclUtil aclUtil, @Nonnull PluginPermissionManager pluginPermissionManager,
+                             @Nonnull BranchVisibilityCacheService branchVisibilityCacheService,
+                             @Nonnull PermissionDecisionCache decisionCache) {
         this.aclManager = aclManager;
         this.groupDao = groupDao;
         this.aclUtil = aclUtil;
         this.pluginPermissionManager = pluginPermissionManager;
+        this.branchVisibilityCacheService = branchVisibilityCacheService;
+        this.decisionCache = decisionCache;
     }
 
     /**
@@ -87,6 +96,8 @@ public class PermissionManager {
         for (Group group : changes.getRemovedGroupsAsArray()) {
             deleteGrantsOfGroup(group, changes.getPermission(), entity);
         }
+        branchVisibilityCacheService.invalidate();
+        decisionCache.invalidate();
     }
 
     /**
@@ -105,6 +116,8 @@ public class PermissionManager {
         for (Group group : changes.getRemovedGroupsAsArray()) {
             deleteGrantsOfGroup(group, changes.getPermission(), entity);
         }
+        branchVisibilityCacheService.invalidate();
+        decisionCache.invalidate();
     }
 
     /**
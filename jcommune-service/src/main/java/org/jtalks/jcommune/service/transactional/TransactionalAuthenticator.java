@@ -34,6 +34,7 @@ import org.jtalks.jcommune.plugin.api.exceptions.UnexpectedErrorException;
 import org.jtalks.jcommune.service.Authenticator;
 import org.jtalks.jcommune.service.PluginService;
 import org.jtalks.jcommune.plugin.api.exceptions.NotFoundException;
+import org.jtalks.jcommune.service.nontransactional.BBCodeService;
 import org.jtalks.jcommune.service.nontransactional.EncryptionService;
 import org.jtalks.jcommune.service.nontransactional.ImageService;
 import org.jtalks.jcommune.service.nontransactional.MailService;
@@ -93,6 +94,7 @@ public class TransactionalAuthenticator extends AbstractTransactionalEntityServi
     private ImageService avatarService;
     private GroupDao groupDao;
     private PluginService pluginService;
+    private BBCodeService bbCodeService;
     private static final Logger LOGGER = LoggerFactory.getLogger(TransactionalAuthenticator.class);
 
 
@@ -131,6 +133,16 @@ public class TransactionalAuthenticator extends AbstractTransactionalEntityServi
         this.authenticationManager = authenticationManager;
     }
 
+    /**
+     * It's not a constructor argument as {@link BBCodeService} depends on this authenticator through the user service
+     * rendering mentions.
+     *
+     * @param bbCodeService to evict rendered posts mentioning newly created users
+     */
+    public void setBbCodeService(BBCodeService bbCodeService) {
+        this.bbCodeService = bbCodeService;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -305,6 +317,9 @@ public class TransactionalAuthenticator extends AbstractTransactionalEntityServi
             user.addGroup(group);
         }
         getDao().saveOrUpdate(user);
+        if (newUser) {
+            evictRenderedPosts();
+        }
         return user;
     }
 
@@ -398,9 +413,19 @@ public class TransactionalAuthenticator extends AbstractTransactionalEntityServi
         user.setAvatar(avatarService.getDefaultImage());
         user.setRegistrationDate(new DateTime());
         this.getDao().saveOrUpdate(user);
+        evictRenderedPosts();
         mailService.sendAccountActivationMail(user);
         LOGGER.info("JCUser registered: {}", user.getUsername());
         return user;
     }
+
+    /**
+     * Mentions of the user created are rendered as plain text in the cached posts, so they have to be rendered again.
+     */
+    private void evictRenderedPosts() {
+        if (bbCodeService != null) {
+            bbCodeService.evictAllRenderedPosts();
+        }
+    }
     
 }
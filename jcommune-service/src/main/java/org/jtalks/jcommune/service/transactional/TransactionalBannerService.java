@@ -20,6 +20,7 @@ import org.jtalks.jcommune.model.dao.BannerDao;
 import org.jtalks.jcommune.model.entity.Banner;
 import org.jtalks.jcommune.model.entity.BannerPosition;
 import org.jtalks.jcommune.service.BannerService;
+import org.jtalks.jcommune.service.nontransactional.ForumChromeCacheService;
 import org.springframework.security.access.prepost.PreAuthorize;
 
 import java.util.Collection;
@@ -29,14 +30,17 @@ import java.util.Map;
 /** @author Anuar_Nurmakanov */
 public class TransactionalBannerService extends AbstractTransactionalEntityService<Banner, BannerDao>
         implements BannerService {
+    private final ForumChromeCacheService forumChromeCacheService;
 
     /**
      * Constructs an instance with given DAO, so it addresses to repository (in our case database).
      *
-     * @param bannerDao to search and change banner in database
+     * @param bannerDao               to search and change banner in database
+     * @param forumChromeCacheService to drop cached banners when banner is changed
      */
-    public TransactionalBannerService(BannerDao bannerDao) {
+    public TransactionalBannerService(BannerDao bannerDao, ForumChromeCacheService forumChromeCacheService) {
         super(bannerDao);
+        this.forumChromeCacheService = forumChromeCacheService;
     }
 
     /**
@@ -55,6 +59,7 @@ public class TransactionalBannerService extends AbstractTransactionalEntityServi
             existBanner.setContent(uploadedBanner.getContent());
         }
         getDao().saveOrUpdate(existBanner);
+        forumChromeCacheService.invalidate();
     }
 
     /** {@inheritDoc} */
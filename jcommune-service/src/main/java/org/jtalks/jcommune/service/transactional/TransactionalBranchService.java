@@ -35,7 +35,11 @@ import org.jtalks.jcommune.service.security.AdministrationGroup;
 import org.jtalks.jcommune.service.security.PermissionService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
 
 import java.util.*;
 
@@ -50,6 +54,11 @@ import java.util.*;
 public class TransactionalBranchService extends AbstractTransactionalEntityService<Branch, BranchDao>
         implements BranchService, PluginBranchService {
 
+    /**
+     * Topics are deleted by chunks with bulk statements, the chunk size limits IN clauses of the statements
+     */
+    static final int TOPICS_DELETION_CHUNK_SIZE = 100;
+
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     private SectionDao sectionDao;
@@ -58,6 +67,7 @@ public class TransactionalBranchService extends AbstractTransactionalEntityServi
     private TopicModificationService topicService;
     private PermissionService permissionService;
     private BranchLastPostService lastPostService;
+    private TransactionOperations transaction;
 
     /**
      * Create an instance of entity based service
@@ -67,6 +77,8 @@ public class TransactionalBranchService extends AbstractTransactionalEntityServi
      * @param topicDao          data access object for operations with topics
      * @param topicService      service to perform complex operations with topics
      * @param permissionService service to perform permissions operations
+     * @param lastPostService   service to refresh last post of the branch
+     * @param transaction       to delete topics of the branch by chunks committed separately
      */
     public TransactionalBranchService(
             BranchDao branchDao,
@@ -75,7 +87,8 @@ public class TransactionalBranchService extends AbstractTransactionalEntityServi
             GroupDao groupDao,
             TopicModificationService topicService,
             PermissionService permissionService,
-            BranchLastPostService lastPostService) {
+            BranchLastPostService lastPostService,
+            TransactionOperations transaction) {
         super(branchDao);
         this.sectionDao = sectionDao;
         this.topicDao = topicDao;
@@ -83,6 +96,7 @@ public class TransactionalBranchService extends AbstractTransactionalEntityServi
         this.permissionService = permissionService;
         this.groupDao = groupDao;
         this.lastPostService = lastPostService;
+        this.transaction = transaction;
     }
 
     /**
@@ -142,10 +156,7 @@ public class TransactionalBranchService extends AbstractTransactionalEntityServi
 
         for (org.jtalks.common.model.entity.Branch commonBranch : branches) {
             Branch jcommuneBranch = (Branch) commonBranch;
-            int postsCount = getDao().getCountPostsInBranch(jcommuneBranch);
-            jcommuneBranch.setPostsCount(postsCount);
-            int topicsCount = topicDao.countTopics(jcommuneBranch);
-            jcommuneBranch.setTopicsCount(topicsCount);
+            // counts of topics and posts are stored in the branch and maintained on posting
             if (jcommuneBranch.getLastPost() == null) {
                 lastPostService.refreshLastPostInBranch(jcommuneBranch);
             }
@@ -158,6 +169,18 @@ public class TransactionalBranchService extends AbstractTransactionalEntityServi
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Scheduled(cron = "0 30 4 * * *") // cron expression: invoke every day at 4:30 AM
+    public void reconcileStatisticInfo() {
+        int repaired = getDao().reconcileCounters();
+        if (repaired > 0) {
+            logger.warn("Repaired drifted statistics of {} topics and branches", repaired);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -171,20 +194,70 @@ public class TransactionalBranchService extends AbstractTransactionalEntityServi
      * {@inheritDoc}
      */
     @Override
-    public Branch deleteAllTopics(long branchId) throws NotFoundException {
-        Branch branch = get(branchId);
-
-        // Create tmp list to avoid ConcurrentModificationException
-        List<Topic> loopList = new ArrayList<>(branch.getTopics());
-        for (Topic topic : loopList) {
-            topicService.deleteTopicSilent(topic.getId());
+    public Branch deleteAllTopics(final long branchId) throws NotFoundException {
+        // runs without transaction (see txAdvice), every chunk of topics is deleted and committed
+        // separately, so that deletion of a big branch doesn't hold locks on all its rows till the end
+        Branch branch = transaction.execute(new TransactionCallback<Branch>() {
+            @Override
+            public Branch doInTransaction(TransactionStatus status) {
+                return getDao().isExist(branchId) ? getDao().get(branchId) : null;
+            }
+        });
+        if (branch == null) {
+            throw new NotFoundException("Branch with id: " + branchId + " not found");
         }
+        int topicCount = branch.getTopicCount();
+        int deletedTopics = 0;
+        Integer deletedInChunk = deleteTopicsChunk(branch);
+        while (deletedInChunk != null) {
+            deletedTopics += deletedInChunk;
+            logger.info("Deleted {} of {} topics in branch \"{}\"",
+                    new Object[]{deletedTopics, topicCount, branch.getName()});
+            deletedInChunk = deleteTopicsChunk(branch);
+        }
+        branch = refreshStatisticInfo(branch);
 
         logger.info("All topics for branch \"{}\" were deleted. " +
                 "Branch id: {}", branch.getName(), branch.getId());
         return branch;
     }
 
+    /**
+     * Deletes the next chunk of topics of the branch in its own transaction.
+     *
+     * @param branch branch to delete topics from
+     * @return count of deleted topics or {@code null} if there are no topics left in the branch
+     */
+    private Integer deleteTopicsChunk(final Branch branch) {
+        return transaction.execute(new TransactionCallback<Integer>() {
+            @Override
+            public Integer doInTransaction(TransactionStatus status) {
+                List<Long> topicIds = topicDao.getTopicIdsInBranch(branch, TOPICS_DELETION_CHUNK_SIZE);
+                return topicIds.isEmpty() ? null : topicService.deleteTopicsSilent(topicIds);
+            }
+        });
+    }
+
+    /**
+     * Recalculates counters and the last post of the branch after its topics were deleted.
+     *
+     * @param branch branch which topics were deleted
+     * @return branch with the actual statistics
+     */
+    private Branch refreshStatisticInfo(final Branch branch) {
+        return transaction.execute(new TransactionCallback<Branch>() {
+            @Override
+            public Branch doInTransaction(TransactionStatus status) {
+                getDao().recalculateCounters(branch);
+                Branch refreshed = getDao().get(branch.getId());
+                // last post is deleted with its topic, so the branch shouldn't restore it when it's saved
+                refreshed.clearLastPost();
+                lastPostService.refreshLastPostInBranch(refreshed);
+                return refreshed;
+            }
+        });
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -22,6 +22,7 @@ import org.jtalks.jcommune.model.entity.ComponentInformation;
 import org.jtalks.jcommune.service.ComponentService;
 import org.jtalks.jcommune.service.exceptions.ImageProcessException;
 import org.jtalks.jcommune.service.nontransactional.Base64Wrapper;
+import org.jtalks.jcommune.service.nontransactional.ForumChromeCacheService;
 import org.jtalks.jcommune.service.nontransactional.ImageService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -51,16 +52,20 @@ public class TransactionalComponentService extends AbstractTransactionalEntitySe
     private static final Logger LOGGER = LoggerFactory.getLogger(TransactionalComponentService.class);
 
     private final ImageService icoFormatImageService;
+    private final ForumChromeCacheService forumChromeCacheService;
 
     /**
      * Constructs an instance with required fields.
      *
      * @param icoFormatImageService service for converting icon to ICO format
      * @param dao                   to get component
+     * @param forumChromeCacheService to drop cached component when it's changed
      */
-    public TransactionalComponentService(ImageService icoFormatImageService, ComponentDao dao) {
+    public TransactionalComponentService(ImageService icoFormatImageService, ComponentDao dao,
+                                         ForumChromeCacheService forumChromeCacheService) {
         super(dao);
         this.icoFormatImageService = icoFormatImageService;
+        this.forumChromeCacheService = forumChromeCacheService;
     }
 
     /**
@@ -108,6 +113,7 @@ public class TransactionalComponentService extends AbstractTransactionalEntitySe
         DateTime now = new DateTime();
         now = now.withMillisOfSecond(0);
         forumComponent.setProperty(COMPONENT_INFO_CHANGE_DATE_PROPERTY, String.valueOf(now.getMillis()));
+        forumChromeCacheService.invalidate();
     }
 
     /**
@@ -18,6 +18,7 @@ import org.jtalks.common.model.entity.Component;
 import org.jtalks.jcommune.model.dao.ExternalLinkDao;
 import org.jtalks.jcommune.model.entity.ExternalLink;
 import org.jtalks.jcommune.service.ExternalLinkService;
+import org.jtalks.jcommune.service.nontransactional.ForumChromeCacheService;
 import org.springframework.security.access.prepost.PreAuthorize;
 
 import java.util.List;
@@ -28,15 +29,18 @@ import java.util.List;
  */
 public class TransactionalExternalLinkService extends AbstractTransactionalEntityService<ExternalLink, ExternalLinkDao>
         implements ExternalLinkService {
+    private final ForumChromeCacheService forumChromeCacheService;
 
     /**
      * Subclass may use this constructor to store entity DAO or parent
      * entity DAO if necessary
      *
-     * @param dao subclass-provided dao object
+     * @param dao                     subclass-provided dao object
+     * @param forumChromeCacheService to drop cached links when link is changed
      */
-    public TransactionalExternalLinkService(ExternalLinkDao dao) {
+    public TransactionalExternalLinkService(ExternalLinkDao dao, ForumChromeCacheService forumChromeCacheService) {
         super(dao);
+        this.forumChromeCacheService = forumChromeCacheService;
     }
 
     /**
@@ -54,6 +58,7 @@ public class TransactionalExternalLinkService extends AbstractTransactionalEntit
     @PreAuthorize("hasPermission(#forumComponent.id, 'COMPONENT', 'GeneralPermission.ADMIN')")
     public void saveLink(ExternalLink link, Component forumComponent) {
         getDao().saveOrUpdate(link);
+        forumChromeCacheService.invalidate();
     }
 
     /**
@@ -62,6 +67,8 @@ public class TransactionalExternalLinkService extends AbstractTransactionalEntit
     @Override
     @PreAuthorize("hasPermission(#forumComponent.id, 'COMPONENT', 'GeneralPermission.ADMIN')")
     public boolean deleteLink(long id, Component forumComponent) {
-        return getDao().delete(id);
+        boolean deleted = getDao().delete(id);
+        forumChromeCacheService.invalidate();
+        return deleted;
     }
 }
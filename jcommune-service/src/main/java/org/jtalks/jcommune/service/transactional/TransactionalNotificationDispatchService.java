@@ -0,0 +1,224 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.transactional;
+
+import org.joda.time.DateTime;
+import org.jtalks.jcommune.model.dao.BranchDao;
+import org.jtalks.jcommune.model.dao.NotificationOutboxDao;
+import org.jtalks.jcommune.model.dao.TopicDao;
+import org.jtalks.jcommune.model.entity.JCUser;
+import org.jtalks.jcommune.model.entity.NotificationOutboxEntry;
+import org.jtalks.jcommune.model.entity.SubscriptionAwareEntity;
+import org.jtalks.jcommune.service.NotificationDispatchService;
+import org.jtalks.jcommune.service.nontransactional.NotificationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Sends notifications from the outbox by batches. Notifications of a batch about the same
+ * entity are sent once, and subscribers get only one mail about the same topic or branch
+ * even if it was changed several times or they are subscribed to both topic and its branch.
+ * <p/>
+ * Every node of the cluster dispatches the outbox, so notifications are claimed in a separate
+ * transaction before being sent, and each of them is sent by one node only. Sent notifications
+ * are removed from the outbox, failed ones are kept there and retried when their claim expires.
+ * Notifications which failed too many times are removed some days after the last attempt.
+ */
+public class TransactionalNotificationDispatchService implements NotificationDispatchService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransactionalNotificationDispatchService.class);
+    private static final int BATCH_SIZE = 200;
+    /** Claims expire after this time, so that notifications claimed by the stopped node are sent by others */
+    private static final int CLAIM_TIMEOUT_MINUTES = 10;
+    /** Notifications which failed to be sent this number of times are not retried anymore */
+    private static final int MAX_ATTEMPTS = 5;
+    /** Notifications which aren't retried anymore are kept in the outbox for this time after the last attempt */
+    private static final int EXHAUSTED_KEEP_DAYS = 7;
+
+    private final NotificationOutboxDao outboxDao;
+    private final TopicDao topicDao;
+    private final BranchDao branchDao;
+    private final NotificationService notificationService;
+    private final TransactionOperations claimTransaction;
+
+    /**
+     * @param outboxDao           to get notifications to send
+     * @param topicDao            to get changed topics
+     * @param branchDao           to get changed branches
+     * @param notificationService to send notifications to subscribers
+     * @param claimTransaction    to claim notifications in a new transaction, so that other nodes
+     *                            see the claim before notifications are sent
+     */
+    public TransactionalNotificationDispatchService(NotificationOutboxDao outboxDao,
+                                                    TopicDao topicDao,
+                                                    BranchDao branchDao,
+                                                    NotificationService notificationService,
+                                                    TransactionOperations claimTransaction) {
+        this.outboxDao = outboxDao;
+        this.topicDao = topicDao;
+        this.branchDao = branchDao;
+        this.notificationService = notificationService;
+        this.claimTransaction = claimTransaction;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void dispatchQueuedNotifications() {
+        List<NotificationOutboxEntry> entries = claimOldest();
+        if (entries.isEmpty()) {
+            return;
+        }
+        List<NotificationOutboxEntry> sent = new ArrayList<>();
+        List<NotificationOutboxEntry> failed = new ArrayList<>();
+        Map<String, Set<JCUser>> notifiedBySubject = new HashMap<>();
+        for (List<NotificationOutboxEntry> sameEntityEntries : groupByEntity(entries)) {
+            NotificationOutboxEntry entry = sameEntityEntries.get(0);
+            try {
+                dispatch(entry, getSingleAuthorId(sameEntityEntries), getNotified(notifiedBySubject, entry));
+                sent.addAll(sameEntityEntries);
+            } catch (RuntimeException e) {
+                LOGGER.error("Failed to send notification " + entry.getKind() + " about entity "
+                        + entry.getEntityId() + ", attempt " + (entry.getAttempts() + 1) + " of " + MAX_ATTEMPTS, e);
+                failed.addAll(sameEntityEntries);
+            }
+        }
+        outboxDao.delete(sent);
+        outboxDao.markFailed(failed);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void purgeExhaustedNotifications() {
+        int deleted = outboxDao.deleteExhausted(MAX_ATTEMPTS, new DateTime().minusDays(EXHAUSTED_KEEP_DAYS));
+        if (deleted > 0) {
+            LOGGER.warn("Removed {} notifications which failed to be sent {} times", deleted, MAX_ATTEMPTS);
+        }
+    }
+
+    /**
+     * Claims the oldest notifications in a new transaction, which is committed before they are sent.
+     *
+     * @return notifications claimed by this node
+     */
+    private List<NotificationOutboxEntry> claimOldest() {
+        final String claimant = UUID.randomUUID().toString();
+        final DateTime claimedBefore = new DateTime().minusMinutes(CLAIM_TIMEOUT_MINUTES);
+        return claimTransaction.execute(new TransactionCallback<List<NotificationOutboxEntry>>() {
+            @Override
+            public List<NotificationOutboxEntry> doInTransaction(TransactionStatus status) {
+                return outboxDao.claimOldest(claimant, BATCH_SIZE, claimedBefore, MAX_ATTEMPTS);
+            }
+        });
+    }
+
+    /**
+     * Sends notification to subscribers of the changed entity.
+     *
+     * @param entry           notification to send
+     * @param authorId        ID of the user who made all the changes or {@code null}
+     * @param alreadyNotified subscribers who were notified about the same topic or branch already
+     */
+    private void dispatch(NotificationOutboxEntry entry, Long authorId, Set<JCUser> alreadyNotified) {
+        SubscriptionAwareEntity entity = (entry.getKind() == NotificationOutboxEntry.Kind.BRANCH_CHANGED)
+                ? branchDao.get(entry.getEntityId()) : topicDao.get(entry.getEntityId());
+        if (entity == null) {
+            LOGGER.debug("Entity {} was removed before notification {} was sent",
+                    entry.getEntityId(), entry.getKind());
+            return;
+        }
+        notificationService.sendQueuedNotifications(entry.getKind(), entity, authorId, alreadyNotified,
+                entry.getRootUrl(), entry.getRootUrlLabel());
+    }
+
+    /**
+     * Groups notifications of the same kind about the same entity, groups are ordered by kind,
+     * so that e.g. subscribers of the branch get mail about new topic rather than about its update.
+     *
+     * @param entries notifications to group
+     * @return groups of notifications
+     */
+    private List<List<NotificationOutboxEntry>> groupByEntity(List<NotificationOutboxEntry> entries) {
+        Map<String, List<NotificationOutboxEntry>> groups = new LinkedHashMap<>();
+        for (NotificationOutboxEntry entry : entries) {
+            String key = entry.getKind() + ":" + entry.getEntityId();
+            List<NotificationOutboxEntry> group = groups.get(key);
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(key, group);
+            }
+            group.add(entry);
+        }
+        List<List<NotificationOutboxEntry>> result = new ArrayList<>(groups.values());
+        Collections.sort(result, new Comparator<List<NotificationOutboxEntry>>() {
+            @Override
+            public int compare(List<NotificationOutboxEntry> first, List<NotificationOutboxEntry> second) {
+                return first.get(0).getKind().compareTo(second.get(0).getKind());
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Gets the author of all the changes. If entity was changed by several users, they all
+     * should be notified about changes made by others.
+     *
+     * @param sameEntityEntries notifications about the same entity
+     * @return ID of the author of all the changes or {@code null} if there are several authors
+     */
+    private Long getSingleAuthorId(List<NotificationOutboxEntry> sameEntityEntries) {
+        long authorId = sameEntityEntries.get(0).getAuthorId();
+        for (NotificationOutboxEntry entry : sameEntityEntries) {
+            if (entry.getAuthorId() != authorId) {
+                return null;
+            }
+        }
+        return authorId;
+    }
+
+    /**
+     * Gets subscribers who were already notified about the topic or branch the notification is about.
+     *
+     * @param notifiedBySubject already notified subscribers by topic or branch
+     * @param entry             notification
+     * @return subscribers already notified about the same topic or branch
+     */
+    private Set<JCUser> getNotified(Map<String, Set<JCUser>> notifiedBySubject, NotificationOutboxEntry entry) {
+        String subject = (entry.getKind() == NotificationOutboxEntry.Kind.BRANCH_CHANGED ? "branch:" : "topic:")
+                + entry.getEntityId();
+        Set<JCUser> notified = notifiedBySubject.get(subject);
+        if (notified == null) {
+            notified = new HashSet<>();
+            notifiedBySubject.put(subject, notified);
+        }
+        return notified;
+    }
+}
@@ -85,6 +85,7 @@ public class TransactionalPluginService extends AbstractTransactionalEntityServi
         } catch (RuntimeException ex) {
             throw new UnexpectedErrorException(ex);
         }
+        pLuginLoader.reloadPlugins(new NameFilter(name));
     }
 
     @Override
@@ -19,11 +19,14 @@ import org.jtalks.common.model.dao.Crud;
 import org.jtalks.common.model.dao.GroupDao;
 import org.jtalks.common.model.permissions.GeneralPermission;
 import org.jtalks.common.security.SecurityService;
+import org.jtalks.jcommune.model.dao.PollDao;
+import org.jtalks.jcommune.model.entity.JCUser;
 import org.jtalks.jcommune.model.entity.Poll;
 import org.jtalks.jcommune.model.entity.PollItem;
 import org.jtalks.jcommune.service.PollService;
 import org.jtalks.jcommune.service.UserService;
 import org.jtalks.jcommune.service.security.AdministrationGroup;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
 
 import java.util.List;
@@ -38,7 +41,7 @@ import static ch.lambdaj.Lambda.*;
  * @author Alexandre Teterin
  * @see org.jtalks.jcommune.model.entity.Poll
  */
-public class TransactionalPollService extends AbstractTransactionalEntityService<Poll, Crud<Poll>>
+public class TransactionalPollService extends AbstractTransactionalEntityService<Poll, PollDao>
         implements PollService {
     private Crud<PollItem> pollOptionDao;
     private GroupDao groupDao;
@@ -49,14 +52,15 @@ public class TransactionalPollService extends AbstractTransactionalEntityService
      * Create an instance of service for operations with a poll.
      *
      * @param pollDao         data access object, which should be able do
-     *                        all CRUD operations with {@link org.jtalks.jcommune.model.entity.Poll}.
+     *                        all CRUD operations with {@link org.jtalks.jcommune.model.entity.Poll}
+     *                        and record votes of the users.
      * @param groupDao        this dao returns user group for permission granting
      * @param pollOptionDao   data access object, which should be able do
      *                        all CRUD operations with {@link org.jtalks.jcommune.model.entity.PollItem}.
      * @param securityService the service for security operations
      * @param userService     to fetch the user currently logged in
      */
-    public TransactionalPollService(Crud<Poll> pollDao,
+    public TransactionalPollService(PollDao pollDao,
                                     GroupDao groupDao,
                                     Crud<PollItem> pollOptionDao,
                                     SecurityService securityService,
@@ -76,17 +80,25 @@ public class TransactionalPollService extends AbstractTransactionalEntityService
     public Poll vote(Long pollId, List<Long> selectedOptionsIds) {
         Poll poll = getDao().get(pollId);
         if (poll.isActive()) {
-            prohibitRevote(poll);
-            for (PollItem option : poll.getPollItems()) {
-                if (selectedOptionsIds.contains(option.getId())) {
-                    option.increaseVotesCount();
-                    pollOptionDao.saveOrUpdate(option);
-                }
+            JCUser currentUser = userService.getCurrentUser();
+            if (getDao().isVotedBy(poll, currentUser)) {
+                throw new AccessDeniedException("User [" + currentUser.getUsername()
+                        + "] has already voted in the poll [" + pollId + "]");
             }
+            getDao().vote(poll, currentUser, selectedOptionsIds);
         }
         return poll;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isVotedByCurrentUser(Poll poll) {
+        JCUser currentUser = userService.getCurrentUser();
+        return !currentUser.isAnonymous() && getDao().isVotedBy(poll, currentUser);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -119,15 +131,4 @@ public class TransactionalPollService extends AbstractTransactionalEntityService
         existing.clear();
         existing.addAll(newItems);
     }
-
-
-    /**
-     * Prohibit the re-vote. In this poll a user will no longer be able to participate.
-     *
-     * @param poll a poll, in which the user will no longer be able to participate
-     */
-    private void prohibitRevote(final Poll poll) {
-        securityService.createAclBuilder().restrict(GeneralPermission.WRITE).
-                to(userService.getCurrentUser()).on(poll).flush();
-    }
 }
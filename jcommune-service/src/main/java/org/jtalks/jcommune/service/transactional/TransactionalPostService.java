@@ -20,6 +20,7 @@ import org.jtalks.common.security.SecurityService;
 import org.jtalks.jcommune.model.dao.PostDao;
 import org.jtalks.jcommune.model.dao.TopicDao;
 import org.jtalks.jcommune.model.dto.PageRequest;
+import org.jtalks.jcommune.model.dto.PostsPageBoundary;
 import org.jtalks.jcommune.model.entity.*;
 import org.jtalks.jcommune.plugin.api.PluginLoader;
 import org.jtalks.jcommune.plugin.api.core.Plugin;
@@ -31,6 +32,8 @@ import org.jtalks.jcommune.plugin.api.service.PluginPostService;
 import org.jtalks.jcommune.service.BranchLastPostService;
 import org.jtalks.jcommune.service.PostService;
 import org.jtalks.jcommune.service.UserService;
+import org.jtalks.jcommune.service.nontransactional.BBCodeService;
+import org.jtalks.jcommune.service.nontransactional.BranchVisibilityCacheService;
 import org.jtalks.jcommune.service.nontransactional.NotificationService;
 import org.jtalks.jcommune.service.security.AclClassName;
 import org.jtalks.jcommune.service.security.PermissionService;
@@ -65,6 +68,8 @@ public class TransactionalPostService extends AbstractTransactionalEntityService
     private BranchLastPostService branchLastPostService;
     private PermissionService permissionService;
     private PluginLoader pluginLoader;
+    private BBCodeService bbCodeService;
+    private BranchVisibilityCacheService branchVisibilityCacheService;
 
     /**
      * Create an instance of Post entity based service
@@ -75,6 +80,8 @@ public class TransactionalPostService extends AbstractTransactionalEntityService
      * @param notificationService   to send email updates for subscribed users
      * @param userService           to get current user
      * @param branchLastPostService to refresh the last post of the branch
+     * @param bbCodeService         to evict rendered content of changed posts
+     * @param branchVisibilityCacheService to get branches visible to the current user
      */
     public TransactionalPostService(
             PostDao dao,
@@ -84,7 +91,9 @@ public class TransactionalPostService extends AbstractTransactionalEntityService
             UserService userService,
             BranchLastPostService branchLastPostService,
             PermissionService permissionService,
-            PluginLoader pluginLoader) {
+            PluginLoader pluginLoader,
+            BBCodeService bbCodeService,
+            BranchVisibilityCacheService branchVisibilityCacheService) {
         super(dao);
         this.topicDao = topicDao;
         this.securityService = securityService;
@@ -93,6 +102,8 @@ public class TransactionalPostService extends AbstractTransactionalEntityService
         this.branchLastPostService = branchLastPostService;
         this.permissionService = permissionService;
         this.pluginLoader = pluginLoader;
+        this.bbCodeService = bbCodeService;
+        this.branchVisibilityCacheService = branchVisibilityCacheService;
     }
 
     /**
@@ -118,6 +129,7 @@ public class TransactionalPostService extends AbstractTransactionalEntityService
         post.updateModificationDate();
 
         this.getDao().saveOrUpdate(post);
+        bbCodeService.evictRenderedPost(post);
         userService.notifyAndMarkNewlyMentionedUsers(post);
 
         logger.debug("Post id={} updated.", post.getId());
@@ -137,6 +149,7 @@ public class TransactionalPostService extends AbstractTransactionalEntityService
         Topic topic = post.getTopic();
         topic.removePost(post);
         Branch branch = topic.getBranch();
+        branch.setPostCount(branch.getPostCount() - 1);
         boolean deletedPostIsLastPostInBranch = branch.isLastPost(post);
         if (deletedPostIsLastPostInBranch) {
             branch.clearLastPost();
@@ -145,7 +158,9 @@ public class TransactionalPostService extends AbstractTransactionalEntityService
 
         // todo: event API?
         topicDao.saveOrUpdate(topic);
+        topicDao.changePostCount(topic, -1);
         securityService.deleteFromAcl(post);
+        bbCodeService.evictRenderedPost(post);
         notificationService.subscribedEntityChanged(topic);
         if (deletedPostIsLastPostInBranch) {
             branchLastPostService.refreshLastPostInBranch(branch);
@@ -160,7 +175,7 @@ public class TransactionalPostService extends AbstractTransactionalEntityService
     @Override
     public Page<Post> getPostsOfUser(JCUser userCreated, String page) {
         JCUser currentUser = userService.getCurrentUser();
-        List<Long> allowedBranchesIds = topicDao.getAllowedBranchesIds(currentUser);
+        List<Long> allowedBranchesIds = branchVisibilityCacheService.getVisibleBranchIds(currentUser);
 
         PageRequest pageRequest = new PageRequest(page, currentUser.getPageSize());
 
@@ -176,15 +191,8 @@ public class TransactionalPostService extends AbstractTransactionalEntityService
      */
     @Override
     public int calculatePageForPost(Post post) {
-        Topic topic = post.getTopic();
-        int index = topic.getPosts().indexOf(post) + 1;
-        int pageSize = userService.getCurrentUser().getPageSize();
-        int pageNum = index / pageSize;
-        if (index % pageSize == 0) {
-            return pageNum;
-        } else {
-            return pageNum + 1;
-        }
+        int index = getDao().getPostIndexInTopic(post);
+        return index / userService.getCurrentUser().getPageSize() + 1;
     }
 
     /**
@@ -192,8 +200,16 @@ public class TransactionalPostService extends AbstractTransactionalEntityService
      */
     @Override
     public Page<Post> getPosts(Topic topic, String page) {
+        return getPosts(topic, page, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Page<Post> getPosts(Topic topic, String page, PostsPageBoundary boundary) {
         PageRequest pageRequest = new PageRequest(page, userService.getCurrentUser().getPageSize());
-        return getDao().getPosts(topic, pageRequest);
+        return getDao().getPosts(topic, pageRequest, boundary);
     }
 
     /**
@@ -109,6 +109,7 @@ public class TransactionalPrivateMessageService
         pm.setStatus(PrivateMessageStatus.SENT);
         this.getDao().saveOrUpdate(pm);
 
+        this.getDao().changeNewMessagesCount(recipient, 1);
         userDataCache.incrementNewMessageCountFor(recipient.getUsername());
 
         securityService.createAclBuilder().grant(GeneralPermission.READ).to(recipient).on(pm).flush();
@@ -176,7 +177,7 @@ public class TransactionalPrivateMessageService
         if (count != null) {
             return count;
         }
-        count = this.getDao().getNewMessagesCountFor(username);
+        count = this.getDao().getStoredNewMessagesCountFor(username);
         userDataCache.putNewPmCount(username, count);
         return count;
     }
@@ -194,6 +195,7 @@ public class TransactionalPrivateMessageService
         pm.setStatus(PrivateMessageStatus.SENT);
         this.getDao().saveOrUpdate(pm);
 
+        this.getDao().changeNewMessagesCount(recipient, 1);
         userDataCache.incrementNewMessageCountFor(recipient.getUsername());
 
         securityService.deleteFromAcl(pm);
@@ -224,6 +226,7 @@ public class TransactionalPrivateMessageService
         if (this.ifMessageShouldBeMarkedAsRead(pm)) {
             pm.setRead(true);
             this.getDao().saveOrUpdate(pm);
+            this.getDao().changeNewMessagesCount(pm.getUserTo(), -1);
             userDataCache.decrementNewMessageCountFor(pm.getUserTo().getUsername());
         }
         return pm;
@@ -29,6 +29,9 @@ import org.jtalks.jcommune.plugin.api.exceptions.NotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.access.AccessDeniedException;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -50,6 +53,8 @@ public class TransactionalSectionService extends AbstractTransactionalEntityServ
     private TopicDao topicDao;
 
     private PostDao postDao;
+
+    private TransactionOperations transaction;
     
     /**
      * Create an instance of entity based service
@@ -59,14 +64,17 @@ public class TransactionalSectionService extends AbstractTransactionalEntityServ
      * @param userService object, that represents service for the working with users
      * @param topicDao object, that represents service for the working with topics
      * @param postDao object, that represents service for the working with posts
+     * @param transaction to read sections to delete topics from, topics of every branch are deleted
+     *                    by their own transactions
      */
     public TransactionalSectionService(SectionDao dao, BranchService branchService, UserService userService,
-                                       TopicDao topicDao, PostDao postDao) {
+                                       TopicDao topicDao, PostDao postDao, TransactionOperations transaction) {
         super(dao);
         this.branchService = branchService;
         this.userService = userService;
         this.topicDao = topicDao;
         this.postDao = postDao;
+        this.transaction = transaction;
     }
 
     /**
@@ -115,13 +123,28 @@ public class TransactionalSectionService extends AbstractTransactionalEntityServ
      * {@inheritDoc}
      */
     @Override
-    public Section deleteAllTopicsInSection(long sectionId) throws NotFoundException {
-        Section section = get(sectionId);
+    public Section deleteAllTopicsInSection(final long sectionId) throws NotFoundException {
+        // runs without transaction (see txAdvice), so that branches aren't deleted in one huge transaction
+        final List<Long> branchIds = new ArrayList<>();
+        Section section = transaction.execute(new TransactionCallback<Section>() {
+            @Override
+            public Section doInTransaction(TransactionStatus status) {
+                if (!getDao().isExist(sectionId)) {
+                    return null;
+                }
+                Section section = getDao().get(sectionId);
+                for (Branch branch : section.getBranches()) {
+                    branchIds.add(branch.getId());
+                }
+                return section;
+            }
+        });
+        if (section == null) {
+            throw new NotFoundException("Section with id: " + sectionId + " not found");
+        }
 
-        //Create tmp list to avoid ConcurrentModificationException
-        List<Branch> loopList = new ArrayList<>(section.getBranches());
-        for (Branch branch : loopList) {
-            branchService.deleteAllTopics(branch.getId());
+        for (Long branchId : branchIds) {
+            branchService.deleteAllTopics(branchId);
         }
 
         logger.info("All branches for sections \"{}\" were deleted. " +
@@ -134,8 +157,18 @@ public class TransactionalSectionService extends AbstractTransactionalEntityServ
      */
     @Override
     public void deleteAllTopicsInForum() throws NotFoundException {
-        for (Section section : this.getAll()) {
-            this.deleteAllTopicsInSection(section.getId());
+        List<Long> sectionIds = transaction.execute(new TransactionCallback<List<Long>>() {
+            @Override
+            public List<Long> doInTransaction(TransactionStatus status) {
+                List<Long> sectionIds = new ArrayList<>();
+                for (Section section : getAll()) {
+                    sectionIds.add(section.getId());
+                }
+                return sectionIds;
+            }
+        });
+        for (Long sectionId : sectionIds) {
+            this.deleteAllTopicsInSection(sectionId);
         }
     }
 
@@ -18,40 +18,59 @@ import org.apache.commons.lang.StringUtils;
 import org.joda.time.DateTime;
 import org.jtalks.jcommune.model.dao.TopicDao;
 import org.jtalks.jcommune.model.dao.search.TopicSearchDao;
+import org.jtalks.jcommune.model.dto.IndexingProgress;
 import org.jtalks.jcommune.model.dto.PageRequest;
 import org.jtalks.jcommune.model.entity.Branch;
 import org.jtalks.jcommune.model.entity.JCUser;
 import org.jtalks.jcommune.model.entity.Topic;
+import org.jtalks.jcommune.model.utils.CacheInvalidation;
 import org.jtalks.jcommune.plugin.api.service.PluginTopicFetchService;
 import org.jtalks.jcommune.service.TopicFetchService;
 import org.jtalks.jcommune.service.UserService;
+import org.jtalks.jcommune.service.nontransactional.BranchVisibilityCacheService;
+import org.jtalks.jcommune.service.nontransactional.TopicViewsCounter;
 import org.jtalks.jcommune.plugin.api.exceptions.NotFoundException;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextClosedEvent;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.access.prepost.PreAuthorize;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Performs load operations on topic based on various
  * conditions. Topic search operations are also performed here.
+ * <p/>
+ * Topic views are counted in memory and are written to the database in batches
+ * by timer and on application shutdown, so viewing a topic doesn't update it.
  */
 public class TransactionalTopicFetchService extends AbstractTransactionalEntityService<Topic, TopicDao>
-        implements TopicFetchService, PluginTopicFetchService {
+        implements TopicFetchService, PluginTopicFetchService, ApplicationListener<ContextClosedEvent> {
 
     private UserService userService;
     private TopicSearchDao searchDao;
+    private TopicViewsCounter viewsCounter;
+    private BranchVisibilityCacheService branchVisibilityCacheService;
 
     /**
-     * @param dao         topic dao for database manipulations
-     * @param userService to get current user and his preferences
-     * @param searchDao   for search index access
+     * @param dao                          topic dao for database manipulations
+     * @param userService                  to get current user and his preferences
+     * @param searchDao                    for search index access
+     * @param viewsCounter                 to count topic views in memory
+     * @param branchVisibilityCacheService to get branches visible to the current user
      */
-    public TransactionalTopicFetchService(TopicDao dao, UserService userService, TopicSearchDao searchDao) {
+    public TransactionalTopicFetchService(TopicDao dao, UserService userService, TopicSearchDao searchDao,
+                                          TopicViewsCounter viewsCounter,
+                                          BranchVisibilityCacheService branchVisibilityCacheService) {
         super(dao);
         this.userService = userService;
         this.searchDao = searchDao;
+        this.viewsCounter = viewsCounter;
+        this.branchVisibilityCacheService = branchVisibilityCacheService;
     }
 
     /**
@@ -60,20 +79,69 @@ public class TransactionalTopicFetchService extends AbstractTransactionalEntityS
     @Override    
     public Topic get(Long id) throws NotFoundException {
         Topic topic = super.get(id);
-        topic.setViews(topic.getViews() + 1);
-        this.getDao().saveOrUpdate(topic);
+        viewsCounter.increment(id);
+        topic.setPendingViews(viewsCounter.getPendingViews(id));
         return topic;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Scheduled(fixedDelay = 60000) // write views every minute
+    public void flushPendingViews() {
+        final Map<Long, Integer> views = viewsCounter.drainPendingViews();
+        Runnable restoreViews = new Runnable() {
+            @Override
+            public void run() {
+                viewsCounter.addPendingViews(views);
+            }
+        };
+        // views are put back to the counter if they are not committed
+        boolean restoredOnRollback = CacheInvalidation.afterRollback(restoreViews);
+        try {
+            getDao().addViews(views);
+        } catch (RuntimeException e) {
+            if (!restoredOnRollback) {
+                restoreViews.run();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Writes views counted in memory before the application is stopped.
+     *
+     * @param event context closed event
+     */
+    @Override
+    public void onApplicationEvent(ContextClosedEvent event) {
+        flushPendingViews();
+    }
+
+    /**
+     * Sets views counted in memory to topics, so they are displayed along with stored views.
+     *
+     * @param topics topics to be displayed
+     * @return the same topics
+     */
+    private Page<Topic> withPendingViews(Page<Topic> topics) {
+        for (Topic topic : topics.getContent()) {
+            topic.setPendingViews(viewsCounter.getPendingViews(topic.getId()));
+        }
+        return topics;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public Page<Topic> getRecentTopics(String page) {
-        int pageSize = userService.getCurrentUser().getPageSize();
-        PageRequest pageRequest = new PageRequest(page, pageSize);
+        JCUser currentUser = userService.getCurrentUser();
+        PageRequest pageRequest = new PageRequest(page, currentUser.getPageSize());
         DateTime date24HoursAgo = new DateTime().minusDays(1);
-        return this.getDao().getTopicsUpdatedSince(date24HoursAgo, pageRequest, userService.getCurrentUser());
+        List<Long> visibleBranchIds = branchVisibilityCacheService.getVisibleBranchIds(currentUser);
+        return withPendingViews(this.getDao().getTopicsUpdatedSince(date24HoursAgo, pageRequest, visibleBranchIds));
     }
 
     /**
@@ -81,9 +149,10 @@ public class TransactionalTopicFetchService extends AbstractTransactionalEntityS
      */
     @Override
     public Page<Topic> getUnansweredTopics(String page) {
-        int pageSize = userService.getCurrentUser().getPageSize();
-        PageRequest pageRequest = new PageRequest(page, pageSize);
-        return this.getDao().getUnansweredTopics(pageRequest, userService.getCurrentUser());
+        JCUser currentUser = userService.getCurrentUser();
+        PageRequest pageRequest = new PageRequest(page, currentUser.getPageSize());
+        List<Long> visibleBranchIds = branchVisibilityCacheService.getVisibleBranchIds(currentUser);
+        return withPendingViews(this.getDao().getUnansweredTopics(pageRequest, visibleBranchIds));
     }
 
     @Override
@@ -98,7 +167,7 @@ public class TransactionalTopicFetchService extends AbstractTransactionalEntityS
     public Page<Topic> getTopics(Branch branch, String page) {
         int pageSize = userService.getCurrentUser().getPageSize();
         PageRequest pageRequest = new PageRequest(page, pageSize);
-        return getDao().getTopics(branch, pageRequest);
+        return withPendingViews(getDao().getTopics(branch, pageRequest));
     }
 
     /**
@@ -108,7 +177,7 @@ public class TransactionalTopicFetchService extends AbstractTransactionalEntityS
     public Page<Topic> searchByTitleAndContent(String phrase, String page) {
         JCUser currentUser = userService.getCurrentUser();
 
-        List<Long> allowedBranchesIds = this.getDao().getAllowedBranchesIds(currentUser);
+        List<Long> allowedBranchesIds = branchVisibilityCacheService.getVisibleBranchIds(currentUser);
 
         if (!StringUtils.isEmpty(phrase) && !allowedBranchesIds.isEmpty()) {
             int pageSize = currentUser.getPageSize();
@@ -128,6 +197,14 @@ public class TransactionalTopicFetchService extends AbstractTransactionalEntityS
     public void rebuildSearchIndex() {
         searchDao.rebuildIndex();
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public IndexingProgress getSearchIndexingProgress() {
+        return searchDao.getIndexingProgress();
+    }
     
     /**
      * {@inheritDoc}
@@ -20,6 +20,7 @@ import org.jtalks.common.service.security.SecurityContextFacade;
 import org.jtalks.jcommune.model.dao.BranchDao;
 import org.jtalks.jcommune.model.dao.PostDao;
 import org.jtalks.jcommune.model.dao.TopicDao;
+import org.jtalks.jcommune.model.dao.search.TopicSearchDao;
 import org.jtalks.jcommune.model.entity.*;
 import org.jtalks.jcommune.plugin.api.PluginLoader;
 import org.jtalks.jcommune.plugin.api.core.Plugin;
@@ -71,6 +72,7 @@ public class TransactionalTopicModificationService implements TopicModificationS
     private LastReadPostService lastReadPostService;
     private TopicFetchService topicFetchService;
     private PluginLoader pluginLoader;
+    private TopicSearchDao topicSearchDao;
 
     /**
      * Create an instance of User entity based service.
@@ -87,6 +89,9 @@ public class TransactionalTopicModificationService implements TopicModificationS
      * @param branchLastPostService to refresh the last post of the branch
      * @param lastReadPostService   to work with last read post
      * @param postDao               to store newly created posts in database
+     * @param topicFetchService     to get topics
+     * @param pluginLoader          to get plugins of topic types
+     * @param topicSearchDao        to reindex moved topics
      */
     public TransactionalTopicModificationService(TopicDao dao, SecurityService securityService,
                                                  BranchDao branchDao,
@@ -100,7 +105,8 @@ public class TransactionalTopicModificationService implements TopicModificationS
                                                  LastReadPostService lastReadPostService,
                                                  PostDao postDao,
                                                  TopicFetchService topicFetchService,
-                                                 PluginLoader pluginLoader) {
+                                                 PluginLoader pluginLoader,
+                                                 TopicSearchDao topicSearchDao) {
         this.dao = dao;
         this.securityService = securityService;
         this.branchDao = branchDao;
@@ -115,6 +121,7 @@ public class TransactionalTopicModificationService implements TopicModificationS
         this.postDao = postDao;
         this.topicFetchService = topicFetchService;
         this.pluginLoader = pluginLoader;
+        this.topicSearchDao = topicSearchDao;
     }
 
     /**
@@ -138,8 +145,10 @@ public class TransactionalTopicModificationService implements TopicModificationS
         postDao.saveOrUpdate(answer);
 
         Branch branch = topic.getBranch();
+        branch.setPostCount(branch.getPostCount() + 1);
         branch.setLastPost(answer);
         branchDao.saveOrUpdate(branch);
+        dao.changePostCount(topic, 1);
 
         securityService.createAclBuilder().grant(GeneralPermission.WRITE).to(currentUser).on(answer).flush();
         notificationService.subscribedEntityChanged(topic);
@@ -193,10 +202,13 @@ public class TransactionalTopicModificationService implements TopicModificationS
         topic.setType(topicDto.getType());
         topic.addPost(first);
         topic.setBranch(branch);
+        branch.setTopicCount(branch.getTopicCount() + 1);
+        branch.setPostCount(branch.getPostCount() + 1);
         branch.setLastPost(first);
 
         dao.saveOrUpdate(topic);
         branchDao.saveOrUpdate(branch);
+        branchDao.changeCounters(branch, 1, 1);
 
         JCUser user = userService.getCurrentUser();
         securityService.createAclBuilder().grant(GeneralPermission.WRITE).to(user).on(topic).flush();
@@ -350,6 +362,18 @@ public class TransactionalTopicModificationService implements TopicModificationS
         this.deleteTopicSilent(topic);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int deleteTopicsSilent(Collection<Long> topicIds) {
+        int deletedTopics = dao.deleteTopics(topicIds);
+        for (Long topicId : topicIds) {
+            securityService.deleteFromAcl(Topic.class, topicId);
+        }
+        return deletedTopics;
+    }
+
     /**
      * Performs actual topic deletion. Deletes all topic related data and
      * recalculates user's post count.
@@ -372,6 +396,7 @@ public class TransactionalTopicModificationService implements TopicModificationS
 
         branch.deleteTopic(topic);
         branchDao.saveOrUpdate(branch);
+        branchDao.changeCounters(branch, -1, -topic.getPostCount());
 
         if (branchLastPostFromDeletedTopic) {
             branchLastPostService.refreshLastPostInBranch(branch);
@@ -394,6 +419,12 @@ public class TransactionalTopicModificationService implements TopicModificationS
         }
         targetBranch.addTopic(topic);
         branchDao.saveOrUpdate(targetBranch);
+        branchDao.changeCounters(targetBranch, 1, topic.getPostCount());
+        // topic is not removed from the source branch collection to avoid its orphan deletion
+        sourceBranch.setTopicCount(sourceBranch.getTopicCount() - 1);
+        sourceBranch.setPostCount(sourceBranch.getPostCount() - topic.getPostCount());
+        branchDao.changeCounters(sourceBranch, -1, -topic.getPostCount());
+        topicSearchDao.reindexTopicWithPosts(topic);
 
         List<Post> topicPosts = topic.getPosts();
         if (topicPosts.contains(sourceBranch.getLastPost())) {
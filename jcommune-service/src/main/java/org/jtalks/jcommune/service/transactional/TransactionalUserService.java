@@ -16,7 +16,6 @@ package org.jtalks.jcommune.service.transactional;
 
 import org.apache.commons.lang.RandomStringUtils;
 import org.joda.time.DateTime;
-import org.joda.time.Period;
 import org.jtalks.common.model.dao.GroupDao;
 import org.jtalks.common.model.entity.Group;
 import org.jtalks.common.model.entity.User;
@@ -38,6 +37,8 @@ import org.jtalks.jcommune.service.dto.UserSecurityContainer;
 import org.jtalks.jcommune.service.exceptions.MailingFailedException;
 import org.jtalks.jcommune.plugin.api.exceptions.NotFoundException;
 import org.jtalks.jcommune.service.exceptions.UserTriesActivatingAccountAgainException;
+import org.jtalks.jcommune.service.nontransactional.AvatarCache;
+import org.jtalks.jcommune.service.nontransactional.BBCodeService;
 import org.jtalks.jcommune.service.nontransactional.Base64Wrapper;
 import org.jtalks.jcommune.service.nontransactional.EncryptionService;
 import org.jtalks.jcommune.service.nontransactional.MailService;
@@ -79,6 +80,8 @@ public class TransactionalUserService extends AbstractTransactionalEntityService
     private final Base64Wrapper base64Wrapper;
     //Important, use for every password creation.
     private final EncryptionService encryptionService;
+    private final AvatarCache avatarCache;
+    private BBCodeService bbCodeService;
 
     /**
      * Create an instance of User entity based service
@@ -91,6 +94,7 @@ public class TransactionalUserService extends AbstractTransactionalEntityService
      * @param encryptionService encodes user password before store
      * @param postDao           for operations with posts
      * @param authenticator     for user authentication
+     * @param avatarCache       to drop cached avatar when user changes it
      */
     public TransactionalUserService(UserDao dao,
                                     GroupDao groupDao,
@@ -99,7 +103,8 @@ public class TransactionalUserService extends AbstractTransactionalEntityService
                                     Base64Wrapper base64Wrapper,
                                     EncryptionService encryptionService,
                                     PostDao postDao,
-                                    Authenticator authenticator) {
+                                    Authenticator authenticator,
+                                    AvatarCache avatarCache) {
         super(dao);
         this.groupDao = groupDao;
         this.securityService = securityService;
@@ -108,6 +113,16 @@ public class TransactionalUserService extends AbstractTransactionalEntityService
         this.encryptionService = encryptionService;
         this.postDao = postDao;
         this.authenticator = authenticator;
+        this.avatarCache = avatarCache;
+    }
+
+    /**
+     * It's not a constructor argument as {@link BBCodeService} itself depends on this service to render mentions.
+     *
+     * @param bbCodeService to evict rendered posts mentioning removed users
+     */
+    public void setBbCodeService(BBCodeService bbCodeService) {
+        this.bbCodeService = bbCodeService;
     }
 
     /**
@@ -182,7 +197,8 @@ public class TransactionalUserService extends AbstractTransactionalEntityService
 
         editedUser.setEmail(editedUserProfileInfo.getEmail());
 
-        if (!Arrays.equals(editedUser.getAvatar(), decodedAvatar)) {
+        boolean avatarChanged = !Arrays.equals(editedUser.getAvatar(), decodedAvatar);
+        if (avatarChanged) {
             editedUser.setAvatarLastModificationTime(new DateTime());
         }
         editedUser.setAvatar(decodedAvatar);
@@ -193,6 +209,9 @@ public class TransactionalUserService extends AbstractTransactionalEntityService
         editedUser.setLocation(editedUserProfileInfo.getLocation());
 
         this.getDao().saveOrUpdate(editedUser);
+        if (avatarChanged) {
+            avatarCache.invalidate(editedUserId);
+        }
         LOGGER.info("Updated user profile. Username: {}", editedUser.getUsername());
         return editedUser;
     }
@@ -293,12 +312,10 @@ public class TransactionalUserService extends AbstractTransactionalEntityService
     @Override
     @Scheduled(cron = "0 * * * * *") // cron expression: invoke every hour at :00 min, e.g. 11:00, 12:00 and so on
     public void deleteUnactivatedAccountsByTimer() {
-        DateTime today = new DateTime();
-        for (JCUser user : this.getDao().getNonActivatedUsers()) {
-            Period period = new Period(user.getRegistrationDate(), today);
-            if (period.getDays() > 0) {
-                this.getDao().delete(user);
-            }
+        int deleted = this.getDao().deleteNonActivatedUsersRegisteredBefore(new DateTime().minusDays(1));
+        if (deleted > 0) {
+            LOGGER.info("Deleted {} expired non-activated user accounts", deleted);
+            evictRenderedPosts();
         }
     }
 
@@ -370,4 +387,13 @@ public class TransactionalUserService extends AbstractTransactionalEntityService
         jcUser.setLanguage(newLang);
         this.getDao().saveOrUpdate(jcUser);
     }
+
+    /**
+     * Mentions of the removed users are rendered as links in the cached posts, so they have to be rendered again.
+     */
+    private void evictRenderedPosts() {
+        if (bbCodeService != null) {
+            bbCodeService.evictAllRenderedPosts();
+        }
+    }
 }
@@ -26,6 +26,8 @@ import java.util.List;
 
 import static org.mockito.Mockito.*;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 public class BbCodeReviewProcessorTest {
     private BbCodeReviewProcessor service;
@@ -85,6 +87,13 @@ public class BbCodeReviewProcessorTest {
                                          "<pre>int good=2;[/code][-code][/code]</pre>");       
     }
 
+    @Test
+    public void processorShouldBeAppliedOnlyToRequestsRenderingCodeReview() {
+        when(request.getAttribute("isCodeReviewPost")).thenReturn(null, "true");
+        assertFalse(service.isAppliedToCurrentRequest());
+        assertTrue(service.isAppliedToCurrentRequest());
+    }
+
     @DataProvider
     public Object[][] preProcessingPosts() {
         return new Object[][]{  // {"bb code before", "bb code after"}
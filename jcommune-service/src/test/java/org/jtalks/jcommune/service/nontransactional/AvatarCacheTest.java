@@ -0,0 +1,146 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.nontransactional;
+
+import org.apache.commons.io.FileUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.*;
+
+public class AvatarCacheTest {
+    private static final byte[] AVATAR = new byte[]{1, 2, 3};
+
+    private File cacheFolder;
+    private long currentTime = 1000;
+    private AvatarCache avatarCache;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        cacheFolder = Files.createTempDirectory("avatars").toFile();
+        avatarCache = new AvatarCache(cacheFolder.getPath()) {
+            @Override
+            long currentTimeMillis() {
+                return currentTime;
+            }
+        };
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        FileUtils.deleteQuietly(cacheFolder);
+    }
+
+    @Test
+    public void avatarShouldNotBeFoundIfNotCached() {
+        assertNull(avatarCache.get(1L));
+    }
+
+    @Test
+    public void cachedAvatarShouldBeFound() throws IOException {
+        avatarCache.put(1L, 1000, AVATAR);
+
+        AvatarCache.CachedAvatar avatar = avatarCache.get(1L);
+
+        assertEquals(avatar.getVersion(), 1000);
+        assertEquals(avatar.getLength(), AVATAR.length);
+        assertEquals(contentOf(avatar), AVATAR);
+    }
+
+    @Test
+    public void sameAvatarsShouldHaveSameHashAndShareFile() {
+        String hash = avatarCache.put(1L, 1000, AVATAR).getHash();
+
+        assertEquals(avatarCache.put(2L, 2000, AVATAR.clone()).getHash(), hash);
+        assertEquals(cacheFolder.list(), new String[]{hash});
+    }
+
+    @Test
+    public void differentAvatarsShouldHaveDifferentHashes() {
+        String hash = avatarCache.put(1L, 1000, AVATAR).getHash();
+
+        assertFalse(avatarCache.put(2L, 1000, new byte[]{3, 2, 1}).getHash().equals(hash));
+    }
+
+    @Test
+    public void invalidatedAvatarShouldNotBeFound() {
+        avatarCache.put(1L, 1000, AVATAR);
+
+        avatarCache.invalidate(1L);
+
+        assertNull(avatarCache.get(1L));
+    }
+
+    @Test
+    public void avatarCachedByConcurrentRequestShouldBeRemovedAfterTransactionCompletes() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            avatarCache.invalidate(1L);
+            avatarCache.put(1L, 1000, AVATAR);
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertNull(avatarCache.get(1L));
+    }
+
+    @Test
+    public void expiredAvatarShouldNotBeFound() {
+        avatarCache.put(1L, 1000, AVATAR);
+
+        currentTime += TimeUnit.MINUTES.toMillis(11);
+
+        assertNull(avatarCache.get(1L));
+    }
+
+    @Test
+    public void avatarShouldNotBeFoundIfItsFileIsRemoved() {
+        avatarCache.put(1L, 1000, AVATAR);
+
+        FileUtils.deleteQuietly(cacheFolder);
+
+        assertNull(avatarCache.get(1L));
+    }
+
+    @Test
+    public void avatarShouldBeServedIfItCannotBeWrittenToFileSystem() throws IOException {
+        File notFolder = new File(cacheFolder, "file");
+        FileUtils.writeByteArrayToFile(notFolder, AVATAR);
+        avatarCache = new AvatarCache(notFolder.getPath());
+
+        AvatarCache.CachedAvatar avatar = avatarCache.put(1L, 1000, AVATAR);
+
+        assertEquals(contentOf(avatar), AVATAR);
+        assertNull(avatarCache.get(1L));
+    }
+
+    private byte[] contentOf(AvatarCache.CachedAvatar avatar) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        avatar.writeTo(output);
+        return output.toByteArray();
+    }
+}
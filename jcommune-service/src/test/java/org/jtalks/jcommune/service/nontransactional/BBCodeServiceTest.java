@@ -14,12 +14,26 @@
  */
 package org.jtalks.jcommune.service.nontransactional;
 
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import org.joda.time.DateTime;
 import org.jtalks.jcommune.model.entity.JCUser;
+import org.jtalks.jcommune.model.entity.Post;
+import org.jtalks.jcommune.service.bb2htmlprocessors.BbCodeReviewProcessor;
+import org.jtalks.jcommune.service.bb2htmlprocessors.TextPostProcessor;
+import org.kefirsf.bb.TextProcessor;
+import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.util.Collections;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
 
 /**
  * @author Evgeniy Naumenko
@@ -30,9 +44,20 @@ public class BBCodeServiceTest {
     private static final String SOURCE = "source";
     private static final JCUser USER = new JCUser("name", "mail", "pass");
 
+    private CacheManager cacheManager;
+    private Cache renderedPostsCache;
+
     @BeforeMethod
     public void setUp() {
         service = new BBCodeService();
+        cacheManager = CacheManager.create();
+        renderedPostsCache = new Cache("renderedPostsTestCache", 100, false, true, 0, 0);
+        cacheManager.addCache(renderedPostsCache);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        cacheManager.removeCache("renderedPostsTestCache");
     }
 
     @Test
@@ -46,6 +71,106 @@ public class BBCodeServiceTest {
         assertEquals(service.convertBbToHtml(bbCode), expectedResult);
     }
 
+    @Test
+    public void convertPostToHtmlShouldReuseRenderedContentOfNotModifiedPost() {
+        service.setRenderedPostsCache(renderedPostsCache);
+        Post post = new Post(USER, "[b]text[/b]");
+        post.setId(1L);
+
+        String firstTime = service.convertPostToHtml(post);
+        post.setPostContent("[i]text[/i]");
+        String secondTime = service.convertPostToHtml(post);
+
+        assertEquals(firstTime, "<span style=\"font-weight:bold;\">text</span>");
+        assertEquals(secondTime, firstTime);
+    }
+
+    @Test
+    public void convertPostToHtmlShouldRenderModifiedPostAgain() {
+        service.setRenderedPostsCache(renderedPostsCache);
+        Post post = mock(Post.class);
+        when(post.getId()).thenReturn(1L);
+        when(post.getPostContent()).thenReturn("[b]text[/b]", "[i]text[/i]");
+        when(post.getLastTouchedDate()).thenReturn(new DateTime(1000L), new DateTime(2000L));
+
+        service.convertPostToHtml(post);
+
+        assertEquals(service.convertPostToHtml(post), "<span style=\"font-style:italic;\">text</span>");
+    }
+
+    @Test
+    public void evictRenderedPostShouldRemovePostFromCache() {
+        service.setRenderedPostsCache(renderedPostsCache);
+        Post post = new Post(USER, "[b]text[/b]");
+        post.setId(1L);
+        service.convertPostToHtml(post);
+
+        service.evictRenderedPost(post);
+
+        assertNull(renderedPostsCache.get(1L));
+    }
+
+    @Test
+    public void convertPostToHtmlShouldNotCacheTooLargePosts() {
+        service.setRenderedPostsCache(renderedPostsCache);
+        service.setMaxCachedHtmlLength(5);
+        Post post = new Post(USER, "[b]text[/b]");
+        post.setId(1L);
+
+        service.convertPostToHtml(post);
+
+        assertNull(renderedPostsCache.get(1L));
+    }
+
+    @Test
+    public void convertPostToHtmlShouldPostProcessCachedContentWithinEachRequest() {
+        TextPostProcessor postprocessor = mock(TextPostProcessor.class);
+        when(postprocessor.postProcess(anyString())).thenReturn("first request", "second request");
+        service.setPostprocessors(Collections.singletonList(postprocessor));
+        service.setRenderedPostsCache(renderedPostsCache);
+        Post post = new Post(USER, "[b]text[/b]");
+        post.setId(1L);
+
+        service.convertPostToHtml(post);
+
+        assertEquals(service.convertPostToHtml(post), "second request");
+    }
+
+    @Test
+    public void convertPostToHtmlShouldNotCachePostPreProcessedForCurrentRequestOnly() {
+        BbCodeReviewProcessor codeReviewProcessor = mock(BbCodeReviewProcessor.class);
+        when(codeReviewProcessor.process(anyString())).thenReturn("[b]text[/b]");
+        when(codeReviewProcessor.isAppliedToCurrentRequest()).thenReturn(true);
+        service.setPreprocessors(Collections.<TextProcessor>singletonList(codeReviewProcessor));
+        service.setRenderedPostsCache(renderedPostsCache);
+        Post post = new Post(USER, "[b]text[/b]");
+        post.setId(1L);
+
+        service.convertPostToHtml(post);
+
+        assertNull(renderedPostsCache.get(1L));
+    }
+
+    @Test
+    public void evictAllRenderedPostsShouldClearCache() {
+        service.setRenderedPostsCache(renderedPostsCache);
+        Post post = new Post(USER, "[b]text[/b]");
+        post.setId(1L);
+        service.convertPostToHtml(post);
+
+        service.evictAllRenderedPosts();
+
+        assertEquals(renderedPostsCache.getSize(), 0);
+    }
+
+    @Test
+    public void convertPostToHtmlShouldWorkWithoutCache() {
+        Post post = new Post(USER, "[b]text[/b]");
+        post.setId(1L);
+
+        assertEquals(service.convertPostToHtml(post), "<span style=\"font-weight:bold;\">text</span>");
+    }
+
     @Test(dataProvider = "bbCodesToStrip") 
     public void testBBCodesStripping(String bbCode, String expected, String message) {
         assertEquals(service.stripBBCodes(bbCode), expected, message);
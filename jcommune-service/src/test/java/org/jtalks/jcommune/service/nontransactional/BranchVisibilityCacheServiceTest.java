@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.nontransactional;
+
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import org.jtalks.common.model.entity.Group;
+import org.jtalks.jcommune.model.dao.TopicDao;
+import org.jtalks.jcommune.model.entity.AnonymousUser;
+import org.jtalks.jcommune.model.entity.JCUser;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+
+public class BranchVisibilityCacheServiceTest {
+    private Ehcache cache;
+    private TopicDao topicDao;
+    private BranchVisibilityCacheService service;
+
+    @BeforeMethod
+    public void setUp() {
+        cache = mock(Ehcache.class);
+        topicDao = mock(TopicDao.class);
+        service = new BranchVisibilityCacheService(cache, topicDao);
+    }
+
+    @Test
+    public void visibleBranchesShouldBeLoadedAndCachedIfNotCached() {
+        JCUser user = userOfGroups(2L, 1L);
+        when(topicDao.getAllowedBranchesIds(user)).thenReturn(Arrays.asList(1L, 5L));
+
+        List<Long> branchIds = service.getVisibleBranchIds(user);
+
+        assertEquals(branchIds, Arrays.asList(1L, 5L));
+        ArgumentCaptor<Element> captor = ArgumentCaptor.forClass(Element.class);
+        verify(cache).put(captor.capture());
+        assertEquals(captor.getValue().getObjectKey(), "[1, 2]");
+        assertEquals(captor.getValue().getObjectValue(), Arrays.asList(1L, 5L));
+    }
+
+    @Test
+    public void cachedVisibleBranchesShouldBeReturnedForUserOfSameGroups() {
+        List<Long> cached = Arrays.asList(3L);
+        when(cache.get("[1, 2]")).thenReturn(new Element("[1, 2]", cached));
+
+        List<Long> branchIds = service.getVisibleBranchIds(userOfGroups(1L, 2L));
+
+        assertEquals(branchIds, cached);
+        verify(topicDao, never()).getAllowedBranchesIds(any(JCUser.class));
+        verify(cache, never()).put(any(Element.class));
+    }
+
+    @Test
+    public void anonymousUsersShouldShareTheirOwnEntry() {
+        List<Long> cached = Arrays.asList(4L);
+        when(cache.get("anonymous")).thenReturn(new Element("anonymous", cached));
+
+        List<Long> branchIds = service.getVisibleBranchIds(new AnonymousUser());
+
+        assertEquals(branchIds, cached);
+        verify(topicDao, never()).getAllowedBranchesIds(any(JCUser.class));
+    }
+
+    @Test
+    public void invalidateShouldDropVisibleBranchesOfAllGroups() {
+        service.invalidate();
+
+        verify(cache).removeAll();
+    }
+
+    @Test
+    public void invalidateWithinTransactionShouldDropVisibleBranchesAgainAfterItCompletes() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.invalidate();
+            verify(cache).removeAll();
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(cache, times(2)).removeAll();
+    }
+
+    private JCUser userOfGroups(long... groupIds) {
+        JCUser user = new JCUser("username", "email@mail.com", "password");
+        for (long groupId : groupIds) {
+            Group group = new Group("group" + groupId);
+            group.setId(groupId);
+            user.getGroups().add(group);
+        }
+        return user;
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.nontransactional;
+
+import org.jtalks.common.model.entity.Component;
+import org.jtalks.jcommune.model.dao.BannerDao;
+import org.jtalks.jcommune.model.dao.ComponentDao;
+import org.jtalks.jcommune.model.dao.ExternalLinkDao;
+import org.jtalks.jcommune.model.entity.Banner;
+import org.jtalks.jcommune.model.entity.BannerPosition;
+import org.jtalks.jcommune.model.entity.ExternalLink;
+import org.jtalks.jcommune.service.dto.ForumChrome;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+public class ForumChromeCacheServiceTest {
+    private BannerDao bannerDao;
+    private ExternalLinkDao externalLinkDao;
+    private ComponentDao componentDao;
+    private long currentTime = 1000;
+    private ForumChromeCacheService service;
+
+    @BeforeMethod
+    public void setUp() {
+        bannerDao = mock(BannerDao.class);
+        externalLinkDao = mock(ExternalLinkDao.class);
+        componentDao = mock(ComponentDao.class);
+        service = new ForumChromeCacheService(bannerDao, externalLinkDao, componentDao) {
+            @Override
+            long currentTimeMillis() {
+                return currentTime;
+            }
+        };
+    }
+
+    @Test
+    public void snapshotShouldContainAllTheData() {
+        Banner banner = new Banner(BannerPosition.TOP, "<html></html>");
+        ExternalLink link = new ExternalLink();
+        Component component = new Component();
+        when(bannerDao.getAll()).thenReturn(Arrays.asList(banner));
+        when(externalLinkDao.getAll()).thenReturn(Arrays.asList(link));
+        when(componentDao.getComponent()).thenReturn(component);
+
+        ForumChrome chrome = service.getForumChrome();
+
+        assertSame(chrome.getBanners().get(BannerPosition.TOP.toString()), banner);
+        assertEquals(chrome.getExternalLinks(), Arrays.asList(link));
+        assertSame(chrome.getForumComponent(), component);
+    }
+
+    @Test
+    public void snapshotShouldBeReused() {
+        ForumChrome chrome = service.getForumChrome();
+
+        assertSame(service.getForumChrome(), chrome);
+        verify(bannerDao).getAll();
+        verify(externalLinkDao).getAll();
+        verify(componentDao).getComponent();
+    }
+
+    @Test
+    public void snapshotShouldBeRebuiltAfterInvalidation() {
+        service.getForumChrome();
+
+        service.invalidate();
+        service.getForumChrome();
+
+        verify(bannerDao, times(2)).getAll();
+    }
+
+    @Test
+    public void snapshotShouldBeRebuiltWhenExpired() {
+        service.getForumChrome();
+
+        currentTime += 5 * 60 * 1000;
+        service.getForumChrome();
+
+        verify(bannerDao, times(2)).getAll();
+    }
+
+    @Test
+    public void snapshotShouldBeRebuiltAfterTransactionCompletesIfInvalidatedWithinIt() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.invalidate();
+            service.getForumChrome();
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        service.getForumChrome();
+
+        verify(bannerDao, times(2)).getAll();
+    }
+}
@@ -245,4 +245,33 @@ public class ImageConverterTest {
         assertEquals(image.getHeight(), maxSize);
         assertEquals(image.getWidth(), ImageConverter.MINIMUM_ICO_WIDTH);
     }
+
+    @Test
+    public void largeImageShouldBeDownscaledToMaximumSizeKeepingItsColors() {
+        BufferedImage image = new BufferedImage(1000, 500, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.RED);
+        graphics.fillRect(0, 0, 1000, 500);
+        graphics.dispose();
+
+        ImageConverter converter = ImageConverter.createConverter("jpeg", DEFAULT_MAX_WIDTH, DEFAULT_MAX_HEIGHT);
+        image = converter.resizeImage(image, BufferedImage.TYPE_INT_RGB);
+
+        assertEquals(image.getWidth(), DEFAULT_MAX_WIDTH);
+        assertEquals(image.getHeight(), DEFAULT_MAX_HEIGHT / 2);
+        assertEquals(image.getType(), BufferedImage.TYPE_INT_RGB);
+        assertEquals(image.getRGB(50, 25), Color.RED.getRGB());
+    }
+
+    @Test
+    public void transparencyShouldBeKeptWhenImageIsDownscaled() {
+        BufferedImage image = new BufferedImage(400, 400, BufferedImage.TYPE_INT_ARGB);
+
+        ImageConverter converter = ImageConverter.createConverter("png", DEFAULT_MAX_WIDTH, DEFAULT_MAX_HEIGHT);
+        image = converter.resizeImage(image, BufferedImage.TYPE_INT_ARGB);
+
+        assertEquals(image.getWidth(), DEFAULT_MAX_WIDTH);
+        assertEquals(image.getHeight(), DEFAULT_MAX_HEIGHT);
+        assertEquals(image.getRGB(50, 50) >>> 24, 0);
+    }
 }
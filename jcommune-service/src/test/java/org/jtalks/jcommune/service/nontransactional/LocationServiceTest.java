@@ -21,17 +21,23 @@ import org.jtalks.jcommune.model.entity.Topic;
 import org.jtalks.jcommune.service.UserService;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.springframework.security.core.session.SessionInformation;
 import org.springframework.security.core.session.SessionRegistry;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
 /**
  * @author Andrey Kluev
@@ -107,4 +113,75 @@ public class LocationServiceTest {
 		Map<JCUser, String> registerUserMap = mock(Map.class);
     	verify(registerUserMap, Mockito.never()).remove(Mockito.any());
     }
+
+    @Test
+    public void usersViewingTheSameEntityShouldBeReturned() {
+        JCUser anotherUser = createOnlineUser(2L);
+        JCUser currentUser = createOnlineUser(1L);
+        when(userService.getCurrentUser()).thenReturn(anotherUser);
+        locationService.getUsersViewing(topic);
+        when(userService.getCurrentUser()).thenReturn(currentUser);
+
+        List<JCUser> viewers = locationService.getUsersViewing(topic);
+
+        assertEquals(viewers.size(), 2);
+        assertTrue(viewers.containsAll(Arrays.asList(currentUser, anotherUser)));
+    }
+
+    @Test
+    public void userShouldNotBeReturnedAfterMovingToAnotherEntity() {
+        JCUser anotherUser = createOnlineUser(2L);
+        JCUser currentUser = createOnlineUser(1L);
+        Topic anotherTopic = new Topic(user, "");
+        anotherTopic.setUuid("another uuid");
+        when(userService.getCurrentUser()).thenReturn(anotherUser);
+        locationService.getUsersViewing(topic);
+        locationService.getUsersViewing(anotherTopic);
+        when(userService.getCurrentUser()).thenReturn(currentUser);
+
+        assertEquals(locationService.getUsersViewing(topic), Arrays.asList(currentUser));
+    }
+
+    @Test
+    public void userShouldNotBeReturnedAfterItsLocationIsCleared() {
+        JCUser anotherUser = createOnlineUser(2L);
+        when(userService.getCurrentUser()).thenReturn(anotherUser);
+        locationService.getUsersViewing(topic);
+        locationService.clearUserLocation();
+        when(userService.getCurrentUser()).thenReturn(new AnonymousUser());
+
+        assertTrue(locationService.getUsersViewing(topic).isEmpty());
+    }
+
+    @Test
+    public void loggedOutUserShouldNotBeReturned() {
+        JCUser anotherUser = createOnlineUser(2L);
+        when(userService.getCurrentUser()).thenReturn(anotherUser);
+        locationService.getUsersViewing(topic);
+        when(sessionRegistry.getAllSessions(anotherUser, false)).thenReturn(Collections.<SessionInformation>emptyList());
+        when(userService.getCurrentUser()).thenReturn(new AnonymousUser());
+
+        assertTrue(locationService.getUsersViewing(topic).isEmpty());
+    }
+
+    @Test
+    public void userShouldNotBeReturnedIfItWasNotSeenForLongTime() {
+        locationService = spy(locationService);
+        JCUser anotherUser = createOnlineUser(2L);
+        when(userService.getCurrentUser()).thenReturn(anotherUser);
+        doReturn(0L).when(locationService).currentTimeMillis();
+        locationService.getUsersViewing(topic);
+        when(userService.getCurrentUser()).thenReturn(new AnonymousUser());
+        doReturn(31 * 60 * 1000L).when(locationService).currentTimeMillis();
+
+        assertTrue(locationService.getUsersViewing(topic).isEmpty());
+    }
+
+    private JCUser createOnlineUser(long id) {
+        JCUser onlineUser = new JCUser("user" + id, "user" + id + "@example.com", "");
+        onlineUser.setId(id);
+        when(sessionRegistry.getAllSessions(onlineUser, false))
+                .thenReturn(Arrays.asList(new SessionInformation(onlineUser, "session" + id, new Date())));
+        return onlineUser;
+    }
 }
@@ -218,6 +218,53 @@ public class MentionedUsersTest {
         verify(postDao, never()).saveOrUpdate(mentioningPost);
     }
 
+    @Test
+    public void markUsersAsAlreadyNotifiedShouldSavePostOnceForAllUsers() {
+        Post mentioningPost = getPost(1L, "[user]Shogun[/user], [user notified=true]jk1[/user] and [user]masyan[/user]");
+
+        MentionedUsers.parse(mentioningPost).markUsersAsAlreadyNotified(postDao);
+
+        assertEquals(mentioningPost.getPostContent(), "[user notified=true]Shogun[/user], " +
+                "[user notified=true]jk1[/user] and [user notified=true]masyan[/user]");
+        verify(postDao, times(1)).saveOrUpdate(mentioningPost);
+    }
+
+    @Test
+    public void markUsersAsAlreadyNotifiedShouldNotSavePostIfAllUsersWereNotified() {
+        Post mentioningPost = getPost(1L, "[user notified=true]Shogun[/user]");
+
+        MentionedUsers.parse(mentioningPost).markUsersAsAlreadyNotified(postDao);
+
+        assertEquals(mentioningPost.getPostContent(), "[user notified=true]Shogun[/user]");
+        verify(postDao, never()).saveOrUpdate(mentioningPost);
+    }
+
+    @Test
+    public void decodeUriShouldNotDecodeReservedCharacters() {
+        assertEquals(MentionedUsers.decodeUri("%D0%B8%2F%25yak%20"), "и%2F%yak ");
+    }
+
+    @Test
+    public void decodeUriShouldReturnPassedStringIfItIsMalformed() {
+        assertEquals(MentionedUsers.decodeUri("%D0yak"), "%D0yak");
+        assertEquals(MentionedUsers.decodeUri("yak%"), "yak%");
+        assertEquals(MentionedUsers.decodeUri("%C0%AFyak"), "%C0%AFyak");
+    }
+
+    @Test
+    public void processShouldLoadAllMentionedUsersAtOnce() {
+        setupRequestAttributes();
+        JCUser shogun = getUser("Shogun", 100L);
+        when(userDao.getByUsernames(asSet("Shogun", "jk1"))).thenReturn(asList(shogun));
+        String source = "[user]Shogun[/user] [user notified=true]jk1[/user] [user]Shogun[/user]";
+
+        String actualAfterProcess = MentionedUsers.parse(source).getTextWithProcessedUserTags(userDao);
+
+        assertEquals(actualAfterProcess, "[user=/forum/users/100]Shogun[/user] jk1 [user=/forum/users/100]Shogun[/user]");
+        verify(userDao, times(1)).getByUsernames(anySet());
+        verify(userDao, never()).getByUsername(anyString());
+    }
+
     private JCUser getJCUser(String name, boolean isMentioningEnabled) {
         JCUser user = new JCUser(name, "email@gmail.com", "password");
         user.setMentioningNotificationsEnabled(isMentioningEnabled);
@@ -271,9 +318,8 @@ public class MentionedUsersTest {
         String cyrillicCharsUserNameWithSpaces = "П е т р о в";
 
         JCUser cyrillicCharsUser = getUser(cyrillicCharsUserName, 100L);
-        when(userDao.getByUsername(cyrillicCharsUserName)).thenReturn(cyrillicCharsUser);
         JCUser notifiedMentionedUser = getUser(cyrillicCharsUserNameWithSpaces, 101L);
-        when(userDao.getByUsername(cyrillicCharsUserNameWithSpaces)).thenReturn(notifiedMentionedUser);
+        when(userDao.getByUsernames(asSet(cyrillicCharsUserName, cyrillicCharsUserNameWithSpaces))).thenReturn(asList(cyrillicCharsUser, notifiedMentionedUser));
         //
         String cyrillicCharsUserProfile = "/forum/users/" + cyrillicCharsUser.getId();
         String cyrillicCharsUserWithSpaceProfile = "/forum/users/" + notifiedMentionedUser.getId();
@@ -298,9 +344,8 @@ public class MentionedUsersTest {
         String userNameWithCloseBracket = "yak";
 
         JCUser userWithOpenBracketInName = getUser(userNameWithOpenBracket, 100L);
-        when(userDao.getByUsername(userNameWithOpenBracket)).thenReturn(userWithOpenBracketInName);
         JCUser userWithCloseBracketInName = getUser(userNameWithCloseBracket, 101L);
-        when(userDao.getByUsername(userNameWithCloseBracket)).thenReturn(userWithCloseBracketInName);
+        when(userDao.getByUsernames(asSet(userNameWithOpenBracket, userNameWithCloseBracket))).thenReturn(asList(userWithOpenBracketInName, userWithCloseBracketInName));
         //
         String withOpenBracketUserProfile = "/forum/users/" + userWithOpenBracketInName.getId();
         String withCloseBracketUserProfile = "/forum/users/" + userWithCloseBracketInName.getId();
@@ -325,9 +370,8 @@ public class MentionedUsersTest {
         String userNameWithBackSlash = "\\yak";
 
         JCUser userWithSlashInName = getUser(userNameWithSlash, 100L);
-        when(userDao.getByUsername(userNameWithSlash)).thenReturn(userWithSlashInName);
         JCUser userWithBackSlashInName = getUser(userNameWithBackSlash, 101L);
-        when(userDao.getByUsername(userNameWithBackSlash)).thenReturn(userWithBackSlashInName);
+        when(userDao.getByUsernames(asSet(userNameWithSlash, userNameWithBackSlash))).thenReturn(asList(userWithSlashInName, userWithBackSlashInName));
         //
         String withSlashUserProfile = "/forum/users/" + userWithSlashInName.getId();
         String withBackSlashUserProfile = "/forum/users/" + userWithBackSlashInName.getId();
@@ -352,9 +396,8 @@ public class MentionedUsersTest {
         String userNameWithGreater = ">yak";
 
         JCUser userWithLowerInName = getUser(userNameWithLower, 100L);
-        when(userDao.getByUsername(userNameWithLower)).thenReturn(userWithLowerInName);
         JCUser userWithGreaterInName = getUser(userNameWithGreater, 101L);
-        when(userDao.getByUsername(userNameWithGreater)).thenReturn(userWithGreaterInName);
+        when(userDao.getByUsernames(asSet(userNameWithLower, userNameWithGreater))).thenReturn(asList(userWithLowerInName, userWithGreaterInName));
         //
         String withLowerUserProfile = "/forum/users/" + userWithLowerInName.getId();
         String withGreaterUserProfile = "/forum/users/" + userWithGreaterInName.getId();
@@ -379,9 +422,8 @@ public class MentionedUsersTest {
         String userNameWithPipeSymbol = "|yak";
 
         JCUser userWithPercentsInName = getUser(userNameWithPercents, 100L);
-        when(userDao.getByUsername(userNameWithPercents)).thenReturn(userWithPercentsInName);
         JCUser userWithPipeSymbolInName = getUser(userNameWithPipeSymbol, 101L);
-        when(userDao.getByUsername(userNameWithPipeSymbol)).thenReturn(userWithPipeSymbolInName);
+        when(userDao.getByUsernames(asSet(userNameWithPercents, userNameWithPipeSymbol))).thenReturn(asList(userWithPercentsInName, userWithPipeSymbolInName));
         //
         String withPercentsUserProfile = "/forum/users/" + userWithPercentsInName.getId();
         String withPipeSymbolUserProfile = "/forum/users/" + userWithPipeSymbolInName.getId();
@@ -406,9 +448,8 @@ public class MentionedUsersTest {
         String cyrillicCharsUserNameWithSpaces = "%D0%9F %D0%B5 %D1%82 %D1%80 %D0%BE %D0%B2";
 
         JCUser cyrillicCharsUser = getUser("Иванов", 100L);
-        when(userDao.getByUsername(cyrillicCharsUser.getUsername())).thenReturn(cyrillicCharsUser);
         JCUser cyrillicCharsWithSpacesUser = getUser("П е т р о в", 101L);
-        when(userDao.getByUsername(cyrillicCharsWithSpacesUser.getUsername())).thenReturn(cyrillicCharsWithSpacesUser);
+        when(userDao.getByUsernames(asSet(cyrillicCharsUser.getUsername(), cyrillicCharsWithSpacesUser.getUsername()))).thenReturn(asList(cyrillicCharsUser, cyrillicCharsWithSpacesUser));
         //
         String cyrillicCharsUserProfile = "/forum/users/" + cyrillicCharsUser.getId();
         String cyrillicCharsUserWithSpaceProfile = "/forum/users/" + cyrillicCharsWithSpacesUser.getId();
@@ -433,9 +474,8 @@ public class MentionedUsersTest {
         String userNameWithCloseBracket = "@w0956756wo@yak";
 
         JCUser userWithOpenBracketInName = getUser("[yak", 100L);
-        when(userDao.getByUsername("[yak")).thenReturn(userWithOpenBracketInName);
         JCUser userWithCloseBracketInName = getUser("]yak", 101L);
-        when(userDao.getByUsername("]yak")).thenReturn(userWithCloseBracketInName);
+        when(userDao.getByUsernames(asSet("[yak", "]yak"))).thenReturn(asList(userWithOpenBracketInName, userWithCloseBracketInName));
         //
         String withOpenBracketUserProfile = "/forum/users/" + userWithOpenBracketInName.getId();
         String withCloseBracketUserProfile = "/forum/users/" + userWithCloseBracketInName.getId();
@@ -460,9 +500,8 @@ public class MentionedUsersTest {
         String userNameWithGreater = ">yak";
 
         JCUser userWithLowerInName = getUser("<yak", 100L);
-        when(userDao.getByUsername("<yak")).thenReturn(userWithLowerInName);
         JCUser userWithGreaterInName = getUser(">yak", 101L);
-        when(userDao.getByUsername(">yak")).thenReturn(userWithGreaterInName);
+        when(userDao.getByUsernames(asSet("<yak", ">yak"))).thenReturn(asList(userWithLowerInName, userWithGreaterInName));
         //
         String withLowerUserProfile = "/forum/users/" + userWithLowerInName.getId();
         String withGreaterUserProfile = "/forum/users/" + userWithGreaterInName.getId();
@@ -487,9 +526,8 @@ public class MentionedUsersTest {
         String userNameWithBackSlash = "14@123435vggv4fyak";
 
         JCUser userWithSlashInName = getUser(userNameWithSlash, 100L);
-        when(userDao.getByUsername(userNameWithSlash)).thenReturn(userWithSlashInName);
         JCUser userWithBackSlashInName = getUser("\\yak", 101L);
-        when(userDao.getByUsername("\\yak")).thenReturn(userWithBackSlashInName);
+        when(userDao.getByUsernames(asSet(userNameWithSlash, "\\yak"))).thenReturn(asList(userWithSlashInName, userWithBackSlashInName));
         //
         String withSlashUserProfile = "/forum/users/" + userWithSlashInName.getId();
         String withBackSlashUserProfile = "/forum/users/" + userWithBackSlashInName.getId();
@@ -15,19 +15,25 @@
 package org.jtalks.jcommune.service.nontransactional;
 
 
+import org.jtalks.jcommune.model.dao.NotificationOutboxDao;
 import org.jtalks.jcommune.model.entity.Branch;
 import org.jtalks.jcommune.model.entity.JCUser;
+import org.jtalks.jcommune.model.entity.NotificationOutboxEntry;
 import org.jtalks.jcommune.model.entity.Topic;
 import org.jtalks.jcommune.plugin.api.PluginLoader;
 import org.jtalks.jcommune.service.SubscriptionService;
 import org.jtalks.jcommune.service.UserService;
 import org.jtalks.jcommune.service.exceptions.MailingFailedException;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
 
 import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
@@ -45,8 +51,13 @@ public class NotificationServiceTest {
     private SubscriptionService subscriptionService;
     @Mock
     private PluginLoader pluginLoader;
+    @Mock
+    private NotificationOutboxDao outboxDao;
     private NotificationService service;
     private final long TOPIC_ID = 1;
+    private final long BRANCH_ID = 2;
+    private static final String ROOT_URL = "http://coolsite.com:1234/forum";
+    private static final String ROOT_URL_LABEL = "http://coolsite.com/forum";
 
     private JCUser user1 = new JCUser("name1", "email1", "password1");
     private JCUser user2 = new JCUser("name2", "email2", "password2");
@@ -63,87 +74,109 @@ public class NotificationServiceTest {
                 userService,
                 mailService,
                 subscriptionService,
-                pluginLoader);
+                pluginLoader,
+                outboxDao);
         topic = new Topic(user1, "title");
         topic.setId(TOPIC_ID);
         branch = new Branch("name", "description");
+        branch.setId(BRANCH_ID);
         branch.addTopic(topic);
+        user1.setId(11);
+        user2.setId(12);
+        user3.setId(13);
+        currentUser.setId(14);
         
         when(userService.getCurrentUser()).thenReturn(currentUser);
+        when(mailService.getDeploymentRootUrl()).thenReturn(ROOT_URL);
+        when(mailService.getDeploymentRootUrlWithoutPort()).thenReturn(ROOT_URL_LABEL);
     }
 
 
     @Test
-    public void testTopicChanged() throws MailingFailedException {
-        topic.getSubscribers().add(user1);
-        topic.getSubscribers().add(user2);
-        topic.getSubscribers().add(currentUser);
-        when(subscriptionService.getAllowedSubscribers(topic)).thenReturn(topic.getSubscribers());
-
+    public void topicChangeShouldBeSavedToOutbox() {
         service.subscribedEntityChanged(topic);
 
-        verify(mailService, times(2)).sendUpdatesOnSubscription(any(JCUser.class), eq(topic));
-        verify(mailService).sendUpdatesOnSubscription(user1, topic);
-        verify(mailService).sendUpdatesOnSubscription(user2, topic);
-        assertEquals(topic.getSubscribers().size(), 2);
+        verifyOutboxEntry(NotificationOutboxEntry.Kind.TOPIC_CHANGED, TOPIC_ID);
+        verifyZeroInteractions(subscriptionService);
+        verify(mailService, never()).sendUpdatesOnSubscription(any(JCUser.class), any(Topic.class));
     }
 
     @Test
-    public void testBranchChanged() throws MailingFailedException {
-        branch.getSubscribers().add(user1);
-        branch.getSubscribers().add(user2);
-        branch.getSubscribers().add(currentUser);
-        when(subscriptionService.getAllowedSubscribers(branch)).thenReturn(branch.getSubscribers());
-
+    public void branchChangeShouldBeSavedToOutbox() {
         service.subscribedEntityChanged(branch);
 
-        verify(mailService, times(2)).sendUpdatesOnSubscription(
-                any(JCUser.class), eq(branch));
-        verify(mailService).sendUpdatesOnSubscription(user1, branch);
-        verify(mailService).sendUpdatesOnSubscription(user2, branch);
-        assertEquals(branch.getSubscribers().size(), 2);
+        verifyOutboxEntry(NotificationOutboxEntry.Kind.BRANCH_CHANGED, BRANCH_ID);
+        verifyZeroInteractions(subscriptionService);
     }
 
     @Test
-    public void testTopicChangedSelfSubscribed() throws MailingFailedException {
-        when(userService.getCurrentUser()).thenReturn(user1);
+    public void queuedTopicChangeShouldBeSentToSubscribersExceptAuthor() {
         topic.getSubscribers().add(user1);
         topic.getSubscribers().add(user2);
+        topic.getSubscribers().add(currentUser);
         when(subscriptionService.getAllowedSubscribers(topic)).thenReturn(topic.getSubscribers());
+        Set<JCUser> notified = new HashSet<>();
 
-        service.subscribedEntityChanged(topic);
+        service.sendQueuedNotifications(NotificationOutboxEntry.Kind.TOPIC_CHANGED, topic, currentUser.getId(),
+                notified, ROOT_URL, ROOT_URL_LABEL);
 
-        verify(mailService).sendUpdatesOnSubscription(user2, topic);
-        verifyNoMoreInteractions(mailService);
+        Set<JCUser> expected = new HashSet<>(Arrays.asList(user1, user2));
+        verify(mailService).sendUpdatesOnSubscription(expected, topic, ROOT_URL, ROOT_URL_LABEL);
+        assertEquals(notified, expected);
     }
 
     @Test
-    public void testBranchChangedSelfSubscribed() throws MailingFailedException {
-        when(userService.getCurrentUser()).thenReturn(user1);
-        branch.getSubscribers().add(user1);
-        branch.getSubscribers().add(user2);
-        when(subscriptionService.getAllowedSubscribers(branch)).thenReturn(branch.getSubscribers());
+    public void queuedChangesOfSeveralAuthorsShouldBeSentToAllSubscribers() {
+        topic.getSubscribers().add(user1);
+        topic.getSubscribers().add(currentUser);
+        when(subscriptionService.getAllowedSubscribers(topic)).thenReturn(topic.getSubscribers());
 
-        service.subscribedEntityChanged(branch);
+        service.sendQueuedNotifications(NotificationOutboxEntry.Kind.TOPIC_CHANGED, topic, null,
+                new HashSet<JCUser>(), ROOT_URL, ROOT_URL_LABEL);
 
-        verify(mailService).sendUpdatesOnSubscription(user2, branch);
-        verifyNoMoreInteractions(mailService);
+        verify(mailService).sendUpdatesOnSubscription(
+                new HashSet<>(Arrays.asList(user1, currentUser)), topic, ROOT_URL, ROOT_URL_LABEL);
     }
 
     @Test
-    public void testTopicChangedNoSubscribers() {
-        service.subscribedEntityChanged(topic);
+    public void alreadyNotifiedSubscribersShouldNotBeNotifiedAgain() {
+        topic.getSubscribers().add(user1);
+        topic.getSubscribers().add(user2);
+        when(subscriptionService.getAllowedSubscribers(topic)).thenReturn(topic.getSubscribers());
+        Set<JCUser> notified = new HashSet<>(Arrays.asList(user1));
 
-        verifyZeroInteractions(mailService);
+        service.sendQueuedNotifications(NotificationOutboxEntry.Kind.TOPIC_CHANGED, topic, currentUser.getId(),
+                notified, ROOT_URL, ROOT_URL_LABEL);
+
+        verify(mailService).sendUpdatesOnSubscription(
+                new HashSet<>(Arrays.asList(user2)), topic, ROOT_URL, ROOT_URL_LABEL);
     }
 
     @Test
-    public void testBranchChangedNoSubscribers() {
-        service.subscribedEntityChanged(branch);
+    public void queuedNotificationShouldNotBeSentIfThereAreNoRecipients() {
+        topic.getSubscribers().add(currentUser);
+        when(subscriptionService.getAllowedSubscribers(topic)).thenReturn(topic.getSubscribers());
+
+        service.sendQueuedNotifications(NotificationOutboxEntry.Kind.TOPIC_CHANGED, topic, currentUser.getId(),
+                new HashSet<JCUser>(), ROOT_URL, ROOT_URL_LABEL);
 
         verifyZeroInteractions(mailService);
     }
 
+    @Test
+    public void queuedTopicCreationShouldBeSentToBranchSubscribers() {
+        branch.getSubscribers().add(user1);
+        branch.getSubscribers().add(currentUser);
+        when(subscriptionService.getAllowedSubscribers(branch)).thenReturn(branch.getSubscribers());
+
+        service.sendQueuedNotifications(NotificationOutboxEntry.Kind.TOPIC_CREATED, topic, currentUser.getId(),
+                new HashSet<JCUser>(), ROOT_URL, ROOT_URL_LABEL);
+
+        verify(mailService).sendTopicCreationMails(
+                new HashSet<>(Arrays.asList(user1)), topic, ROOT_URL, ROOT_URL_LABEL);
+        verifyNoMoreInteractions(mailService);
+    }
+
     @Test
     public void testTopicMovedWithBranchSubscribers() {
         branch.getSubscribers().add(currentUser);
@@ -212,14 +245,21 @@ public class NotificationServiceTest {
     }
     
     @Test
-    public void notificationMailShouldBeSendAfterTopicWasCreated() {
-        branch.getSubscribers().add(user1);
-        branch.getSubscribers().add(currentUser);
-        when(subscriptionService.getAllowedSubscribers(branch)).thenReturn(branch.getSubscribers());
-        
+    public void notificationAboutCreatedTopicShouldBeSavedToOutbox() {
         service.sendNotificationAboutTopicCreated(topic);
-        
-        verify(mailService, times(1)).sendTopicCreationMail(user1, topic);
-        verifyNoMoreInteractions(mailService);
+
+        verifyOutboxEntry(NotificationOutboxEntry.Kind.TOPIC_CREATED, TOPIC_ID);
+        verifyZeroInteractions(subscriptionService);
+    }
+
+    private void verifyOutboxEntry(NotificationOutboxEntry.Kind kind, long entityId) {
+        ArgumentCaptor<NotificationOutboxEntry> captor = ArgumentCaptor.forClass(NotificationOutboxEntry.class);
+        verify(outboxDao).saveOrUpdate(captor.capture());
+        NotificationOutboxEntry entry = captor.getValue();
+        assertEquals(entry.getKind(), kind);
+        assertEquals(entry.getEntityId(), entityId);
+        assertEquals(entry.getAuthorId(), currentUser.getId());
+        assertEquals(entry.getRootUrl(), ROOT_URL);
+        assertEquals(entry.getRootUrlLabel(), ROOT_URL_LABEL);
     }
 }
@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.nontransactional;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TopicViewsCounterTest {
+    private TopicViewsCounter counter;
+
+    @BeforeMethod
+    public void setUp() {
+        counter = new TopicViewsCounter();
+    }
+
+    @Test
+    public void incrementShouldAccumulateViewsPerTopic() {
+        counter.increment(1L);
+        counter.increment(1L);
+        counter.increment(2L);
+
+        assertEquals(counter.getPendingViews(1L), 2);
+        assertEquals(counter.getPendingViews(2L), 1);
+        assertEquals(counter.getPendingViews(3L), 0);
+    }
+
+    @Test
+    public void drainShouldReturnAccumulatedViewsAndResetThem() {
+        counter.increment(1L);
+        counter.increment(1L);
+
+        Map<Long, Integer> drained = counter.drainPendingViews();
+
+        assertEquals(drained.size(), 1);
+        assertEquals(drained.get(1L).intValue(), 2);
+        assertEquals(counter.getPendingViews(1L), 0);
+    }
+
+    @Test
+    public void drainShouldSkipTopicsNotViewedSincePreviousDrain() {
+        counter.increment(1L);
+        counter.drainPendingViews();
+
+        assertTrue(counter.drainPendingViews().isEmpty());
+    }
+
+    @Test
+    public void viewsAfterDrainShouldBeCountedAgain() {
+        counter.increment(1L);
+        counter.drainPendingViews();
+        counter.drainPendingViews();
+        counter.increment(1L);
+
+        assertEquals(counter.drainPendingViews().get(1L).intValue(), 1);
+    }
+
+    @Test
+    public void returnedViewsShouldBeDrainedAgain() {
+        counter.increment(1L);
+        Map<Long, Integer> drained = counter.drainPendingViews();
+        counter.increment(1L);
+
+        counter.addPendingViews(drained);
+
+        assertEquals(counter.getPendingViews(1L), 2);
+        assertEquals(counter.drainPendingViews().get(1L).intValue(), 2);
+    }
+
+    @Test
+    public void viewsRegisteredConcurrentlyWithDrainShouldNotBeLost() throws Exception {
+        final int threads = 4;
+        final int viewsPerThread = 10000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> viewers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            viewers.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < viewsPerThread; j++) {
+                        counter.increment(1L);
+                    }
+                }
+            }));
+        }
+        int drainedViews = 0;
+        for (Future<?> viewer : viewers) {
+            while (!viewer.isDone()) {
+                drainedViews += getViews(counter.drainPendingViews());
+            }
+            viewer.get();
+        }
+        executor.shutdown();
+        drainedViews += getViews(counter.drainPendingViews());
+
+        assertEquals(drainedViews, threads * viewsPerThread);
+    }
+
+    private int getViews(Map<Long, Integer> drained) {
+        Integer views = drained.get(1L);
+        return (views == null) ? 0 : views;
+    }
+}
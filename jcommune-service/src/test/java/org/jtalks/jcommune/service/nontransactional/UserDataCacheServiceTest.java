@@ -14,12 +14,27 @@
  */
 package org.jtalks.jcommune.service.nontransactional;
 
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
 import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.Element;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.Configuration;
+import org.mockito.ArgumentCaptor;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
@@ -64,18 +79,67 @@ public class UserDataCacheServiceTest {
     public void testPutNewPmCount() throws Exception {
         userDataCacheService.putNewPmCount(USERNAME, 2);
 
-        verify(cache).put(new Element(USERNAME, 2));
+        verify(cache).putIfAbsent(new Element(USERNAME, 2));
     }
 
     @Test
     public void testIncrementNewMessageCountFor() throws Exception {
         Element cacheElement = new Element(USERNAME, 1);
         when(cache.get(USERNAME)).thenReturn(cacheElement);
+        when(cache.replace(eq(cacheElement), any(Element.class))).thenReturn(true);
 
         userDataCacheService.incrementNewMessageCountFor(USERNAME);
 
         verify(cache).get(USERNAME);
-        verify(cache).put(new Element(USERNAME, 2));
+        assertEquals(replacedCount(cacheElement), 2);
+    }
+
+    @Test
+    public void incrementShouldBeRetriedIfCountWasChangedConcurrently() throws Exception {
+        Element cacheElement = new Element(USERNAME, 1);
+        Element changedElement = new Element(USERNAME, 5);
+        when(cache.get(USERNAME)).thenReturn(cacheElement, changedElement);
+        when(cache.replace(eq(cacheElement), any(Element.class))).thenReturn(false, true);
+
+        userDataCacheService.incrementNewMessageCountFor(USERNAME);
+
+        ArgumentCaptor<Element> captor = ArgumentCaptor.forClass(Element.class);
+        verify(cache, times(2)).replace(any(Element.class), captor.capture());
+        assertEquals(captor.getAllValues().get(1).getObjectValue(), 6);
+    }
+
+    @Test
+    public void concurrentIncrementsShouldNotBeLost() throws Exception {
+        CacheManager cacheManager = new CacheManager(new Configuration()
+                .defaultCache(new CacheConfiguration("default", 10)));
+        try {
+            Cache realCache = new Cache(new CacheConfiguration("userDataCache", 10));
+            cacheManager.addCache(realCache);
+            final UserDataCacheService service = new UserDataCacheService(realCache);
+            service.putNewPmCount(USERNAME, 0);
+
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        for (int j = 0; j < 1000; j++) {
+                            service.incrementNewMessageCountFor(USERNAME);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+
+            assertEquals(service.getNewPmCountFor(USERNAME).intValue(), 4000);
+        } finally {
+            cacheManager.shutdown();
+        }
     }
 
     @Test
@@ -83,10 +147,12 @@ public class UserDataCacheServiceTest {
         Element cacheElement = new Element(USERNAME, 2);
         when(cache.get(USERNAME)).thenReturn(cacheElement);
 
+        when(cache.replace(eq(cacheElement), any(Element.class))).thenReturn(true);
+
         userDataCacheService.decrementNewMessageCountFor(USERNAME);
 
         verify(cache).get(USERNAME);
-        verify(cache).put(new Element(USERNAME, 1));
+        assertEquals(replacedCount(cacheElement), 1);
     }
 
 
@@ -108,4 +174,10 @@ public class UserDataCacheServiceTest {
 
         verify(cache).get(USERNAME);
     }
+
+    private Object replacedCount(Element cacheElement) {
+        ArgumentCaptor<Element> captor = ArgumentCaptor.forClass(Element.class);
+        verify(cache).replace(eq(cacheElement), captor.capture());
+        return captor.getValue().getObjectValue();
+    }
 }
@@ -19,9 +19,11 @@ import static org.mockito.Mockito.when;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.jtalks.common.model.dao.GroupDao;
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+
 import org.jtalks.common.model.entity.Group;
-import org.jtalks.common.model.entity.User;
 import org.jtalks.common.model.permissions.BranchPermission;
 import org.jtalks.common.model.permissions.JtalksPermission;
 import org.jtalks.common.model.permissions.ProfilePermission;
@@ -58,8 +60,6 @@ public class AclGroupPermissionEvaluatorTest {
     @Mock
     private AclUtil aclUtil;
     @Mock
-    private GroupDao groupDao;
-    @Mock
     private JtalksSidFactory sidFactory;
     @Mock
     private ExtendedMutableAcl mutableAcl;
@@ -73,6 +73,8 @@ public class AclGroupPermissionEvaluatorTest {
     UserDao userDao;
     @Mock
     PluginPermissionManager pluginManager;
+    @Mock
+    Ehcache cache;
 
     private AclGroupPermissionEvaluator evaluator;
     private UserGroupSid groupSid;
@@ -90,8 +92,8 @@ public class AclGroupPermissionEvaluatorTest {
     @BeforeMethod
     public void init() throws NotFoundException {
         MockitoAnnotations.initMocks(this);
-        evaluator = new AclGroupPermissionEvaluator(aclManager, aclUtil, groupDao,
-                sidFactory, mutableAclService, userDao, pluginManager);
+        evaluator = new AclGroupPermissionEvaluator(aclManager, aclUtil,
+                sidFactory, mutableAclService, userDao, pluginManager, new PermissionDecisionCache(cache));
         objectIdentity = new ObjectIdentityImpl(targetType, targetId);
         Mockito.when(aclUtil.createIdentity(targetId, targetType)).thenReturn(objectIdentity);
         user = new JCUser("username", "email", "password");
@@ -99,9 +101,6 @@ public class AclGroupPermissionEvaluatorTest {
         userSid = new UserSid(user);
         groupSid = new UserGroupSid(targetId);
         group = Mockito.mock(Group.class);
-        List<User> users = new ArrayList<>();
-        users.add(user);
-        when(group.getUsers()).thenReturn(users);
         when(group.getId()).thenReturn(targetId);
         when(sidFactory.createPrincipal(authentication)).thenReturn(userSid);
         when(sidFactory.create(group)).thenReturn(groupSid);
@@ -196,6 +195,44 @@ public class AclGroupPermissionEvaluatorTest {
         controlEntries.add(createGroupAce(someOtherPermission, false));
         controlEntries.add(createGroupAce(generalPermission, isGranted));
         Mockito.when(aclManager.getGroupPermissionsOn(objectIdentity)).thenReturn(controlEntries);
+
+        List<Group> groups = new ArrayList<>();
+        groups.add(group);
+        user.setGroups(groups);
+    }
+
+    @Test
+    public void testHasPermissionForGroupSidOfOtherGroupTest() throws Exception {
+        setEnvForGroupSidTests(true);
+        when(group.getId()).thenReturn(targetId + 1);
+        Assert.assertFalse(evaluator.hasPermission(authentication, targetId, targetType, permission));
+    }
+
+    @Test
+    public void decisionShouldBeCachedUntilPermissionsOnObjectAreChanged() throws Exception {
+        CacheManager cacheManager = CacheManager.create();
+        Cache realCache = new Cache("permissionDecisionTestCache", 100, false, false, 300, 0);
+        cacheManager.addCache(realCache);
+        try {
+            PermissionDecisionCache decisionCache = new PermissionDecisionCache(realCache);
+            evaluator = new AclGroupPermissionEvaluator(aclManager, aclUtil,
+                    sidFactory, mutableAclService, userDao, pluginManager, decisionCache);
+            setEnvForGroupSidTests(true);
+
+            Assert.assertTrue(evaluator.hasPermission(authentication, targetId, targetType, permission));
+            Assert.assertTrue(evaluator.hasPermission(authentication, targetId, targetType, permission));
+            Mockito.verify(aclManager, Mockito.times(1)).getGroupPermissionsOn(objectIdentity);
+
+            decisionCache.invalidate(new ObjectIdentityImpl(targetType, targetId + 1));
+            Assert.assertTrue(evaluator.hasPermission(authentication, targetId, targetType, permission));
+            Mockito.verify(aclManager, Mockito.times(1)).getGroupPermissionsOn(objectIdentity);
+
+            decisionCache.invalidate(objectIdentity);
+            Assert.assertTrue(evaluator.hasPermission(authentication, targetId, targetType, permission));
+            Mockito.verify(aclManager, Mockito.times(2)).getGroupPermissionsOn(objectIdentity);
+        } finally {
+            cacheManager.removeCache("permissionDecisionTestCache");
+        }
     }
 
     @Test
@@ -251,11 +288,7 @@ public class AclGroupPermissionEvaluatorTest {
 
     private GroupAce createGroupAce(BranchPermission permission, boolean isGranted) {
         GroupAce groupAce = Mockito.mock(GroupAce.class);
-        Group group = Mockito.mock(Group.class);
-        List<User> users = new ArrayList<>();
-        users.add(user);
-        Mockito.when(group.getUsers()).thenReturn(users);
-        Mockito.when(groupAce.getGroup(groupDao)).thenReturn(group);
+        Mockito.when(groupAce.getGroupId()).thenReturn(targetId);
         Mockito.when(groupAce.isGranting()).thenReturn(isGranted);
         Mockito.when(groupAce.getPermission()).thenReturn(permission);
         return groupAce;
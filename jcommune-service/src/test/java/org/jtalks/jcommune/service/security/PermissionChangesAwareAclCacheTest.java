@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.security;
+
+import org.springframework.security.acls.domain.ObjectIdentityImpl;
+import org.springframework.security.acls.model.AclCache;
+import org.springframework.security.acls.model.MutableAcl;
+import org.springframework.security.acls.model.ObjectIdentity;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertSame;
+
+public class PermissionChangesAwareAclCacheTest {
+    private AclCache delegate;
+    private PermissionDecisionCache decisionCache;
+    private PermissionChangesAwareAclCache aclCache;
+
+    @BeforeMethod
+    public void setUp() {
+        delegate = mock(AclCache.class);
+        decisionCache = mock(PermissionDecisionCache.class);
+        aclCache = new PermissionChangesAwareAclCache(delegate, decisionCache);
+    }
+
+    @Test
+    public void evictingChangedAclByIdentityShouldDropDecisionsOnThisObjectOnly() {
+        ObjectIdentity identity = new ObjectIdentityImpl("BRANCH", 1L);
+
+        aclCache.evictFromCache(identity);
+
+        verify(delegate).evictFromCache(identity);
+        verify(decisionCache).invalidate(identity);
+        verify(decisionCache, never()).invalidate();
+    }
+
+    @Test
+    public void evictingChangedAclOfGroupShouldDropAllDecisions() {
+        ObjectIdentity identity = new ObjectIdentityImpl("GROUP", 1L);
+
+        aclCache.evictFromCache(identity);
+
+        verify(decisionCache).invalidate();
+    }
+
+    @Test
+    public void evictingChangedAclByKeyShouldDropDecisionsOnItsObject() {
+        ObjectIdentity identity = new ObjectIdentityImpl("BRANCH", 1L);
+        MutableAcl acl = mock(MutableAcl.class);
+        when(acl.getObjectIdentity()).thenReturn(identity);
+        when(delegate.getFromCache(1L)).thenReturn(acl);
+
+        aclCache.evictFromCache(1L);
+
+        verify(delegate).evictFromCache(1L);
+        verify(decisionCache).invalidate(identity);
+    }
+
+    @Test
+    public void evictingNotCachedAclByKeyShouldDropAllDecisions() {
+        aclCache.evictFromCache(1L);
+
+        verify(delegate).evictFromCache(1L);
+        verify(decisionCache).invalidate();
+    }
+
+    @Test
+    public void clearingCacheShouldDropAllDecisions() {
+        aclCache.clearCache();
+
+        verify(delegate).clearCache();
+        verify(decisionCache).invalidate();
+    }
+
+    @Test
+    public void readingAndCachingAclShouldNotOutdateDecisions() {
+        ObjectIdentity identity = mock(ObjectIdentity.class);
+        MutableAcl acl = mock(MutableAcl.class);
+        when(delegate.getFromCache(identity)).thenReturn(acl);
+
+        assertSame(aclCache.getFromCache(identity), acl);
+        aclCache.putInCache(acl);
+
+        verify(delegate).putInCache(acl);
+        verifyZeroInteractions(decisionCache);
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.security;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import org.jtalks.jcommune.service.security.PermissionDecisionCache.ObjectDecisions;
+import org.springframework.security.acls.domain.ObjectIdentityImpl;
+import org.springframework.security.acls.model.ObjectIdentity;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+public class PermissionDecisionCacheTest {
+    private static final String KEY = "user:1:BranchPermission:1:[1]";
+    private static final ObjectIdentity BRANCH = new ObjectIdentityImpl("BRANCH", 1L);
+    private static final ObjectIdentity OTHER_BRANCH = new ObjectIdentityImpl("BRANCH", 2L);
+
+    private CacheManager cacheManager;
+    private PermissionDecisionCache decisionCache;
+
+    @BeforeMethod
+    public void setUp() {
+        cacheManager = CacheManager.create();
+        Cache cache = new Cache("permissionDecisionTestCache", 100, false, false, 300, 0);
+        cacheManager.addCache(cache);
+        decisionCache = new PermissionDecisionCache(cache);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        cacheManager.removeCache("permissionDecisionTestCache");
+    }
+
+    @Test
+    public void decisionShouldNotBeFoundIfNotCached() {
+        assertNull(decisionCache.getDecisions(BRANCH).get(KEY));
+    }
+
+    @Test
+    public void decisionShouldBeFoundUntilPermissionsAreChanged() {
+        decisionCache.getDecisions(BRANCH).put(KEY, true);
+
+        assertSame(decisionCache.getDecisions(new ObjectIdentityImpl("BRANCH", 1)), decisionCache.getDecisions(BRANCH));
+        assertEquals(decisionCache.getDecisions(BRANCH).get(KEY), Boolean.TRUE);
+    }
+
+    @Test
+    public void changingPermissionsOfObjectShouldDropDecisionsOnThisObjectOnly() {
+        decisionCache.getDecisions(BRANCH).put(KEY, true);
+        decisionCache.getDecisions(OTHER_BRANCH).put(KEY, false);
+
+        decisionCache.invalidate(BRANCH);
+
+        assertNull(decisionCache.getDecisions(BRANCH).get(KEY));
+        assertEquals(decisionCache.getDecisions(OTHER_BRANCH).get(KEY), Boolean.FALSE);
+    }
+
+    @Test
+    public void changingOfAllPermissionsShouldDropAllDecisions() {
+        decisionCache.getDecisions(BRANCH).put(KEY, true);
+        decisionCache.getDecisions(OTHER_BRANCH).put(KEY, false);
+
+        decisionCache.invalidate();
+
+        assertNull(decisionCache.getDecisions(BRANCH).get(KEY));
+        assertNull(decisionCache.getDecisions(OTHER_BRANCH).get(KEY));
+    }
+
+    @Test
+    public void decisionMadeBeforePermissionsAreChangedShouldNotBeFound() {
+        ObjectDecisions decisions = decisionCache.getDecisions(BRANCH);
+        decisionCache.invalidate(BRANCH);
+
+        decisions.put(KEY, true);
+
+        assertNotSame(decisionCache.getDecisions(BRANCH), decisions);
+        assertNull(decisionCache.getDecisions(BRANCH).get(KEY));
+    }
+}
@@ -38,6 +38,7 @@ import org.jtalks.jcommune.model.entity.Branch;
 import org.jtalks.jcommune.model.entity.ObjectsFactory;
 import org.jtalks.jcommune.model.entity.PersistedObjectsFactory;
 import org.jtalks.jcommune.plugin.api.PluginPermissionManager;
+import org.jtalks.jcommune.service.nontransactional.BranchVisibilityCacheService;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.invocation.InvocationOnMock;
@@ -85,6 +86,10 @@ public class PermissionManagerTest extends AbstractTransactionalTestNGSpringCont
     private PermissionManager manager;
     @Mock
     private PluginPermissionManager pluginPermissionManager;
+    @Mock
+    private BranchVisibilityCacheService branchVisibilityCacheService;
+    @Mock
+    private PermissionDecisionCache decisionCache;
     @Autowired
     private SessionFactory sessionFactory;
     private Session session;
@@ -154,7 +159,8 @@ public class PermissionManagerTest extends AbstractTransactionalTestNGSpringCont
         when(mutableAcl.getEntries()).thenReturn(controlEntries);
         when(aclUtil.getAclFor(objectIdentity)).thenReturn(mutableAcl);
 
-        manager = new PermissionManager(aclManager, groupDao, aclUtil, pluginPermissionManager);
+        manager = new PermissionManager(aclManager, groupDao, aclUtil, pluginPermissionManager,
+                branchVisibilityCacheService, decisionCache);
     }
 
     @Test(dataProvider = "accessChanges")
@@ -168,6 +174,8 @@ public class PermissionManagerTest extends AbstractTransactionalTestNGSpringCont
 
         verify(aclManager, times(changes.getNewlyAddedGroupsAsArray().length)).
                 grant(anyListOf(Sid.class), eq(listFromArray(changes.getPermission())), eq(branch));
+        verify(branchVisibilityCacheService).invalidate();
+        verify(decisionCache).invalidate();
     }
 
     @Test(dataProvider = "accessChanges")
@@ -181,6 +189,8 @@ public class PermissionManagerTest extends AbstractTransactionalTestNGSpringCont
 
         verify(aclManager, times(changes.getNewlyAddedGroupsAsArray().length)).
                 restrict(anyListOf(Sid.class), eq(listFromArray(changes.getPermission())), eq(branch));
+        verify(branchVisibilityCacheService).invalidate();
+        verify(decisionCache).invalidate();
     }
 
     @Test
@@ -31,6 +31,7 @@ import org.jtalks.jcommune.plugin.api.exceptions.NoConnectionException;
 import org.jtalks.jcommune.plugin.api.exceptions.UnexpectedErrorException;
 import org.jtalks.jcommune.service.Authenticator;
 import org.jtalks.jcommune.service.PluginService;
+import org.jtalks.jcommune.service.nontransactional.BBCodeService;
 import org.jtalks.jcommune.service.nontransactional.EncryptionService;
 import org.jtalks.jcommune.service.nontransactional.ImageService;
 import org.jtalks.jcommune.service.nontransactional.MailService;
@@ -103,15 +104,19 @@ public class TransactionalAuthenticatorTest {
     PluginService pluginService;
     @Mock
     private Validator validator;
+    @Mock
+    private BBCodeService bbCodeService;
 
     private Authenticator authenticator;
 
     @BeforeMethod
     public void setUp() throws Exception {
         initMocks(this);
-        authenticator = new TransactionalAuthenticator(pluginLoader, userDao, groupDao,
-                encryptionService, mailService, avatarService, pluginService,
+        TransactionalAuthenticator transactionalAuthenticator = new TransactionalAuthenticator(pluginLoader, userDao,
+                groupDao, encryptionService, mailService, avatarService, pluginService,
                 securityFacade, rememberMeServices, sessionStrategy, validator, authenticationManager);
+        transactionalAuthenticator.setBbCodeService(bbCodeService);
+        authenticator = transactionalAuthenticator;
     }
 
     private JCUser prepareOldUser(String username) {
@@ -160,6 +165,7 @@ public class TransactionalAuthenticatorTest {
         boolean result = authenticator.authenticate(loginUserDto, httpRequest, httpResponse);
 
         assertTrue(result, "Authentication existing user with correct credentials should be successful.");
+        verify(bbCodeService, never()).evictAllRenderedPosts();
     }
 
     @Test
@@ -176,6 +182,7 @@ public class TransactionalAuthenticatorTest {
         boolean result = authenticator.authenticate(loginUserDto, httpRequest, httpResponse);
 
         assertTrue(result, "Authentication not existing user with correct credentials should be successful.");
+        verify(bbCodeService).evictAllRenderedPosts();
     }
 
     @Test
@@ -384,6 +391,18 @@ public class TransactionalAuthenticatorTest {
         verify(bindingResult, never()).rejectValue(anyString(), anyString(), anyString());
     }
 
+    @Test
+    public void storingOfRegisteredUserShouldEvictRenderedPosts() {
+        UserDto userDto = new UserDto();
+        userDto.setUsername("username");
+        userDto.setEmail("email@email.em");
+        userDto.setPassword("password");
+
+        ((TransactionalAuthenticator) authenticator).storeRegisteredUser(userDto);
+
+        verify(bbCodeService).evictAllRenderedPosts();
+    }
+
     @Test
     public void userShouldBeRegisteredUsingEncryptedPassword() throws Exception{
         String password = "password";
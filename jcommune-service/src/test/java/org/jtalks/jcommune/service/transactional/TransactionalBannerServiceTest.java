@@ -19,6 +19,7 @@ import org.jtalks.jcommune.model.dao.BannerDao;
 import org.jtalks.jcommune.model.entity.Banner;
 import org.jtalks.jcommune.model.entity.BannerPosition;
 import org.jtalks.jcommune.service.BannerService;
+import org.jtalks.jcommune.service.nontransactional.ForumChromeCacheService;
 import org.mockito.Mock;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -40,12 +41,14 @@ import static org.testng.Assert.assertEquals;
 public class TransactionalBannerServiceTest {
     @Mock
     private BannerDao bannerDao;
+    @Mock
+    private ForumChromeCacheService forumChromeCacheService;
     private BannerService bannerService;
     
     @BeforeMethod
     public void init() {
         initMocks(this);
-        bannerService = new TransactionalBannerService(bannerDao);
+        bannerService = new TransactionalBannerService(bannerDao, forumChromeCacheService);
     }
     
     @Test
@@ -54,6 +57,7 @@ public class TransactionalBannerServiceTest {
         bannerService.uploadBanner(uploadedBanner, new Component());
 
         verify(bannerDao).saveOrUpdate(uploadedBanner);
+        verify(forumChromeCacheService).invalidate();
     }
 
     @Test
@@ -30,7 +30,10 @@ import org.jtalks.jcommune.service.TopicModificationService;
 import org.jtalks.jcommune.service.UserService;
 import org.jtalks.jcommune.plugin.api.exceptions.NotFoundException;
 import org.jtalks.jcommune.service.security.PermissionService;
+import org.mockito.InOrder;
 import org.mockito.Mock;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -38,6 +41,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import static org.mockito.Matchers.anyCollectionOf;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
@@ -88,7 +92,13 @@ public class TransactionalBranchServiceTest {
                 groupDao,
                 topicService,
                 permissionService,
-                lastPostService);
+                lastPostService,
+                new TransactionOperations() {
+                    @Override
+                    public <T> T execute(TransactionCallback<T> action) {
+                        return action.doInTransaction(null);
+                    }
+                });
         topic = null;
         section = null;
     }
@@ -169,52 +179,43 @@ public class TransactionalBranchServiceTest {
     }
 
     @Test
-    public void testFillStatisticInfoToRegisteredUser() {
+    public void testFillStatisticInfoShouldNotRecalculateStoredCounts() {
         int expectedPostsCount = 10;
         int expectedTopicsCount = 20;
-        boolean expectedUnreadPostsCount = true;
-        JCUser user = new JCUser("username", "email", "password");
         Branch branch = new Branch(BRANCH_NAME, BRANCH_DESCRIPTION);
+        branch.setPostCount(expectedPostsCount);
+        branch.setTopicCount(expectedTopicsCount);
+        branch.setLastPost(new Post(new JCUser("username", "email", "password"), "content"));
         org.jtalks.common.model.entity.Branch commonBranch = branch;
 
-        when(branchDao.getCountPostsInBranch(branch)).thenReturn(expectedPostsCount);
-        when(topicDao.countTopics(branch)).thenReturn(expectedTopicsCount);
-        when(userService.getCurrentUser()).thenReturn(user);
-        //TODO Was removed till milestone 2 due to performance issues
-//        when(branchDao.isUnreadPostsInBranch(branch, user)).thenReturn(expectedUnreadPostsCount);
-
         branchService.fillStatisticInfo(Arrays.asList(commonBranch));
 
         assertEquals(branch.getTopicCount(), expectedTopicsCount,
                 "Incorrect count of topics");
         assertEquals(branch.getPostCount(), expectedPostsCount,
                 "Incorrect count of posts");
-//        assertEquals(branch.isUnreadPosts(), expectedUnreadPostsCount,
-//                "Incorrect unread posts state");
+        verify(branchDao, never()).getCountPostsInBranch(branch);
+        verify(topicDao, never()).countTopics(branch);
+        verify(lastPostService, never()).refreshLastPostInBranch(branch);
     }
 
     @Test
-    public void testFillStatisticInfoToAnnonumous() {
-        int expectedPostsCount = 10;
-        int expectedTopicsCount = 20;
-        boolean expectedUnreadPostsCount = true;
-        JCUser user = new AnonymousUser();
+    public void testFillStatisticInfoShouldRefreshMissingLastPost() {
         Branch branch = new Branch(BRANCH_NAME, BRANCH_DESCRIPTION);
         org.jtalks.common.model.entity.Branch commonBranch = branch;
 
-        when(branchDao.getCountPostsInBranch(branch)).thenReturn(expectedPostsCount);
-        when(topicDao.countTopics(branch)).thenReturn(expectedTopicsCount);
-        when(userService.getCurrentUser()).thenReturn(user);
-        //TODO fWas removed till milestone 2 due to performance issues
-//        when(branchDao.isUnreadPostsInBranch(branch, user)).thenReturn(expectedUnreadPostsCount);
-
         branchService.fillStatisticInfo(Arrays.asList(commonBranch));
 
-        assertEquals(branch.getTopicCount(), expectedTopicsCount,
-                "Incorrect count of topics");
-        assertEquals(branch.getPostCount(), expectedPostsCount,
-                "Incorrect count of posts");
-//        verify(branchDao, times(0)).isUnreadPostsInBranch(branch, user);
+        verify(lastPostService).refreshLastPostInBranch(branch);
+    }
+
+    @Test
+    public void reconcileStatisticInfoShouldRepairCountersInDao() {
+        when(branchDao.reconcileCounters()).thenReturn(2);
+
+        branchService.reconcileStatisticInfo();
+
+        verify(branchDao).reconcileCounters();
     }
 
     @Test
@@ -242,16 +243,27 @@ public class TransactionalBranchServiceTest {
         Branch expectedBranch = new Branch(BRANCH_NAME, BRANCH_DESCRIPTION);
         expectedBranch.addTopic(new Topic());
         expectedBranch.addTopic(new Topic());
+        expectedBranch.setLastPost(new Post(new JCUser("username", "email@mail.com", "password"), "content"));
+        List<Long> firstChunk = Arrays.asList(1L, 2L);
+        List<Long> secondChunk = Arrays.asList(3L);
 
         when(branchDao.isExist(BRANCH_ID)).thenReturn(true);
         when(branchDao.get(BRANCH_ID)).thenReturn(expectedBranch);
+        when(topicDao.getTopicIdsInBranch(expectedBranch, TransactionalBranchService.TOPICS_DELETION_CHUNK_SIZE))
+                .thenReturn(firstChunk, secondChunk, Collections.<Long>emptyList());
+        when(topicService.deleteTopicsSilent(firstChunk)).thenReturn(2);
+        when(topicService.deleteTopicsSilent(secondChunk)).thenReturn(1);
 
         Branch actualBranch = branchService.deleteAllTopics(BRANCH_ID);
 
         assertEquals(actualBranch, expectedBranch, "Branches aren't equal");
-        verify(branchDao).isExist(BRANCH_ID);
-        verify(branchDao).get(BRANCH_ID);
-        verify(topicService, times(2)).deleteTopicSilent(anyLong());
+        verify(topicService).deleteTopicsSilent(firstChunk);
+        verify(topicService).deleteTopicsSilent(secondChunk);
+        verify(topicService, never()).deleteTopicSilent(anyLong());
+        InOrder inOrder = inOrder(branchDao, lastPostService);
+        inOrder.verify(branchDao).recalculateCounters(expectedBranch);
+        inOrder.verify(lastPostService).refreshLastPostInBranch(expectedBranch);
+        assertNull(actualBranch.getLastPost());
     }
 
     @Test
@@ -259,13 +271,15 @@ public class TransactionalBranchServiceTest {
         Branch expectedBranch = new Branch(BRANCH_NAME, BRANCH_DESCRIPTION);
         when(branchDao.isExist(BRANCH_ID)).thenReturn(true);
         when(branchDao.get(BRANCH_ID)).thenReturn(expectedBranch);
+        when(topicDao.getTopicIdsInBranch(expectedBranch, TransactionalBranchService.TOPICS_DELETION_CHUNK_SIZE))
+                .thenReturn(Collections.<Long>emptyList());
 
         Branch actualBranch = branchService.deleteAllTopics(BRANCH_ID);
 
         assertEquals(actualBranch, expectedBranch, "Branches aren't equal");
         verify(branchDao).isExist(BRANCH_ID);
         verify(branchDao).get(BRANCH_ID);
-        verify(topicService, times(0)).deleteTopicSilent(anyLong());
+        verify(topicService, never()).deleteTopicsSilent(anyCollectionOf(Long.class));
     }
 
     @Test(expectedExceptions = NotFoundException.class)
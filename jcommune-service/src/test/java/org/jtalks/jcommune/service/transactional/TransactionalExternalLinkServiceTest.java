@@ -18,6 +18,7 @@ import org.jtalks.common.model.entity.Component;
 import org.jtalks.jcommune.model.dao.ExternalLinkDao;
 import org.jtalks.jcommune.model.entity.ExternalLink;
 import org.jtalks.jcommune.service.ExternalLinkService;
+import org.jtalks.jcommune.service.nontransactional.ForumChromeCacheService;
 import org.mockito.Mock;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -33,12 +34,14 @@ import static org.mockito.MockitoAnnotations.initMocks;
 public class TransactionalExternalLinkServiceTest {
     @Mock
     private ExternalLinkDao dao;
+    @Mock
+    private ForumChromeCacheService forumChromeCacheService;
     private ExternalLinkService service;
 
     @BeforeMethod
     public void setUp() throws Exception {
         initMocks(this);
-        service = new TransactionalExternalLinkService(dao);
+        service = new TransactionalExternalLinkService(dao, forumChromeCacheService);
     }
 
     @Test
@@ -53,6 +56,7 @@ public class TransactionalExternalLinkServiceTest {
         Component component = new Component();
         service.saveLink(linkToSave, component);
         verify(dao).saveOrUpdate(linkToSave);
+        verify(forumChromeCacheService).invalidate();
     }
 
     @Test
@@ -60,5 +64,6 @@ public class TransactionalExternalLinkServiceTest {
         Component component = new Component();
         service.deleteLink(1L, component);
         verify(dao).delete(eq(1L));
+        verify(forumChromeCacheService).invalidate();
     }
 }
@@ -0,0 +1,225 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.service.transactional;
+
+import org.joda.time.DateTime;
+import org.jtalks.jcommune.model.dao.BranchDao;
+import org.jtalks.jcommune.model.dao.NotificationOutboxDao;
+import org.jtalks.jcommune.model.dao.TopicDao;
+import org.jtalks.jcommune.model.entity.Branch;
+import org.jtalks.jcommune.model.entity.JCUser;
+import org.jtalks.jcommune.model.entity.NotificationOutboxEntry;
+import org.jtalks.jcommune.model.entity.SubscriptionAwareEntity;
+import org.jtalks.jcommune.model.entity.Topic;
+import org.jtalks.jcommune.service.nontransactional.NotificationService;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.jtalks.jcommune.model.entity.NotificationOutboxEntry.Kind.BRANCH_CHANGED;
+import static org.jtalks.jcommune.model.entity.NotificationOutboxEntry.Kind.TOPIC_CHANGED;
+import static org.jtalks.jcommune.model.entity.NotificationOutboxEntry.Kind.TOPIC_CREATED;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anySetOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class TransactionalNotificationDispatchServiceTest {
+    private static final String ROOT_URL = "http://coolsite.com:1234/forum";
+    private static final String ROOT_URL_LABEL = "http://coolsite.com/forum";
+    private static final long TOPIC_ID = 1L;
+    private static final long BRANCH_ID = 2L;
+
+    @Mock
+    private NotificationOutboxDao outboxDao;
+    @Mock
+    private TopicDao topicDao;
+    @Mock
+    private BranchDao branchDao;
+    @Mock
+    private NotificationService notificationService;
+    private TransactionalNotificationDispatchService service;
+    private Topic topic;
+    private Branch branch;
+    private boolean inClaimTransaction;
+
+    @BeforeMethod
+    public void setUp() {
+        initMocks(this);
+        service = new TransactionalNotificationDispatchService(outboxDao, topicDao, branchDao, notificationService,
+                new TransactionOperations() {
+                    @Override
+                    public <T> T execute(TransactionCallback<T> action) {
+                        inClaimTransaction = true;
+                        try {
+                            return action.doInTransaction(null);
+                        } finally {
+                            inClaimTransaction = false;
+                        }
+                    }
+                });
+        topic = new Topic(new JCUser("name", "email", "password"), "title");
+        topic.setId(TOPIC_ID);
+        branch = new Branch("name", "description");
+        branch.setId(BRANCH_ID);
+        when(topicDao.get(TOPIC_ID)).thenReturn(topic);
+        when(branchDao.get(BRANCH_ID)).thenReturn(branch);
+    }
+
+    @Test
+    public void nothingShouldBeDoneIfOutboxIsEmpty() {
+        when(outboxDao.claimOldest(anyString(), anyInt(), any(DateTime.class), anyInt()))
+                .thenReturn(Collections.<NotificationOutboxEntry>emptyList());
+
+        service.dispatchQueuedNotifications();
+
+        verifyZeroInteractions(notificationService);
+        verify(outboxDao, never()).delete(anyListOfEntries());
+    }
+
+    @Test
+    public void changesOfTheSameAuthorShouldBeSentOnceExcludingAuthor() {
+        List<NotificationOutboxEntry> entries = givenOutbox(
+                entry(TOPIC_CHANGED, TOPIC_ID, 5L), entry(TOPIC_CHANGED, TOPIC_ID, 5L));
+
+        service.dispatchQueuedNotifications();
+
+        verify(notificationService).sendQueuedNotifications(eq(TOPIC_CHANGED), same((SubscriptionAwareEntity) topic),
+                eq(5L), anySetOf(JCUser.class), eq(ROOT_URL), eq(ROOT_URL_LABEL));
+        verify(outboxDao).delete(entries);
+    }
+
+    @Test
+    public void changesOfSeveralAuthorsShouldBeSentToAllSubscribers() {
+        givenOutbox(entry(TOPIC_CHANGED, TOPIC_ID, 5L), entry(TOPIC_CHANGED, TOPIC_ID, 6L));
+
+        service.dispatchQueuedNotifications();
+
+        verify(notificationService).sendQueuedNotifications(eq(TOPIC_CHANGED), same((SubscriptionAwareEntity) topic),
+                (Long) eq(null), anySetOf(JCUser.class), eq(ROOT_URL), eq(ROOT_URL_LABEL));
+    }
+
+    @Test
+    public void topicCreationShouldBeSentBeforeTopicChangesSharingNotifiedSubscribers() {
+        givenOutbox(entry(TOPIC_CHANGED, TOPIC_ID, 5L), entry(TOPIC_CREATED, TOPIC_ID, 5L),
+                entry(BRANCH_CHANGED, BRANCH_ID, 5L));
+
+        service.dispatchQueuedNotifications();
+
+        ArgumentCaptor<Set> created = ArgumentCaptor.forClass(Set.class);
+        ArgumentCaptor<Set> changed = ArgumentCaptor.forClass(Set.class);
+        ArgumentCaptor<Set> branchChanged = ArgumentCaptor.forClass(Set.class);
+        InOrder inOrder = inOrder(notificationService);
+        inOrder.verify(notificationService).sendQueuedNotifications(eq(TOPIC_CREATED),
+                any(SubscriptionAwareEntity.class), anyLong(), created.capture(), anyString(), anyString());
+        inOrder.verify(notificationService).sendQueuedNotifications(eq(TOPIC_CHANGED),
+                any(SubscriptionAwareEntity.class), anyLong(), changed.capture(), anyString(), anyString());
+        inOrder.verify(notificationService).sendQueuedNotifications(eq(BRANCH_CHANGED),
+                same((SubscriptionAwareEntity) branch), anyLong(), branchChanged.capture(), anyString(), anyString());
+        assertSame(created.getValue(), changed.getValue());
+        assertNotSame(created.getValue(), branchChanged.getValue());
+    }
+
+    @Test
+    public void notificationAboutRemovedEntityShouldBeSkipped() {
+        List<NotificationOutboxEntry> entries = givenOutbox(entry(TOPIC_CHANGED, 100L, 5L));
+
+        service.dispatchQueuedNotifications();
+
+        verifyZeroInteractions(notificationService);
+        verify(outboxDao).delete(entries);
+    }
+
+    @Test
+    public void failedNotificationShouldNotPreventOthersFromBeingSent() {
+        List<NotificationOutboxEntry> entries = givenOutbox(
+                entry(TOPIC_CHANGED, TOPIC_ID, 5L), entry(BRANCH_CHANGED, BRANCH_ID, 5L));
+        doThrow(new IllegalStateException()).when(notificationService).sendQueuedNotifications(eq(TOPIC_CHANGED),
+                any(SubscriptionAwareEntity.class), anyLong(), anySetOf(JCUser.class), anyString(), anyString());
+
+        service.dispatchQueuedNotifications();
+
+        verify(notificationService).sendQueuedNotifications(eq(BRANCH_CHANGED), same((SubscriptionAwareEntity) branch),
+                eq(5L), anySetOf(JCUser.class), eq(ROOT_URL), eq(ROOT_URL_LABEL));
+        verify(outboxDao).delete(Arrays.asList(entries.get(1)));
+        verify(outboxDao).markFailed(Arrays.asList(entries.get(0)));
+    }
+
+    @Test
+    public void notificationsShouldBeClaimedInSeparateTransaction() {
+        final boolean[] claimedInClaimTransaction = new boolean[1];
+        when(outboxDao.claimOldest(anyString(), anyInt(), any(DateTime.class), anyInt())).thenAnswer(
+                new Answer<List<NotificationOutboxEntry>>() {
+                    @Override
+                    public List<NotificationOutboxEntry> answer(InvocationOnMock invocation) {
+                        claimedInClaimTransaction[0] = inClaimTransaction;
+                        return Collections.emptyList();
+                    }
+                });
+
+        service.dispatchQueuedNotifications();
+
+        assertTrue(claimedInClaimTransaction[0]);
+    }
+
+    @Test
+    public void exhaustedNotificationsShouldBePurgedSomeDaysAfterLastAttempt() {
+        ArgumentCaptor<DateTime> lastAttemptBefore = ArgumentCaptor.forClass(DateTime.class);
+
+        service.purgeExhaustedNotifications();
+
+        verify(outboxDao).deleteExhausted(eq(5), lastAttemptBefore.capture());
+        assertTrue(lastAttemptBefore.getValue().isBefore(new DateTime().minusDays(1)));
+    }
+
+    private List<NotificationOutboxEntry> givenOutbox(NotificationOutboxEntry... entries) {
+        List<NotificationOutboxEntry> result = Arrays.asList(entries);
+        when(outboxDao.claimOldest(anyString(), anyInt(), any(DateTime.class), anyInt())).thenReturn(result);
+        return result;
+    }
+
+    private NotificationOutboxEntry entry(NotificationOutboxEntry.Kind kind, long entityId, long authorId) {
+        return new NotificationOutboxEntry(kind, entityId, authorId, ROOT_URL, ROOT_URL_LABEL);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<NotificationOutboxEntry> anyListOfEntries() {
+        return any(List.class);
+    }
+}
@@ -22,6 +22,7 @@ import org.jtalks.jcommune.plugin.api.core.Plugin;
 import org.jtalks.jcommune.plugin.api.core.RegistrationPlugin;
 import org.jtalks.jcommune.plugin.api.exceptions.UnexpectedErrorException;
 import org.jtalks.jcommune.plugin.api.PluginLoader;
+import org.jtalks.jcommune.plugin.api.filters.NameFilter;
 import org.jtalks.jcommune.plugin.api.filters.TypeFilter;
 import org.mockito.Mock;
 import org.testng.annotations.BeforeMethod;
@@ -114,6 +115,18 @@ public class TransactionalPluginServiceTest {
         assertNull(shouldNotBeConfiguredPlugin.configuration, "All others plugins shouldn't be reconfigured.");
     }
 
+    @Test
+    public void updateConfigurationShouldReloadPluginsSnapshot()
+            throws NotFoundException, UnexpectedErrorException {
+        //GIVEN
+        PluginConfiguration configuration = new PluginConfiguration("Dummy", true, Collections.EMPTY_LIST);
+        when(pluginLoader.getPlugins()).thenReturn(Arrays.asList((Plugin) new DummyPlugin("Dummy")));
+        //WHEN
+        pluginService.updateConfiguration(configuration, FAKE_COMPONENT_ID);
+        //THEN
+        verify(pluginLoader).reloadPlugins(any(NameFilter.class));
+    }
+
     @Test(expectedExceptions = NotFoundException.class)
     public void updateConfigurationWhenPluginsNotLoadedShouldShowNotFoundError()
             throws NotFoundException, UnexpectedErrorException {
@@ -18,9 +18,10 @@ import org.joda.time.DateTime;
 import org.jtalks.common.model.dao.Crud;
 import org.jtalks.common.model.dao.GroupDao;
 import org.jtalks.common.model.entity.User;
-import org.jtalks.common.model.permissions.JtalksPermission;
 import org.jtalks.common.security.SecurityService;
 import org.jtalks.common.security.acl.builders.CompoundAclBuilder;
+import org.jtalks.jcommune.model.dao.PollDao;
+import org.jtalks.jcommune.model.entity.AnonymousUser;
 import org.jtalks.jcommune.model.entity.JCUser;
 import org.jtalks.jcommune.model.entity.Poll;
 import org.jtalks.jcommune.model.entity.PollItem;
@@ -29,6 +30,7 @@ import org.jtalks.jcommune.service.UserService;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.springframework.security.access.AccessDeniedException;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -48,7 +50,7 @@ public class TransactionalPollServiceTest {
     @Mock
     private Crud<PollItem> pollOptionDao;
     @Mock
-    private Crud<Poll> pollDao;
+    private PollDao pollDao;
     @Mock
     private GroupDao groupDao;
     @Mock
@@ -65,7 +67,6 @@ public class TransactionalPollServiceTest {
         pollService = new TransactionalPollService(pollDao, groupDao, pollOptionDao,
                 securityService, userService);
         aclBuilder = mockAclBuilder();
-        Mockito.when(aclBuilder.restrict(Mockito.any(JtalksPermission.class))).thenReturn(aclBuilder);
         Mockito.when(aclBuilder.on(Mockito.any(Poll.class))).thenReturn(aclBuilder);
         Mockito.when(securityService.<User>createAclBuilder()).thenReturn(aclBuilder);
         jcUser = new JCUser("name", "email", "password");
@@ -80,10 +81,9 @@ public class TransactionalPollServiceTest {
         Mockito.when(pollDao.get(POLL_ID)).thenReturn(poll);
 
         Poll resultPoll = pollService.vote(POLL_ID, pollOptionIds);
-        PollItem resultPollOption = resultPoll.getPollItems().get(0);
 
-        Assert.assertEquals(resultPollOption.getVotesCount(), VOTES_COUNT + 1,
-                "Count of votes should be increased.");
+        Assert.assertSame(resultPoll, poll);
+        Mockito.verify(pollDao).vote(poll, jcUser, pollOptionIds);
     }
 
     @Test
@@ -99,6 +99,8 @@ public class TransactionalPollServiceTest {
 
         Assert.assertEquals(resultPollOption.getVotesCount(), VOTES_COUNT,
                 "Count of votes should be the same.");
+        Mockito.verify(pollDao, Mockito.never()).vote(Mockito.any(Poll.class), Mockito.any(JCUser.class),
+                Mockito.anyListOf(Long.class));
     }
 
     @Test
@@ -108,12 +110,9 @@ public class TransactionalPollServiceTest {
 
         Mockito.when(pollDao.get(Mockito.anyLong())).thenReturn(poll);
 
-        Poll resultPoll = pollService.vote(POLL_ID, pollOptionIds);
+        pollService.vote(POLL_ID, pollOptionIds);
 
-        for (PollItem option : resultPoll.getPollItems()) {
-            Assert.assertEquals(option.getVotesCount(), VOTES_COUNT + 1,
-                    "Count of votes should be increased.");
-        }
+        Mockito.verify(pollDao).vote(poll, jcUser, pollOptionIds);
     }
 
     @Test
@@ -149,6 +148,34 @@ public class TransactionalPollServiceTest {
         }
     }
 
+    @Test(expectedExceptions = AccessDeniedException.class)
+    public void testRevoteShouldBeProhibited() {
+        List<Long> pollOptionIds = Arrays.asList(1L);
+        Poll poll = createPollWithOptions(POLL_ID, pollOptionIds, VOTES_COUNT, null);
+
+        Mockito.when(pollDao.get(POLL_ID)).thenReturn(poll);
+        Mockito.when(pollDao.isVotedBy(poll, jcUser)).thenReturn(true);
+
+        pollService.vote(POLL_ID, pollOptionIds);
+    }
+
+    @Test
+    public void testIsVotedByCurrentUser() {
+        Poll poll = createPollWithOptions(POLL_ID, Arrays.asList(1L), VOTES_COUNT, null);
+        Mockito.when(pollDao.isVotedBy(poll, jcUser)).thenReturn(true);
+
+        Assert.assertTrue(pollService.isVotedByCurrentUser(poll));
+    }
+
+    @Test
+    public void testIsVotedByAnonymousUser() {
+        Poll poll = createPollWithOptions(POLL_ID, Arrays.asList(1L), VOTES_COUNT, null);
+        Mockito.when(userService.getCurrentUser()).thenReturn(new AnonymousUser());
+
+        Assert.assertFalse(pollService.isVotedByCurrentUser(poll));
+        Mockito.verify(pollDao, Mockito.never()).isVotedBy(Mockito.any(Poll.class), Mockito.any(JCUser.class));
+    }
+
     private Poll createPollWithOptions(Long pollId, List<Long> pollOptionIds,
                                        int initialVoteCount, DateTime endingDate) {
         Poll poll = new Poll("Poll");
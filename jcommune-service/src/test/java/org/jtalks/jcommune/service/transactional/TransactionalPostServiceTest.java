@@ -20,6 +20,7 @@ import org.jtalks.common.security.SecurityService;
 import org.jtalks.jcommune.model.dao.PostDao;
 import org.jtalks.jcommune.model.dao.TopicDao;
 import org.jtalks.jcommune.model.dto.PageRequest;
+import org.jtalks.jcommune.model.dto.PostsPageBoundary;
 import org.jtalks.jcommune.model.entity.*;
 import org.jtalks.jcommune.plugin.api.PluginLoader;
 import org.jtalks.jcommune.plugin.api.core.Plugin;
@@ -30,6 +31,8 @@ import org.jtalks.jcommune.service.BranchLastPostService;
 import org.jtalks.jcommune.service.PostService;
 import org.jtalks.jcommune.service.UserService;
 import org.jtalks.jcommune.plugin.api.exceptions.NotFoundException;
+import org.jtalks.jcommune.service.nontransactional.BBCodeService;
+import org.jtalks.jcommune.service.nontransactional.BranchVisibilityCacheService;
 import org.jtalks.jcommune.service.nontransactional.MentionedUsers;
 import org.jtalks.jcommune.service.nontransactional.NotificationService;
 import org.jtalks.jcommune.service.security.AclClassName;
@@ -93,6 +96,10 @@ public class TransactionalPostServiceTest {
     private PluginLoader pluginLoader;
     @Mock
     private TopicPlugin topicPlugin;
+    @Mock
+    private BBCodeService bbCodeService;
+    @Mock
+    private BranchVisibilityCacheService branchVisibilityCacheService;
 
     private PostService postService;
 
@@ -116,7 +123,9 @@ public class TransactionalPostServiceTest {
                 userService,
                 branchLastPostService,
                 permissionService,
-                pluginLoader);
+                pluginLoader,
+                bbCodeService,
+                branchVisibilityCacheService);
     }
 
     @Test
@@ -156,6 +165,7 @@ public class TransactionalPostServiceTest {
         assertEquals(post.getPostContent(), newBody);
 
         verify(postDao).saveOrUpdate(post);
+        verify(bbCodeService).evictRenderedPost(post);
 
         verify(userService).notifyAndMarkNewlyMentionedUsers(post);
     }
@@ -197,15 +207,19 @@ public class TransactionalPostServiceTest {
         topic.addPost(postForDelete);
         topic.recalculateModificationDate();
         Branch branch = new Branch("branch", "branch description");
-        topic.setBranch(branch);
+        branch.addTopic(topic);
         user.setPostCount(2);
 
         postService.deletePost(postForDelete);
 
         assertEquals(user.getPostCount(), 1);
+        assertEquals(topic.getPostCount(), 1);
+        assertEquals(branch.getPostCount(), 1);
         assertEquals(topic.getModificationDate(), topic.getFirstPost().getCreationDate());
         verify(topicDao).saveOrUpdate(topic);
+        verify(topicDao).changePostCount(topic, -1);
         verify(securityService).deleteFromAcl(postForDelete);
+        verify(bbCodeService).evictRenderedPost(postForDelete);
         verify(notificationService).subscribedEntityChanged(topic);
     }
 
@@ -296,7 +310,7 @@ public class TransactionalPostServiceTest {
         Page<Post> expectedPostsPage = getPageWithPost();
         when(postDao.getUserPosts(Matchers.<JCUser>any(), Matchers.<PageRequest>any(), Matchers.anyList()))
                 .thenReturn(expectedPostsPage);
-        when(topicDao.getAllowedBranchesIds(Matchers.<JCUser>any())).thenReturn(Arrays.asList(1L));
+        when(branchVisibilityCacheService.getVisibleBranchIds(Matchers.<JCUser>any())).thenReturn(Arrays.asList(1L));
 
         currentUser.setPageSize(50);
 
@@ -309,7 +323,7 @@ public class TransactionalPostServiceTest {
     public void getPostsOfUserShouldReturnEmptyPageInNoBranchesAllowed() {
         when(postDao.getUserPosts(Matchers.<JCUser>any(), Matchers.<PageRequest>any(), Matchers.anyList()))
                 .thenReturn(getPageWithPost());
-        when(topicDao.getAllowedBranchesIds(Matchers.<JCUser>any())).thenReturn(Collections.EMPTY_LIST);
+        when(branchVisibilityCacheService.getVisibleBranchIds(Matchers.<JCUser>any())).thenReturn(Collections.EMPTY_LIST);
 
         currentUser.setPageSize(50);
 
@@ -320,25 +334,18 @@ public class TransactionalPostServiceTest {
 
     @Test
     public void testLastPostInTopicPageCalculation() {
-        int pageSize = 2;
-        currentUser.setPageSize(pageSize);
-
-        Topic topic = new Topic(null, "");
-        Post post = new Post(null, "");
-        topic.addPost(new Post(null, null));
-        topic.addPost(new Post(null, null));
-        topic.addPost(post);
+        currentUser.setPageSize(2);
+        Post post = new Post(user, "");
+        when(postDao.getPostIndexInTopic(post)).thenReturn(2);
 
         assertEquals(postService.calculatePageForPost(post), 2);
     }
 
     @Test
     public void testFirstPostInTopicPageCalculation() {
-        int pageSize = 2;
-        currentUser.setPageSize(pageSize);
-        Topic topic = new Topic(null, "");
-        Post post = new Post(null, "");
-        topic.addPost(post);
+        currentUser.setPageSize(2);
+        Post post = new Post(user, "");
+        when(postDao.getPostIndexInTopic(post)).thenReturn(0);
 
         assertEquals(postService.calculatePageForPost(post), 1);
     }
@@ -346,52 +353,35 @@ public class TransactionalPostServiceTest {
     @Test
     public void testFirstPostInTopicPageCalculationWithNoUser() {
         currentUser.setPageSize(JCUser.DEFAULT_PAGE_SIZE);
-
-        Topic topic = new Topic(user, "");
         Post post = new Post(user, "");
-        topic.addPost(post);
+        when(postDao.getPostIndexInTopic(post)).thenReturn(0);
 
         assertEquals(postService.calculatePageForPost(post), 1);
     }
 
     @Test
     public void testLastPostOnFirstPagePageCalculation() {
-        int pageSize = 2;
-        currentUser.setPageSize(pageSize);
-
-        Topic topic = new Topic(user, "");
+        currentUser.setPageSize(2);
         Post post = new Post(user, "");
-        topic.addPost(new Post(null, null));
-        topic.addPost(post);
+        when(postDao.getPostIndexInTopic(post)).thenReturn(1);
 
         assertEquals(postService.calculatePageForPost(post), 1);
     }
 
     @Test
     public void testLastPostOnPagePageCalculation() {
-        int pageSize = 2;
-        currentUser.setPageSize(pageSize);
-
-        Topic topic = new Topic(null, "");
-        Post post = new Post(null, "");
-        topic.addPost(new Post(null, null));
-        topic.addPost(new Post(null, null));
-        topic.addPost(new Post(null, null));
-        topic.addPost(post);
+        currentUser.setPageSize(2);
+        Post post = new Post(user, "");
+        when(postDao.getPostIndexInTopic(post)).thenReturn(3);
 
         assertEquals(postService.calculatePageForPost(post), 2);
     }
 
     @Test
     public void testPostInCenterOfTopicPageCalculation() {
-        int pageSize = 2;
-        currentUser.setPageSize(pageSize);
-
-        Topic topic = new Topic(null, "");
-        Post post = new Post(null, "");
-        topic.addPost(new Post(null, null));
-        topic.addPost(post);
-        topic.addPost(new Post(null, null));
+        currentUser.setPageSize(2);
+        Post post = new Post(user, "");
+        when(postDao.getPostIndexInTopic(post)).thenReturn(1);
 
         assertEquals(postService.calculatePageForPost(post), 1);
     }
@@ -405,13 +395,24 @@ public class TransactionalPostServiceTest {
         currentUser.setPageSize(50);
 
         when(postDao.getPosts(
-                Matchers.any(Topic.class), Matchers.any(PageRequest.class)))
+                Matchers.any(Topic.class), Matchers.any(PageRequest.class), Matchers.any(PostsPageBoundary.class)))
                 .thenReturn(expectedPage);
 
         Page<Post> actualPage = postService.getPosts(topic, pageNumber);
 
         assertEquals(actualPage, expectedPage, "Service returned incorrect data for one page of posts");
-        verify(postDao).getPosts(Matchers.any(Topic.class), Matchers.any(PageRequest.class));
+        verify(postDao).getPosts(Matchers.any(Topic.class), Matchers.any(PageRequest.class),
+                (PostsPageBoundary) Matchers.isNull());
+    }
+
+    @Test
+    public void getPostsShouldPassBoundaryOfNeighbourPage() {
+        Topic topic = new Topic(user, "");
+        PostsPageBoundary boundary = PostsPageBoundary.lastPostOfPreviousPage(1L);
+
+        postService.getPosts(topic, "2", boundary);
+
+        verify(postDao).getPosts(Matchers.eq(topic), Matchers.any(PageRequest.class), Matchers.eq(boundary));
     }
 
     @Test
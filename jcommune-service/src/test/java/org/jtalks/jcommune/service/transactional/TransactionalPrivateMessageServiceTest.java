@@ -42,6 +42,7 @@ import java.util.List;
 
 import static org.jtalks.jcommune.service.TestUtils.mockAclBuilder;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.never;
@@ -140,6 +141,7 @@ public class TransactionalPrivateMessageServiceTest {
 
         assertFalse(pm.isRead());
         assertEquals(pm.getStatus(), PrivateMessageStatus.SENT);
+        verify(pmDao).changeNewMessagesCount(JC_USER, 1);
         verify(userDataCache).incrementNewMessageCountFor(USERNAME);
         verify(pmDao).saveOrUpdate(pm);
         verify(aclBuilder, times(2)).grant(GeneralPermission.READ);
@@ -159,6 +161,7 @@ public class TransactionalPrivateMessageServiceTest {
 
         assertFalse(pm.isRead());
         assertEquals(pm.getStatus(), PrivateMessageStatus.SENT);
+        verify(pmDao).changeNewMessagesCount(JC_USER, 1);
         verify(userDataCache).incrementNewMessageCountFor(USERNAME);
         verify(pmDao).saveOrUpdate(pm);
         verify(aclBuilder, times(2)).grant(GeneralPermission.READ);
@@ -198,14 +201,14 @@ public class TransactionalPrivateMessageServiceTest {
     public void testCurrentUserNewPmCount() {
         int expectedPmCount = 2;
         when(securityService.getCurrentUserUsername()).thenReturn(USERNAME);
-        when(pmDao.getNewMessagesCountFor(USERNAME)).thenReturn(expectedPmCount);
+        when(pmDao.getStoredNewMessagesCountFor(USERNAME)).thenReturn(expectedPmCount);
         when(userDataCache.getNewPmCountFor(USERNAME)).thenReturn(null);
 
         int newPmCount = pmService.currentUserNewPmCount();
 
         assertEquals(newPmCount, expectedPmCount);
         verify(securityService).getCurrentUserUsername();
-        verify(pmDao).getNewMessagesCountFor(USERNAME);
+        verify(pmDao).getStoredNewMessagesCountFor(USERNAME);
         verify(userDataCache).putNewPmCount(USERNAME, newPmCount);
     }
 
@@ -218,7 +221,7 @@ public class TransactionalPrivateMessageServiceTest {
         int newPmCount = pmService.currentUserNewPmCount();
 
         assertEquals(newPmCount, expectedPmCount);
-        verify(pmDao, never()).getNewMessagesCountFor(anyString());
+        verify(pmDao, never()).getStoredNewMessagesCountFor(anyString());
         verify(userDataCache).getNewPmCountFor(USERNAME);
     }
 
@@ -243,6 +246,7 @@ public class TransactionalPrivateMessageServiceTest {
 
         assertFalse(pm.isRead());
         assertEquals(pm.getStatus(), PrivateMessageStatus.SENT);
+        verify(pmDao).changeNewMessagesCount(JC_USER, 1);
         verify(userDataCache).incrementNewMessageCountFor(USERNAME);
         verify(pmDao).saveOrUpdate(pm);
         verify(securityService).deleteFromAcl(pm);
@@ -262,6 +266,7 @@ public class TransactionalPrivateMessageServiceTest {
 
         assertFalse(pm.isRead());
         assertEquals(pm.getStatus(), PrivateMessageStatus.SENT);
+        verify(pmDao).changeNewMessagesCount(JC_USER, 1);
         verify(userDataCache).incrementNewMessageCountFor(USERNAME);
         verify(pmDao).saveOrUpdate(pm);
         verify(securityService).deleteFromAcl(pm);
@@ -281,6 +286,7 @@ public class TransactionalPrivateMessageServiceTest {
         assertEquals(pm, expected);
         assertTrue(pm.isRead());
         verify(pmDao).saveOrUpdate(pm);
+        verify(pmDao).changeNewMessagesCount(user, -1);
         verify(userDataCache).decrementNewMessageCountFor(USERNAME);
     }
 
@@ -328,6 +334,7 @@ public class TransactionalPrivateMessageServiceTest {
         PrivateMessage pm = pmService.get(PM_ID);
 
         verify(pmDao, never()).saveOrUpdate(pm);
+        verify(pmDao, never()).changeNewMessagesCount(any(JCUser.class), anyInt());
         verify(userDataCache, never()).decrementNewMessageCountFor(USERNAME);
     }
 
@@ -344,6 +351,7 @@ public class TransactionalPrivateMessageServiceTest {
         assertEquals(resultMessage.isRead(), false,
                 "Message status is draft, so message shouldn't be marked as read");
         verify(pmDao, never()).saveOrUpdate(resultMessage);
+        verify(pmDao, never()).changeNewMessagesCount(any(JCUser.class), anyInt());
         verify(userDataCache, never()).decrementNewMessageCountFor(USERNAME);
     }
 
@@ -361,6 +369,7 @@ public class TransactionalPrivateMessageServiceTest {
         assertEquals(resultMessage.isRead(), false,
                 "The message isn't addressed to the current user, so message shouldn't be marked as read.");
         verify(pmDao, never()).saveOrUpdate(resultMessage);
+        verify(pmDao, never()).changeNewMessagesCount(any(JCUser.class), anyInt());
         verify(userDataCache, never()).decrementNewMessageCountFor(USERNAME);
     }
 
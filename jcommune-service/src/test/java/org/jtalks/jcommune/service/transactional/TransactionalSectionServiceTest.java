@@ -27,6 +27,8 @@ import org.jtalks.jcommune.plugin.api.exceptions.NotFoundException;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.springframework.security.access.AccessDeniedException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -70,7 +72,13 @@ public class TransactionalSectionServiceTest {
         userService = mock(UserService.class);
         topicDao = mock(TopicDao.class);
 
-        sectionService = new TransactionalSectionService(sectionDao, branchService, userService, topicDao, postDao);
+        sectionService = new TransactionalSectionService(sectionDao, branchService, userService, topicDao, postDao,
+                new TransactionOperations() {
+                    @Override
+                    public <T> T execute(TransactionCallback<T> action) {
+                        return action.doInTransaction(null);
+                    }
+                });
     }
 
     @Test
@@ -18,18 +18,23 @@ import org.apache.commons.lang.StringUtils;
 import org.joda.time.DateTime;
 import org.jtalks.jcommune.model.dao.TopicDao;
 import org.jtalks.jcommune.model.dao.search.TopicSearchDao;
+import org.jtalks.jcommune.model.dto.IndexingProgress;
 import org.jtalks.jcommune.model.dto.PageRequest;
 import org.jtalks.jcommune.model.entity.Branch;
 import org.jtalks.jcommune.model.entity.JCUser;
 import org.jtalks.jcommune.model.entity.Topic;
 import org.jtalks.jcommune.service.TopicFetchService;
 import org.jtalks.jcommune.service.UserService;
+import org.jtalks.jcommune.service.nontransactional.BranchVisibilityCacheService;
+import org.jtalks.jcommune.service.nontransactional.TopicViewsCounter;
 import org.jtalks.jcommune.plugin.api.exceptions.NotFoundException;
 import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
@@ -40,12 +45,14 @@ import java.util.List;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.fail;
 
 public class TransactionalTopicFetchServiceTest {
 
@@ -55,15 +62,20 @@ public class TransactionalTopicFetchServiceTest {
     private UserService userService;
     @Mock
     private TopicSearchDao searchDao;
+    @Mock
+    private BranchVisibilityCacheService branchVisibilityCacheService;
 
     private TopicFetchService topicFetchService;
 
     private JCUser user;
+    private TopicViewsCounter viewsCounter;
 
     @BeforeMethod
     public void init(){
         initMocks(this);
-        topicFetchService = new TransactionalTopicFetchService(topicDao, userService, searchDao);
+        viewsCounter = new TopicViewsCounter();
+        topicFetchService = new TransactionalTopicFetchService(topicDao, userService, searchDao, viewsCounter,
+                branchVisibilityCacheService);
         user = new JCUser("username", "email@mail.com", "password");
         when(userService.getCurrentUser()).thenReturn(user);
     }
@@ -82,6 +94,64 @@ public class TransactionalTopicFetchServiceTest {
         assertEquals(actualTopic, expectedTopic, "Topics aren't equal");
         verify(topicDao).isExist(999L);
         verify(topicDao).get(999L);
+        verify(topicDao, never()).saveOrUpdate(expectedTopic);
+    }
+
+    @Test
+    public void flushPendingViewsShouldWriteViewsCountedSincePreviousFlush() throws NotFoundException {
+        Topic topic = new Topic(user, "title");
+        when(topicDao.isExist(999L)).thenReturn(true);
+        when(topicDao.get(999L)).thenReturn(topic);
+        topicFetchService.get(999L);
+        topicFetchService.get(999L);
+
+        topicFetchService.flushPendingViews();
+
+        verify(topicDao).addViews(Collections.singletonMap(999L, 2));
+        assertEquals(viewsCounter.getPendingViews(999L), 0);
+    }
+
+    @Test
+    public void viewsShouldBeKeptIfTheyFailedToBeWritten() {
+        viewsCounter.increment(999L);
+        doThrow(new IllegalStateException()).when(topicDao).addViews(Collections.singletonMap(999L, 1));
+
+        try {
+            topicFetchService.flushPendingViews();
+            fail("Exception should be rethrown");
+        } catch (IllegalStateException e) {
+            assertEquals(viewsCounter.getPendingViews(999L), 1);
+        }
+    }
+
+    @Test
+    public void viewsShouldBeKeptIfTransactionIsRolledBack() {
+        viewsCounter.increment(999L);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            topicFetchService.flushPendingViews();
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(viewsCounter.getPendingViews(999L), 1);
+    }
+
+    @Test
+    public void pendingViewsShouldBeShownInTopicsOfBranch() {
+        Topic topic = new Topic(user, "title");
+        topic.setId(999L);
+        viewsCounter.increment(999L);
+        Branch branch = new Branch("branch", "branch");
+        when(topicDao.getTopics(eq(branch), any(PageRequest.class)))
+                .thenReturn(new PageImpl<>(Collections.singletonList(topic)));
+
+        Page<Topic> topics = topicFetchService.getTopics(branch, "1");
+
+        assertEquals(topics.getContent().get(0).getViews(), 1);
     }
 
     @Test(expectedExceptions = {NotFoundException.class})
@@ -97,8 +167,10 @@ public class TransactionalTopicFetchServiceTest {
         int pageSize = 20;
         List<Topic> expectedList = Collections.nCopies(2, new Topic(user, "title"));
         Page<Topic> expectedPage = new PageImpl<>(expectedList);
-        when(topicDao.getTopicsUpdatedSince(Matchers.<DateTime>any(), Matchers.<PageRequest>any(),eq(user)))
-                .thenReturn(expectedPage);
+        List<Long> visibleBranchIds = Collections.singletonList(1L);
+        when(branchVisibilityCacheService.getVisibleBranchIds(user)).thenReturn(visibleBranchIds);
+        when(topicDao.getTopicsUpdatedSince(Matchers.<DateTime>any(), Matchers.<PageRequest>any(),
+                eq(visibleBranchIds))).thenReturn(expectedPage);
         user.setPageSize(pageSize);
         when(userService.getCurrentUser()).thenReturn(user);
 
@@ -107,7 +179,7 @@ public class TransactionalTopicFetchServiceTest {
         assertNotNull(actualPage);
         assertEquals(expectedPage, actualPage);
         verify(topicDao).getTopicsUpdatedSince(Matchers.<DateTime>any(), Matchers.<PageRequest>any(),
-                eq(user));
+                eq(visibleBranchIds));
     }
 
     @Test
@@ -116,7 +188,9 @@ public class TransactionalTopicFetchServiceTest {
         int pageSize = 20;
         List<Topic> expectedList = Collections.nCopies(2, new Topic(user, "title"));
         Page<Topic> expectedPage = new PageImpl<>(expectedList);
-        when(topicDao.getUnansweredTopics(Matchers.<PageRequest>any(),eq(user)))
+        List<Long> visibleBranchIds = Collections.singletonList(1L);
+        when(branchVisibilityCacheService.getVisibleBranchIds(user)).thenReturn(visibleBranchIds);
+        when(topicDao.getUnansweredTopics(Matchers.<PageRequest>any(), eq(visibleBranchIds)))
                 .thenReturn(expectedPage);
         user.setPageSize(pageSize);
         when(userService.getCurrentUser()).thenReturn(user);
@@ -161,6 +235,31 @@ public class TransactionalTopicFetchServiceTest {
         Assert.assertTrue(!searchResultPage.hasContent(), "The search result must be empty.");
     }
 
+    @Test
+    public void searchShouldLookForTopicsInVisibleBranchesOnly() {
+        List<Long> visibleBranchIds = Collections.singletonList(1L);
+        Page<Topic> expectedPage = new PageImpl<>(Collections.singletonList(new Topic(user, "title")));
+        when(branchVisibilityCacheService.getVisibleBranchIds(user)).thenReturn(visibleBranchIds);
+        when(searchDao.searchByTitleAndContent(eq("phrase"), any(PageRequest.class), eq(visibleBranchIds)))
+                .thenReturn(expectedPage);
+
+        Page<Topic> searchResultPage = topicFetchService.searchByTitleAndContent("phrase", "1");
+
+        assertEquals(searchResultPage, expectedPage);
+        verify(topicDao, never()).getAllowedBranchesIds(any(JCUser.class));
+    }
+
+    @Test
+    public void searchShouldNotLookForTopicsIfNoBranchIsVisible() {
+        when(branchVisibilityCacheService.getVisibleBranchIds(user)).thenReturn(Collections.<Long>emptyList());
+
+        Page<Topic> searchResultPage = topicFetchService.searchByTitleAndContent("phrase", "1");
+
+        Assert.assertTrue(!searchResultPage.hasContent(), "The search result must be empty.");
+        verify(searchDao, never()).searchByTitleAndContent(any(String.class), any(PageRequest.class),
+                Matchers.<List<Long>>any());
+    }
+
     @DataProvider(name = "parameterSearchPostsWithEmptySearchPhrase")
     public Object[][] parameterSearchPostsWithEmptySearchPhrase() {
         return new Object[][] {
@@ -176,6 +275,14 @@ public class TransactionalTopicFetchServiceTest {
         Mockito.verify(searchDao).rebuildIndex();
     }
 
+    @Test
+    public void testGetSearchIndexingProgress() {
+        IndexingProgress progress = new IndexingProgress(true, 10, 5);
+        when(searchDao.getIndexingProgress()).thenReturn(progress);
+
+        assertEquals(topicFetchService.getSearchIndexingProgress(), progress);
+    }
+
     @Test
     public void getTopicSilentlyShouldNotCallSaveOrUpdate() throws Exception{
         Topic expectedTopic = new Topic(user, "title");
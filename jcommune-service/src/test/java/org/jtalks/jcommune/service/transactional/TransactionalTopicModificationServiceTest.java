@@ -23,6 +23,7 @@ import org.jtalks.common.service.security.SecurityContextFacade;
 import org.jtalks.jcommune.model.dao.BranchDao;
 import org.jtalks.jcommune.model.dao.PostDao;
 import org.jtalks.jcommune.model.dao.TopicDao;
+import org.jtalks.jcommune.model.dao.search.TopicSearchDao;
 import org.jtalks.jcommune.model.entity.*;
 import org.jtalks.jcommune.plugin.api.PluginLoader;
 import org.jtalks.jcommune.service.*;
@@ -100,6 +101,8 @@ public class TransactionalTopicModificationServiceTest {
     private PostDao postDao;
     @Mock
     private PluginLoader pluginLoader;
+    @Mock
+    private TopicSearchDao topicSearchDao;
 
     private CompoundAclBuilder<User> aclBuilder;
 
@@ -121,7 +124,8 @@ public class TransactionalTopicModificationServiceTest {
                 lastReadPostService,
                 postDao,
                 topicFetchService,
-                pluginLoader);
+                pluginLoader,
+                topicSearchDao);
 
         user = new JCUser("username", "email@mail.com", "password");
         when(securityContextFacade.getContext()).thenReturn(securityContext);
@@ -141,7 +145,11 @@ public class TransactionalTopicModificationServiceTest {
         assertEquals(createdPost.getPostContent(), ANSWER_BODY);
         assertEquals(createdPost.getUserCreated(), user);
         assertEquals(user.getPostCount(), 1);
+        assertEquals(answeredTopic.getPostCount(), 1);
+        assertEquals(answeredTopic.getBranch().getPostCount(), 1);
+        assertEquals(answeredTopic.getBranch().getLastPostDate(), createdPost.getCreationDate());
 
+        verify(topicDao).changePostCount(answeredTopic, 1);
         verify(aclBuilder).grant(GeneralPermission.WRITE);
         verify(aclBuilder).to(user);
         verify(aclBuilder).on(createdPost);
@@ -240,6 +248,7 @@ public class TransactionalTopicModificationServiceTest {
         createTopicAssertions(branch, createdTopic, createdPost);
         createTopicVerifications(createdTopic);
         verify(subscriptionService).toggleTopicSubscription(createdTopic);
+        verify(branchDao).changeCounters(branch, 1, 1);
     }
 
     @Test
@@ -308,6 +317,9 @@ public class TransactionalTopicModificationServiceTest {
         assertEquals(createdPost.getUserCreated(), user);
         assertEquals(createdPost.getPostContent(), ANSWER_BODY);
         assertEquals(user.getPostCount(), 1);
+        assertEquals(createdTopic.getPostCount(), 1);
+        assertEquals(createdTopic.getBranch().getTopicCount(), 1);
+        assertEquals(createdTopic.getBranch().getPostCount(), 1);
     }
 
     private void createTopicVerifications(Topic topic)
@@ -356,11 +368,26 @@ public class TransactionalTopicModificationServiceTest {
         topicService.deleteTopicSilent(TOPIC_ID);
 
         assertEquals(branch.getTopicCount(), 0);
+        assertEquals(branch.getPostCount(), 0);
         assertEquals(user.getPostCount(), 0);
         verify(branchDao).saveOrUpdate(branch);
+        verify(branchDao).changeCounters(branch, -1, -1);
         verify(securityService).deleteFromAcl(Topic.class, TOPIC_ID);
     }
 
+    @Test
+    public void deleteTopicsSilentShouldDeleteTopicsWithBulkStatementsAndClearTheirAcl() {
+        List<Long> topicIds = Arrays.asList(1L, 2L);
+        when(topicDao.deleteTopics(topicIds)).thenReturn(2);
+
+        int deleted = topicService.deleteTopicsSilent(topicIds);
+
+        assertEquals(deleted, 2);
+        verify(securityService).deleteFromAcl(Topic.class, 1L);
+        verify(securityService).deleteFromAcl(Topic.class, 2L);
+        verify(branchDao, never()).saveOrUpdate(any(Branch.class));
+    }
+
     @Test
     public void testDeleteTopicWithLastPostInBranch() throws NotFoundException {
         Topic topic = new Topic(user, "title");
@@ -610,7 +637,13 @@ public class TransactionalTopicModificationServiceTest {
         topicService.moveTopic(topic, BRANCH_ID);
 
         assertEquals(targetBranch.getTopicCount(), 1);
+        assertEquals(targetBranch.getPostCount(), 1);
+        assertEquals(currentBranch.getTopicCount(), 0);
+        assertEquals(currentBranch.getPostCount(), 0);
         verify(branchDao).saveOrUpdate(targetBranch);
+        verify(branchDao).changeCounters(targetBranch, 1, 1);
+        verify(branchDao).changeCounters(currentBranch, -1, -1);
+        verify(topicSearchDao).reindexTopicWithPosts(topic);
         verify(notificationService).sendNotificationAboutTopicMoved(topic);
     }
 
@@ -35,6 +35,8 @@ import org.jtalks.jcommune.service.dto.UserSecurityContainer;
 import org.jtalks.jcommune.service.exceptions.MailingFailedException;
 import org.jtalks.jcommune.plugin.api.exceptions.NotFoundException;
 import org.jtalks.jcommune.service.exceptions.UserTriesActivatingAccountAgainException;
+import org.jtalks.jcommune.service.nontransactional.AvatarCache;
+import org.jtalks.jcommune.service.nontransactional.BBCodeService;
 import org.jtalks.jcommune.service.nontransactional.Base64Wrapper;
 import org.jtalks.jcommune.service.nontransactional.EncryptionService;
 import org.jtalks.jcommune.service.nontransactional.MailService;
@@ -63,6 +65,7 @@ import org.jtalks.jcommune.model.dto.LoginUserDto;
 import static org.jtalks.jcommune.service.TestUtils.mockAclBuilder;
 import org.mockito.ArgumentMatcher;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.matches;
@@ -114,6 +117,10 @@ public class TransactionalUserServiceTest {
     private PostDao postDao;
     @Mock
     private Authenticator authenticator;
+    @Mock
+    private AvatarCache avatarCache;
+    @Mock
+    private BBCodeService bbCodeService;
 
 
     @BeforeMethod
@@ -123,14 +130,16 @@ public class TransactionalUserServiceTest {
                 .thenReturn(PASSWORD_MD5_HASH);
         CompoundAclBuilder<User> aclBuilder = mockAclBuilder();
         when(securityService.<User>createAclBuilder()).thenReturn(aclBuilder);
-        userService = new TransactionalUserService(
+        TransactionalUserService transactionalUserService = new TransactionalUserService(
                 userDao,
                 groupDao,
                 securityService,
                 mailService,
                 base64Wrapper,
                 encryptionService,
-                postDao, authenticator);
+                postDao, authenticator, avatarCache);
+        transactionalUserService.setBbCodeService(bbCodeService);
+        userService = transactionalUserService;
     }
 
     @Test
@@ -169,6 +178,34 @@ public class TransactionalUserServiceTest {
         assertUserProfileUpdated(editedUser);
     }
 
+    @Test
+    public void editUserProfileShouldDropCachedAvatarIfItIsChanged() throws NotFoundException {
+        JCUser user = user(USERNAME);
+        user.setAvatar(new byte[]{1});
+        when(userDao.isExist(USER_ID)).thenReturn(Boolean.TRUE);
+        when(userDao.get(USER_ID)).thenReturn(user);
+        when(base64Wrapper.decodeB64Bytes("avatar")).thenReturn(new byte[]{2});
+
+        userService.saveEditedUserProfile(USER_ID,
+                new UserInfoContainer(FIRST_NAME, LAST_NAME, EMAIL, SIGNATURE, "avatar", 50, "location"));
+
+        verify(avatarCache).invalidate(USER_ID);
+    }
+
+    @Test
+    public void editUserProfileShouldKeepCachedAvatarIfItIsNotChanged() throws NotFoundException {
+        JCUser user = user(USERNAME);
+        user.setAvatar(new byte[]{1});
+        when(userDao.isExist(USER_ID)).thenReturn(Boolean.TRUE);
+        when(userDao.get(USER_ID)).thenReturn(user);
+        when(base64Wrapper.decodeB64Bytes("avatar")).thenReturn(new byte[]{1});
+
+        userService.saveEditedUserProfile(USER_ID,
+                new UserInfoContainer(FIRST_NAME, LAST_NAME, EMAIL, SIGNATURE, "avatar", 50, "location"));
+
+        verify(avatarCache, never()).invalidate(anyLong());
+    }
+
     private void assertUserProfileUpdated(JCUser user) {
         assertEquals(user.getEmail(), EMAIL, "Email was not changed");
         assertEquals(user.getSignature(), SIGNATURE, "Signature was not changed");
@@ -444,21 +481,33 @@ public class TransactionalUserServiceTest {
     }
 
     @Test
-    public void testNonActivatedAccountExpiration() throws NotFoundException {
-        JCUser user1 = new JCUser(USERNAME, EMAIL, PASSWORD);
-        user1.setRegistrationDate(new DateTime());
-        JCUser user2 = new JCUser(USERNAME, EMAIL, PASSWORD);
-        user2.setRegistrationDate(new DateTime().minusHours(25));
-        JCUser user3 = new JCUser(USERNAME, EMAIL, PASSWORD);
-        user3.setRegistrationDate(new DateTime().minusHours(50));
-        List<JCUser> users = asList(user1, user2, user3);
-        when(userDao.getNonActivatedUsers()).thenReturn(users);
+    public void testNonActivatedAccountExpiration() {
+        DateTime before = new DateTime().minusDays(1);
+
+        userService.deleteUnactivatedAccountsByTimer();
+
+        ArgumentCaptor<DateTime> registrationDate = ArgumentCaptor.forClass(DateTime.class);
+        verify(userDao).deleteNonActivatedUsersRegisteredBefore(registrationDate.capture());
+        assertFalse(registrationDate.getValue().isBefore(before));
+        assertFalse(registrationDate.getValue().isAfter(new DateTime().minusDays(1)));
+    }
+
+    @Test
+    public void removalOfExpiredAccountsShouldEvictRenderedPosts() {
+        when(userDao.deleteNonActivatedUsersRegisteredBefore(any(DateTime.class))).thenReturn(2);
+
+        userService.deleteUnactivatedAccountsByTimer();
+
+        verify(bbCodeService).evictAllRenderedPosts();
+    }
+
+    @Test
+    public void renderedPostsShouldBeKeptIfNoAccountsExpired() {
+        when(userDao.deleteNonActivatedUsersRegisteredBefore(any(DateTime.class))).thenReturn(0);
 
         userService.deleteUnactivatedAccountsByTimer();
 
-        verify(userDao).delete(user2);
-        verify(userDao).delete(user3);
-        verify(userDao, never()).delete(user1);
+        verify(bbCodeService, never()).evictAllRenderedPosts();
     }
 
     @Test
@@ -18,6 +18,7 @@ package org.jtalks.jcommune.web.controller;
 import org.jtalks.jcommune.model.entity.JCUser;
 import org.jtalks.jcommune.service.UserService;
 import org.jtalks.jcommune.service.exceptions.ImageProcessException;
+import org.jtalks.jcommune.service.nontransactional.AvatarCache;
 import org.jtalks.jcommune.plugin.api.exceptions.NotFoundException;
 import org.jtalks.jcommune.web.util.ImageControllerUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -48,6 +49,7 @@ public class AvatarController extends ImageUploadController {
 
     private UserService userService;
     private ImageControllerUtils avatarControllerUtils;
+    private AvatarCache avatarCache;
 
     /**
      * Constructor for controller instantiating, dependencies injected via autowiring.
@@ -55,17 +57,20 @@ public class AvatarController extends ImageUploadController {
      * @param userService           to manipulate user-related data
      * @param avatarControllerUtils utility object for image-related functions
      * @param messageSource         to resolve locale-dependent messages
+     * @param avatarCache           to serve avatars without loading users
      */
     @Autowired
     public AvatarController(
             UserService userService,
             @Qualifier("avatarControllerUtils")
             ImageControllerUtils avatarControllerUtils,
-            MessageSource messageSource) {
+            MessageSource messageSource,
+            AvatarCache avatarCache) {
         super(messageSource);
 
         this.userService = userService;
         this.avatarControllerUtils = avatarControllerUtils;
+        this.avatarCache = avatarCache;
     }
 
     /**
@@ -102,11 +107,15 @@ public class AvatarController extends ImageUploadController {
     }
 
     /**
-     * Write user avatar in response for rendering it on html pages.
+     * Write user avatar in response for rendering it on html pages. Avatar is taken from the {@link AvatarCache},
+     * user is loaded only if avatar isn't cached yet or page asks for the newer version than cached one.
+     * Pages which know the version of the avatar put it into URL, such responses can be cached by browsers
+     * for a long time, because avatar of another version will have another URL.
      *
      * @param request  servlet request
      * @param response servlet response
      * @param id       user database identifier
+     * @param version  time of the last modification of the avatar in milliseconds if page knows it
      * @throws NotFoundException if user with given encodedUsername not found
      * @throws IOException       throws if an output exception occurred
      */
@@ -114,23 +123,49 @@ public class AvatarController extends ImageUploadController {
     public void renderAvatar(
             HttpServletRequest request,
             HttpServletResponse response,
-            @PathVariable Long id)
+            @PathVariable Long id,
+            @RequestParam(value = "v", required = false) Long version)
             throws NotFoundException, IOException {
-        JCUser user = userService.get(id);
+        AvatarCache.CachedAvatar avatar = avatarCache.get(id);
+        if (avatar == null || (version != null && version > avatar.getVersion())) {
+            JCUser user = userService.get(id);
+            avatar = avatarCache.put(id, user.getAvatarLastModificationTime().getMillis(), user.getAvatar());
+        }
 
-        Date ifModifiedDate = getIfModifiedSineDate(request.getHeader(IF_MODIFIED_SINCE_HEADER));
-        if (!user.getAvatarLastModificationTime().isAfter(ifModifiedDate.getTime())) {
+        String eTag = "\"" + avatar.getHash() + "\"";
+        if (isNotModified(request, eTag, avatar.getVersion())) {
             response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
         } else {
-            byte[] avatar = user.getAvatar();
             response.setContentType("image/jpeg");
-            response.setContentLength(avatar.length);
-            response.getOutputStream().write(avatar);
+            response.setContentLength(avatar.getLength());
+            avatar.writeTo(response.getOutputStream());
+        }
+
+        response.setHeader(ETAG_HEADER, eTag);
+        Date avatarLastModificationDate = new Date(avatar.getVersion());
+        if (version != null && version == avatar.getVersion()) {
+            setupVersionedAvatarHeaders(response, avatarLastModificationDate);
+        } else {
+            setupAvatarHeaders(response, avatarLastModificationDate);
         }
+    }
 
-        Date avatarLastModificationDate = new Date(
-                user.getAvatarLastModificationTime().getMillis());
-        setupAvatarHeaders(response, avatarLastModificationDate);
+    /**
+     * Checks whether browser already has the avatar. 'If-None-Match' header takes precedence over
+     * 'If-Modified-Since' one as HTTP specification requires.
+     *
+     * @param request      servlet request
+     * @param eTag         entity tag of the current avatar
+     * @param lastModified time of the last modification of the current avatar in milliseconds
+     * @return true if browser has the current avatar
+     */
+    private boolean isNotModified(HttpServletRequest request, String eTag, long lastModified) {
+        String ifNoneMatch = request.getHeader(IF_NONE_MATCH_HEADER);
+        if (ifNoneMatch != null) {
+            return ifNoneMatch.contains(eTag) || ifNoneMatch.trim().equals("*");
+        }
+        Date ifModifiedDate = getIfModifiedSineDate(request.getHeader(IF_MODIFIED_SINCE_HEADER));
+        return lastModified <= ifModifiedDate.getTime();
     }
 
     /**
@@ -55,6 +55,9 @@ public class ImageUploadController {
     static final String COMMON_ERROR_RESOURCE_MESSAGE = "avatar.500.common.error";
 
     protected static final String IF_MODIFIED_SINCE_HEADER = "If-Modified-Since";
+    protected static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+    protected static final String ETAG_HEADER = "ETag";
+    static final long VERSIONED_IMAGE_MAX_AGE_SECONDS = 365L * 24 * 60 * 60;
     static final String HTTP_HEADER_DATETIME_PATTERN = "E, dd MMM yyyy HH:mm:ss z";
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ImageUploadController.class);
@@ -139,6 +142,24 @@ public class ImageUploadController {
         response.setHeader("Last-Modified", formattedDateLastModified);
     }
 
+    /**
+     * Sets up cache related headers for the image which URL contains its version, such image never changes
+     * so browsers may keep it as long as they want.
+     *
+     * @param response         HTTP response object where set headers
+     * @param lastModification last modification time of the image
+     */
+    protected void setupVersionedAvatarHeaders(HttpServletResponse response, Date lastModification) {
+        response.setHeader("Cache-Control", "public");
+        response.addHeader("Cache-Control", "max-age=" + VERSIONED_IMAGE_MAX_AGE_SECONDS);
+        String formattedDateExpires = DateFormatUtils.format(
+                new Date(System.currentTimeMillis() + VERSIONED_IMAGE_MAX_AGE_SECONDS * 1000),
+                HTTP_HEADER_DATETIME_PATTERN, Locale.US);
+        response.setHeader("Expires", formattedDateExpires);
+        response.setHeader("Last-Modified", DateFormatUtils.format(
+                lastModification, HTTP_HEADER_DATETIME_PATTERN, Locale.US));
+    }
+
     /**
      * Check 'If-Modified-Since' header in the request and converts it to
      * {@link java.util.Date} representation
@@ -15,6 +15,7 @@
 package org.jtalks.jcommune.web.controller;
 
 import org.joda.time.DateTime;
+import org.jtalks.jcommune.model.dto.PostsPageBoundary;
 import org.jtalks.jcommune.model.entity.*;
 import org.jtalks.jcommune.plugin.api.exceptions.NotFoundException;
 import org.jtalks.jcommune.service.nontransactional.LocationService;
@@ -42,6 +43,7 @@ import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.ModelAndView;
 
 import javax.validation.Valid;
+import java.util.HashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -68,6 +70,8 @@ public class TopicController {
     public static final String POST_DTO = "postDto";
     private static final Logger LOGGER = LoggerFactory.getLogger(UserController.class);
     public static final String POLL = "poll";
+    private static final String AFTER_POST_PARAM = "after";
+    private static final String BEFORE_POST_PARAM = "before";
 
     private TopicModificationService topicModificationService;
     private TopicFetchService topicFetchService;
@@ -77,6 +81,7 @@ public class TopicController {
     private UserService userService;
     private BreadcrumbBuilder breadcrumbBuilder;
     private LocationService locationService;
+    private PollService pollService;
     private SessionRegistry sessionRegistry;
     private EntityToDtoConverter converter;
 
@@ -107,6 +112,8 @@ public class TopicController {
      * @param locationService          to track user location on forum (what page he is viewing now)
      * @param sessionRegistry          to obtain list of users currently online
      * @param topicFetchService        to load topics from a database
+     * @param converter                to convert entities to DTOs
+     * @param pollService              to check if the current user has voted in the poll of the topic
      */
     @Autowired
     public TopicController(TopicModificationService topicModificationService,
@@ -118,7 +125,8 @@ public class TopicController {
                            LocationService locationService,
                            SessionRegistry sessionRegistry,
                            TopicFetchService topicFetchService,
-                           EntityToDtoConverter converter) {
+                           EntityToDtoConverter converter,
+                           PollService pollService) {
         this.topicModificationService = topicModificationService;
         this.postService = postService;
         this.branchService = branchService;
@@ -129,6 +137,7 @@ public class TopicController {
         this.sessionRegistry = sessionRegistry;
         this.topicFetchService = topicFetchService;
         this.converter = converter;
+        this.pollService = pollService;
     }
 
     /**
@@ -215,22 +224,27 @@ public class TopicController {
     }
 
     /**
-     * Displays to user a list of messages from the topic with pagination
+     * Displays to user a list of messages from the topic with pagination. Links to the neighbouring pages refer to the
+     * boundary posts of the shown page, so that posts of those pages are found next to these posts.
      *
-     * @param topicId the id of selected Topic
-     * @param page    page
+     * @param topicId    the id of selected Topic
+     * @param page       page
+     * @param afterPost  id of the last post of the previous page if user came from it
+     * @param beforePost id of the first post of the next page if user came from it
      * @return {@code ModelAndView}
      * @throws NotFoundException when topic or branch not found
      */
     @RequestMapping(value = "/topics/{topicId}", method = RequestMethod.GET)
     public ModelAndView showTopicPage(WebRequest request, @PathVariable(TOPIC_ID) Long topicId,
-                                      @RequestParam(value = "page", defaultValue = "1", required = false) String page)
+                                      @RequestParam(value = "page", defaultValue = "1", required = false) String page,
+                                      @RequestParam(value = AFTER_POST_PARAM, required = false) Long afterPost,
+                                      @RequestParam(value = BEFORE_POST_PARAM, required = false) Long beforePost)
             throws NotFoundException {
         JCUser currentUser = userService.getCurrentUser();
         Topic topic = topicFetchService.get(topicId);
 
         topicFetchService.checkViewTopicPermission(topic.getBranch().getId());
-        Page<Post> postsPage = postService.getPosts(topic, page);
+        Page<Post> postsPage = postService.getPosts(topic, page, getPageBoundary(afterPost, beforePost));
 
         if (request.checkNotModified(topic.getLastModificationPostDate().getMillis())) {
             return null;
@@ -241,12 +255,41 @@ public class TopicController {
                 .addObject("viewList", locationService.getUsersViewing(topic))
                 .addObject("usersOnline", sessionRegistry.getAllPrincipals())
                 .addObject("postsPage", postsPage)
+                .addObject("previousPageParams", getNeighbourPageParams(postsPage, BEFORE_POST_PARAM, 0))
+                .addObject("nextPageParams",
+                        getNeighbourPageParams(postsPage, AFTER_POST_PARAM, postsPage.getNumberOfElements() - 1))
                 .addObject("topic", topic)
                 .addObject(POST_DTO, new PostDto())
                 .addObject("subscribed", topic.getSubscribers().contains(currentUser))
+                .addObject("pollVoted",
+                        topic.getPoll() != null && pollService.isVotedByCurrentUser(topic.getPoll()))
                 .addObject(BREADCRUMB_LIST, breadcrumbBuilder.getForumBreadcrumb(topic));
     }
 
+    private PostsPageBoundary getPageBoundary(Long afterPost, Long beforePost) {
+        if (afterPost != null) {
+            return PostsPageBoundary.lastPostOfPreviousPage(afterPost);
+        } else if (beforePost != null) {
+            return PostsPageBoundary.firstPostOfNextPage(beforePost);
+        }
+        return null;
+    }
+
+    /**
+     * @param postsPage shown page of posts
+     * @param paramName name of the parameter referring to the boundary post
+     * @param index     index of the boundary post on the shown page
+     * @return parameters of the link to the neighbouring page or {@code null} if the page is empty
+     */
+    private HashMap<String, String> getNeighbourPageParams(Page<Post> postsPage, String paramName, int index) {
+        if (!postsPage.hasContent()) {
+            return null;
+        }
+        HashMap<String, String> params = new HashMap<>();
+        params.put(paramName, String.valueOf(postsPage.getContent().get(index).getId()));
+        return params;
+    }
+
     /**
      * Shows edit topic page with form, populated with fields from topic.
      *
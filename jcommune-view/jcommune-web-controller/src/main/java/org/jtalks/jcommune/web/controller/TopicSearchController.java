@@ -15,6 +15,8 @@
 package org.jtalks.jcommune.web.controller;
 
 import org.jtalks.jcommune.model.entity.Topic;
+import org.jtalks.jcommune.plugin.api.web.dto.json.JsonResponse;
+import org.jtalks.jcommune.plugin.api.web.dto.json.JsonResponseStatus;
 import org.jtalks.jcommune.service.LastReadPostService;
 import org.jtalks.jcommune.service.TopicFetchService;
 import org.jtalks.jcommune.service.dto.EntityToDtoConverter;
@@ -79,6 +81,17 @@ public class TopicSearchController {
         topicSearchService.rebuildSearchIndex();
     }
 
+    /**
+     * Shows progress of indexing the data from the database.
+     *
+     * @return progress of indexing
+     */
+    @RequestMapping(value = "/search/index/progress", method = RequestMethod.GET)
+    @ResponseBody
+    public JsonResponse getIndexingProgress() {
+        return new JsonResponse(JsonResponseStatus.SUCCESS, topicSearchService.getSearchIndexingProgress());
+    }
+
     /**
      * Full-text search for topics. It needed to start the search.
      *
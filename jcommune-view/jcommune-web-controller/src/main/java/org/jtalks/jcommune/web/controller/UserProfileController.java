@@ -240,6 +240,7 @@ public class UserProfileController {
     private void setAvatarToUserProfileView(EditUserProfileDto editUserProfileDto, JCUser user) {
         byte[] avatar = user.getAvatar();
         editUserProfileDto.setAvatar(imageConverter.prepareHtmlImgSrc(avatar));
+        editUserProfileDto.setAvatarVersion(user.getAvatarLastModificationTime().getMillis());
     }
 
     /**
@@ -43,6 +43,8 @@ public class CodeReviewCommentDto {
     
     private String authorUsername;
 
+    private long authorAvatarVersion;
+
     public CodeReviewCommentDto() {
     }
 
@@ -59,6 +61,7 @@ public class CodeReviewCommentDto {
         this.body = comment.getBody();
         this.authorId = comment.getAuthor().getId();
         this.authorUsername = comment.getAuthor().getUsername();
+        this.authorAvatarVersion = comment.getAuthor().getAvatarLastModificationTime().getMillis();
     }
 
     /**
@@ -131,6 +134,20 @@ public class CodeReviewCommentDto {
         this.authorUsername = authorUsername;
     }
 
+    /**
+     * @return time of the last modification of the author's avatar in milliseconds
+     */
+    public long getAuthorAvatarVersion() {
+        return authorAvatarVersion;
+    }
+
+    /**
+     * @param authorAvatarVersion time of the last modification of the author's avatar in milliseconds
+     */
+    public void setAuthorAvatarVersion(long authorAvatarVersion) {
+        this.authorAvatarVersion = authorAvatarVersion;
+    }
+
     /**
      * Gets list of attributes for comment. In this case contains only line_number property
      *
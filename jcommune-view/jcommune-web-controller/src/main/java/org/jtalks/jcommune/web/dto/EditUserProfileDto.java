@@ -39,6 +39,7 @@ public class EditUserProfileDto {
     private long userId;
     private String username;
     private String avatar;
+    private long avatarVersion;
 
     @Valid
     private UserProfileDto userProfileDto;
@@ -240,6 +241,20 @@ public class EditUserProfileDto {
         this.avatar = avatar;
     }
 
+    /**
+     * @return time of the last modification of the avatar in milliseconds, used as avatar version in its URL
+     */
+    public long getAvatarVersion() {
+        return avatarVersion;
+    }
+
+    /**
+     * @param avatarVersion time of the last modification of the avatar in milliseconds
+     */
+    public void setAvatarVersion(long avatarVersion) {
+        this.avatarVersion = avatarVersion;
+    }
+
     /**
      * @return dto with user profile fields
      */
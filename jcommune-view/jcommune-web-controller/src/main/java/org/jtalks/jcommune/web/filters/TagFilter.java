@@ -18,18 +18,25 @@ import org.jtalks.jcommune.web.filters.parsers.TagParser;
 import org.jtalks.jcommune.web.filters.wrapper.TaggedResponseWrapper;
 
 import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.regex.Pattern;
 
 /**
- * Needed to filter response and replace custom tags by appropriate content
+ * Needed to filter response and replace custom tags by appropriate content. It also trims whitespaces in
+ * HTML if it's enabled. Response is processed while it's written, so it's neither buffered entirely nor
+ * scanned more than once. The filter should be applied to decorated pages, so that they are processed
+ * in one pass after decoration.
  *
  * @author Mikhail Stryzhonok
  */
 public class TagFilter implements Filter {
     private List<TagParser> parsers = new ArrayList<>();
+    private boolean trimWhitespaces;
+    private Pattern trimExcludePattern;
 
     /**
      * {@inheritDoc}
@@ -44,17 +51,10 @@ public class TagFilter implements Filter {
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
             throws IOException, ServletException {
-        TaggedResponseWrapper wrappedResponse = new TaggedResponseWrapper((HttpServletResponse)response);
+        TaggedResponseWrapper wrappedResponse = new TaggedResponseWrapper((HttpServletResponse) response, parsers,
+                isTrimmingNeeded((HttpServletRequest) request));
         chain.doFilter(request, wrappedResponse);
-        byte[] bytes = wrappedResponse.getByteArray();
-        if (wrappedResponse.getContentType() != null && wrappedResponse.getContentType().contains("text/html")) {
-            for (TagParser parser : parsers) {
-                bytes = parser.replaceTagByContent(wrappedResponse);
-                wrappedResponse.setByteArray(bytes);
-            }
-            response.setContentLength(bytes.length);
-        }
-        response.getOutputStream().write(bytes);
+        wrappedResponse.finish();
     }
 
     /**
@@ -72,4 +72,26 @@ public class TagFilter implements Filter {
     public void setParsers(List<TagParser> parsers) {
         this.parsers = parsers;
     }
+
+    /**
+     * Sets whether whitespaces in the beginning and in the end of lines and blank lines should be
+     * removed from HTML responses
+     * @param trimWhitespaces {@code true} to trim whitespaces
+     */
+    public void setTrimWhitespaces(boolean trimWhitespaces) {
+        this.trimWhitespaces = trimWhitespaces;
+    }
+
+    /**
+     * Sets pattern of URIs of pages which shouldn't be trimmed
+     * @param trimExcludePatterns regular expression to match request URI against
+     */
+    public void setTrimExcludePatterns(String trimExcludePatterns) {
+        this.trimExcludePattern = Pattern.compile(trimExcludePatterns);
+    }
+
+    private boolean isTrimmingNeeded(HttpServletRequest request) {
+        return trimWhitespaces
+                && (trimExcludePattern == null || !trimExcludePattern.matcher(request.getRequestURI()).matches());
+    }
 }
@@ -14,56 +14,59 @@
  */
 package org.jtalks.jcommune.web.filters.parsers;
 
-import org.jtalks.jcommune.web.filters.wrapper.TaggedResponseWrapper;
-
-import java.io.UnsupportedEncodingException;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
 import java.util.ResourceBundle;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Finds and replaces message code by message content.
  * Needed to give possibility to use jcommune i18n messages in plugin api and plugins itself.
+ * Example of the tag: {@code <jcommune:message>message.code</jcommune:message>}
+ * <p/>
+ * Messages of every locale are loaded from bundle once and kept in memory, so that there is no bundle
+ * lookup for every tag found in response.
  *
  * @author Mikhail Stryzhonok
  */
 public class MessageTagParser implements TagParser {
-    /**
-     * Pattern for tag. EXAMPLE : <jcommune:message>message.code</jcommune:message>
-     */
-    private static final Pattern MESSAGE_TAG_PATTERN = Pattern.compile("<\\s*jcommune:message\\s*>(.*?)<\\s*/\\s*jcommune:message\\s*>",
-            Pattern.CASE_INSENSITIVE);
+    private static final String TAG_NAME = "jcommune:message";
     private static final Locale DEFAULT_LOCALE = Locale.ENGLISH;
 
+    /** Messages by locale of response, locales resolved to the same bundle share messages */
+    private final ConcurrentMap<Locale, Map<String, String>> messagesByLocale = new ConcurrentHashMap<>();
+    private final ConcurrentMap<ResourceBundle, Map<String, String>> messagesByBundle = new ConcurrentHashMap<>();
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public byte[] replaceTagByContent(TaggedResponseWrapper response) throws UnsupportedEncodingException{
-        String encoding = response.getCharacterEncoding();
-        Locale locale = response.getLocale();
-        StringBuffer out = new StringBuffer(new String(response.getByteArray(), encoding));
-        Matcher matcher = MESSAGE_TAG_PATTERN.matcher(out);
-        while (matcher.find()) {
-            if (matcher.groupCount() == 1) {
-                String key = matcher.group(1).trim();
-                out.replace(matcher.start(), matcher.end(), getStringByKey(key, locale));
-                matcher.reset();
-            }
-        }
-        return out.toString().getBytes(encoding);
+    public String getTagName() {
+        return TAG_NAME;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getContent(String tagBody, Locale locale) {
+        return getStringByKey(tagBody, (locale == null) ? DEFAULT_LOCALE : locale);
     }
 
+    /**
+     * Gets message by its code. If there is no translation for specified locale, English message is used.
+     *
+     * @param key    code of the message
+     * @param locale locale of the message
+     * @return message or code itself if there is no such message at all
+     */
     protected String getStringByKey(String key, Locale locale) {
-        ResourceBundle bundle = getBundle(locale);
-        if (bundle.containsKey(key)) {
-            return bundle.getString(key);
-        } else {
-            bundle = getBundle(DEFAULT_LOCALE);
-            return bundle.containsKey(key) ? bundle.getString(key) : key;
-        }
+        String message = getMessages(locale).get(key);
+        return (message == null) ? key : message;
     }
 
     /**
@@ -72,4 +75,41 @@ public class MessageTagParser implements TagParser {
     protected ResourceBundle getBundle(Locale locale) {
         return ResourceBundle.getBundle("org.jtalks.jcommune.web.view.messages", locale);
     }
+
+    /**
+     * @param locale locale of the messages
+     * @return all the messages of specified locale with English messages used for missing translations
+     */
+    private Map<String, String> getMessages(Locale locale) {
+        Map<String, String> messages = messagesByLocale.get(locale);
+        if (messages == null) {
+            ResourceBundle bundle = getBundle(locale);
+            messages = messagesByBundle.get(bundle);
+            if (messages == null) {
+                messages = loadMessages(bundle);
+                messagesByBundle.putIfAbsent(bundle, messages);
+            }
+            messagesByLocale.putIfAbsent(locale, messages);
+        }
+        return messages;
+    }
+
+    /**
+     * @param bundle bundle to load messages from
+     * @return messages of the bundle including English messages missing in it
+     */
+    private Map<String, String> loadMessages(ResourceBundle bundle) {
+        Map<String, String> messages = new HashMap<>();
+        copyMessages(getBundle(DEFAULT_LOCALE), messages);
+        copyMessages(bundle, messages);
+        return Collections.unmodifiableMap(messages);
+    }
+
+    private void copyMessages(ResourceBundle bundle, Map<String, String> messages) {
+        Enumeration<String> keys = bundle.getKeys();
+        while (keys.hasMoreElements()) {
+            String key = keys.nextElement();
+            messages.put(key, bundle.getString(key));
+        }
+    }
 }
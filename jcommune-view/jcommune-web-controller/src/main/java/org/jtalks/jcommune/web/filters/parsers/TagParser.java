@@ -14,24 +14,31 @@
  */
 package org.jtalks.jcommune.web.filters.parsers;
 
-import org.jtalks.jcommune.web.filters.wrapper.TaggedResponseWrapper;
-
-import java.io.UnsupportedEncodingException;
+import java.util.Locale;
 
 /**
- * Interface which should be implemented by tag parsers
+ * Interface which should be implemented by tag parsers. We need tags to access to application resources
+ * (e.g. i18n messages) from velocity macros provided by plugin-api module and from plugins templates itself
+ * (if necessary). Tags look like {@code <tag-name>body</tag-name>}, name of the tag is case insensitive and
+ * may be surrounded by whitespaces. Tags are found in response while it's written, see
+ * {@link org.jtalks.jcommune.web.filters.wrapper.TagSubstitutingOutputStream}.
  *
  * @author Mikhail Stryzhonok
  */
 public interface TagParser {
 
     /**
-     * Replaces tag by appropriate content. We need tags to access to application resources (e.g. i18n messages)
-     * from velocity macros provided by plugin-api module and from plugins templates itself (if necessary).
+     * @return name of the tag replaced by this parser, e.g. {@code jcommune:message}, must contain
+     *         ASCII characters only
+     */
+    String getTagName();
+
+    /**
+     * Gets content the tag should be replaced by.
      *
-     * @param response response to search tags
-     * @return array of bytes which represents response content
-     * @throws java.io.UnsupportedEncodingException if response have unsupported encoding
+     * @param tagBody text between opening and closing tags without leading and trailing whitespaces
+     * @param locale  locale of the response
+     * @return content to replace tag by
      */
-    byte[] replaceTagByContent(TaggedResponseWrapper response) throws UnsupportedEncodingException;
+    String getContent(String tagBody, Locale locale);
 }
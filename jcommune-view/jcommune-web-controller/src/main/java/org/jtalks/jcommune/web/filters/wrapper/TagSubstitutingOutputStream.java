@@ -0,0 +1,258 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.web.filters.wrapper;
+
+import org.jtalks.jcommune.web.filters.parsers.TagParser;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Replaces tags of {@link TagParser}s by their content while response is written, so that response is not
+ * buffered entirely and is scanned only once. Bytes which can't be a part of a tag are written to the target
+ * stream right away, only possible tag is kept in a small lookahead buffer until it's either completed and
+ * replaced or turned out not to be a tag and written as is.
+ * <p/>
+ * Tags are searched for in bytes, it's correct for any ASCII compatible encoding (e.g. UTF-8) since names of
+ * tags are ASCII only.
+ */
+public class TagSubstitutingOutputStream extends ServletOutputStream {
+    /** Tags longer than this are not replaced, it limits memory taken by lookahead buffer */
+    static final int MAX_TAG_LENGTH = 512;
+
+    private final OutputStream target;
+    private final List<TagParser> parsers;
+    private final String[] tagNames;
+    private final ServletResponse response;
+    private final Charset charset;
+
+    private final byte[] lookahead = new byte[MAX_TAG_LENGTH];
+    private int lookaheadLength;
+    /** Index of parser which opening tag is in lookahead buffer, -1 if opening tag isn't completed yet */
+    private int openedTag = -1;
+    private int bodyStart;
+    /** Position of possible closing tag in lookahead buffer, -1 if there is no one */
+    private int closingTagStart = -1;
+
+    /**
+     * @param target   stream to write response with replaced tags to
+     * @param parsers  parsers of tags to be replaced
+     * @param response response to get encoding and locale from
+     */
+    public TagSubstitutingOutputStream(OutputStream target, List<TagParser> parsers, ServletResponse response) {
+        this.target = target;
+        this.parsers = parsers;
+        this.response = response;
+        this.charset = Charset.forName(response.getCharacterEncoding());
+        this.tagNames = new String[parsers.size()];
+        for (int i = 0; i < tagNames.length; i++) {
+            tagNames[i] = parsers.get(i).getTagName().toLowerCase(Locale.ENGLISH);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(int b) throws IOException {
+        process((byte) b);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        int end = offset + length;
+        int i = offset;
+        while (i < end) {
+            if (lookaheadLength == 0) {
+                int textStart = i;
+                while (i < end && bytes[i] != '<') {
+                    i++;
+                }
+                target.write(bytes, textStart, i - textStart);
+                if (i == end) {
+                    break;
+                }
+            }
+            process(bytes[i++]);
+        }
+    }
+
+    /**
+     * Flushes target stream. Possible tag which isn't completed yet is kept in lookahead buffer.
+     *
+     * @throws IOException if target stream can't be flushed
+     */
+    @Override
+    public void flush() throws IOException {
+        target.flush();
+    }
+
+    /**
+     * Writes content of lookahead buffer as is, should be called when response is completed since
+     * incomplete tag in the end of response is not a tag.
+     *
+     * @throws IOException if target stream can't be written
+     */
+    public void finish() throws IOException {
+        target.write(lookahead, 0, lookaheadLength);
+        reset();
+        target.flush();
+    }
+
+    private void process(byte b) throws IOException {
+        if (lookaheadLength == 0) {
+            if (b == '<') {
+                lookahead[lookaheadLength++] = b;
+            } else {
+                target.write(b);
+            }
+            return;
+        }
+        if (lookaheadLength == lookahead.length) {
+            rejectLookahead();
+            process(b);
+            return;
+        }
+        lookahead[lookaheadLength++] = b;
+        if (openedTag < 0) {
+            processOpeningTag();
+        } else {
+            processBody(b);
+        }
+    }
+
+    private void processOpeningTag() throws IOException {
+        boolean prefix = false;
+        for (int i = 0; i < tagNames.length; i++) {
+            TagMatch match = matchTag(0, false, tagNames[i]);
+            if (match == TagMatch.COMPLETE) {
+                openedTag = i;
+                bodyStart = lookaheadLength;
+                return;
+            }
+            prefix |= (match == TagMatch.PREFIX);
+        }
+        if (!prefix) {
+            rejectLookahead();
+        }
+    }
+
+    private void processBody(byte b) throws IOException {
+        if (closingTagStart < 0) {
+            closingTagStart = (b == '<') ? lookaheadLength - 1 : -1;
+            return;
+        }
+        TagMatch match = matchTag(closingTagStart, true, tagNames[openedTag]);
+        if (match == TagMatch.COMPLETE) {
+            String body = new String(lookahead, bodyStart, closingTagStart - bodyStart, charset).trim();
+            target.write(parsers.get(openedTag).getContent(body, response.getLocale()).getBytes(charset));
+            reset();
+        } else if (match == TagMatch.NONE) {
+            closingTagStart = (b == '<') ? lookaheadLength - 1 : -1;
+        }
+    }
+
+    /**
+     * Writes lookahead buffer as is up to the next '&lt;' since there is no tag starting from its
+     * first byte and looks for tags in the rest of the buffer. The rest is processed in place: it's
+     * moved to the beginning of the buffer while being read, so bytes are never written ahead of
+     * the one being read.
+     */
+    private void rejectLookahead() throws IOException {
+        int length = lookaheadLength;
+        int next = 1;
+        while (next < length && lookahead[next] != '<') {
+            next++;
+        }
+        target.write(lookahead, 0, next);
+        reset();
+        for (int i = next; i < length; i++) {
+            process(lookahead[i]);
+        }
+    }
+
+    private void reset() {
+        lookaheadLength = 0;
+        openedTag = -1;
+        closingTagStart = -1;
+    }
+
+    /**
+     * Matches part of lookahead buffer which starts from '&lt;' against tag like
+     * {@code < tag-name >} or {@code < / tag-name >}.
+     *
+     * @param start   position of '&lt;' in lookahead buffer
+     * @param closing whether closing tag is expected
+     * @param tagName name of the tag in lower case
+     * @return result of matching
+     */
+    private TagMatch matchTag(int start, boolean closing, String tagName) {
+        int i = skipWhitespaces(start + 1);
+        if (closing) {
+            if (i == lookaheadLength) {
+                return TagMatch.PREFIX;
+            }
+            if (lookahead[i] != '/') {
+                return TagMatch.NONE;
+            }
+            i = skipWhitespaces(i + 1);
+        }
+        for (int j = 0; j < tagName.length(); j++, i++) {
+            if (i == lookaheadLength) {
+                return TagMatch.PREFIX;
+            }
+            if (Character.toLowerCase((char) (lookahead[i] & 0xFF)) != tagName.charAt(j)) {
+                return TagMatch.NONE;
+            }
+        }
+        i = skipWhitespaces(i);
+        if (i == lookaheadLength) {
+            return TagMatch.PREFIX;
+        }
+        return (lookahead[i] == '>') ? TagMatch.COMPLETE : TagMatch.NONE;
+    }
+
+    private int skipWhitespaces(int from) {
+        int i = from;
+        while (i < lookaheadLength && isWhitespace(lookahead[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '\f' || b == 0x0B;
+    }
+
+    /**
+     * Result of matching of lookahead buffer against tag
+     */
+    private enum TagMatch {
+        /** Buffer contains the whole tag */
+        COMPLETE,
+        /** Buffer contains beginning of the tag */
+        PREFIX,
+        /** Buffer doesn't contain the tag */
+        NONE
+    }
+}
@@ -14,83 +14,135 @@
  */
 package org.jtalks.jcommune.web.filters.wrapper;
 
+import org.jtalks.jcommune.web.filters.parsers.TagParser;
+
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpServletResponseWrapper;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
-import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 /**
+ * Replaces tags of {@link TagParser}s and optionally trims whitespaces in HTML responses while they are
+ * written. Whether response is HTML is decided when its stream or writer is requested, so content type
+ * should be set before writing of the body. Other responses are written to the wrapped response as is.
+ *
  * @author Mikhail Stryzhonok
  */
 public class TaggedResponseWrapper extends HttpServletResponseWrapper {
-    private ByteArrayPrintWriter output;
-
-    public TaggedResponseWrapper(HttpServletResponse response) {
-        super(response);
-        output = new ByteArrayPrintWriter();
+    private final List<TagParser> parsers;
+    private final boolean trimWhitespaces;
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    /**
+     * @param response response to be wrapped
+     * @param parsers  parsers of tags to be replaced
+     */
+    public TaggedResponseWrapper(HttpServletResponse response, List<TagParser> parsers) {
+        this(response, parsers, false);
     }
 
-    public byte[] getByteArray() {
-        return output.toByteArray();
-    }
-
-    public void setByteArray(byte[] bytes) throws IOException {
-        output.setBytes(bytes);
+    /**
+     * @param response        response to be wrapped
+     * @param parsers         parsers of tags to be replaced
+     * @param trimWhitespaces whether whitespaces should be trimmed, see {@link WhitespaceTrimmingOutputStream}
+     */
+    public TaggedResponseWrapper(HttpServletResponse response, List<TagParser> parsers, boolean trimWhitespaces) {
+        super(response);
+        this.parsers = parsers;
+        this.trimWhitespaces = trimWhitespaces;
     }
 
+    /**
+     * {@inheritDoc}
+     */
     @Override
     public ServletOutputStream getOutputStream() throws IOException {
-        return output.getStream();
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called for this response");
+        }
+        if (outputStream == null) {
+            outputStream = createOutputStream();
+        }
+        return outputStream;
     }
 
+    /**
+     * {@inheritDoc}
+     */
     @Override
     public PrintWriter getWriter() throws IOException {
-        return output.getWriter();
-    }
-
-    public String toString() {
-        return output.toString();
+        if (writer == null) {
+            if (outputStream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called for this response");
+            }
+            if (isProcessingNeeded()) {
+                outputStream = createOutputStream();
+                writer = new PrintWriter(new OutputStreamWriter(outputStream, getCharacterEncoding()));
+            } else {
+                writer = super.getWriter();
+            }
+        }
+        return writer;
     }
 
-    private static class ByteArrayPrintWriter {
-
-        private ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        private PrintWriter pw = new PrintWriter(new OutputStreamWriter(baos, StandardCharsets.UTF_8));
-        private ServletOutputStream sos = new ByteArrayServletStream(baos);
-
-        public PrintWriter getWriter() {
-            return pw;
+    /**
+     * Length of the content is changed by replacing of tags and trimming, so it's not passed to wrapped
+     * response for HTML responses.
+     *
+     * @param len length of the content
+     */
+    @Override
+    public void setContentLength(int len) {
+        if (!isProcessingNeeded()) {
+            super.setContentLength(len);
         }
+    }
 
-        public ServletOutputStream getStream() {
-            return sos;
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        } else if (outputStream != null) {
+            outputStream.flush();
         }
+        super.flushBuffer();
+    }
 
-        public byte[] toByteArray() {
-            pw.flush();
-            return baos.toByteArray();
+    /**
+     * Writes everything left in buffers to wrapped response, should be called when response is completed.
+     *
+     * @throws IOException if wrapped response can't be written
+     */
+    public void finish() throws IOException {
+        if (writer != null) {
+            writer.flush();
         }
-
-        public void setBytes(byte[] bytes) throws IOException {
-            baos.reset();
-            baos.write(bytes);
+        if (outputStream instanceof TagSubstitutingOutputStream) {
+            ((TagSubstitutingOutputStream) outputStream).finish();
         }
     }
 
-    private static class ByteArrayServletStream extends ServletOutputStream {
-        private ByteArrayOutputStream baos;
-
-        ByteArrayServletStream(ByteArrayOutputStream baos) {
-            this.baos = baos;
-        }
-
-        public void write(int param) throws IOException {
-            baos.write(param);
+    private ServletOutputStream createOutputStream() throws IOException {
+        if (isProcessingNeeded()) {
+            OutputStream target = getResponse().getOutputStream();
+            if (trimWhitespaces) {
+                target = new WhitespaceTrimmingOutputStream(target);
+            }
+            return new TagSubstitutingOutputStream(target, parsers, this);
         }
+        return super.getOutputStream();
     }
 
+    private boolean isProcessingNeeded() {
+        String contentType = getContentType();
+        return (!parsers.isEmpty() || trimWhitespaces) && contentType != null && contentType.contains("text/html");
+    }
 }
@@ -0,0 +1,196 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.web.filters.wrapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Removes whitespaces in the beginning and in the end of lines and blank lines from HTML while it's written.
+ * Content of {@code pre}, {@code textarea} and {@code script} elements is written as is since whitespaces
+ * are significant there. Whitespaces in the end of line are kept in a small buffer until it's known
+ * whether the line ends, everything else is written in chunks through one reusable buffer.
+ * <p/>
+ * Whitespaces and tags are searched for in bytes, it's correct for any ASCII compatible encoding
+ * (e.g. UTF-8) since bytes of multi-byte characters never look like ASCII ones.
+ */
+public class WhitespaceTrimmingOutputStream extends OutputStream {
+    static final int BUFFER_SIZE = 8192;
+    /** Longer sequences of whitespaces in the middle of line are written as is */
+    static final int MAX_PENDING_WHITESPACES = 256;
+    private static final String[] PRESERVED_ELEMENTS = {"pre", "textarea", "script"};
+    /** Length of the longest name of preserved element plus one, so that longer names don't match */
+    private static final int MAX_TAG_NAME_LENGTH = 9;
+
+    private final OutputStream target;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int bufferLength;
+    private final byte[] pendingWhitespaces = new byte[MAX_PENDING_WHITESPACES];
+    private int pendingWhitespacesLength;
+    private boolean lineHasContent;
+
+    private final char[] tagName = new char[MAX_TAG_NAME_LENGTH];
+    /** Length of the name of the tag being read, -1 if no tag is being read */
+    private int tagNameLength = -1;
+    private boolean closingTag;
+    /** Name of the element which content is written as is, {@code null} if it's not such an element */
+    private String preservedElement;
+
+    /**
+     * @param target stream to write trimmed HTML to
+     */
+    public WhitespaceTrimmingOutputStream(OutputStream target) {
+        this.target = target;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(int b) throws IOException {
+        process((byte) b);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        for (int i = offset; i < offset + length; i++) {
+            process(bytes[i]);
+        }
+    }
+
+    /**
+     * Writes buffered content to the target stream and flushes it. Whitespaces in the end of the current
+     * line are kept since the line may be continued.
+     *
+     * @throws IOException if target stream can't be written
+     */
+    @Override
+    public void flush() throws IOException {
+        writeBuffer();
+        target.flush();
+    }
+
+    private void process(byte b) throws IOException {
+        trackTags(b);
+        if (preservedElement != null) {
+            append(b);
+            lineHasContent = true;
+        } else if (b == '\n') {
+            pendingWhitespacesLength = 0;
+            if (lineHasContent) {
+                append(b);
+                lineHasContent = false;
+            }
+        } else if (b == ' ' || b == '\t' || b == '\r') {
+            if (lineHasContent) {
+                addPendingWhitespace(b);
+            }
+        } else {
+            appendPendingWhitespaces();
+            append(b);
+            lineHasContent = true;
+        }
+    }
+
+    /**
+     * Reads names of tags to find out where preserved elements start and end. Name of the tag is
+     * completed by the first byte after it, so the tag itself is written in the same way as
+     * the content before it.
+     *
+     * @param b next byte of the content
+     */
+    private void trackTags(byte b) {
+        if (tagNameLength >= 0) {
+            if (tagNameLength == 0 && !closingTag && b == '/') {
+                closingTag = true;
+                return;
+            }
+            if (isTagNameCharacter(b)) {
+                if (tagNameLength < tagName.length) {
+                    tagName[tagNameLength++] = Character.toLowerCase((char) b);
+                }
+                return;
+            }
+            onTagName();
+        }
+        if (b == '<') {
+            tagNameLength = 0;
+            closingTag = false;
+        }
+    }
+
+    private void onTagName() {
+        int length = tagNameLength;
+        tagNameLength = -1;
+        if (length == 0 || length == tagName.length) {
+            return;
+        }
+        if (preservedElement == null && !closingTag) {
+            for (String element : PRESERVED_ELEMENTS) {
+                if (isTagName(element, length)) {
+                    preservedElement = element;
+                    return;
+                }
+            }
+        } else if (preservedElement != null && closingTag && isTagName(preservedElement, length)) {
+            preservedElement = null;
+        }
+    }
+
+    private boolean isTagName(String name, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (tagName[i] != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isTagNameCharacter(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9');
+    }
+
+    private void addPendingWhitespace(byte b) throws IOException {
+        if (pendingWhitespacesLength == pendingWhitespaces.length) {
+            appendPendingWhitespaces();
+        }
+        pendingWhitespaces[pendingWhitespacesLength++] = b;
+    }
+
+    private void appendPendingWhitespaces() throws IOException {
+        for (int i = 0; i < pendingWhitespacesLength; i++) {
+            append(pendingWhitespaces[i]);
+        }
+        pendingWhitespacesLength = 0;
+    }
+
+    private void append(byte b) throws IOException {
+        if (bufferLength == buffer.length) {
+            writeBuffer();
+        }
+        buffer[bufferLength++] = b;
+    }
+
+    private void writeBuffer() throws IOException {
+        target.write(buffer, 0, bufferLength);
+        bufferLength = 0;
+    }
+}
@@ -14,37 +14,32 @@
  */
 package org.jtalks.jcommune.web.interceptors;
 
-import org.jtalks.jcommune.model.entity.ExternalLink;
-import org.jtalks.jcommune.service.ExternalLinkService;
+import org.jtalks.jcommune.model.entity.Banner;
+import org.jtalks.jcommune.service.nontransactional.ForumChromeCacheService;
 import org.springframework.web.servlet.ModelAndView;
 import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.util.List;
 
 /**
  * Global interceptor that works for all pages of the forum.
- * It gets all forum external links and put them to the model
- * that will be displayed page.
- *
- * @author Alexandre Teterin
- *         Date: 10.02.13
+ * It puts banners, external links and component of the forum to the model
+ * as one snapshot, which is shared by all the requests until this data is changed.
  */
+public class ForumChromeInterceptor extends HandlerInterceptorAdapter {
+    static final String FORUM_CHROME_MODEL_PARAM = "forumChrome";
+    static final String UPLOADED_BANNER_MODEL_PARAM = "uploadedBanner";
 
-
-public class ExternalLinkInterceptor extends HandlerInterceptorAdapter {
-    static final String EXTERNAL_LINKS_MODEL_PARAM = "externalLinks";
-
-    private ExternalLinkService externalLinkService;
+    private final ForumChromeCacheService forumChromeCacheService;
 
     /**
-     * Create an instance and initialize it fields.
+     * Constructs an instance with required fields.
      *
-     * @param service {@link ExternalLink} related externalLinkService.
+     * @param forumChromeCacheService to get banners, external links and component of the forum
      */
-    public ExternalLinkInterceptor(ExternalLinkService service) {
-        this.externalLinkService = service;
+    public ForumChromeInterceptor(ForumChromeCacheService forumChromeCacheService) {
+        this.forumChromeCacheService = forumChromeCacheService;
     }
 
     /**
@@ -57,8 +52,9 @@ public class ExternalLinkInterceptor extends HandlerInterceptorAdapter {
                            ModelAndView modelAndView) throws Exception {
         super.postHandle(request, response, handler, modelAndView);
         if (modelAndView != null) {
-            List<ExternalLink> links = externalLinkService.getLinks();
-            modelAndView.addObject(EXTERNAL_LINKS_MODEL_PARAM, links);
+            modelAndView.addObject(FORUM_CHROME_MODEL_PARAM, forumChromeCacheService.getForumChrome());
+            //form of banner upload is filled by the view, so it can't be shared
+            modelAndView.addObject(UPLOADED_BANNER_MODEL_PARAM, new Banner());
         }
     }
 }
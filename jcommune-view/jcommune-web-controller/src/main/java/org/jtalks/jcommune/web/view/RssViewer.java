@@ -21,6 +21,7 @@ import com.sun.syndication.feed.rss.Description;
 import com.sun.syndication.feed.rss.Item;
 import org.jtalks.common.model.entity.Component;
 import org.jtalks.jcommune.model.entity.Topic;
+import org.jtalks.jcommune.service.dto.ForumChrome;
 import org.springframework.web.servlet.view.feed.AbstractRssFeedView;
 
 import javax.servlet.http.HttpServletRequest;
@@ -50,7 +51,8 @@ public class RssViewer extends AbstractRssFeedView {
     @Override
     protected void buildFeedMetadata(Map<String, Object> model, Channel feed,
                                      HttpServletRequest request) {
-        Component component = (Component)model.get("forumComponent");
+        ForumChrome forumChrome = (ForumChrome) model.get("forumChrome");
+        Component component = (forumChrome != null) ? forumChrome.getForumComponent() : null;
         String feedTitle = DEFAULT_FEED_TITLE;
         String feedDescription = DEFAULT_FEED_DESCRIPTION;
 
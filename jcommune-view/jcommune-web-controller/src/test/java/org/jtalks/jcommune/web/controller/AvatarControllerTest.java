@@ -14,10 +14,12 @@
  */
 package org.jtalks.jcommune.web.controller;
 
+import org.apache.commons.io.FileUtils;
 import org.joda.time.DateTime;
 import org.jtalks.jcommune.model.entity.JCUser;
 import org.jtalks.jcommune.service.UserService;
 import org.jtalks.jcommune.service.exceptions.ImageProcessException;
+import org.jtalks.jcommune.service.nontransactional.AvatarCache;
 import org.jtalks.jcommune.plugin.api.exceptions.NotFoundException;
 import org.jtalks.jcommune.web.util.ImageControllerUtils;
 import org.mockito.Matchers;
@@ -29,16 +31,20 @@ import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.web.multipart.MultipartFile;
+import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import javax.servlet.http.HttpServletResponse;
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 
 import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
@@ -66,6 +72,8 @@ public class AvatarControllerTest {
 
     //
     private AvatarController avatarController;
+    private AvatarCache avatarCache;
+    private File avatarCacheFolder;
 
     private byte[] validAvatar = new byte[] {-119, 80, 78, 71, 13, 10, 26, 10, 0, 0, 0, 13, 73, 72, 68, 82, 0,
             0, 0, 4, 0, 0, 0, 4, 1, 0, 0, 0, 0, -127, -118, -93, -45, 0, 0, 0, 9, 112, 72, 89, 115, 0, 0, 1,
@@ -79,7 +87,14 @@ public class AvatarControllerTest {
     @BeforeMethod
     public void setUp() throws Exception {
         initMocks(this);
-        avatarController = new AvatarController(userService, imageControllerUtils, messageSource);
+        avatarCacheFolder = Files.createTempDirectory("avatars").toFile();
+        avatarCache = new AvatarCache(avatarCacheFolder.getPath());
+        avatarController = new AvatarController(userService, imageControllerUtils, messageSource, avatarCache);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        FileUtils.deleteQuietly(avatarCacheFolder);
     }
 
     @Test
@@ -112,7 +127,7 @@ public class AvatarControllerTest {
         MockHttpServletRequest request = new MockHttpServletRequest();
         request.addHeader(avatarController.IF_MODIFIED_SINCE_HEADER, new Date(0));
 
-        avatarController.renderAvatar(request, response, 0L);
+        avatarController.renderAvatar(request, response, 0L, null);
 
         assertEquals(response.getContentType(), "image/jpeg");
         assertEquals(response.getContentLength(), validAvatar.length);
@@ -137,7 +152,7 @@ public class AvatarControllerTest {
         request.addHeader(avatarController.IF_MODIFIED_SINCE_HEADER, new Date(1000));
 
 
-        avatarController.renderAvatar(request, response, 0L);
+        avatarController.renderAvatar(request, response, 0L, null);
 
         assertEquals(response.getStatus(), HttpServletResponse.SC_NOT_MODIFIED);
         assertNotSame(response.getContentAsByteArray(), validAvatar);
@@ -150,6 +165,74 @@ public class AvatarControllerTest {
         assertNotNull(response.getHeader("Last-Modified"));// depends on current timezone
     }
     
+    @Test
+    public void renderAvatarShouldNotLoadUserIfAvatarIsCached() throws IOException, NotFoundException {
+        avatarCache.put(0L, 1000, validAvatar);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        avatarController.renderAvatar(new MockHttpServletRequest(), response, 0L, null);
+
+        assertEquals(response.getContentAsByteArray(), validAvatar);
+        assertNotNull(response.getHeader("ETag"));
+        verify(userService, never()).get(anyLong());
+    }
+
+    @Test
+    public void renderAvatarShouldNotReturnAvatarWithMatchingETag() throws IOException, NotFoundException {
+        String eTag = "\"" + avatarCache.put(0L, 1000, validAvatar).getHash() + "\"";
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("If-None-Match", eTag);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        avatarController.renderAvatar(request, response, 0L, null);
+
+        assertEquals(response.getStatus(), HttpServletResponse.SC_NOT_MODIFIED);
+        assertEquals(response.getContentLength(), 0);
+        assertEquals(response.getHeader("ETag"), eTag);
+    }
+
+    @Test
+    public void renderAvatarShouldReturnAvatarWithAnotherETag() throws IOException, NotFoundException {
+        avatarCache.put(0L, 1000, validAvatar);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("If-None-Match", "\"old\"");
+        request.addHeader(avatarController.IF_MODIFIED_SINCE_HEADER, new Date(1000));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        avatarController.renderAvatar(request, response, 0L, null);
+
+        assertEquals(response.getStatus(), HttpServletResponse.SC_OK);
+        assertEquals(response.getContentAsByteArray(), validAvatar);
+    }
+
+    @Test
+    public void renderAvatarOfRequestedVersionShouldBeCachedForLongTime() throws IOException, NotFoundException {
+        avatarCache.put(0L, 1000, validAvatar);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        avatarController.renderAvatar(new MockHttpServletRequest(), response, 0L, 1000L);
+
+        List<String> cacheControlHeaders = response.getHeaders("Cache-Control");
+        assertTrue(cacheControlHeaders.contains("public"));
+        assertTrue(cacheControlHeaders.contains("max-age=" + AvatarController.VERSIONED_IMAGE_MAX_AGE_SECONDS));
+        assertFalse(cacheControlHeaders.contains("must-revalidate"));
+    }
+
+    @Test
+    public void renderAvatarShouldReloadAvatarIfNewerVersionIsRequested() throws IOException, NotFoundException {
+        avatarCache.put(0L, 1000, new byte[]{1, 2, 3});
+        JCUser user = getUser();
+        user.setAvatar(validAvatar);
+        user.setAvatarLastModificationTime(new DateTime(2000));
+        when(userService.get(0L)).thenReturn(user);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        avatarController.renderAvatar(new MockHttpServletRequest(), response, 0L, 2000L);
+
+        assertEquals(response.getContentAsByteArray(), validAvatar);
+        assertEquals(avatarCache.get(0L).getVersion(), 2000L);
+    }
+
     private JCUser getUser() {
         JCUser newUser = new JCUser(USER_NAME, EMAIL, PASSWORD);
         newUser.setFirstName(FIRST_NAME);
@@ -15,6 +15,7 @@
 package org.jtalks.jcommune.web.controller;
 
 import org.jtalks.jcommune.model.dto.PageRequest;
+import org.jtalks.jcommune.model.dto.PostsPageBoundary;
 import org.jtalks.jcommune.model.entity.*;
 import org.jtalks.jcommune.service.*;
 import org.jtalks.jcommune.plugin.api.exceptions.NotFoundException;
@@ -25,6 +26,7 @@ import org.jtalks.jcommune.plugin.api.web.util.BreadcrumbBuilder;
 import org.jtalks.jcommune.service.dto.EntityToDtoConverter;
 import org.jtalks.jcommune.plugin.api.web.dto.json.JsonResponse;
 import org.jtalks.jcommune.plugin.api.web.dto.json.JsonResponseStatus;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.springframework.beans.propertyeditors.StringTrimmerEditor;
@@ -84,6 +86,8 @@ public class TopicControllerTest {
     private LastReadPostService lastReadPostService;
     @Mock
     private EntityToDtoConverter converter;
+    @Mock
+    private PollService pollService;
 
     private TopicController controller;
 
@@ -100,7 +104,8 @@ public class TopicControllerTest {
                 locationService,
                 registry,
                 topicFetchService,
-                converter);
+                converter,
+                pollService);
     }
 
     @BeforeMethod
@@ -138,7 +143,7 @@ public class TopicControllerTest {
 
         WebRequest request = mock(WebRequest.class);
 
-        ModelAndView mav = controller.showTopicPage(request, TOPIC_ID, page);
+        ModelAndView mav = controller.showTopicPage(request, TOPIC_ID, page, null, null);
 
         verify(topicFetchService).checkViewTopicPermission(topic.getBranch().getId());
         verify(lastReadPostService).markTopicPageAsRead(topic, Integer.valueOf(page));
@@ -151,6 +156,79 @@ public class TopicControllerTest {
         assertModelAttributeAvailable(mav, "breadcrumbList");
     }
 
+    @Test
+    public void showTopicPageShouldFindPostsNextToBoundaryPostOfPreviousPage() throws NotFoundException {
+        String page = "2";
+        Topic topic = createTopic();
+        prepareViewTopicMocks(topic, page);
+
+        controller.showTopicPage(mock(WebRequest.class), TOPIC_ID, page, 5L, null);
+
+        ArgumentCaptor<PostsPageBoundary> boundary = ArgumentCaptor.forClass(PostsPageBoundary.class);
+        verify(postService).getPosts(eq(topic), eq(page), boundary.capture());
+        assertEquals(boundary.getValue().getPostId(), 5L);
+        assertTrue(boundary.getValue().isOnPreviousPage());
+    }
+
+    @Test
+    public void showTopicPageShouldFindPostsNextToBoundaryPostOfNextPage() throws NotFoundException {
+        String page = "1";
+        Topic topic = createTopic();
+        prepareViewTopicMocks(topic, page);
+
+        controller.showTopicPage(mock(WebRequest.class), TOPIC_ID, page, null, 7L);
+
+        ArgumentCaptor<PostsPageBoundary> boundary = ArgumentCaptor.forClass(PostsPageBoundary.class);
+        verify(postService).getPosts(eq(topic), eq(page), boundary.capture());
+        assertEquals(boundary.getValue().getPostId(), 7L);
+        assertFalse(boundary.getValue().isOnPreviousPage());
+    }
+
+    @Test
+    public void linksToNeighbourPagesShouldReferToBoundaryPostsOfShownPage() throws NotFoundException {
+        String page = "1";
+        Topic topic = createTopic();
+        topic.addPost(new Post(user, TOPIC_CONTENT));
+        List<Post> posts = topic.getPosts();
+        posts.get(0).setId(1L);
+        posts.get(1).setId(2L);
+        prepareViewTopicMocks(topic, page);
+
+        ModelAndView mav = controller.showTopicPage(mock(WebRequest.class), TOPIC_ID, page, null, null);
+
+        Map<String, String> previousPageParams = assertAndReturnModelAttributeOfType(mav, "previousPageParams",
+                HashMap.class);
+        Map<String, String> nextPageParams = assertAndReturnModelAttributeOfType(mav, "nextPageParams", HashMap.class);
+        assertEquals(previousPageParams.get("before"), "1");
+        assertEquals(nextPageParams.get("after"), "2");
+    }
+
+    @Test
+    public void showTopicPageShouldShowIfCurrentUserHasVotedInPoll() throws NotFoundException {
+        String page = "1";
+        Topic topic = createTopic();
+        Poll poll = new Poll("poll");
+        topic.setPoll(poll);
+        prepareViewTopicMocks(topic, page);
+        when(pollService.isVotedByCurrentUser(poll)).thenReturn(true);
+
+        ModelAndView mav = controller.showTopicPage(mock(WebRequest.class), TOPIC_ID, page, null, null);
+
+        assertModelAttributeValue(mav, "pollVoted", true);
+    }
+
+    @Test
+    public void showTopicPageWithoutPollShouldNotCheckVotes() throws NotFoundException {
+        String page = "1";
+        Topic topic = createTopic();
+        prepareViewTopicMocks(topic, page);
+
+        ModelAndView mav = controller.showTopicPage(mock(WebRequest.class), TOPIC_ID, page, null, null);
+
+        assertModelAttributeValue(mav, "pollVoted", false);
+        verify(pollService, never()).isVotedByCurrentUser(any(Poll.class));
+    }
+
     @Test
     public void showTopicPageShouldReturnNullIfModifiedSinceOlderThenLastUpdate() throws NotFoundException {
         String page = "1";
@@ -160,7 +238,7 @@ public class TopicControllerTest {
         WebRequest request = mock(WebRequest.class);
         doReturn(true).when(request).checkNotModified(anyLong());
 
-        ModelAndView mav = controller.showTopicPage(request, TOPIC_ID, page);
+        ModelAndView mav = controller.showTopicPage(request, TOPIC_ID, page, null, null);
 
         assertNull(mav);
     }
@@ -174,7 +252,7 @@ public class TopicControllerTest {
         WebRequest request = mock(WebRequest.class);
         when(request.checkNotModified(topic.getModificationDate().getMillis())).thenReturn(false);
 
-        ModelAndView mav = controller.showTopicPage(request, TOPIC_ID, page);
+        ModelAndView mav = controller.showTopicPage(request, TOPIC_ID, page, null, null);
 
         assertNotNull(mav);
     }
@@ -414,6 +492,6 @@ public class TopicControllerTest {
         when(userService.getCurrentUser()).thenReturn(topic.getTopicStarter());
         when(topicFetchService.get(TOPIC_ID)).thenReturn(topic);
         when(breadcrumbBuilder.getForumBreadcrumb(topic)).thenReturn(new ArrayList<Breadcrumb>());
-        when(postService.getPosts(topic, page)).thenReturn(postsPage);
+        when(postService.getPosts(eq(topic), eq(page), any(PostsPageBoundary.class))).thenReturn(postsPage);
     }
 }
@@ -14,7 +14,10 @@
  */
 package org.jtalks.jcommune.web.controller;
 
+import org.jtalks.jcommune.model.dto.IndexingProgress;
 import org.jtalks.jcommune.model.entity.Topic;
+import org.jtalks.jcommune.plugin.api.web.dto.json.JsonResponse;
+import org.jtalks.jcommune.plugin.api.web.dto.json.JsonResponseStatus;
 import org.jtalks.jcommune.plugin.api.web.dto.TopicDto;
 import org.jtalks.jcommune.service.LastReadPostService;
 import org.jtalks.jcommune.service.TopicFetchService;
@@ -62,6 +65,17 @@ public class TopicSearchControllerTest {
 		
 		verify(topicFetchService).rebuildSearchIndex();
 	}
+
+	@Test
+	public void testGetIndexingProgress() {
+		IndexingProgress progress = new IndexingProgress(true, 10, 5);
+		when(topicFetchService.getSearchIndexingProgress()).thenReturn(progress);
+
+		JsonResponse response = topicSearchController.getIndexingProgress();
+
+		Assert.assertEquals(response.getStatus(), JsonResponseStatus.SUCCESS);
+		Assert.assertEquals(response.getResult(), progress);
+	}
 	
 	@Test
 	public void testInitSearch() {
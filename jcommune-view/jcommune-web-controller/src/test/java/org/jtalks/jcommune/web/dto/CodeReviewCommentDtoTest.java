@@ -37,6 +37,7 @@ public class CodeReviewCommentDtoTest {
         assertEquals(dto.getBody(), comment.getBody());
         assertEquals(dto.getAuthorId(), comment.getAuthor().getId());
         assertEquals(dto.getAuthorUsername(), comment.getAuthor().getEncodedUsername());
+        assertEquals(dto.getAuthorAvatarVersion(), comment.getAuthor().getAvatarLastModificationTime().getMillis());
     }
 
     @Test(expectedExceptions = NumberFormatException.class)
@@ -15,81 +15,155 @@
 package org.jtalks.jcommune.web.filters;
 
 import org.jtalks.jcommune.web.filters.parsers.TagParser;
-import org.jtalks.jcommune.web.filters.wrapper.TaggedResponseWrapper;
 import org.mockito.Mock;
-import org.springframework.mock.web.MockFilterChain;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
-import org.testng.annotations.BeforeClass;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import javax.servlet.FilterChain;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
-import javax.servlet.http.HttpServletResponse;
-
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
+import static org.testng.Assert.assertEquals;
 
 /**
  * @author Mikhail Stryzhonok
  */
 public class TagFilterTest {
+    private static final String CONTENT = "test <jcommune:message>code</jcommune:message> <jcommune:link>code</jcommune:link>";
 
     @Mock
     private TagParser parser1, parser2;
-
-    private HttpServletRequest request;
-    private HttpServletResponse response;
+    @Mock
     private FilterChain filterChain;
 
-    @BeforeClass
-    public void init() {
-        initMocks(this);
-    }
+    private HttpServletRequest request;
+    private MockHttpServletResponse response;
+    private TagFilter filter;
 
     @BeforeMethod
-    public void refresh() throws Exception{
-        filterChain = new MockFilterChain();
+    public void refresh() throws Exception {
+        initMocks(this);
         response = new MockHttpServletResponse();
+        response.setCharacterEncoding("UTF-8");
+        response.setLocale(Locale.ENGLISH);
         request = new MockHttpServletRequest();
-        when(parser1.replaceTagByContent(any(TaggedResponseWrapper.class))).thenReturn(new byte[0]);
-        when(parser2.replaceTagByContent(any(TaggedResponseWrapper.class))).thenReturn(new byte[0]);
-    }
-
-    @Test
-    public void doFilterShouldCallAllParsersIfContentTypeIsTextHtml() throws Exception {
-        TagFilter filter = new TagFilter();
+        when(parser1.getTagName()).thenReturn("jcommune:message");
+        when(parser1.getContent("code", Locale.ENGLISH)).thenReturn("message");
+        when(parser2.getTagName()).thenReturn("jcommune:link");
+        when(parser2.getContent("code", Locale.ENGLISH)).thenReturn("link");
+        filter = new TagFilter();
         List<TagParser> parsers = new ArrayList<>();
         parsers.add(parser1);
         parsers.add(parser2);
         filter.setParsers(parsers);
+    }
+
+    @Test
+    public void doFilterShouldReplaceTagsOfAllParsersIfContentTypeIsTextHtml() throws Exception {
         response.setContentType("text/html");
+        givenContentWrittenByWriter(CONTENT);
 
         filter.doFilter(request, response, filterChain);
 
-        for (TagParser parser : parsers) {
-            verify(parser).replaceTagByContent(any(TaggedResponseWrapper.class));
-        }
+        assertEquals(response.getContentAsString(), "test message link");
     }
 
     @Test
-    public void doFilterShouldNotCallParsersIfContentTypeNotTextHtml() throws Exception{
-        TagFilter filter = new TagFilter();
-        List<TagParser> parsers = new ArrayList<>();
-        parsers.add(parser1);
-        parsers.add(parser2);
-        filter.setParsers(parsers);
+    public void doFilterShouldReplaceTagsWrittenToOutputStream() throws Exception {
+        response.setContentType("text/html;charset=UTF-8");
+        givenContentWrittenToOutputStream(CONTENT);
+
+        filter.doFilter(request, response, filterChain);
+
+        assertEquals(response.getContentAsString(), "test message link");
+    }
+
+    @Test
+    public void doFilterShouldNotCallParsersIfContentTypeNotTextHtml() throws Exception {
+        response.setContentType("application/json");
+        givenContentWrittenByWriter(CONTENT);
 
         filter.doFilter(request, response, filterChain);
 
-        for (TagParser parser : parsers) {
-            verify(parser).replaceTagByContent(any(TaggedResponseWrapper.class));
-        }
+        assertEquals(response.getContentAsString(), CONTENT);
+        verify(parser1, never()).getContent(anyString(), any(Locale.class));
+        verify(parser2, never()).getContent(anyString(), any(Locale.class));
+    }
+
+    @Test
+    public void doFilterShouldNotPassContentLengthOfTextHtml() throws Exception {
+        response.setContentType("text/html");
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                ServletResponse wrapped = (ServletResponse) invocation.getArguments()[1];
+                wrapped.setContentLength(CONTENT.length());
+                wrapped.getWriter().write(CONTENT);
+                return null;
+            }
+        }).when(filterChain).doFilter(any(ServletRequest.class), any(ServletResponse.class));
+
+        filter.doFilter(request, response, filterChain);
+
+        assertEquals(response.getContentLength(), 0);
+    }
+
+    @Test
+    public void doFilterShouldTrimWhitespacesIfEnabled() throws Exception {
+        filter.setTrimWhitespaces(true);
+        response.setContentType("text/html");
+        givenContentWrittenByWriter("  <p>\n  " + CONTENT + "  \n\n</p>");
+
+        filter.doFilter(request, response, filterChain);
+
+        assertEquals(response.getContentAsString(), "<p>\ntest message link\n</p>");
+    }
+
+    @Test
+    public void doFilterShouldNotTrimWhitespacesOfExcludedPages() throws Exception {
+        filter.setTrimWhitespaces(true);
+        filter.setTrimExcludePatterns("^.*/users/.*/security");
+        ((MockHttpServletRequest) request).setRequestURI("/jcommune/users/1/security");
+        response.setContentType("text/html");
+        givenContentWrittenByWriter("  " + CONTENT + "\n");
+
+        filter.doFilter(request, response, filterChain);
+
+        assertEquals(response.getContentAsString(), "  test message link\n");
+    }
+
+    private void givenContentWrittenByWriter(final String content) throws Exception {
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                ((ServletResponse) invocation.getArguments()[1]).getWriter().write(content);
+                return null;
+            }
+        }).when(filterChain).doFilter(any(ServletRequest.class), any(ServletResponse.class));
+    }
+
+    private void givenContentWrittenToOutputStream(final String content) throws Exception {
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                ((ServletResponse) invocation.getArguments()[1]).getOutputStream().write(content.getBytes("UTF-8"));
+                return null;
+            }
+        }).when(filterChain).doFilter(any(ServletRequest.class), any(ServletResponse.class));
     }
 }
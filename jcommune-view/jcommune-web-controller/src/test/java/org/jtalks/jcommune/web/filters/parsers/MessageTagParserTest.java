@@ -14,29 +14,22 @@
  */
 package org.jtalks.jcommune.web.filters.parsers;
 
-import org.jtalks.jcommune.web.filters.wrapper.TaggedResponseWrapper;
-import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.Spy;
-import org.springframework.mock.web.MockHttpServletResponse;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
-import javax.servlet.http.HttpServletResponse;
 import java.io.StringReader;
 import java.util.Locale;
 import java.util.PropertyResourceBundle;
 import java.util.ResourceBundle;
 
-import static org.mockito.Matchers.any;
-import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.testng.Assert.assertEquals;
-import static org.testng.Assert.assertFalse;
-import static org.testng.Assert.assertTrue;
 
 /**
  * @author Mikhail Stryzhonok
@@ -52,9 +45,6 @@ public class MessageTagParserTest {
     @Spy
     private MessageTagParser parser = new MessageTagParser();
 
-    @Mock
-    TaggedResponseWrapper wrapper;
-
     private ResourceBundle enBundle;
     private ResourceBundle ruBundle;
 
@@ -66,92 +56,62 @@ public class MessageTagParserTest {
 
     @BeforeMethod
     public void init() {
+        parser = new MessageTagParser();
         MockitoAnnotations.initMocks(this);
         doReturn(enBundle).when(parser).getBundle(eq(Locale.forLanguageTag("en")));
         doReturn(ruBundle).when(parser).getBundle(eq(Locale.forLanguageTag("ru")));
-        when(wrapper.getCharacterEncoding()).thenReturn("UTF-8");
     }
 
-
     @Test
-    public void testParse() throws Exception {
-        when(wrapper.getByteArray()).thenReturn("test <jcommune:message></jcommune:message>".getBytes());
-        doReturn("parsed").when(parser).getStringByKey(anyString(), any(Locale.class));
-
-        byte[] result = parser.replaceTagByContent(wrapper);
-
-        assertEquals(new String(result), "test parsed");
+    public void tagNameShouldBeJcommuneMessage() {
+        assertEquals(parser.getTagName(), "jcommune:message");
     }
 
     @Test
-    public void testParseDifferentRegister() throws Exception{
-        when(wrapper.getByteArray()).thenReturn("test < JcoMMune:MessAGe></jCommUNE:mESSagE>".getBytes());
-        doReturn("parsed").when(parser).getStringByKey(anyString(), any(Locale.class));
-
-        byte[] result = parser.replaceTagByContent(wrapper);
-
-        assertEquals(new String(result), "test parsed");
+    public void getContentShouldReturnCorrectMessage() {
+        assertEquals(parser.getContent("code1", Locale.ENGLISH), "message1");
     }
 
     @Test
-    public void  replaceTagByContentShouldReplaceContentByCorrectMessage() throws Exception {
-        when(wrapper.getByteArray()).thenReturn("test <jcommune:message>code1</jcommune:message>".getBytes());
-        when(wrapper.getLocale()).thenReturn(Locale.ENGLISH);
-
-        byte[] result = parser.replaceTagByContent(wrapper);
-
-        assertEquals(new String(result), "test message1");
+    public void getContentShouldReturnTranslatedMessage() {
+        assertEquals(parser.getContent("code1", Locale.forLanguageTag("ru")), "сообщение1");
     }
 
     @Test
-    public void replaceTagByContentShouldCorrectlyProcessCodesWithDots() throws Exception {
-        when(wrapper.getByteArray()).thenReturn("test <jcommune:message>code.2</jcommune:message>".getBytes());
-        when(wrapper.getLocale()).thenReturn(Locale.ENGLISH);
-
-        byte[] result = parser.replaceTagByContent(wrapper);
-
-        assertEquals(new String(result), "test message2");
+    public void getContentShouldCorrectlyProcessCodesWithDots() {
+        assertEquals(parser.getContent("code.2", Locale.ENGLISH), "message2");
     }
 
     @Test
-    public void replaceTagByContentShouldCorrectlyProcessCodesWithIllegalCharacters() throws Exception {
+    public void getContentShouldCorrectlyProcessCodesWithIllegalCharacters() {
         String code = "code.2/&?";
-        when(wrapper.getByteArray()).thenReturn(("test <jcommune:message>" + code + "</jcommune:message>").getBytes());
-        when(wrapper.getLocale()).thenReturn(Locale.ENGLISH);
 
-        byte[] result = parser.replaceTagByContent(wrapper);
-
-        assertEquals(new String(result), "test " + code);
+        assertEquals(parser.getContent(code, Locale.ENGLISH), code);
     }
 
     @Test
-    public void replaceTagByContentShouldUseEnglishAsDefaultIfTranslateNotFound() throws Exception {
-        when(wrapper.getByteArray()).thenReturn("test <jcommune:message>code3</jcommune:message>".getBytes());
-        when(wrapper.getLocale()).thenReturn(Locale.forLanguageTag("ru"));
-
-        byte[] result = parser.replaceTagByContent(wrapper);
-
-        assertEquals(new String(result), "test message3");
+    public void getContentShouldUseEnglishAsDefaultIfTranslateNotFound() {
+        assertEquals(parser.getContent("code3", Locale.forLanguageTag("ru")), "message3");
     }
 
     @Test
-    public void replaceTagByContentShouldUseCodeIfTranslateAnsDefaultsNotFound() throws Exception {
-        when(wrapper.getByteArray()).thenReturn("test <jcommune:message>code.000</jcommune:message>".getBytes());
-        when(wrapper.getLocale()).thenReturn(Locale.ENGLISH);
-
-        byte[] result = parser.replaceTagByContent(wrapper);
+    public void getContentShouldUseCodeIfTranslateAnsDefaultsNotFound() {
+        assertEquals(parser.getContent("code.000", Locale.ENGLISH), "code.000");
+    }
 
-        assertEquals(new String(result), "test code.000");
+    @Test
+    public void getContentShouldUseEnglishIfLocaleIsUnknown() {
+        assertEquals(parser.getContent("code1", null), "message1");
     }
 
     @Test
-    public void testParseShouldNotModifyIncomingBufferAndReturnFalseIfNoMatchesFound() throws Exception {
-        String response = "test string";
-        when(wrapper.getByteArray()).thenReturn(response.getBytes());
-        when(wrapper.getLocale()).thenReturn(Locale.ENGLISH);
+    public void messagesShouldBeLoadedFromBundleOnlyOnce() {
+        Locale russian = Locale.forLanguageTag("ru");
 
-        byte[] result = parser.replaceTagByContent(wrapper);
+        parser.getContent("code1", russian);
+        parser.getContent("code3", russian);
+        parser.getContent("code4", russian);
 
-        assertEquals(new String(result), response);
+        verify(parser, times(1)).getBundle(russian);
     }
 }
@@ -0,0 +1,152 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.web.filters.wrapper;
+
+import org.jtalks.jcommune.web.filters.parsers.TagParser;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+
+public class TagSubstitutingOutputStreamTest {
+    private TagParser messageParser;
+    private TagParser linkParser;
+    private ByteArrayOutputStream target;
+    private TagSubstitutingOutputStream stream;
+
+    @BeforeMethod
+    public void init() {
+        messageParser = mock(TagParser.class);
+        when(messageParser.getTagName()).thenReturn("jcommune:message");
+        when(messageParser.getContent("code", Locale.ENGLISH)).thenReturn("message");
+        when(messageParser.getContent("другой", Locale.ENGLISH)).thenReturn("другое сообщение");
+        linkParser = mock(TagParser.class);
+        when(linkParser.getTagName()).thenReturn("jcommune:link");
+        when(linkParser.getContent("code", Locale.ENGLISH)).thenReturn("link");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setCharacterEncoding("UTF-8");
+        response.setLocale(Locale.ENGLISH);
+        target = new ByteArrayOutputStream();
+        stream = new TagSubstitutingOutputStream(target, Arrays.asList(messageParser, linkParser), response);
+    }
+
+    @Test
+    public void tagShouldBeReplacedByContent() throws Exception {
+        assertEquals(substitute("test <jcommune:message>code</jcommune:message>!"), "test message!");
+    }
+
+    @Test
+    public void tagsOfAllParsersShouldBeReplaced() throws Exception {
+        String result = substitute("<jcommune:link>code</jcommune:link> <jcommune:message>code</jcommune:message>");
+
+        assertEquals(result, "link message");
+    }
+
+    @Test
+    public void tagShouldBeFoundRegardlessOfCaseAndWhitespaces() throws Exception {
+        String result = substitute("test < JcoMMune:MessAGe > code\t</ jCommUNE:mESSagE\n>");
+
+        assertEquals(result, "test message");
+    }
+
+    @Test
+    public void tagShouldBeFoundWhenWrittenByteByByte() throws Exception {
+        byte[] bytes = "a <jcommune:message>другой</jcommune:message> b".getBytes(StandardCharsets.UTF_8);
+        for (byte b : bytes) {
+            stream.write(b);
+        }
+        stream.finish();
+
+        assertEquals(new String(target.toByteArray(), StandardCharsets.UTF_8), "a другое сообщение b");
+    }
+
+    @Test
+    public void tagShouldBeFoundWhenSplitBetweenWrites() throws Exception {
+        stream.write("test <jcommune:mes".getBytes(StandardCharsets.UTF_8));
+        stream.write("sage>code</jcommune".getBytes(StandardCharsets.UTF_8));
+        stream.write(":message>".getBytes(StandardCharsets.UTF_8));
+        stream.finish();
+
+        assertEquals(new String(target.toByteArray(), StandardCharsets.UTF_8), "test message");
+    }
+
+    @Test
+    public void otherTagsShouldNotBeChanged() throws Exception {
+        String html = "<html><body class=\"a\"><jcommune:messages>code</jcommune:messages> a < b</body></html>";
+
+        assertEquals(substitute(html), html);
+        verify(messageParser, never()).getContent(anyString(), any(Locale.class));
+    }
+
+    @Test
+    public void tagShouldBeFoundAfterFalseStart() throws Exception {
+        String result = substitute("<<jcommune:message>code</jcommune:message><</jcommune:message>");
+
+        assertEquals(result, "<message<</jcommune:message>");
+    }
+
+    @Test
+    public void closingTagShouldBeFoundAfterOtherTagsInBody() throws Exception {
+        when(messageParser.getContent("<b>code</b>", Locale.ENGLISH)).thenReturn("bold");
+
+        assertEquals(substitute("<jcommune:message><b>code</b></jcommune:message>"), "bold");
+    }
+
+    @Test
+    public void unclosedTagShouldBeWrittenAsIs() throws Exception {
+        String html = "test <jcommune:message>code</jcommune:mess";
+
+        assertEquals(substitute(html), html);
+    }
+
+    @Test
+    public void tooLongTagShouldBeWrittenAsIs() throws Exception {
+        StringBuilder html = new StringBuilder("<jcommune:message>");
+        for (int i = 0; i < TagSubstitutingOutputStream.MAX_TAG_LENGTH; i++) {
+            html.append('x');
+        }
+        html.append("</jcommune:message> <jcommune:message>code</jcommune:message>");
+
+        String result = substitute(html.toString());
+
+        assertEquals(result, html.toString().replace("<jcommune:message>code</jcommune:message>", "message"));
+    }
+
+    @Test
+    public void incompleteTagShouldBeKeptOnFlush() throws Exception {
+        stream.write("test <jcommune:mess".getBytes(StandardCharsets.UTF_8));
+        stream.flush();
+
+        assertEquals(new String(target.toByteArray(), StandardCharsets.UTF_8), "test ");
+    }
+
+    private String substitute(String html) throws Exception {
+        stream.write(html.getBytes(StandardCharsets.UTF_8));
+        stream.finish();
+        return new String(target.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
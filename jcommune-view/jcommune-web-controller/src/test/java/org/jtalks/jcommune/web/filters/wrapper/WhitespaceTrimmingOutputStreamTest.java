@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.web.filters.wrapper;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class WhitespaceTrimmingOutputStreamTest {
+    private ByteArrayOutputStream target;
+    private WhitespaceTrimmingOutputStream stream;
+
+    @BeforeMethod
+    public void init() {
+        target = new ByteArrayOutputStream();
+        stream = new WhitespaceTrimmingOutputStream(target);
+    }
+
+    @Test
+    public void whitespacesAroundLinesShouldBeRemoved() throws Exception {
+        assertEquals(trim("  <div>\n\t  <span>a  b</span>  \r\n  </div>  "), "<div>\n<span>a  b</span>\n</div>");
+    }
+
+    @Test
+    public void blankLinesShouldBeRemoved() throws Exception {
+        assertEquals(trim("\n\n<p>a</p>\n   \n\t\n<p>b</p>\n\n"), "<p>a</p>\n<p>b</p>\n");
+    }
+
+    @Test
+    public void contentOfPreservedElementsShouldNotBeTrimmed() throws Exception {
+        String pre = "<pre class=\"code\">\n  int a;\n\n    a++;  \n</pre>";
+        String textarea = "<TEXTAREA>\n  text\n</TextArea>";
+        String script = "<script>\n  var s = '<pre>';\n\n</script>";
+
+        assertEquals(trim("  " + pre + "\n  " + textarea + "\n  " + script + "\n  <p>"),
+                pre + "\n" + textarea + "\n" + script + "\n<p>");
+    }
+
+    @Test
+    public void elementsWithSimilarNamesShouldBeTrimmed() throws Exception {
+        assertEquals(trim("<prefix>\n  a\n</prefix>\n  <p>"), "<prefix>\na\n</prefix>\n<p>");
+    }
+
+    @Test
+    public void contentShouldBeTheSameWhenWrittenByteByByte() throws Exception {
+        byte[] bytes = "  <pre>\n  другой\n</pre>\n  текст  \n".getBytes(StandardCharsets.UTF_8);
+        for (byte b : bytes) {
+            stream.write(b);
+        }
+        stream.flush();
+
+        assertEquals(target.toString("UTF-8"), "<pre>\n  другой\n</pre>\nтекст\n");
+    }
+
+    @Test
+    public void contentShouldBeWrittenBeforeResponseIsCompleted() throws Exception {
+        byte[] bytes = new byte[WhitespaceTrimmingOutputStream.BUFFER_SIZE * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = 'a';
+        }
+
+        stream.write(bytes);
+
+        assertTrue(target.size() >= WhitespaceTrimmingOutputStream.BUFFER_SIZE);
+    }
+
+    @Test
+    public void longWhitespaceSequenceInTheMiddleOfLineShouldBeKept() throws Exception {
+        StringBuilder whitespaces = new StringBuilder();
+        for (int i = 0; i < WhitespaceTrimmingOutputStream.MAX_PENDING_WHITESPACES * 2; i++) {
+            whitespaces.append(' ');
+        }
+
+        assertEquals(trim("a" + whitespaces + "b"), "a" + whitespaces + "b");
+    }
+
+    private String trim(String content) throws Exception {
+        stream.write(content.getBytes(StandardCharsets.UTF_8));
+        stream.flush();
+        return target.toString("UTF-8");
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2011  JTalks.org Team
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.jtalks.jcommune.web.interceptors;
+
+import org.jtalks.jcommune.model.entity.Banner;
+import org.jtalks.jcommune.model.entity.ExternalLink;
+import org.jtalks.jcommune.service.dto.ForumChrome;
+import org.jtalks.jcommune.service.nontransactional.ForumChromeCacheService;
+import org.mockito.Mock;
+import org.springframework.web.servlet.ModelAndView;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static org.springframework.test.web.ModelAndViewAssert.assertModelAttributeAvailable;
+import static org.springframework.test.web.ModelAndViewAssert.assertModelAttributeValue;
+
+public class ForumChromeInterceptorTest {
+    @Mock
+    private ForumChromeCacheService forumChromeCacheService;
+
+    private ForumChromeInterceptor interceptor;
+
+    @BeforeMethod
+    public void init() {
+        initMocks(this);
+        interceptor = new ForumChromeInterceptor(forumChromeCacheService);
+    }
+
+    @Test
+    public void postHandleShouldAddForumChromeToModel() throws Exception {
+        ForumChrome chrome = new ForumChrome(Collections.<Banner>emptyList(), Collections.<ExternalLink>emptyList(), null);
+        when(forumChromeCacheService.getForumChrome()).thenReturn(chrome);
+        ModelAndView modelAndView = new ModelAndView("a view");
+
+        interceptor.postHandle(null, null, null, modelAndView);
+
+        assertModelAttributeValue(modelAndView, ForumChromeInterceptor.FORUM_CHROME_MODEL_PARAM, chrome);
+        assertModelAttributeAvailable(modelAndView, ForumChromeInterceptor.UPLOADED_BANNER_MODEL_PARAM);
+    }
+
+    @Test
+    public void postHandleShouldNotAddForumChromeWhenModelIsNull() throws Exception {
+        interceptor.postHandle(null, null, null, null);
+
+        verifyZeroInteractions(forumChromeCacheService);
+    }
+}
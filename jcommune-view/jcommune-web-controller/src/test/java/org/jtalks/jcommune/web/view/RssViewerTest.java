@@ -18,9 +18,12 @@ package org.jtalks.jcommune.web.view;
 import com.sun.syndication.feed.rss.Channel;
 import com.sun.syndication.feed.rss.Item;
 import org.jtalks.common.model.entity.Component;
+import org.jtalks.jcommune.model.entity.Banner;
+import org.jtalks.jcommune.model.entity.ExternalLink;
 import org.jtalks.jcommune.model.entity.JCUser;
 import org.jtalks.jcommune.model.entity.Post;
 import org.jtalks.jcommune.model.entity.Topic;
+import org.jtalks.jcommune.service.dto.ForumChrome;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.testng.annotations.BeforeMethod;
@@ -28,6 +31,7 @@ import org.testng.annotations.Test;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -95,7 +99,8 @@ public class RssViewerTest {
         String description = "my description";
         component.setName(name);
         component.setDescription(description);
-        model.put("forumComponent", component);
+        model.put("forumChrome",
+                new ForumChrome(Collections.<Banner>emptyList(), Collections.<ExternalLink>emptyList(), component));
 
         rssViewer.buildFeedMetadata(model, channel, request);
         assertFalse(channel.equals(new Channel()));
@@ -15,6 +15,7 @@
 
 package org.jtalks.jcommune.web.tags;
 
+import org.jtalks.jcommune.model.entity.Post;
 import org.jtalks.jcommune.service.nontransactional.BBCodeService;
 import org.springframework.context.ApplicationContext;
 import org.springframework.web.context.support.WebApplicationContextUtils;
@@ -34,6 +35,7 @@ import java.io.IOException;
  */
 public class ConverterBB2HTML extends TagSupport {
     private String bbCode;
+    private Post post;
     /** We get this from Spring App Context in {@link #setPageContext(PageContext)}. */
     private BBCodeService service;
 
@@ -42,7 +44,7 @@ public class ConverterBB2HTML extends TagSupport {
     @Override
     public int doStartTag() throws JspException {
         try {
-            String html = service.convertBbToHtml(bbCode);
+            String html = (post != null) ? service.convertPostToHtml(post) : service.convertBbToHtml(bbCode);
             pageContext.getOut().print(html);
             return SKIP_BODY;
         } catch (IOException e) {
@@ -59,6 +61,22 @@ public class ConverterBB2HTML extends TagSupport {
         this.bbCode = bbCode;
     }
 
+    /**
+     * Feeds the post which content is passed as bb-code. If set, rendered content of the post may be taken from cache.
+     *
+     * @param post post which content is converted
+     */
+    public void setPost(Post post) {
+        this.post = post;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void release() {
+        super.release();
+        post = null;
+    }
+
     /** {@inheritDoc} */
     @Override
     public void setPageContext(PageContext pageContext) {
@@ -118,7 +118,7 @@
                   <c:if test="${branch.topicCount>0}">
                     <i class="icon-calendar"></i>
                     <a class="date" href="${pageContext.request.contextPath}/posts/${branch.lastPost.id}">
-                      <jtalks:format value="${branch.lastPost.creationDate}"/>
+                      <jtalks:format value="${branch.lastPostDate}"/>
                     </a>
 
                     <p><spring:message code="label.topic.last_post_by"/>
@@ -82,7 +82,8 @@
   <div class="span8">
     <div class="pagination pull-right forum-pagination">
       <ul>
-        <jtalks:pagination uri="${topicId}" page="${postsPage}"/>
+        <jtalks:pagination uri="${topicId}" page="${postsPage}"
+                           previousPageParams="${previousPageParams}" nextPageParams="${nextPageParams}"/>
       </ul>
     </div>
   </div>
@@ -95,7 +96,7 @@
 <c:if test="${topic.poll != null}">
   <div class="row well poll">
     <div class="span4  poll-row">
-      <jtalks:poll poll="${topic.poll}"/>
+      <jtalks:poll poll="${topic.poll}" voted="${pollVoted}"/>
     </div>
   </div>
 </c:if>
@@ -288,7 +289,7 @@
       </div>
              
                    <span class="thumbnail post-userinfo-avatal wraptocenter">
-                        <img src="${pageContext.request.contextPath}/users/${post.userCreated.id}/avatar" alt=""/>
+                        <img src="${pageContext.request.contextPath}/users/${post.userCreated.id}/avatar?v=${post.userCreated.avatarLastModificationTime.millis}" alt=""/>
                    </span>
 
       <div>
@@ -314,7 +315,7 @@
       </div>
     </td>
     <td class='post-content-td'>
-      <jtalks:postContent text="${post.postContent}"
+      <jtalks:postContent text="${post.postContent}" post="${post}"
                           signature="${post.userCreated.signature}"/>
     </td>
   </tr>
@@ -341,7 +342,8 @@
   <div class="span8">
     <div class="pagination pull-right forum-pagination">
       <ul>
-        <jtalks:pagination uri="${topicId}" page="${postsPage}"/>
+        <jtalks:pagination uri="${topicId}" page="${postsPage}"
+                           previousPageParams="${previousPageParams}" nextPageParams="${nextPageParams}"/>
       </ul>
     </div>
   </div>
@@ -269,11 +269,11 @@ in the future.
 <body>
 <jsp:include page="../template/topLine.jsp"/>
 <jsp:include page="../template/externalLinkBar.jsp"/>
-<jtalks:banner banner="${banners['TOP']}" position="${'TOP'}"/>
+<jtalks:banner banner="${forumChrome.banners['TOP']}" position="${'TOP'}"/>
 <decorator:body/>
 <div class="container">
   <footer>
-    <jtalks:banner banner="${banners['BOTTOM']}" position="${'BOTTOM'}"/>
+    <jtalks:banner banner="${forumChrome.banners['BOTTOM']}" position="${'BOTTOM'}"/>
     <div>
       <div class="pull-left">
         <c:choose>
@@ -288,7 +288,7 @@ in the future.
         Design with <a class="space-left-small" href="http://getbootstrap.com">Twitter Bootstrap</a>
       </div>
       <div>
-        <jtalks:banner banner="${banners['BOTTOM_FOOTER']}" position="${'BOTTOM_FOOTER'}"/>
+        <jtalks:banner banner="${forumChrome.banners['BOTTOM_FOOTER']}" position="${'BOTTOM_FOOTER'}"/>
       </div>
     </div>
     <c:if test="${not empty sapeLinks}">
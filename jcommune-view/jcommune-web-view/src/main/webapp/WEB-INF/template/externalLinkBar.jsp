@@ -22,16 +22,16 @@
 
 <div class="external-links-bar">
   <div class="external-links-container">
-    <c:if test="${not empty forumComponent and sessionScope.adminMode == true}">
-      <jtalks:hasPermission targetId="${forumComponent.id}" targetType="COMPONENT" permission="GeneralPermission.ADMIN">
+    <c:if test="${not empty forumChrome.forumComponent and sessionScope.adminMode == true}">
+      <jtalks:hasPermission targetId="${forumChrome.forumComponent.id}" targetType="COMPONENT" permission="GeneralPermission.ADMIN">
         <span id="links_editor" data-placement="right" title='<fmt:message key="label.linksEditor"/>'
               class="icon-cog cursor-hand links_editor"></span>
       </jtalks:hasPermission>
     </c:if>
     <c:choose>
-      <c:when test="${not empty externalLinks}">
+      <c:when test="${not empty forumChrome.externalLinks}">
         <span id="externalLinks">
-          <c:forEach var="link" items="${externalLinks}">
+          <c:forEach var="link" items="${forumChrome.externalLinks}">
             <span>
               <a title="<c:out value='${link.hint}'/>" href="<c:out value='${link.url}'/>"
                  id="big-screen-external-link-${link.id}">
@@ -39,9 +39,9 @@
 <span id="copyrightHolder" class="hidden"><c:out value="${copyrightTemplate}"/></span>
 
 <c:set var="toolTipKey" value="${logoTooltip}"/>
-<c:if test="${not empty forumComponent}">
+<c:if test="${not empty forumChrome.forumComponent}">
   <jtalks:hasPermission permission="GeneralPermission.ADMIN"
-                        targetId="${forumComponent.id}" targetType="COMPONENT">
+                        targetId="${forumChrome.forumComponent.id}" targetType="COMPONENT">
     <c:if test="${empty toolTipKey}">
       <c:set var="toolTipKey"> <spring:message code="label.changeLogo"/> </c:set>
     </c:if>
@@ -85,8 +85,8 @@
                               data-toggle="dropdown"
                               title='<fmt:message key="label.links"/>'>
                             <fmt:message key="label.links"/>
-                            <c:if test="${not empty forumComponent and sessionScope.adminMode == true}">
-                              <jtalks:hasPermission targetId="${forumComponent.id}" targetType="COMPONENT"
+                            <c:if test="${not empty forumChrome.forumComponent and sessionScope.adminMode == true}">
+                              <jtalks:hasPermission targetId="${forumChrome.forumComponent.id}" targetType="COMPONENT"
                                                     permission="GeneralPermission.ADMIN">
                                    <span id="links_editor_top" title='<fmt:message key="label.linksEditor"/>'
                                          class="icon-white-cog cursor-hand links_editor"></span>
@@ -94,8 +94,8 @@
                             </c:if>
                         </span>
       <ul class="dropdown-menu links-menu">
-        <c:if test="${not empty externalLinks}">
-          <c:forEach var="link" items="${externalLinks}">
+        <c:if test="${not empty forumChrome.externalLinks}">
+          <c:forEach var="link" items="${forumChrome.externalLinks}">
             <li><a id="small-screen-external-link-<c:out value='${link.id}'/>" 
             data-original-title="<c:out value='${link.hint}'/>" href="<c:out value='${link.url}'/>">
               <c:out value="${link.title}"/>
@@ -130,9 +130,9 @@
 
     <%-- Logged in block --%>
     <sec:authorize access="isAuthenticated()">
-      <c:if test="${not empty forumComponent}">
+      <c:if test="${not empty forumChrome.forumComponent}">
         <jtalks:hasPermission permission="GeneralPermission.ADMIN"
-                            targetId="${forumComponent.id}" targetType="COMPONENT">
+                            targetId="${forumChrome.forumComponent.id}" targetType="COMPONENT">
           <%-- Administration functions chooser --%>
           <li class="dropdown">
             <div class="dropdown-toggle topline-dropdown-menu" data-toggle="dropdown">
@@ -188,9 +188,9 @@
             </a>
           </li>
             <%--External links end--%>
-          <c:if test="${not empty forumComponent}">
+          <c:if test="${not empty forumChrome.forumComponent}">
             <jtalks:hasPermission permission="GeneralPermission.ADMIN"
-                                  targetId="${forumComponent.id}" targetType="COMPONENT">
+                                  targetId="${forumChrome.forumComponent.id}" targetType="COMPONENT">
               <li>
                 <a href='<c:url value="/configuration/sape"/>' id="user-menu-configuration">
                   <spring:message code="label.sapeConfiguration"/>
@@ -396,7 +396,7 @@ function CodeHighlighting() {
 					+ '<input type=hidden name=id value="' + comment.id + '"/>'
 					+ '<input type=hidden name=authorId value="' + comment.authorId + '"/>'
 	                + '<div class="left-aligned">'
-	                    + '<img class="review-avatar-img" src="' + baseUrl + '/users/' + comment.authorId + '/avatar"/>'
+	                    + '<img class="review-avatar-img" src="' + baseUrl + '/users/' + comment.authorId + '/avatar?v=' + comment.authorAvatarVersion + '"/>'
 	                + '</div>'
 	                + '<div class="review-content">'
 					    + '<div class="review-buttons" style="float:right">'